@@ -45,14 +45,17 @@ public class OpenCodeService {
 	@Value("${opencode.server.binary-path}")
 	private String binaryPath;
 
+	@Value("${opencode.server.startup-timeout:30000}")
+	private long startupTimeout;
+
 	@PostConstruct
 	public void init() {
+		client = OpenCodeClient.builder().baseUrl(opencodeUrl).apiKey(apiKey).build();
+
 		if (autoStart) {
 			startOpenCodeServer();
 		}
 
-		client = OpenCodeClient.builder().baseUrl(opencodeUrl).apiKey(apiKey).build();
-
 		logger.info("OpenCode service initialized with URL: {}", opencodeUrl);
 	}
 
@@ -71,15 +74,39 @@ public class OpenCodeService {
 			pb.inheritIO();
 			opencodeProcess = pb.start();
 
-			// Wait a bit for server to start
-			Thread.sleep(3000);
-			logger.info("OpenCode server started");
+			if (awaitServer()) {
+				logger.info("OpenCode server started");
+			}
+			else {
+				logger.warn("OpenCode server did not answer within {} ms", startupTimeout);
+			}
 		}
 		catch (Exception e) {
 			logger.warn("Failed to start OpenCode server: {}", e.getMessage());
 		}
 	}
 
+	/**
+	 * Probe the server until it answers, instead of sleeping for a fixed time; this
+	 * example bundles its own copy of the SDK, which predates ServerProcessManager
+	 */
+	private boolean awaitServer() throws InterruptedException {
+		long deadline = System.nanoTime() + startupTimeout * 1_000_000;
+		long pause = 50;
+		while (System.nanoTime() < deadline && opencodeProcess.isAlive()) {
+			try {
+				client.getConfiguration().getConfig();
+				return true;
+			}
+			catch (Exception e) {
+				// Not listening yet
+			}
+			Thread.sleep(pause);
+			pause = Math.min(pause * 2, 500);
+		}
+		return false;
+	}
+
 	public Mono<ChatCompletionResponse> createChatCompletion(ChatCompletionRequest request) {
 		return Mono.fromCallable(() -> {
 			try {
@@ -2,8 +2,10 @@ package dev.sst.opencode.bridge;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class OpenAIBridgeApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,117 @@
+package dev.sst.opencode.bridge.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-tenant admission settings
+ *
+ * A tenant is the API key a request was made with, or its {@code user} field when it
+ * carries no key. Each tenant gets a token bucket of {@code requests-per-second} with
+ * room for a burst, and a queue in front of the shared OpenCode capacity: <pre>
+ * bridge:
+ *   tenancy:
+ *     requests-per-second: 2
+ *     burst: 10
+ *     max-queue: 20
+ *     max-concurrent: 8
+ *     weights:
+ *       key-3f1a9c04b7e2: 4
+ *       user-nightly-batch: 1
+ * </pre> Weights are keyed by tenant id as it appears in the metrics: {@code key-}
+ * and the first 12 hex digits of the key's SHA-256, or {@code user-} and the user.
+ */
+@ConfigurationProperties(prefix = "bridge.tenancy")
+public class TenancyProperties {
+
+	private boolean enabled = true;
+
+	/**
+	 * Sustained request rate a tenant is admitted at
+	 */
+	private double requestsPerSecond = 2;
+
+	/**
+	 * Requests a tenant may make at once after being idle
+	 */
+	private int burst = 10;
+
+	/**
+	 * Admitted requests a tenant may have waiting for OpenCode before it gets a 429
+	 */
+	private int maxQueue = 20;
+
+	/**
+	 * Requests in flight to OpenCode across all tenants
+	 */
+	private int maxConcurrent = 8;
+
+	/**
+	 * Tenants tracked individually; beyond that, new tenants share one bucket and queue
+	 */
+	private int maxTenants = 10000;
+
+	/**
+	 * Share of the OpenCode capacity per tenant, by tenant id, relative to weight 1
+	 */
+	private Map<String, Integer> weights = new HashMap<>();
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public double getRequestsPerSecond() {
+		return requestsPerSecond;
+	}
+
+	public void setRequestsPerSecond(double requestsPerSecond) {
+		this.requestsPerSecond = requestsPerSecond;
+	}
+
+	public int getBurst() {
+		return burst;
+	}
+
+	public void setBurst(int burst) {
+		this.burst = burst;
+	}
+
+	public int getMaxQueue() {
+		return maxQueue;
+	}
+
+	public void setMaxQueue(int maxQueue) {
+		this.maxQueue = maxQueue;
+	}
+
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	public void setMaxConcurrent(int maxConcurrent) {
+		this.maxConcurrent = maxConcurrent;
+	}
+
+	public int getMaxTenants() {
+		return maxTenants;
+	}
+
+	public void setMaxTenants(int maxTenants) {
+		this.maxTenants = maxTenants;
+	}
+
+	public Map<String, Integer> getWeights() {
+		return weights;
+	}
+
+	public void setWeights(Map<String, Integer> weights) {
+		this.weights = weights;
+	}
+
+}
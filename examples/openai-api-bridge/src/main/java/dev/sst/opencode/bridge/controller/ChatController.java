@@ -3,18 +3,23 @@ package dev.sst.opencode.bridge.controller;
 import dev.sst.opencode.bridge.model.ChatCompletionRequest;
 import dev.sst.opencode.bridge.model.ChatCompletionResponse;
 import dev.sst.opencode.bridge.service.OpenCodeService;
+import dev.sst.opencode.bridge.service.TenantScheduler;
+import dev.sst.opencode.bridge.service.TenantThrottledException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/v1")
@@ -27,25 +32,40 @@ public class ChatController {
 	@Autowired
 	private OpenCodeService openCodeService;
 
+	@Autowired
+	private TenantScheduler tenantScheduler;
+
 	@PostMapping("/chat/completions")
 	@Operation(summary = "Create chat completion",
 			description = "Creates a model response for the given chat conversation. Compatible with OpenAI API.")
-	public Object createChatCompletion(@Valid @RequestBody ChatCompletionRequest request) {
+	public Object createChatCompletion(@Valid @RequestBody ChatCompletionRequest request,
+			@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
 		logger.info("Received chat completion request for model: {}", request.getModel());
+		String tenant = TenantScheduler.tenantOf(authorization, request.getUser());
 
 		if (Boolean.TRUE.equals(request.getStream())) {
 			// Return streaming response
-			Flux<String> stream = openCodeService.streamChatCompletion(request);
+			Flux<String> stream = tenantScheduler.submitMany(tenant,
+					() -> openCodeService.streamChatCompletion(request));
 			return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(stream);
 		}
 		else {
 			// Return regular response
-			return openCodeService.createChatCompletion(request)
+			return tenantScheduler.submit(tenant, () -> openCodeService.createChatCompletion(request))
 				.map(ResponseEntity::ok)
 				.onErrorReturn(ResponseEntity.internalServerError().build());
 		}
 	}
 
+	@ExceptionHandler(TenantThrottledException.class)
+	public ResponseEntity<?> throttled(TenantThrottledException e) {
+		logger.debug("Throttled tenant {}: {}", e.getTenant(), e.getMessage());
+		// Same error shape as OpenAI's own rate limit responses
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+			.header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+			.body(Map.of("error", Map.of("message", e.getMessage(), "type", "requests", "code", "rate_limit_exceeded")));
+	}
+
 	@GetMapping("/models")
 	@Operation(summary = "List models", description = "Lists the currently available models")
 	public ResponseEntity<?> listModels() {
@@ -1,20 +1,27 @@
 package dev.sst.opencode.bridge.service;
 
+import dev.sst.opencode.client.Deadline;
 import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.client.ReactiveOpenCodeClient;
 import dev.sst.opencode.models.*;
 import dev.sst.opencode.models.requests.PromptRequest;
 import dev.sst.opencode.models.requests.*;
 import dev.sst.opencode.bridge.model.*;
+import dev.sst.opencode.server.ServerProcessManager;
+import dev.sst.opencode.services.ReactiveSessionService;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
@@ -26,9 +33,11 @@ public class OpenCodeService {
 
 	private OpenCodeClient client;
 
+	private ReactiveOpenCodeClient reactiveClient;
+
 	private final Map<String, dev.sst.opencode.bridge.model.Session> sessions = new ConcurrentHashMap<>();
 
-	private Process opencodeProcess;
+	private ServerProcessManager serverManager;
 
 	@Value("${opencode.server.url}")
 	private String opencodeUrl;
@@ -45,35 +54,53 @@ public class OpenCodeService {
 	@Value("${opencode.server.binary-path}")
 	private String binaryPath;
 
+	@Value("${opencode.server.instances:1}")
+	private int instances;
+
 	@PostConstruct
 	public void init() {
 		if (autoStart) {
 			startOpenCodeServer();
 		}
 
-		client = OpenCodeClient.builder().baseUrl(opencodeUrl).apiKey(apiKey).build();
+		OpenCodeClient.Builder builder = OpenCodeClient.builder()
+			.baseUrl(opencodeUrl)
+			.apiKey(apiKey)
+			.promptTimeout(timeout);
+		if (serverManager != null) {
+			builder.endpoints(serverManager.getEndpoints());
+		}
+		client = builder.build();
+		reactiveClient = new ReactiveOpenCodeClient(client, WebClient.builder());
+		if (serverManager != null) {
+			serverManager.attach(client);
+		}
 
 		logger.info("OpenCode service initialized with URL: {}", opencodeUrl);
 	}
 
 	@PreDestroy
 	public void cleanup() {
-		if (opencodeProcess != null && opencodeProcess.isAlive()) {
-			logger.info("Stopping OpenCode server...");
-			opencodeProcess.destroyForcibly();
+		if (serverManager != null) {
+			logger.info("Stopping OpenCode servers...");
+			serverManager.close();
 		}
 	}
 
 	private void startOpenCodeServer() {
 		try {
-			logger.info("Starting OpenCode server with binary: {}", binaryPath);
-			ProcessBuilder pb = new ProcessBuilder(binaryPath, "serve");
-			pb.inheritIO();
-			opencodeProcess = pb.start();
-
-			// Wait a bit for server to start
-			Thread.sleep(3000);
-			logger.info("OpenCode server started");
+			logger.info("Starting {} OpenCode server(s) with binary: {}", instances, binaryPath);
+			int port = java.net.URI.create(opencodeUrl).getPort();
+			ServerProcessManager manager = ServerProcessManager.builder()
+				.executable(binaryPath)
+				.instances(instances)
+				.basePort(port > 0 ? port : 0)
+				.inheritIO(true)
+				.build();
+			// Returns once every instance answers its readiness probe
+			manager.start();
+			serverManager = manager;
+			logger.info("OpenCode servers started at {}", manager.getEndpoints());
 		}
 		catch (Exception e) {
 			logger.warn("Failed to start OpenCode server: {}", e.getMessage());
@@ -81,12 +108,10 @@ public class OpenCodeService {
 	}
 
 	public Mono<ChatCompletionResponse> createChatCompletion(ChatCompletionRequest request) {
-		return Mono.fromCallable(() -> {
-			try {
-				// Get or create session
-				String sessionId = getOrCreateSession(request.getUser());
-				dev.sst.opencode.bridge.model.Session session = sessions.get(sessionId);
-
+		// Session lookup may create a session through the blocking client
+		return Mono.fromCallable(() -> getOrCreateSession(request.getUser()))
+			.subscribeOn(Schedulers.boundedElastic())
+			.flatMap(sessionId -> {
 				// Determine provider and model
 				String providerId = mapModelToProvider(request.getModel());
 				String modelId = mapModel(request.getModel());
@@ -95,48 +120,46 @@ public class OpenCodeService {
 				String prompt = combineMessagesFromOpenAI(request.getMessages());
 				PromptRequest promptRequest = PromptRequest.ofText(prompt, providerId, modelId);
 
-				// Get the initial message ID before sending
-				List<Message> beforeMessages = client.getSessions().getMessages(sessionId);
-				int beforeCount = beforeMessages != null ? beforeMessages.size() : 0;
-
-				// Send the prompt
-				Message finalResponse = client.getSessions().sendPrompt(sessionId, promptRequest);
-
-				// Get all messages after the prompt to capture multi-turn actions
-				List<Message> afterMessages = client.getSessions().getMessages(sessionId);
-
-				// Extract all new messages (including multi-turn)
-				List<Message> newMessages = afterMessages.stream().skip(beforeCount).collect(Collectors.toList());
-
-				// Convert to OpenAI response with all actions included
-				return convertToOpenAIResponseWithFullContext(newMessages, request);
-
-			}
-			catch (Exception e) {
+				// Count the messages before sending, then collect everything after it to
+				// capture multi-turn actions
+				ReactiveSessionService sessionService = reactiveClient.getSessions();
+				return sessionService.getMessages(sessionId)
+					.count()
+					.flatMap(beforeCount -> sessionService.sendPrompt(sessionId, promptRequest)
+						.then(sessionService.getMessages(sessionId).skip(beforeCount).collectList()));
+			})
+			// The get-send-get sequence shares one time budget
+			.timeout(Duration.ofMillis(timeout))
+			// Convert to OpenAI response with all actions included
+			.map(newMessages -> convertToOpenAIResponseWithFullContext(newMessages, request))
+			.onErrorMap(e -> {
 				logger.error("Error processing chat completion", e);
-				throw new RuntimeException("Failed to process chat completion", e);
-			}
-		});
+				return new RuntimeException("Failed to process chat completion", e);
+			});
 	}
 
 	public Flux<String> streamChatCompletion(ChatCompletionRequest request) {
-		return Flux.create(sink -> {
+		return Flux.<String>create(sink -> {
 			try {
 				String sessionId = getOrCreateSession(request.getUser());
 
-				// Get initial message count
-				List<Message> beforeMessages = client.getSessions().getMessages(sessionId);
-				int beforeCount = beforeMessages != null ? beforeMessages.size() : 0;
-
 				String prompt = combineMessagesFromOpenAI(request.getMessages());
 				PromptRequest promptRequest = PromptRequest.ofText(prompt, mapModelToProvider(request.getModel()),
 						mapModel(request.getModel()));
 
-				// Send prompt
-				Message response = client.getSessions().sendPrompt(sessionId, promptRequest);
+				// The get-send-get sequence shares one time budget
+				List<Message> afterMessages = new ArrayList<>();
+				int beforeCount = Deadline.afterMillis(timeout).call(() -> {
+					// Get initial message count
+					List<Message> beforeMessages = client.getSessions().getMessages(sessionId);
+
+					// Send prompt
+					client.getSessions().sendPrompt(sessionId, promptRequest);
 
-				// Get all messages after to capture multi-turn
-				List<Message> afterMessages = client.getSessions().getMessages(sessionId);
+					// Get all messages after to capture multi-turn
+					afterMessages.addAll(client.getSessions().getMessages(sessionId));
+					return beforeMessages != null ? beforeMessages.size() : 0;
+				});
 				List<Message> newMessages = afterMessages.stream().skip(beforeCount).collect(Collectors.toList());
 
 				// Stream each part of the multi-turn response
@@ -205,7 +228,7 @@ public class OpenCodeService {
 				logger.error("Error starting stream", e);
 				sink.error(e);
 			}
-		});
+		}).subscribeOn(Schedulers.boundedElastic());
 	}
 
 	private String getOrCreateSession(String user) {
@@ -0,0 +1,344 @@
+package dev.sst.opencode.bridge.service;
+
+import dev.sst.opencode.bridge.config.TenancyProperties;
+import jakarta.annotation.PostConstruct;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Admits requests per tenant and shares the OpenCode capacity fairly between tenants
+ *
+ * A request first takes a token from its tenant's bucket, then waits in the tenant's
+ * queue for one of the bridge's slots toward OpenCode. Queued requests are served by
+ * self-clocked weighted fair queuing: each gets a finish tag one over its tenant's
+ * weight past the later of the tenant's previous tag and the tag last served, and the
+ * lowest tag goes next. A tenant sending many requests only pushes its own tags out,
+ * so a quiet tenant's request goes ahead of its backlog. An empty bucket or a full
+ * queue turns the request away with a {@link TenantThrottledException}.
+ */
+@Service
+public class TenantScheduler {
+
+	private static final Logger logger = LoggerFactory.getLogger(TenantScheduler.class);
+
+	/**
+	 * Tenant the requests of tenants past the tracking limit are accounted to
+	 */
+	static final String OVERFLOW_TENANT = "overflow";
+
+	private final TenancyProperties properties;
+
+	private final MeterRegistry registry;
+
+	private final Map<String, Tenant> tenants = new ConcurrentHashMap<>();
+
+	private final PriorityQueue<Ticket> queue = new PriorityQueue<>();
+
+	private final Timer queueWait;
+
+	/**
+	 * Finish tag of the request served last
+	 */
+	private double virtualTime;
+
+	private long sequence;
+
+	private int inFlight;
+
+	public TenantScheduler(TenancyProperties properties, MeterRegistry registry) {
+		this.properties = properties;
+		this.registry = registry;
+		this.queueWait = Timer.builder("bridge.tenant.queue.wait")
+			.description("Time admitted requests waited for an OpenCode slot")
+			.register(registry);
+	}
+
+	/**
+	 * Gauges hold on to the scheduler, so they are registered once it is constructed
+	 */
+	@PostConstruct
+	public void registerGauges() {
+		Gauge.builder("bridge.in.flight", this, TenantScheduler::getInFlight)
+			.description("Requests in flight to OpenCode")
+			.register(registry);
+	}
+
+	/**
+	 * Tenant id for a request: a digest of its API key, so keys never show up in logs and
+	 * metrics, else its user field
+	 */
+	public static String tenantOf(String authorization, String user) {
+		if (authorization != null && authorization.startsWith("Bearer ") && authorization.length() > 7) {
+			try {
+				byte[] digest = MessageDigest.getInstance("SHA-256")
+					.digest(authorization.substring(7).trim().getBytes(StandardCharsets.UTF_8));
+				return "key-" + HexFormat.of().formatHex(digest, 0, 6);
+			}
+			catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return user != null && !user.isBlank() ? "user-" + user : "anonymous";
+	}
+
+	/**
+	 * Run a call once the tenant's turn comes; throws right away if the tenant is over its
+	 * rate or its queue is full
+	 */
+	public <T> Mono<T> submit(String tenantId, Supplier<Mono<T>> call) {
+		return Mono.from(submitMany(tenantId, call::get));
+	}
+
+	/**
+	 * Run a streaming call once the tenant's turn comes, holding the slot until the stream
+	 * ends
+	 */
+	public <T> Flux<T> submitMany(String tenantId, Supplier<? extends Publisher<T>> call) {
+		if (!properties.isEnabled()) {
+			return Flux.defer(call);
+		}
+		Tenant tenant = tenant(tenantId);
+		long retryAfter = tenant.bucket.tryTake();
+		if (retryAfter > 0) {
+			tenant.throttled.increment();
+			throw new TenantThrottledException(tenant.id, "Rate limit exceeded for tenant " + tenant.id, retryAfter);
+		}
+		Ticket ticket = enqueue(tenant);
+		return Mono.fromFuture(ticket.granted, true)
+			.thenMany(Flux.defer(call))
+			.doFinally(signal -> release(ticket));
+	}
+
+	private Tenant tenant(String id) {
+		Tenant tenant = tenants.get(id);
+		if (tenant != null) {
+			return tenant;
+		}
+		if (tenants.size() >= properties.getMaxTenants()) {
+			id = OVERFLOW_TENANT;
+		}
+		return tenants.computeIfAbsent(id, Tenant::new);
+	}
+
+	private Ticket enqueue(Tenant tenant) {
+		Ticket ticket;
+		List<Ticket> granted;
+		synchronized (this) {
+			if (tenant.queued >= properties.getMaxQueue()) {
+				tenant.bucket.refund();
+				tenant.rejected.increment();
+				// The queue drains at least as fast as the bucket refills
+				long retryAfter = (long) Math.ceil(tenant.queued / properties.getRequestsPerSecond());
+				throw new TenantThrottledException(tenant.id, "Too many queued requests for tenant " + tenant.id,
+						Math.max(1, retryAfter));
+			}
+			double start = Math.max(virtualTime, tenant.lastFinish);
+			tenant.lastFinish = start + 1.0 / tenant.weight;
+			ticket = new Ticket(tenant, tenant.lastFinish, sequence++);
+			queue.add(ticket);
+			tenant.queued++;
+			tenant.admitted.increment();
+			granted = dispatch();
+		}
+		grant(granted);
+		return ticket;
+	}
+
+	/**
+	 * Hand free slots to the lowest finish tags; called with the lock held
+	 */
+	private List<Ticket> dispatch() {
+		List<Ticket> granted = new ArrayList<>();
+		while (inFlight < properties.getMaxConcurrent() && !queue.isEmpty()) {
+			Ticket ticket = queue.poll();
+			virtualTime = ticket.finish;
+			ticket.tenant.queued--;
+			ticket.tenant.inFlight++;
+			ticket.state = Ticket.RUNNING;
+			inFlight++;
+			granted.add(ticket);
+		}
+		return granted;
+	}
+
+	private void grant(List<Ticket> granted) {
+		for (Ticket ticket : granted) {
+			queueWait.record(System.nanoTime() - ticket.enqueued, TimeUnit.NANOSECONDS);
+			ticket.granted.complete(null);
+		}
+	}
+
+	private void release(Ticket ticket) {
+		List<Ticket> granted;
+		synchronized (this) {
+			if (ticket.state == Ticket.RUNNING) {
+				inFlight--;
+				ticket.tenant.inFlight--;
+			}
+			else if (ticket.state == Ticket.QUEUED && queue.remove(ticket)) {
+				// Cancelled while waiting
+				ticket.tenant.queued--;
+			}
+			ticket.state = Ticket.DONE;
+			granted = dispatch();
+		}
+		grant(granted);
+	}
+
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	/**
+	 * Requests of a tenant waiting for a slot
+	 */
+	public synchronized int getQueued(String tenantId) {
+		Tenant tenant = tenants.get(tenantId);
+		return tenant != null ? tenant.queued : 0;
+	}
+
+	private final class Tenant {
+
+		private final String id;
+
+		private final int weight;
+
+		private final TokenBucket bucket;
+
+		private final Counter admitted;
+
+		private final Counter throttled;
+
+		private final Counter rejected;
+
+		private double lastFinish;
+
+		private int queued;
+
+		private int inFlight;
+
+		Tenant(String id) {
+			this.id = id;
+			this.weight = Math.max(1, properties.getWeights().getOrDefault(id, 1));
+			this.bucket = new TokenBucket(properties.getRequestsPerSecond(), properties.getBurst());
+			this.admitted = requests("admitted");
+			this.throttled = requests("rate_limited");
+			this.rejected = requests("queue_full");
+			Gauge.builder("bridge.tenant.queue.depth", this, tenant -> {
+				synchronized (TenantScheduler.this) {
+					return tenant.queued;
+				}
+			}).description("Admitted requests waiting for an OpenCode slot").tag("tenant", id).register(registry);
+			Gauge.builder("bridge.tenant.in.flight", this, tenant -> {
+				synchronized (TenantScheduler.this) {
+					return tenant.inFlight;
+				}
+			}).description("Requests of the tenant in flight to OpenCode").tag("tenant", id).register(registry);
+			logger.debug("Tracking tenant {} with weight {}", id, weight);
+		}
+
+		private Counter requests(String outcome) {
+			return Counter.builder("bridge.tenant.requests").tag("tenant", id).tag("outcome", outcome).register(registry);
+		}
+
+	}
+
+	private static final class Ticket implements Comparable<Ticket> {
+
+		static final int QUEUED = 0;
+
+		static final int RUNNING = 1;
+
+		static final int DONE = 2;
+
+		private final Tenant tenant;
+
+		private final double finish;
+
+		private final long sequence;
+
+		private final long enqueued = System.nanoTime();
+
+		private final CompletableFuture<Void> granted = new CompletableFuture<>();
+
+		private int state = QUEUED;
+
+		Ticket(Tenant tenant, double finish, long sequence) {
+			this.tenant = tenant;
+			this.finish = finish;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Ticket other) {
+			int byFinish = Double.compare(finish, other.finish);
+			return byFinish != 0 ? byFinish : Long.compare(sequence, other.sequence);
+		}
+
+	}
+
+	/**
+	 * Token bucket refilled continuously at a fixed rate
+	 */
+	private static final class TokenBucket {
+
+		private final double rate;
+
+		private final double capacity;
+
+		private double tokens;
+
+		private long refilled = System.nanoTime();
+
+		TokenBucket(double rate, int capacity) {
+			this.rate = rate;
+			this.capacity = Math.max(1, capacity);
+			this.tokens = this.capacity;
+		}
+
+		/**
+		 * Take a token
+		 * @return 0 if taken, else the seconds until the next one
+		 */
+		synchronized long tryTake() {
+			long now = System.nanoTime();
+			tokens = Math.min(capacity, tokens + (now - refilled) / 1e9 * rate);
+			refilled = now;
+			if (tokens >= 1) {
+				tokens--;
+				return 0;
+			}
+			return Math.max(1, (long) Math.ceil((1 - tokens) / rate));
+		}
+
+		/**
+		 * Give back a token for a request that was not let in after all
+		 */
+		synchronized void refund() {
+			tokens = Math.min(capacity, tokens + 1);
+		}
+
+	}
+
+}
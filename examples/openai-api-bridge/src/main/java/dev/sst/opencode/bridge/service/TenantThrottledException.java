@@ -0,0 +1,29 @@
+package dev.sst.opencode.bridge.service;
+
+/**
+ * A tenant's request was turned away, either by its rate limit or a full queue
+ */
+public class TenantThrottledException extends RuntimeException {
+
+	private final String tenant;
+
+	private final long retryAfterSeconds;
+
+	public TenantThrottledException(String tenant, String message, long retryAfterSeconds) {
+		super(message);
+		this.tenant = tenant;
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	public String getTenant() {
+		return tenant;
+	}
+
+	/**
+	 * Seconds until a retry stands a chance, for the Retry-After header
+	 */
+	public long getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+
+}
@@ -3,6 +3,7 @@ package dev.sst.opencode.examples.chat.service;
 import dev.sst.opencode.client.OpenCodeClient;
 import dev.sst.opencode.models.*;
 import dev.sst.opencode.models.requests.*;
+import dev.sst.opencode.server.ServerProcessManager;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
@@ -23,7 +24,7 @@ public class OpenCodeService {
 
 	private final Map<String, String> sessionMapping = new ConcurrentHashMap<>();
 
-	private Process opencodeProcess;
+	private ServerProcessManager serverManager;
 
 	@Value("${opencode.server.url:http://localhost:8765}")
 	private String opencodeUrl;
@@ -59,15 +60,15 @@ public class OpenCodeService {
 		if (client != null) {
 			client.close();
 		}
-		if (opencodeProcess != null && opencodeProcess.isAlive()) {
+		if (serverManager != null) {
 			logger.info("Stopping OpenCode server...");
-			opencodeProcess.destroyForcibly();
+			serverManager.close();
 		}
 	}
 
-	public boolean startOpenCodeServer() {
+	public synchronized boolean startOpenCodeServer() {
 		try {
-			if (opencodeProcess != null && opencodeProcess.isAlive()) {
+			if (serverManager != null) {
 				logger.info("OpenCode server already running");
 				return true;
 			}
@@ -91,16 +92,16 @@ public class OpenCodeService {
 
 			logger.info("Starting OpenCode server with binary: {} on port {} in directory: {}", binaryPath, port,
 					workingDirectory);
-			ProcessBuilder pb = new ProcessBuilder(binaryPath, "serve", "--port", String.valueOf(port));
-			pb.directory(workDir); // Set working directory for the process
-			pb.inheritIO();
-			opencodeProcess = pb.start();
-
-			// Wait for server to start
-			Thread.sleep(3000);
-
-			// Reinitialize client after server start
-			client = OpenCodeClient.builder().baseUrl(opencodeUrl).apiKey(apiKey).timeout(timeout).build();
+			ServerProcessManager manager = ServerProcessManager.builder()
+				.executable(binaryPath)
+				.instances(1)
+				.basePort(port)
+				.workingDirectory(workDir)
+				.inheritIO(true)
+				.build();
+			// Returns once the server answers its readiness probe, and restarts it if it crashes
+			manager.start();
+			serverManager = manager;
 
 			logger.info("OpenCode server started successfully");
 			return true;
@@ -111,10 +112,11 @@ public class OpenCodeService {
 		}
 	}
 
-	public boolean stopOpenCodeServer() {
+	public synchronized boolean stopOpenCodeServer() {
 		try {
-			if (opencodeProcess != null && opencodeProcess.isAlive()) {
-				opencodeProcess.destroyForcibly();
+			if (serverManager != null) {
+				serverManager.close();
+				serverManager = null;
 				logger.info("OpenCode server stopped");
 				return true;
 			}
@@ -0,0 +1,190 @@
+package dev.sst.opencode.client;
+
+import dev.sst.opencode.exceptions.OpenCodeException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Adaptive limit on the number of in-flight calls to one OpenCode server
+ *
+ * The limit follows a latency gradient: a long-term average latency is compared with
+ * each observed sample. While samples stay close to the long-term average the limit
+ * grows, and when they rise above it (the server is queueing work) the limit shrinks
+ * proportionally. Failed calls halve the limit, except those that ran out of their
+ * caller's {@link Deadline}, which count as slow samples instead. Callers above the
+ * limit wait up to a bounded time for a slot, or until the active {@link Deadline},
+ * whichever is sooner.
+ */
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+
+	private static final double TOLERANCE = 1.5;
+
+	private static final double SMOOTHING = 0.2;
+
+	private static final double LONG_WINDOW = 100;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition slotAvailable = lock.newCondition();
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	private final long maxWaitNanos;
+
+	private double limit;
+
+	private int inFlight;
+
+	private double longLatencyNanos;
+
+	private long samples;
+
+	public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long maxWaitMillis) {
+		if (minLimit < 1 || maxLimit < minLimit) {
+			throw new IllegalArgumentException("Invalid limit bounds: min=" + minLimit + ", max=" + maxLimit);
+		}
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+		this.limit = clamp(initialLimit);
+	}
+
+	/**
+	 * Run a call within the limit, waiting for a free slot if necessary
+	 */
+	public <T> T execute(Supplier<T> call) {
+		acquire();
+		long start = System.nanoTime();
+		boolean dropped = false;
+		try {
+			return call.get();
+		}
+		catch (OpenCodeException.DeadlineExceeded e) {
+			// The caller's own deadline ran out: the wait is a latency sample, not overload
+			throw e;
+		}
+		catch (OpenCodeException.NetworkError | OpenCodeException.ServerError e) {
+			dropped = true;
+			throw e;
+		}
+		finally {
+			release(System.nanoTime() - start, !dropped);
+		}
+	}
+
+	/**
+	 * Reset the current limit, e.g. once the server has reported its own capacity
+	 */
+	public void setLimit(int newLimit) {
+		lock.lock();
+		try {
+			limit = clamp(newLimit);
+			slotAvailable.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	public int getLimit() {
+		lock.lock();
+		try {
+			return (int) limit;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	public int getInFlight() {
+		lock.lock();
+		try {
+			return inFlight;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void acquire() {
+		Deadline deadline = Deadline.current();
+		boolean deadlineBound = deadline != null && deadline.remainingNanos() < maxWaitNanos;
+		lock.lock();
+		try {
+			long remaining = deadlineBound ? deadline.remainingNanos() : maxWaitNanos;
+			while (inFlight >= (int) limit) {
+				if (remaining <= 0) {
+					if (deadlineBound) {
+						throw new OpenCodeException.DeadlineExceeded(
+								"Deadline exceeded waiting for a concurrency slot");
+					}
+					throw new OpenCodeException.LimitExceeded(
+							"Timed out waiting for a concurrency slot (limit " + (int) limit + ")");
+				}
+				remaining = slotAvailable.awaitNanos(remaining);
+			}
+			inFlight++;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OpenCodeException("Interrupted while waiting for a concurrency slot", e);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void release(long latencyNanos, boolean success) {
+		lock.lock();
+		try {
+			int observedInFlight = inFlight;
+			inFlight--;
+			if (success) {
+				onSample(latencyNanos, observedInFlight);
+			}
+			else {
+				limit = clamp(limit / 2);
+			}
+			slotAvailable.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void onSample(long latencyNanos, int observedInFlight) {
+		samples++;
+		if (samples == 1) {
+			longLatencyNanos = latencyNanos;
+			return;
+		}
+		double window = Math.min(samples, LONG_WINDOW);
+		longLatencyNanos += (latencyNanos - longLatencyNanos) / window;
+
+		// Only grow when the current limit was actually used
+		if (observedInFlight < limit / 2 && latencyNanos <= longLatencyNanos * TOLERANCE) {
+			return;
+		}
+
+		double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longLatencyNanos / Math.max(1, latencyNanos)));
+		double target = limit * gradient + Math.sqrt(limit);
+		double newLimit = clamp(limit * (1 - SMOOTHING) + target * SMOOTHING);
+		if ((int) newLimit != (int) limit) {
+			log.debug("Concurrency limit {} -> {} (latency {} ms, average {} ms)", (int) limit, (int) newLimit,
+					TimeUnit.NANOSECONDS.toMillis(latencyNanos), (long) (longLatencyNanos / 1_000_000));
+		}
+		limit = newLimit;
+	}
+
+	private double clamp(double value) {
+		return Math.max(minLimit, Math.min(maxLimit, value));
+	}
+
+}
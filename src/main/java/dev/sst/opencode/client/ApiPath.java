@@ -0,0 +1,170 @@
+package dev.sst.opencode.client;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Path templates of the OpenCode server API, split into segments once
+ */
+enum ApiPath {
+
+	SESSION("/session", true),
+
+	SESSION_BY_ID("/session/{sessionID}", true),
+
+	SESSION_MESSAGES("/session/{sessionID}/message", true),
+
+	SESSION_MESSAGE("/session/{sessionID}/message/{messageID}", true),
+
+	SESSION_COMMAND("/session/{sessionID}/command"),
+
+	SESSION_SHARE("/session/{sessionID}/share"),
+
+	SESSION_INIT("/session/{sessionID}/init"),
+
+	SESSION_ABORT("/session/{sessionID}/abort"),
+
+	SESSION_REVERT("/session/{sessionID}/revert"),
+
+	SESSION_UNREVERT("/session/{sessionID}/unrevert"),
+
+	SESSION_CHILDREN("/session/{sessionID}/children", true),
+
+	SESSION_SUMMARIZE("/session/{sessionID}/summarize"),
+
+	SESSION_SHELL("/session/{sessionID}/shell"),
+
+	SESSION_PERMISSION("/session/{sessionID}/permissions/{permissionID}"),
+
+	FILE("/file", true),
+
+	FILE_STATUS("/file/status", true),
+
+	FIND_TEXT("/find", true),
+
+	FIND_FILE("/find/file", true),
+
+	FIND_SYMBOL("/find/symbol", true),
+
+	CONFIG("/config", true),
+
+	CONFIG_PROVIDERS("/config/providers", true),
+
+	PATH("/path", true),
+
+	AUTH("/auth/{providerID}"),
+
+	EVENT("/event"),
+
+	DOC("/doc", true),
+
+	COMMANDS("/command", true),
+
+	COMMAND("/command/{name}", true),
+
+	AGENTS("/agent", true),
+
+	AGENT("/agent/{agentID}", true),
+
+	TOOL_REGISTER("/experimental/tool/register"),
+
+	TOOL_IDS("/experimental/tool/ids", true),
+
+	TOOLS("/experimental/tool", true),
+
+	TOOL("/experimental/tool/{toolID}", true),
+
+	TUI_APPEND_PROMPT("/tui/append-prompt"),
+
+	TUI_SUBMIT_PROMPT("/tui/submit-prompt"),
+
+	TUI_CLEAR_PROMPT("/tui/clear-prompt"),
+
+	TUI_OPEN_HELP("/tui/open-help"),
+
+	TUI_OPEN_SESSIONS("/tui/open-sessions"),
+
+	TUI_OPEN_THEMES("/tui/open-themes"),
+
+	TUI_OPEN_MODELS("/tui/open-models"),
+
+	TUI_EXECUTE_COMMAND("/tui/execute-command"),
+
+	TUI_SHOW_TOAST("/tui/show-toast"),
+
+	TUI_CONTROL_NEXT("/tui/control/next"),
+
+	TUI_CONTROL_RESPONSE("/tui/control/response"),
+
+	LOG("/log"),
+
+	PROJECTS("/project", true),
+
+	PROJECT_CURRENT("/project/current", true);
+
+	private final String template;
+
+	/**
+	 * Literal segments, null where an argument goes
+	 */
+	private final String[] segments;
+
+	private final int arity;
+
+	/**
+	 * Whether a GET on this path may be sent twice, i.e. only reads and changes nothing
+	 */
+	private final boolean idempotentRead;
+
+	ApiPath(String template) {
+		this(template, false);
+	}
+
+	ApiPath(String template, boolean idempotentRead) {
+		this.template = template;
+		this.idempotentRead = idempotentRead;
+		this.segments = template.substring(1).split("/");
+		int arity = 0;
+		for (int i = 0; i < segments.length; i++) {
+			if (segments[i].startsWith("{")) {
+				segments[i] = null;
+				arity++;
+			}
+		}
+		this.arity = arity;
+	}
+
+	/**
+	 * Append this path to a base URL, filling placeholders in order
+	 */
+	void appendTo(HttpUrl.Builder url, String... args) {
+		if (args.length != arity) {
+			throw new IllegalArgumentException(template + " takes " + arity + " arguments, got " + args.length);
+		}
+		int arg = 0;
+		for (String segment : segments) {
+			if (segment != null) {
+				url.addPathSegment(segment);
+			}
+			else if (args[arg] == null) {
+				throw new IllegalArgumentException("Missing value for " + template);
+			}
+			else {
+				url.addPathSegment(args[arg++]);
+			}
+		}
+	}
+
+	/**
+	 * Whether a GET on this path can be hedged; not so for e.g. the TUI control queue,
+	 * where a poll takes a request off the server
+	 */
+	boolean isIdempotentRead() {
+		return idempotentRead;
+	}
+
+	@Override
+	public String toString() {
+		return template;
+	}
+
+}
@@ -0,0 +1,100 @@
+package dev.sst.opencode.client;
+
+import dev.sst.opencode.exceptions.OpenCodeException;
+import dev.sst.opencode.models.BulkResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded fan-out for bulk calls
+ *
+ * Each item is a blocking call on its own virtual thread. All bulk operations of a
+ * client draw from one fair pool of permits, so concurrent jobs take turns instead of
+ * the first one starving the rest, and bulk work never holds more connections than
+ * its limit next to interactive calls. Items complete independently: results are
+ * emitted in completion order and a failed item is reported rather than thrown.
+ */
+class BulkExecutor implements AutoCloseable {
+
+	private final int concurrency;
+
+	private final Semaphore permits;
+
+	private final ExecutorService executor = Executors
+		.newThreadPerTaskExecutor(Thread.ofVirtual().name("opencode-bulk-", 0).factory());
+
+	private final Scheduler scheduler = Schedulers.fromExecutorService(executor, "opencode-bulk");
+
+	BulkExecutor(int concurrency) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("Bulk concurrency must be positive, got " + concurrency);
+		}
+		this.concurrency = concurrency;
+		this.permits = new Semaphore(concurrency, true);
+	}
+
+	/**
+	 * Run a call per id, at most the configured number at a time, under the caller's
+	 * deadline if one is active and with the caller's priority, background if none
+	 */
+	<T> Flux<BulkResult<T>> run(Collection<String> ids, Function<String, T> call) {
+		return run(ids, call, concurrency, false);
+	}
+
+	/**
+	 * Run a call per id with a lower limit for this job, optionally emitting results in
+	 * the order of the ids. Cancelling the returned flux interrupts calls in flight and
+	 * skips the rest.
+	 */
+	<T> Flux<BulkResult<T>> run(Collection<String> ids, Function<String, T> call, int limit, boolean ordered) {
+		List<String> items = List.copyOf(ids);
+		Deadline deadline = Deadline.current();
+		Priority priority = Objects.requireNonNullElse(Priority.current(), Priority.BACKGROUND);
+		int jobConcurrency = Math.max(1, Math.min(limit, concurrency));
+		Function<String, Mono<BulkResult<T>>> task = id -> Mono.fromCallable(() -> execute(id, call, deadline, priority))
+			.subscribeOn(scheduler);
+		return ordered ? Flux.fromIterable(items).flatMapSequential(task, jobConcurrency)
+				: Flux.fromIterable(items).flatMap(task, jobConcurrency);
+	}
+
+	int getConcurrency() {
+		return concurrency;
+	}
+
+	private <T> BulkResult<T> execute(String id, Function<String, T> call, Deadline deadline, Priority priority)
+			throws InterruptedException {
+		permits.acquire();
+		try {
+			Supplier<T> item = () -> priority.call(() -> call.apply(id));
+			T value = deadline != null ? deadline.call(item) : item.get();
+			return BulkResult.success(id, value);
+		}
+		catch (OpenCodeException e) {
+			return BulkResult.failure(id, e);
+		}
+		catch (RuntimeException e) {
+			return BulkResult.failure(id, new OpenCodeException("Bulk call failed for " + id, e));
+		}
+		finally {
+			permits.release();
+		}
+	}
+
+	@Override
+	public void close() {
+		scheduler.dispose();
+		executor.shutdownNow();
+	}
+
+}
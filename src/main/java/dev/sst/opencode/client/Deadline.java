@@ -0,0 +1,98 @@
+package dev.sst.opencode.client;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * End-to-end time budget shared by every call made within it
+ *
+ * While a deadline is active on the current thread, each OpenCode call gets at most
+ * the time that is left, so a composite operation cannot exceed its budget no matter
+ * how many steps it takes. Nested deadlines never extend an outer one.
+ *
+ * Example usage: <pre>
+ * Deadline.after(Duration.ofSeconds(90)).call(() -&gt; {
+ *     List&lt;Message&gt; before = client.getSessions().getMessages(sessionId);
+ *     client.getSessions().sendPrompt(sessionId, prompt);
+ *     return client.getSessions().getMessages(sessionId);
+ * });
+ * </pre>
+ */
+public final class Deadline {
+
+	private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+	private final long deadlineNanos;
+
+	private Deadline(long deadlineNanos) {
+		this.deadlineNanos = deadlineNanos;
+	}
+
+	public static Deadline after(Duration budget) {
+		return new Deadline(System.nanoTime() + budget.toNanos());
+	}
+
+	public static Deadline afterMillis(long millis) {
+		return after(Duration.ofMillis(millis));
+	}
+
+	/**
+	 * Deadline active on the current thread, or null
+	 */
+	public static Deadline current() {
+		return CURRENT.get();
+	}
+
+	public long remainingNanos() {
+		return Math.max(0, deadlineNanos - System.nanoTime());
+	}
+
+	public long remainingMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(remainingNanos());
+	}
+
+	public boolean isExpired() {
+		return deadlineNanos - System.nanoTime() <= 0;
+	}
+
+	/**
+	 * Run a call with this deadline active
+	 */
+	public <T> T call(Supplier<T> call) {
+		Deadline outer = CURRENT.get();
+		CURRENT.set(outer != null && outer.deadlineNanos - deadlineNanos < 0 ? outer : this);
+		try {
+			return call.get();
+		}
+		finally {
+			if (outer != null) {
+				CURRENT.set(outer);
+			}
+			else {
+				CURRENT.remove();
+			}
+		}
+	}
+
+	public void run(Runnable runnable) {
+		call(() -> {
+			runnable.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Wrap a call so it runs under the deadline active right now, e.g. on another thread
+	 */
+	public static <T> Supplier<T> propagate(Supplier<T> call) {
+		Deadline deadline = current();
+		return deadline == null ? call : () -> deadline.call(call);
+	}
+
+	@Override
+	public String toString() {
+		return "Deadline[" + remainingMillis() + " ms left]";
+	}
+
+}
@@ -0,0 +1,49 @@
+package dev.sst.opencode.client;
+
+import okhttp3.HttpUrl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Request URLs precompiled per server: each base URL is parsed once with the working
+ * directory already applied, and {@link ApiPath} templates only add path segments
+ */
+final class EndpointTable {
+
+	private final String workingDirectory;
+
+	private final Map<ServerEndpoint, HttpUrl> bases = new ConcurrentHashMap<>();
+
+	EndpointTable(String workingDirectory) {
+		this.workingDirectory = workingDirectory;
+	}
+
+	HttpUrl url(ServerEndpoint endpoint, ApiPath path, String... args) {
+		return builder(endpoint, path, args).build();
+	}
+
+	/**
+	 * Builder for a path on a server, for callers adding query parameters
+	 */
+	HttpUrl.Builder builder(ServerEndpoint endpoint, ApiPath path, String... args) {
+		HttpUrl.Builder builder = bases.computeIfAbsent(endpoint, this::compile).newBuilder();
+		path.appendTo(builder, args);
+		return builder;
+	}
+
+	/**
+	 * Drop the URL of a server that left the pool
+	 */
+	void forget(ServerEndpoint endpoint) {
+		bases.remove(endpoint);
+	}
+
+	private HttpUrl compile(ServerEndpoint endpoint) {
+		if (workingDirectory == null) {
+			return endpoint.getUrl();
+		}
+		return endpoint.getUrl().newBuilder().addQueryParameter("directory", workingDirectory).build();
+	}
+
+}
@@ -0,0 +1,160 @@
+package dev.sst.opencode.client;
+
+import dev.sst.opencode.models.OpenCodeEvent;
+import dev.sst.opencode.utils.JsonUtils;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The server's event stream, shared by the caches, index and journal of a client
+ *
+ * The stream is opened when the first listener subscribes and kept up until closed,
+ * reconnecting after it drops, so a client holds one connection per server however many
+ * of them follow it. Each event is parsed once and handed to every listener in order.
+ * Events missed while disconnected are unknown, so listeners hear about every connect,
+ * i.e. the first event after (re)connecting, and every disconnect; a listener joining a
+ * stream that is already up is told it is connected straight away.
+ */
+@Slf4j
+class EventFanOut {
+
+	private static final Duration RECONNECT_DELAY = Duration.ofSeconds(1);
+
+	/**
+	 * Receives the shared stream; called on the stream's reader, one call at a time
+	 */
+	interface Listener {
+
+		/**
+		 * The stream is up, events from now on are delivered
+		 */
+		void onConnect();
+
+		/**
+		 * An event as sent, and parsed, or null if it could not be parsed
+		 */
+		void onEvent(String data, OpenCodeEvent event);
+
+		/**
+		 * The stream dropped, events until the next connect are lost
+		 */
+		void onDisconnect();
+
+	}
+
+	static Listener listener(Runnable onConnect, BiConsumer<String, OpenCodeEvent> onEvent, Runnable onDisconnect) {
+		return new Listener() {
+			@Override
+			public void onConnect() {
+				onConnect.run();
+			}
+
+			@Override
+			public void onEvent(String data, OpenCodeEvent event) {
+				onEvent.accept(data, event);
+			}
+
+			@Override
+			public void onDisconnect() {
+				onDisconnect.run();
+			}
+		};
+	}
+
+	private final Supplier<Flux<String>> source;
+
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+	private Disposable connection;
+
+	/**
+	 * Whether an event arrived since the stream was last (re)opened
+	 */
+	private boolean connected;
+
+	private boolean closed;
+
+	EventFanOut(Supplier<Flux<String>> source) {
+		this.source = source;
+	}
+
+	/**
+	 * Deliver the stream to a listener until closed, opening it if needed; subscribing
+	 * again has no effect
+	 */
+	synchronized void subscribe(Listener listener) {
+		if (closed || listeners.contains(listener)) {
+			return;
+		}
+		listeners.add(listener);
+		if (connection == null) {
+			connection = Flux.defer(source)
+				.doOnNext(this::dispatch)
+				.doOnError(e -> log.debug("Lost the event stream: {}", e.getMessage()))
+				.doFinally(signal -> disconnected())
+				.repeatWhen(completed -> completed.delayElements(RECONNECT_DELAY))
+				.retryWhen(Retry.fixedDelay(Long.MAX_VALUE, RECONNECT_DELAY))
+				.subscribe();
+		}
+		else if (connected) {
+			notify(listener, Listener::onConnect);
+		}
+	}
+
+	private synchronized void dispatch(String data) {
+		if (closed) {
+			return;
+		}
+		if (!connected) {
+			connected = true;
+			listeners.forEach(listener -> notify(listener, Listener::onConnect));
+		}
+		OpenCodeEvent event;
+		try {
+			event = JsonUtils.fromJson(data, OpenCodeEvent.class);
+		}
+		catch (RuntimeException e) {
+			log.debug("Unreadable event: {}", e.getMessage());
+			event = null;
+		}
+		for (Listener listener : listeners) {
+			OpenCodeEvent parsed = event;
+			notify(listener, l -> l.onEvent(data, parsed));
+		}
+	}
+
+	private synchronized void disconnected() {
+		connected = false;
+		listeners.forEach(listener -> notify(listener, Listener::onDisconnect));
+	}
+
+	/**
+	 * One listener failing must not take the stream down for the others
+	 */
+	private static void notify(Listener listener, Consumer<Listener> call) {
+		try {
+			call.accept(listener);
+		}
+		catch (RuntimeException e) {
+			log.warn("Event listener failed", e);
+		}
+	}
+
+	synchronized void close() {
+		closed = true;
+		if (connection != null) {
+			connection.dispose();
+		}
+		listeners.clear();
+	}
+
+}
@@ -0,0 +1,533 @@
+package dev.sst.opencode.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.sst.opencode.exceptions.OpenCodeException;
+import dev.sst.opencode.models.JournalEntry;
+import dev.sst.opencode.utils.JsonUtils;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Durable record of the server's event stream
+ *
+ * Every event is appended as received to memory-mapped segment files in one directory,
+ * under an offset that keeps increasing across restarts. A consumer that stores the
+ * offset of the last event it handled can replay what it missed after a restart, for
+ * all sessions or, through a per-session index, for one. Records are in the page cache
+ * once appended, so they survive the process dying; segments are forced to disk when
+ * they fill and on close. A record cut short by a crash fails its checksum and is
+ * overwritten on the next start.
+ *
+ * Whole segments are dropped, oldest first, while the journal is over its byte budget
+ * or their newest event is older than the retention age. The segment being written is
+ * always kept.
+ */
+@Slf4j
+public class EventJournal {
+
+	private static final String SUFFIX = ".journal";
+
+	/**
+	 * Length and checksum, then offset, timestamp and session id length
+	 */
+	private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 2;
+
+	/**
+	 * Minimum time between age checks outside of segment rolls
+	 */
+	private static final long AGE_CHECK_MILLIS = 60_000;
+
+	private final Path directory;
+
+	private final long segmentBytes;
+
+	private final long maxBytes;
+
+	private final long maxAge;
+
+	private final List<Segment> segments = new ArrayList<>();
+
+	/**
+	 * Offsets of each session's events, ascending
+	 */
+	private final Map<String, LongList> sessions = new HashMap<>();
+
+	private long nextOffset = 1;
+
+	private long lastAgeCheck;
+
+	private boolean closed;
+
+	/**
+	 * Records the client's shared event stream
+	 */
+	final EventFanOut.Listener events = EventFanOut.listener(() -> {
+	}, (data, event) -> append(data), () -> {
+	});
+
+	EventJournal(Path directory, long segmentBytes, long maxBytes, long maxAge) {
+		this.directory = directory;
+		this.segmentBytes = Math.min(Math.max(segmentBytes, 4096), Integer.MAX_VALUE);
+		this.maxBytes = maxBytes;
+		this.maxAge = maxAge;
+		try {
+			Files.createDirectories(directory);
+			recover();
+		}
+		catch (IOException e) {
+			segments.forEach(Segment::close);
+			throw new OpenCodeException("Failed to open the event journal in " + directory, e);
+		}
+		enforceRetention(System.currentTimeMillis());
+	}
+
+	/**
+	 * Events after a checkpoint, oldest first, up to the last one recorded when the
+	 * replay reaches it; 0 replays everything retained
+	 */
+	public Flux<JournalEntry> replay(long afterOffset) {
+		return Flux.generate(() -> afterOffset, (after, sink) -> {
+			JournalEntry entry = next(after);
+			if (entry == null) {
+				sink.complete();
+				return after;
+			}
+			sink.next(entry);
+			return entry.getOffset();
+		});
+	}
+
+	/**
+	 * Events of one session after a checkpoint, oldest first
+	 */
+	public Flux<JournalEntry> replay(String sessionId, long afterOffset) {
+		return Flux.generate(() -> afterOffset, (after, sink) -> {
+			JournalEntry entry = next(sessionId, after);
+			if (entry == null) {
+				sink.complete();
+				return after;
+			}
+			sink.next(entry);
+			return entry.getOffset();
+		});
+	}
+
+	synchronized long append(String payload) {
+		if (closed) {
+			return -1;
+		}
+		String sessionId = sessionOf(payload);
+		byte[] session = sessionId != null ? sessionId.getBytes(StandardCharsets.UTF_8) : new byte[0];
+		if (session.length > Short.MAX_VALUE) {
+			sessionId = null;
+			session = new byte[0];
+		}
+		byte[] data = payload.getBytes(StandardCharsets.UTF_8);
+		int length = HEADER_BYTES - 8 + session.length + data.length;
+		long now = System.currentTimeMillis();
+		try {
+			active(8 + length, now).write(nextOffset, now, session, data, length);
+		}
+		catch (IOException e) {
+			log.warn("Could not journal an event in {}: {}", directory, e.getMessage());
+			return -1;
+		}
+		if (sessionId != null) {
+			sessions.computeIfAbsent(sessionId, id -> new LongList()).add(nextOffset);
+		}
+		if (now - lastAgeCheck > AGE_CHECK_MILLIS) {
+			enforceRetention(now);
+		}
+		return nextOffset++;
+	}
+
+	private synchronized JournalEntry next(long after) {
+		long offset = Math.max(after + 1, getFirstOffset());
+		return !closed && offset < nextOffset ? read(offset) : null;
+	}
+
+	private synchronized JournalEntry next(String sessionId, long after) {
+		LongList offsets = sessions.get(sessionId);
+		if (closed || offsets == null) {
+			return null;
+		}
+		int index = offsets.indexAfter(Math.max(after, getFirstOffset() - 1));
+		return index < offsets.size ? read(offsets.values[index]) : null;
+	}
+
+	private JournalEntry read(long offset) {
+		int low = 0;
+		int high = segments.size() - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (segments.get(middle).base <= offset) {
+				low = middle;
+			}
+			else {
+				high = middle - 1;
+			}
+		}
+		Segment segment = segments.get(low);
+		return segment.read(segment.positions[(int) (offset - segment.base)]);
+	}
+
+	/**
+	 * The segment to append a record to, rolling to a new one if it does not fit
+	 */
+	private Segment active(int recordBytes, long now) throws IOException {
+		Segment last = segments.isEmpty() ? null : segments.getLast();
+		if (last != null && last.fits(recordBytes)) {
+			return last;
+		}
+		if (last != null && last.count == 0) {
+			// Too small for this record alone
+			segments.removeLast();
+			last.delete();
+		}
+		else if (last != null) {
+			last.buffer.force();
+		}
+		Segment created = Segment.create(directory.resolve(String.format("%020d%s", nextOffset, SUFFIX)), nextOffset,
+				Math.max(segmentBytes, recordBytes + 4L));
+		segments.add(created);
+		enforceRetention(now);
+		return created;
+	}
+
+	private void recover() throws IOException {
+		List<Path> files;
+		try (var listing = Files.list(directory)) {
+			files = listing.filter(file -> file.getFileName().toString().matches("\\d{20}" + SUFFIX)).sorted().toList();
+		}
+		for (Path file : files) {
+			long base = Long.parseLong(file.getFileName().toString().substring(0, 20));
+			if (base < nextOffset) {
+				log.warn("Ignoring event journal segment {}, it overlaps the one before", file);
+				continue;
+			}
+			Segment segment = Segment.open(file, base);
+			segments.add(segment);
+			for (int i = 0; i < segment.count; i++) {
+				String sessionId = segment.sessionAt(segment.positions[i]);
+				if (sessionId != null) {
+					sessions.computeIfAbsent(sessionId, id -> new LongList()).add(base + i);
+				}
+			}
+			nextOffset = base + segment.count;
+		}
+	}
+
+	private void enforceRetention(long now) {
+		lastAgeCheck = now;
+		long total = getBytes();
+		while (segments.size() > 1) {
+			Segment oldest = segments.getFirst();
+			if ((maxBytes <= 0 || total <= maxBytes) && (maxAge <= 0 || oldest.lastTimestamp >= now - maxAge)) {
+				break;
+			}
+			segments.removeFirst();
+			total -= oldest.end;
+			oldest.delete();
+		}
+		long first = getFirstOffset();
+		for (Iterator<LongList> it = sessions.values().iterator(); it.hasNext();) {
+			LongList offsets = it.next();
+			offsets.dropBefore(first);
+			if (offsets.size == 0) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Session an event belongs to, from its session id or the session or message it
+	 * carries
+	 */
+	static String sessionOf(String payload) {
+		JsonNode event;
+		try {
+			event = JsonUtils.getMapper().readTree(payload);
+		}
+		catch (IOException e) {
+			return null;
+		}
+		JsonNode properties = event.path("properties");
+		for (JsonNode candidate : List.of(properties.path("sessionID"), properties.path("info").path("sessionID"),
+				properties.path("part").path("sessionID"))) {
+			if (candidate.isTextual()) {
+				return candidate.asText();
+			}
+		}
+		JsonNode id = properties.path("info").path("id");
+		return event.path("type").asText().startsWith("session.") && id.isTextual() ? id.asText() : null;
+	}
+
+	synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		for (Segment segment : segments) {
+			segment.buffer.force();
+			segment.close();
+		}
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Oldest offset still retained; equal to the next offset while the journal is empty
+	 */
+	public synchronized long getFirstOffset() {
+		return segments.isEmpty() ? nextOffset : segments.getFirst().base;
+	}
+
+	/**
+	 * Offset of the newest event, 0 if none was ever recorded
+	 */
+	public synchronized long getLastOffset() {
+		return nextOffset - 1;
+	}
+
+	/**
+	 * Offset of the newest event of a session, 0 if none is retained
+	 */
+	public synchronized long getLastOffset(String sessionId) {
+		LongList offsets = sessions.get(sessionId);
+		return offsets != null ? offsets.values[offsets.size - 1] : 0;
+	}
+
+	/**
+	 * Sessions with retained events
+	 */
+	public synchronized Set<String> getSessionIds() {
+		return Set.copyOf(sessions.keySet());
+	}
+
+	/**
+	 * Bytes of retained records
+	 */
+	public synchronized long getBytes() {
+		long total = 0;
+		for (Segment segment : segments) {
+			total += segment.end;
+		}
+		return total;
+	}
+
+	public synchronized int getSegmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * One mapped file, holding the records from its base offset on
+	 */
+	private static final class Segment {
+
+		final Path file;
+
+		final long base;
+
+		final FileChannel channel;
+
+		final MappedByteBuffer buffer;
+
+		/**
+		 * Start of each record, indexed by offset minus base
+		 */
+		int[] positions = new int[64];
+
+		int count;
+
+		/**
+		 * Where the next record goes
+		 */
+		int end;
+
+		long lastTimestamp;
+
+		private Segment(Path file, long base, FileChannel channel, long capacity) throws IOException {
+			this.file = file;
+			this.base = base;
+			this.channel = channel;
+			this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		}
+
+		static Segment create(Path file, long base, long capacity) throws IOException {
+			FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			try {
+				return new Segment(file, base, channel, capacity);
+			}
+			catch (IOException e) {
+				channel.close();
+				throw e;
+			}
+		}
+
+		/**
+		 * Map an existing segment and find its records, stopping at the first one that
+		 * is incomplete
+		 */
+		static Segment open(Path file, long base) throws IOException {
+			FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			Segment segment;
+			try {
+				segment = new Segment(file, base, channel, channel.size());
+			}
+			catch (IOException e) {
+				channel.close();
+				throw e;
+			}
+			MappedByteBuffer buffer = segment.buffer;
+			int position = 0;
+			while (position + HEADER_BYTES <= buffer.capacity()) {
+				int length = buffer.getInt(position);
+				if (length < HEADER_BYTES - 8 || length > buffer.capacity() - position - 8
+						|| checksum(buffer, position, length) != buffer.getInt(position + 4)
+						|| buffer.getLong(position + 8) != base + segment.count) {
+					break;
+				}
+				segment.add(position, buffer.getLong(position + 16));
+				position += 8 + length;
+			}
+			segment.end = position;
+			return segment;
+		}
+
+		boolean fits(int recordBytes) {
+			return end + (long) recordBytes <= buffer.capacity();
+		}
+
+		/**
+		 * Write the body and checksum first and the length last, which makes the record
+		 * visible to recovery
+		 */
+		void write(long offset, long timestamp, byte[] session, byte[] data, int length) {
+			int position = end;
+			buffer.putLong(position + 8, offset);
+			buffer.putLong(position + 16, timestamp);
+			buffer.putShort(position + 24, (short) session.length);
+			buffer.put(position + HEADER_BYTES, session);
+			buffer.put(position + HEADER_BYTES + session.length, data);
+			buffer.putInt(position + 4, checksum(buffer, position, length));
+			buffer.putInt(position, length);
+			end = position + 8 + length;
+			if (end + 4 <= buffer.capacity()) {
+				// Ends recovery here even over a longer record cut short before
+				buffer.putInt(end, 0);
+			}
+			add(position, timestamp);
+		}
+
+		JournalEntry read(int position) {
+			int length = buffer.getInt(position);
+			int sessionLength = buffer.getShort(position + 24);
+			byte[] data = new byte[length - (HEADER_BYTES - 8) - sessionLength];
+			buffer.get(position + HEADER_BYTES + sessionLength, data);
+			return new JournalEntry(buffer.getLong(position + 8), buffer.getLong(position + 16), sessionAt(position),
+					new String(data, StandardCharsets.UTF_8));
+		}
+
+		String sessionAt(int position) {
+			int sessionLength = buffer.getShort(position + 24);
+			if (sessionLength == 0) {
+				return null;
+			}
+			byte[] session = new byte[sessionLength];
+			buffer.get(position + HEADER_BYTES, session);
+			return new String(session, StandardCharsets.UTF_8);
+		}
+
+		private void add(int position, long timestamp) {
+			if (count == positions.length) {
+				positions = Arrays.copyOf(positions, count * 2);
+			}
+			positions[count++] = position;
+			lastTimestamp = timestamp;
+		}
+
+		private static int checksum(ByteBuffer buffer, int position, int length) {
+			CRC32 crc = new CRC32();
+			crc.update(buffer.slice(position + 8, length));
+			return (int) crc.getValue();
+		}
+
+		void close() {
+			try {
+				channel.close();
+			}
+			catch (IOException e) {
+				log.debug("Could not close {}: {}", file, e.getMessage());
+			}
+		}
+
+		void delete() {
+			close();
+			try {
+				Files.deleteIfExists(file);
+			}
+			catch (IOException e) {
+				log.warn("Could not delete event journal segment {}: {}", file, e.getMessage());
+			}
+		}
+
+	}
+
+	private static final class LongList {
+
+		long[] values = new long[4];
+
+		int size;
+
+		void add(long value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		/**
+		 * Index of the first value greater than the given one
+		 */
+		int indexAfter(long value) {
+			int index = Arrays.binarySearch(values, 0, size, value);
+			return index >= 0 ? index + 1 : -index - 1;
+		}
+
+		void dropBefore(long first) {
+			int index = indexAfter(first - 1);
+			if (index > 0) {
+				System.arraycopy(values, index, values, 0, size - index);
+				size -= index;
+			}
+		}
+
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "EventJournal[" + directory + ", offsets " + getFirstOffset() + ".." + getLastOffset() + ", "
+				+ segments.size() + " segments, " + getBytes() + " bytes]";
+	}
+
+}
@@ -0,0 +1,219 @@
+package dev.sst.opencode.client;
+
+import dev.sst.opencode.models.FileContent;
+import dev.sst.opencode.models.OpenCodeEvent;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Client-side cache of file reads
+ *
+ * Entries are weighed by content size and evicted least recently used once the byte
+ * budget is exceeded. The cache is only trusted while the server's event stream is
+ * connected: file edits and watcher updates invalidate the affected path, and losing
+ * the stream drops every entry until it is back.
+ *
+ * Events name files by absolute path, so reads of relative paths are only cached once
+ * the directory they are relative to is known; until then an event for a path that
+ * cannot be placed drops every entry.
+ */
+public class FileContentCache {
+
+	private final long maxBytes;
+
+	/**
+	 * Directory relative paths are resolved against, null until known
+	 */
+	private Path root;
+
+	private final LinkedHashMap<String, FileContent> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long bytes;
+
+	/**
+	 * Bumped by every invalidation, so reads that raced one are not stored
+	 */
+	private long generation;
+
+	private boolean live;
+
+	private long hits;
+
+	private long misses;
+
+	/**
+	 * Follows the client's shared event stream
+	 */
+	final EventFanOut.Listener events = EventFanOut.listener(this::connected, (data, event) -> accept(event),
+			this::reset);
+
+	FileContentCache(long maxBytes, String workingDirectory) {
+		this.maxBytes = maxBytes;
+		this.root = workingDirectory != null ? Path.of(workingDirectory) : null;
+	}
+
+	/**
+	 * Cached copy of a file, or null
+	 */
+	synchronized FileContent get(String path) {
+		String key = key(path);
+		FileContent content = live && key != null ? entries.get(key) : null;
+		if (content == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return copy(content);
+	}
+
+	/**
+	 * Token to pass to {@link #put} for a read starting now
+	 */
+	synchronized long stamp() {
+		return generation;
+	}
+
+	/**
+	 * Store a read unless the stream is down or a file changed since its stamp
+	 */
+	synchronized void put(String path, FileContent content, long stamp) {
+		String key = key(path);
+		if (!live || stamp != generation || content == null || key == null) {
+			return;
+		}
+		long weight = content.contentLength();
+		if (weight > maxBytes) {
+			return;
+		}
+		FileContent previous = entries.put(key, copy(content));
+		bytes += weight - (previous != null ? previous.contentLength() : 0);
+		Iterator<FileContent> eldest = entries.values().iterator();
+		while (bytes > maxBytes && eldest.hasNext()) {
+			bytes -= eldest.next().contentLength();
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * Whether the directory relative paths are resolved against is known
+	 */
+	synchronized boolean hasRoot() {
+		return root != null;
+	}
+
+	/**
+	 * Resolve relative paths against this directory from now on, unless known already
+	 */
+	synchronized void setRoot(Path root) {
+		if (this.root == null) {
+			this.root = root;
+		}
+	}
+
+	private synchronized void connected() {
+		live = true;
+	}
+
+	void accept(OpenCodeEvent event) {
+		if (event == null) {
+			// Unreadable, so it may have been a file change
+			invalidateAll();
+			return;
+		}
+		String type = event.getType();
+		if (type != null && (type.equals("file.edited") || type.startsWith("file.watcher."))) {
+			Object file = event.getProperties() != null ? event.getProperties().get("file") : null;
+			if (file instanceof String path) {
+				invalidate(path);
+			}
+			else {
+				invalidateAll();
+			}
+		}
+	}
+
+	synchronized void invalidate(String path) {
+		String key = key(path);
+		if (key == null) {
+			invalidateAll();
+			return;
+		}
+		generation++;
+		FileContent removed = entries.remove(key);
+		if (removed != null) {
+			bytes -= removed.contentLength();
+		}
+	}
+
+	public synchronized void invalidateAll() {
+		generation++;
+		entries.clear();
+		bytes = 0;
+	}
+
+	private synchronized void reset() {
+		live = false;
+		invalidateAll();
+	}
+
+	synchronized void close() {
+		reset();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Content bytes currently held
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Whether the invalidating event stream is connected, i.e. reads can be served
+	 */
+	public synchronized boolean isLive() {
+		return live;
+	}
+
+	/**
+	 * Absolute path a file is cached under, or null if it cannot be placed yet
+	 */
+	private String key(String path) {
+		Path file = Path.of(path);
+		if (!file.isAbsolute()) {
+			if (root == null) {
+				return null;
+			}
+			file = root.resolve(file);
+		}
+		return file.normalize().toString();
+	}
+
+	/**
+	 * Callers get their own copy since FileContent is mutable
+	 */
+	private static FileContent copy(FileContent content) {
+		return new FileContent(content.getPath(), content.getContent(), content.getMime(), content.getEncoding(),
+				content.getSize());
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "FileContentCache[" + entries.size() + " files, " + bytes + "/" + maxBytes + " bytes, " + hits
+				+ " hits, " + misses + " misses" + (live ? "" : ", offline") + "]";
+	}
+
+}
@@ -0,0 +1,282 @@
+package dev.sst.opencode.client;
+
+import dev.sst.opencode.config.OverflowPolicy;
+import dev.sst.opencode.exceptions.OpenCodeException;
+import dev.sst.opencode.models.requests.LogRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Ships log entries to the server in the background
+ *
+ * Entries go into a bounded ring buffer and are taken off it in batches by one thread,
+ * which flushes a batch once it is full or the flush interval passed since its first
+ * entry. The server takes one entry per call, so a batch is sent back to back over the
+ * same connection; batching keeps the shipper from waking up, and a connection from
+ * being checked out, per entry. When the buffer is full the overflow policy decides
+ * between dropping entries and making the caller wait.
+ *
+ * Logging that happens while shipping, on the shipper's thread, is not shipped again,
+ * see {@link #isShipperThread()}.
+ */
+@Slf4j
+public class LogShipper {
+
+	static final String THREAD_NAME = "opencode-log-shipper";
+
+	/**
+	 * How often a caller blocked on a full buffer checks whether shipping stopped
+	 */
+	private static final long BLOCK_RECHECK_MILLIS = 100;
+
+	private final Consumer<LogRequest> sender;
+
+	private final ArrayBlockingQueue<LogRequest> buffer;
+
+	private final int batchSize;
+
+	private final long flushInterval;
+
+	private final OverflowPolicy overflow;
+
+	private final Thread shipper;
+
+	/**
+	 * Marker that makes the shipper send the batch it is filling
+	 */
+	private static final LogRequest FLUSH = new LogRequest();
+
+	private final Object progress = new Object();
+
+	/**
+	 * Entries accepted into the buffer
+	 */
+	private long enqueued;
+
+	/**
+	 * Accepted entries that were shipped, failed or evicted
+	 */
+	private long completed;
+
+	private long shipped;
+
+	private long dropped;
+
+	private long failed;
+
+	private volatile boolean closed;
+
+	LogShipper(Consumer<LogRequest> sender, int bufferSize, int batchSize, long flushInterval,
+			OverflowPolicy overflow) {
+		this.sender = sender;
+		this.buffer = new ArrayBlockingQueue<>(Math.max(1, bufferSize));
+		this.batchSize = Math.max(1, Math.min(batchSize, buffer.remainingCapacity()));
+		this.flushInterval = Math.max(0, flushInterval);
+		this.overflow = overflow;
+		this.shipper = new Thread(() -> Priority.BACKGROUND.run(this::run), THREAD_NAME);
+		shipper.setDaemon(true);
+		shipper.start();
+	}
+
+	/**
+	 * Whether the current thread is the one shipping entries, whose own logging must not
+	 * be fed back to the shipper
+	 */
+	public static boolean isShipperThread() {
+		return Thread.currentThread().getName().equals(THREAD_NAME);
+	}
+
+	/**
+	 * Buffer an entry for shipping
+	 * @return false if the entry was dropped
+	 */
+	public boolean offer(LogRequest entry) {
+		boolean accepted = !closed && switch (overflow) {
+			case DROP_NEWEST -> buffer.offer(entry);
+			case DROP_OLDEST -> {
+				while (!buffer.offer(entry)) {
+					LogRequest evicted = buffer.poll();
+					if (evicted != null && evicted != FLUSH) {
+						synchronized (progress) {
+							dropped++;
+							completed++;
+						}
+					}
+				}
+				yield true;
+			}
+			case BLOCK -> {
+				try {
+					// Never park for good once the shipper is closed or gone
+					while (!closed && shipper.isAlive()) {
+						if (buffer.offer(entry, BLOCK_RECHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+							yield true;
+						}
+					}
+					yield false;
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					yield false;
+				}
+			}
+		};
+		synchronized (progress) {
+			if (accepted) {
+				enqueued++;
+			}
+			else {
+				dropped++;
+			}
+		}
+		return accepted;
+	}
+
+	/**
+	 * Ship everything buffered so far without waiting for the flush interval
+	 * @return false if the timeout passed before it was shipped or given up on
+	 */
+	public boolean flush(Duration timeout) throws InterruptedException {
+		long deadline = System.nanoTime() + timeout.toNanos();
+		synchronized (progress) {
+			long target = enqueued;
+			// If the buffer is full, the batch being filled is shipped without waiting
+			buffer.offer(FLUSH);
+			while (completed < target) {
+				long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (remaining <= 0) {
+					return false;
+				}
+				progress.wait(remaining);
+			}
+			return true;
+		}
+	}
+
+	private void run() {
+		List<LogRequest> batch = new ArrayList<>(batchSize);
+		while (!closed || !buffer.isEmpty()) {
+			try {
+				fill(batch);
+			}
+			catch (InterruptedException e) {
+				// Close timed out
+				return;
+			}
+			if (!batch.isEmpty()) {
+				ship(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	/**
+	 * Collect entries until the batch is full, the interval since its first entry ran
+	 * out, or a flush is requested
+	 */
+	private void fill(List<LogRequest> batch) throws InterruptedException {
+		long deadline = 0;
+		while (batch.size() < batchSize) {
+			LogRequest next;
+			if (closed) {
+				next = buffer.poll();
+			}
+			else if (batch.isEmpty()) {
+				next = buffer.take();
+				deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushInterval);
+			}
+			else {
+				next = buffer.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			}
+			if (next == null || next == FLUSH) {
+				return;
+			}
+			batch.add(next);
+		}
+	}
+
+	private void ship(List<LogRequest> batch) {
+		int sent = 0;
+		try {
+			for (LogRequest entry : batch) {
+				sender.accept(entry);
+				sent++;
+			}
+		}
+		catch (OpenCodeException e) {
+			// Most likely the server is unreachable; the rest of the batch would fail too
+			log.debug("Dropping {} log entries: {}", batch.size() - sent, e.getMessage());
+		}
+		catch (RuntimeException e) {
+			// E.g. an unreadable reply or a transport closed under us; keep shipping
+			log.warn("Dropping {} log entries: {}", batch.size() - sent, e.toString());
+		}
+		synchronized (progress) {
+			shipped += sent;
+			failed += batch.size() - sent;
+			completed += batch.size();
+			progress.notifyAll();
+		}
+	}
+
+	/**
+	 * Ship what is buffered, waiting up to the timeout, and stop
+	 */
+	void close(Duration timeout) {
+		closed = true;
+		buffer.offer(FLUSH);
+		try {
+			shipper.join(timeout.toMillis());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (shipper.isAlive()) {
+			log.debug("{} log entries were not shipped before close", buffer.size());
+			shipper.interrupt();
+		}
+	}
+
+	public int getBuffered() {
+		return buffer.size();
+	}
+
+	public long getShipped() {
+		synchronized (progress) {
+			return shipped;
+		}
+	}
+
+	/**
+	 * Entries dropped on overflow
+	 */
+	public long getDropped() {
+		synchronized (progress) {
+			return dropped;
+		}
+	}
+
+	/**
+	 * Entries that could not be shipped, e.g. as the server was unreachable
+	 */
+	public long getFailed() {
+		synchronized (progress) {
+			return failed;
+		}
+	}
+
+	@Override
+	public String toString() {
+		synchronized (progress) {
+			return "LogShipper[" + buffer.size() + "/" + (buffer.size() + buffer.remainingCapacity()) + " buffered, "
+					+ shipped + " shipped, " + dropped + " dropped, " + failed + " failed, " + overflow + "]";
+		}
+	}
+
+}
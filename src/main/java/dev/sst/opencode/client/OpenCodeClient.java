@@ -1,28 +1,81 @@
 package dev.sst.opencode.client;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.sst.opencode.config.FsyncPolicy;
+import dev.sst.opencode.config.MessageDedup;
 import dev.sst.opencode.config.OpenCodeConfig;
+import dev.sst.opencode.config.OperationKind;
+import dev.sst.opencode.config.OverflowPolicy;
+import dev.sst.opencode.config.TransportType;
 import dev.sst.opencode.models.*;
 import dev.sst.opencode.models.requests.*;
 import dev.sst.opencode.services.*;
+import dev.sst.opencode.transport.JdkHttpTransport;
+import dev.sst.opencode.transport.OkHttpTransport;
+import dev.sst.opencode.transport.OpenCodeTransport;
+import dev.sst.opencode.transport.TransportCall;
+import dev.sst.opencode.transport.TransportRequest;
+import dev.sst.opencode.transport.TransportResponse;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.sse.EventSource;
 import okhttp3.sse.EventSourceListener;
 import okhttp3.sse.EventSources;
+import okio.Buffer;
+import okio.BufferedSink;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import dev.sst.opencode.exceptions.OpenCodeException;
+import dev.sst.opencode.utils.FileContentStreamer;
 import dev.sst.opencode.utils.JsonUtils;
+import dev.sst.opencode.utils.StringPool;
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
 
@@ -47,10 +100,50 @@ import okhttp3.RequestBody;
 @Getter
 public class OpenCodeClient {
 
+	private static final MediaType JSON = MediaType.get("application/json");
+
+	private static final RequestBody EMPTY_JSON = new JsonBody("{}".getBytes(StandardCharsets.UTF_8));
+
+	/**
+	 * Matches returned by a file search answered from the path index
+	 */
+	private static final int PATH_INDEX_RESULTS = 50;
+
+	/**
+	 * Minimum time between asking for the server's directory after it failed to answer
+	 */
+	private static final long ROOT_RETRY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+	/**
+	 * How long closing waits for buffered log entries to be shipped
+	 */
+	private static final Duration LOG_SHIPPER_CLOSE_TIMEOUT = Duration.ofSeconds(5);
+
+	/**
+	 * Slots of a string pool for decoded messages
+	 */
+	private static final int MESSAGE_POOL_SLOTS = 8192;
+
+	/**
+	 * Sessions whose string pools are kept with per-session message dedup
+	 */
+	private static final int SESSION_POOLS = 64;
+
+	private static final TypeReference<Message> MESSAGE = new TypeReference<>() {
+	};
+
+	private static final TypeReference<List<Message>> MESSAGES = new TypeReference<>() {
+	};
+
 	private final OpenCodeConfig config;
 
 	private final OkHttpClient httpClient;
 
+	/**
+	 * HTTP layer every service call goes through
+	 */
+	private final OpenCodeTransport transport;
+
 	// Services
 	private final SessionService sessions;
 
@@ -72,56 +165,258 @@ public class OpenCodeClient {
 
 	private final ProjectService projects;
 
+	/**
+	 * Limiter in front of prompt submission, null unless adaptive concurrency is enabled
+	 */
+	private final AdaptiveConcurrencyLimiter promptLimiter;
+
+	private volatile boolean promptLimitResolved;
+
+	/**
+	 * Directory the server works in, asked for when none is configured
+	 */
+	private Path serverRoot;
+
+	private boolean serverRootAsked;
+
+	private long serverRootAskedAt;
+
+	/**
+	 * Servers this client talks to, with session affinity
+	 */
+	private final ServerPool serverPool;
+
+	/**
+	 * Slots shared between priority classes, null unless enabled
+	 */
+	private final PriorityScheduler scheduler;
+
+	/**
+	 * Hedging for idempotent reads, null unless enabled
+	 */
+	private final RequestHedger hedger;
+
+	/**
+	 * Cache of file reads, null unless enabled
+	 */
+	private final FileContentCache fileCache;
+
+	/**
+	 * Local index answering file searches, null unless enabled
+	 */
+	private final PathIndex pathIndex;
+
+	/**
+	 * Cache of symbol searches, null unless enabled
+	 */
+	private final SymbolCache symbolCache;
+
+	/**
+	 * Event stream shared by the caches, the path index and the journal
+	 */
+	private final EventFanOut eventFanOut;
+
+	/**
+	 * Durable record of the event stream, null unless enabled
+	 */
+	private final EventJournal eventJournal;
+
+	/**
+	 * Disk-backed queue of prompts, null unless enabled
+	 */
+	private final PromptSpool promptSpool;
+
+	/**
+	 * Background shipper behind the log service, null while logging is synchronous
+	 */
+	private final LogShipper logShipper;
+
+	/**
+	 * Fan-out for bulk calls
+	 */
+	@Getter(AccessLevel.NONE)
+	private final BulkExecutor bulk;
+
+	/**
+	 * Pre-parsed request URLs per server
+	 */
+	@Getter(AccessLevel.NONE)
+	private final EndpointTable endpointTable;
+
+	/**
+	 * Headers of every service call, built once
+	 */
+	@Getter(AccessLevel.NONE)
+	private final Map<String, String> jsonHeaders;
+
+	@Getter(AccessLevel.NONE)
+	private final Map<String, String> streamHeaders;
+
+	/**
+	 * String pools of the sessions most recently decoded, least recent first
+	 */
+	@Getter(AccessLevel.NONE)
+	private final Map<String, StringPool> sessionPools = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, StringPool> eldest) {
+			return size() > SESSION_POOLS;
+		}
+	};
+
 	public OpenCodeClient() {
 		this(OpenCodeConfig.fromEnvironment());
 	}
 
 	public OpenCodeClient(OpenCodeConfig config) {
+		this(config, null);
+	}
+
+	/**
+	 * Create a client on a custom transport, or on the configured one if null
+	 */
+	public OpenCodeClient(OpenCodeConfig config, OpenCodeTransport transport) {
 		this.config = config;
+		this.serverPool = new ServerPool(config.effectiveEndpoints());
+		this.endpointTable = new EndpointTable(config.getWorkingDirectory());
+		serverPool.onDeregister(endpointTable::forget);
+		this.jsonHeaders = headers("application/json");
+		this.streamHeaders = headers("text/event-stream");
 
 		// Build HTTP client
-		this.httpClient = new OkHttpClient.Builder().connectTimeout(config.getTimeout(), TimeUnit.MILLISECONDS)
+		OkHttpClient.Builder httpBuilder = new OkHttpClient.Builder();
+		if (config.isHttp2PriorKnowledge()) {
+			for (ServerEndpoint endpoint : serverPool.getEndpoints()) {
+				if (!endpoint.getBaseUrl().startsWith("http://")) {
+					throw new IllegalArgumentException("HTTP/2 prior knowledge requires http:// endpoints, got "
+							+ endpoint.getBaseUrl());
+				}
+			}
+			httpBuilder.protocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE));
+		}
+		this.httpClient = httpBuilder
+			.connectTimeout(config.effectiveConnectTimeout(), TimeUnit.MILLISECONDS)
 			.readTimeout(config.getTimeout(), TimeUnit.MILLISECONDS)
 			.writeTimeout(config.getTimeout(), TimeUnit.MILLISECONDS)
 			.addInterceptor(chain -> {
-				Request original = chain.request();
-				Request.Builder builder = original.newBuilder()
-					.header("Accept", "application/json")
-					.header("Content-Type", "application/json");
-
-				// Add auth header if configured
-				if (config.getApiKey() != null) {
-					builder.header("Authorization", "Bearer " + config.getApiKey());
-				}
-
-				// Add directory query param if configured
-				if (config.getWorkingDirectory() != null) {
-					String url = original.url().toString();
-					String separator = url.contains("?") ? "&" : "?";
-					builder.url(url + separator + "directory=" + config.getWorkingDirectory());
+				// Service calls arrive prepared; raw requests from execute() and
+				// createEventSource() get the same headers and timeout class here
+				if (chain.request().tag(TransportRequest.class) != null) {
+					return chain.proceed(chain.request());
 				}
-
-				Request request = builder.build();
-				log.debug("Request: {} {}", request.method(), request.url());
-
-				Response response = chain.proceed(request);
-				log.debug("Response: {} - {}", response.code(), response.message());
-
-				return response;
+				OperationKind kind = operationKind(chain.request());
+				int kindTimeout = (int) config.timeoutFor(kind);
+				return logResponse(chain.withReadTimeout(kindTimeout, TimeUnit.MILLISECONDS)
+					.withWriteTimeout(kind == OperationKind.STREAM ? config.getTimeout() : kindTimeout,
+							TimeUnit.MILLISECONDS)
+					.proceed(decorate(chain.request())));
 			})
 			.build();
 
+		if (transport != null) {
+			this.transport = transport;
+		}
+		else if (config.getTransport() == TransportType.JDK) {
+			this.transport = new JdkHttpTransport(config.effectiveConnectTimeout(), config.isHttp2PriorKnowledge());
+		}
+		else {
+			this.transport = new OkHttpTransport(httpClient);
+		}
+
 		// Initialize services
 		this.sessions = new SessionServiceImpl(this);
 		this.files = new FileServiceImpl(this);
 		this.configuration = new ConfigServiceImpl(this);
-		this.events = new EventServiceImpl(this);
+		EventServiceImpl eventService = new EventServiceImpl(this);
+		this.events = eventService;
+		this.eventFanOut = new EventFanOut(eventService::rawEvents);
 		this.app = new AppServiceImpl(this);
 		this.commands = new CommandServiceImpl(this);
 		this.tools = new ToolServiceImpl(this);
 		this.tui = new TuiServiceImpl(this);
-		this.logs = new LogServiceImpl(this);
+		LogServiceImpl logService = new LogServiceImpl(this);
+		this.logs = logService;
 		this.projects = new ProjectServiceImpl(this);
+
+		this.promptLimiter = config.isAdaptiveConcurrency()
+				? new AdaptiveConcurrencyLimiter(config.getInitialConcurrencyLimit(), 1, config.getMaxConcurrencyLimit(),
+						config.getConcurrencyQueueTimeout())
+				: null;
+
+		this.scheduler = config.getMaxConcurrentCalls() > 0 ? new PriorityScheduler(config.getMaxConcurrentCalls(),
+				config.getInteractiveReservedCalls(), config.getConcurrencyQueueTimeout()) : null;
+
+		this.hedger = config.isHedging()
+				? new RequestHedger(config.getHedgePercentile(), config.getHedgeBudget(), config.getHedgeMinDelay())
+				: null;
+
+		this.bulk = new BulkExecutor(config.getBulkConcurrency());
+
+		this.fileCache = config.getFileCacheMaxBytes() > 0
+				? new FileContentCache(config.getFileCacheMaxBytes(), config.getWorkingDirectory()) : null;
+
+		this.pathIndex = config.isPathIndex() ? new PathIndex(files, config.getWorkingDirectory()) : null;
+
+		this.symbolCache = config.getSymbolCacheEntries() > 0
+				? new SymbolCache(config.getSymbolCacheEntries(), config.isSymbolCacheRefinement()) : null;
+
+		if (config.getEventJournalDirectory() != null) {
+			this.eventJournal = new EventJournal(Path.of(config.getEventJournalDirectory()),
+					config.getEventJournalSegmentBytes(), config.getEventJournalMaxBytes(),
+					config.getEventJournalMaxAge());
+			eventFanOut.subscribe(eventJournal.events);
+		}
+		else {
+			this.eventJournal = null;
+		}
+
+		this.promptSpool = config.getPromptSpoolDirectory() != null
+				? new PromptSpool(sessions, configuration::getConfig, Path.of(config.getPromptSpoolDirectory()),
+						config.getPromptSpoolFsync(), config.getPromptSpoolFsyncInterval(),
+						config.getPromptSpoolConcurrency())
+				: null;
+
+		this.logShipper = config.isAsyncLogs() ? new LogShipper(logService::send, config.getLogBufferSize(),
+				config.getLogBatchSize(), config.getLogFlushInterval(), config.getLogOverflow()) : null;
+
+		serverPool.startHealthChecks(this.transport, authHeaders(), config.getHealthCheckInterval());
+	}
+
+	private static Response logResponse(Response response) {
+		log.debug("Response: {} - {}", response.code(), response.message());
+		return response;
+	}
+
+	/**
+	 * Add the headers and directory every OpenCode call carries
+	 */
+	private Request decorate(Request original) {
+		Request.Builder builder = original.newBuilder().header("Content-Type", "application/json");
+		if (original.header("Accept") == null) {
+			builder.header("Accept", "application/json");
+		}
+
+		// Add auth header if configured
+		if (config.getApiKey() != null) {
+			builder.header("Authorization", "Bearer " + config.getApiKey());
+		}
+
+		// Add directory query param if configured
+		if (config.getWorkingDirectory() != null) {
+			builder.url(original.url().newBuilder().addQueryParameter("directory", config.getWorkingDirectory()).build());
+		}
+		return builder.build();
+	}
+
+	private Map<String, String> headers(String accept) {
+		Map<String, String> headers = new LinkedHashMap<>();
+		headers.put("Content-Type", "application/json");
+		headers.put("Accept", accept);
+		headers.putAll(authHeaders());
+		return Collections.unmodifiableMap(headers);
+	}
+
+	private Map<String, String> authHeaders() {
+		return config.getApiKey() != null ? Map.of("Authorization", "Bearer " + config.getApiKey()) : Map.of();
 	}
 
 	/**
@@ -131,6 +426,51 @@ public class OpenCodeClient {
 		return config.getBaseUrl();
 	}
 
+	/**
+	 * Build a URL for a raw call that is not bound to a session
+	 */
+	private String url(String path) {
+		return serverPool.leastLoaded().getBaseUrl() + path;
+	}
+
+	/**
+	 * Start a request for a path on the given server
+	 */
+	private Request.Builder request(ServerEndpoint endpoint, ApiPath path, String... args) {
+		return new Request.Builder().url(endpointTable.url(endpoint, path, args))
+			.tag(ServerEndpoint.class, endpoint)
+			.tag(ApiPath.class, path);
+	}
+
+	/**
+	 * Start a request for a call that is not bound to a session
+	 */
+	private Request.Builder request(ApiPath path, String... args) {
+		return request(serverPool.leastLoaded(), path, args);
+	}
+
+	/**
+	 * Start a request on the server owning the session given as the first argument
+	 */
+	private Request.Builder sessionRequest(ApiPath path, String... args) {
+		return request(serverPool.forSession(args[0]), path, args);
+	}
+
+	/**
+	 * Start a request with query parameters, given as name/value pairs; null values are
+	 * left out
+	 */
+	private Request.Builder query(ApiPath path, String... namesAndValues) {
+		ServerEndpoint endpoint = serverPool.leastLoaded();
+		HttpUrl.Builder url = endpointTable.builder(endpoint, path);
+		for (int i = 0; i < namesAndValues.length; i += 2) {
+			if (namesAndValues[i + 1] != null) {
+				url.addQueryParameter(namesAndValues[i], namesAndValues[i + 1]);
+			}
+		}
+		return new Request.Builder().url(url.build()).tag(ServerEndpoint.class, endpoint).tag(ApiPath.class, path);
+	}
+
 	/**
 	 * Execute a raw HTTP request
 	 */
@@ -142,17 +482,134 @@ public class OpenCodeClient {
 	 * Create an SSE event source
 	 */
 	public EventSource createEventSource(String path, EventSourceListener listener) {
-		Request request = new Request.Builder().url(config.getBaseUrl() + path)
+		Request request = new Request.Builder().url(url(path))
 			.header("Accept", "text/event-stream")
+			.tag(OperationKind.class, OperationKind.STREAM)
 			.build();
 
 		return EventSources.createFactory(httpClient).newEventSource(request, listener);
 	}
 
+	/**
+	 * Exporter archiving session transcripts to a directory, compressed with zstd when it
+	 * is on the classpath and gzip otherwise
+	 */
+	public SessionExporter sessionExporter(Path directory) {
+		return sessionExporter(directory, SessionExporter.defaultCompression());
+	}
+
+	public SessionExporter sessionExporter(Path directory, SessionExporter.Compression compression) {
+		return new SessionExporter(sessions, bulk, directory, compression);
+	}
+
+	/**
+	 * Services of this client that make every call with the given priority, for a part
+	 * of an application that always runs at one class of service
+	 */
+	public View withPriority(Priority priority) {
+		return new View(this, priority);
+	}
+
+	/**
+	 * This client's services with a fixed {@link Priority}; calls share the client's
+	 * connections, caches and slots
+	 */
+	@Getter
+	public static final class View {
+
+		private final Priority priority;
+
+		private final SessionService sessions;
+
+		private final FileService files;
+
+		private final ConfigService configuration;
+
+		private final EventService events;
+
+		private final AppService app;
+
+		private final CommandService commands;
+
+		private final ToolService tools;
+
+		private final TuiService tui;
+
+		private final LogService logs;
+
+		private final ProjectService projects;
+
+		private View(OpenCodeClient client, Priority priority) {
+			this.priority = priority;
+			this.sessions = prioritized(SessionService.class, client.sessions);
+			this.files = prioritized(FileService.class, client.files);
+			this.configuration = prioritized(ConfigService.class, client.configuration);
+			this.events = prioritized(EventService.class, client.events);
+			this.app = prioritized(AppService.class, client.app);
+			this.commands = prioritized(CommandService.class, client.commands);
+			this.tools = prioritized(ToolService.class, client.tools);
+			this.tui = prioritized(TuiService.class, client.tui);
+			this.logs = prioritized(LogService.class, client.logs);
+			this.projects = prioritized(ProjectService.class, client.projects);
+		}
+
+		private <S> S prioritized(Class<S> service, S target) {
+			InvocationHandler handler = (proxy, method, args) -> {
+				if (method.getDeclaringClass() == Object.class) {
+					return method.invoke(target, args);
+				}
+				try {
+					return priority.call(() -> {
+						try {
+							return method.invoke(target, args);
+						}
+						catch (ReflectiveOperationException e) {
+							throw new UndeclaredThrowableException(e);
+						}
+					});
+				}
+				catch (UndeclaredThrowableException e) {
+					// Rethrow what the service threw, as the service would
+					throw e.getCause() instanceof InvocationTargetException thrown
+							? thrown.getCause() : e.getCause();
+				}
+			};
+			return service.cast(Proxy.newProxyInstance(service.getClassLoader(),
+					new Class<?>[] { service }, handler));
+		}
+
+	}
+
 	/**
 	 * Close the client and release resources
 	 */
 	public void close() {
+		if (logShipper != null) {
+			logShipper.close(LOG_SHIPPER_CLOSE_TIMEOUT);
+		}
+		serverPool.stopHealthChecks();
+		eventFanOut.close();
+		if (fileCache != null) {
+			fileCache.close();
+		}
+		if (pathIndex != null) {
+			pathIndex.close();
+		}
+		if (symbolCache != null) {
+			symbolCache.close();
+		}
+		if (eventJournal != null) {
+			eventJournal.close();
+		}
+		if (promptSpool != null) {
+			promptSpool.close();
+		}
+		events.closeEventStream();
+		if (hedger != null) {
+			hedger.close();
+		}
+		bulk.close();
+		transport.close();
 		httpClient.dispatcher().executorService().shutdown();
 		httpClient.connectionPool().evictAll();
 		if (httpClient.cache() != null) {
@@ -173,121 +630,686 @@ public class OpenCodeClient {
 
 	public static class Builder {
 
-		private String baseUrl = "http://localhost:8080";
+		private String baseUrl = "http://localhost:8080";
+
+		private String apiKey;
+
+		private String workingDirectory;
+
+		private int timeout = 30000;
+
+		private int maxRetries = 3;
+
+		private boolean adaptiveConcurrency;
+
+		private List<String> endpoints;
+
+		private Integer metadataTimeout;
+
+		private Integer fileTimeout;
+
+		private Integer promptTimeout;
+
+		private boolean hedging;
+
+		private int bulkConcurrency = 8;
+
+		private int maxConcurrentCalls;
+
+		private int interactiveReservedCalls = 2;
+
+		private long fileCacheMaxBytes;
+
+		private boolean pathIndex;
+
+		private int symbolCacheEntries;
+
+		private boolean symbolCacheRefinement;
+
+		private Path eventJournalDirectory;
+
+		private long eventJournalMaxBytes = 1024L * 1024 * 1024;
+
+		private long eventJournalMaxAge = 7L * 24 * 60 * 60 * 1000;
+
+		private Path promptSpoolDirectory;
+
+		private FsyncPolicy promptSpoolFsync = FsyncPolicy.INTERVAL;
+
+		private boolean asyncLogs;
+
+		private OverflowPolicy logOverflow = OverflowPolicy.DROP_NEWEST;
+
+		private boolean http2PriorKnowledge;
+
+		private TransportType transportType = TransportType.OKHTTP;
+
+		private MessageDedup messageDedup = MessageDedup.OFF;
+
+		private OpenCodeTransport transport;
+
+		public Builder baseUrl(String baseUrl) {
+			this.baseUrl = baseUrl;
+			return this;
+		}
+
+		public Builder apiKey(String apiKey) {
+			this.apiKey = apiKey;
+			return this;
+		}
+
+		public Builder workingDirectory(String workingDirectory) {
+			this.workingDirectory = workingDirectory;
+			return this;
+		}
+
+		public Builder timeout(int timeout) {
+			this.timeout = timeout;
+			return this;
+		}
+
+		public Builder maxRetries(int maxRetries) {
+			this.maxRetries = maxRetries;
+			return this;
+		}
+
+		public Builder adaptiveConcurrency(boolean adaptiveConcurrency) {
+			this.adaptiveConcurrency = adaptiveConcurrency;
+			return this;
+		}
+
+		/**
+		 * Total timeout for metadata lookups, overriding timeout
+		 */
+		public Builder metadataTimeout(int metadataTimeout) {
+			this.metadataTimeout = metadataTimeout;
+			return this;
+		}
+
+		/**
+		 * Total timeout for file reads and searches, overriding timeout
+		 */
+		public Builder fileTimeout(int fileTimeout) {
+			this.fileTimeout = fileTimeout;
+			return this;
+		}
+
+		/**
+		 * Total timeout for prompts and commands, overriding timeout
+		 */
+		public Builder promptTimeout(int promptTimeout) {
+			this.promptTimeout = promptTimeout;
+			return this;
+		}
+
+		/**
+		 * Hedge slow idempotent reads with a second attempt
+		 */
+		public Builder hedging(boolean hedging) {
+			this.hedging = hedging;
+			return this;
+		}
+
+		/**
+		 * Calls in flight across all bulk operations
+		 */
+		public Builder bulkConcurrency(int bulkConcurrency) {
+			this.bulkConcurrency = bulkConcurrency;
+			return this;
+		}
+
+		/**
+		 * Schedule calls by {@link Priority}, at most this many in flight, of which the
+		 * given number only for interactive calls
+		 */
+		public Builder priorityScheduling(int maxConcurrentCalls, int interactiveReservedCalls) {
+			this.maxConcurrentCalls = maxConcurrentCalls;
+			this.interactiveReservedCalls = interactiveReservedCalls;
+			return this;
+		}
+
+		/**
+		 * Cache file reads up to this many content bytes, invalidated by file events
+		 */
+		public Builder fileCache(long maxBytes) {
+			this.fileCacheMaxBytes = maxBytes;
+			return this;
+		}
+
+		/**
+		 * Answer file searches from a local index of workspace paths, kept current by
+		 * file events; ignored files are left out as by the server, results are ranked
+		 * locally
+		 */
+		public Builder pathIndex(boolean pathIndex) {
+			this.pathIndex = pathIndex;
+			return this;
+		}
+
+		/**
+		 * Cache up to this many symbol searches
+		 */
+		public Builder symbolCache(int entries) {
+			this.symbolCacheEntries = entries;
+			return this;
+		}
+
+		/**
+		 * Answer a query that extends a cached one by filtering the cached symbols; only
+		 * correct if the server's language servers match names case-insensitively by
+		 * subsequence
+		 */
+		public Builder symbolCacheRefinement(boolean refine) {
+			this.symbolCacheRefinement = refine;
+			return this;
+		}
+
+		/**
+		 * Record every server event in memory-mapped segment files under this directory,
+		 * for replay after a restart
+		 */
+		public Builder eventJournal(Path directory) {
+			this.eventJournalDirectory = directory;
+			return this;
+		}
+
+		/**
+		 * Drop the oldest journal segments beyond this many bytes or once older than
+		 * maxAge; 0 or less disables either limit
+		 */
+		public Builder eventJournalRetention(long maxBytes, Duration maxAge) {
+			this.eventJournalMaxBytes = maxBytes;
+			this.eventJournalMaxAge = maxAge.toMillis();
+			return this;
+		}
+
+		/**
+		 * Queue prompts submitted to the prompt spool in a log under this directory,
+		 * sending them whenever the server is available
+		 */
+		public Builder promptSpool(Path directory) {
+			this.promptSpoolDirectory = directory;
+			return this;
+		}
+
+		public Builder promptSpool(Path directory, FsyncPolicy fsync) {
+			this.promptSpoolDirectory = directory;
+			this.promptSpoolFsync = fsync;
+			return this;
+		}
+
+		/**
+		 * Ship log service entries from a buffer in the background, in batches, instead
+		 * of one call per entry on the caller's thread
+		 */
+		public Builder asyncLogs(boolean asyncLogs) {
+			this.asyncLogs = asyncLogs;
+			return this;
+		}
+
+		/**
+		 * What a log call does when the buffer is full
+		 */
+		public Builder logOverflow(OverflowPolicy logOverflow) {
+			this.logOverflow = logOverflow;
+			return this;
+		}
+
+		/**
+		 * Multiplex all calls over HTTP/2 cleartext connections
+		 */
+		public Builder http2PriorKnowledge(boolean http2PriorKnowledge) {
+			this.http2PriorKnowledge = http2PriorKnowledge;
+			return this;
+		}
+
+		/**
+		 * Share repeated strings such as ids and tool names between decoded messages
+		 */
+		public Builder messageDedup(MessageDedup messageDedup) {
+			this.messageDedup = messageDedup;
+			return this;
+		}
+
+		/**
+		 * Run on one of the bundled HTTP stacks
+		 */
+		public Builder transport(TransportType transportType) {
+			this.transportType = transportType;
+			return this;
+		}
+
+		/**
+		 * Run on a custom transport
+		 */
+		public Builder transport(OpenCodeTransport transport) {
+			this.transport = transport;
+			return this;
+		}
+
+		/**
+		 * Spread sessions over several servers instead of the single base URL
+		 */
+		public Builder endpoints(List<String> endpoints) {
+			this.endpoints = endpoints;
+			return this;
+		}
+
+		public OpenCodeClient build() {
+			OpenCodeConfig config = OpenCodeConfig.builder()
+				.baseUrl(baseUrl)
+				.apiKey(apiKey)
+				.workingDirectory(workingDirectory)
+				.timeout(timeout)
+				.metadataTimeout(metadataTimeout)
+				.fileTimeout(fileTimeout)
+				.promptTimeout(promptTimeout)
+				.maxRetries(maxRetries)
+				.adaptiveConcurrency(adaptiveConcurrency)
+				.endpoints(endpoints)
+				.hedging(hedging)
+				.bulkConcurrency(bulkConcurrency)
+				.maxConcurrentCalls(maxConcurrentCalls)
+				.interactiveReservedCalls(interactiveReservedCalls)
+				.fileCacheMaxBytes(fileCacheMaxBytes)
+				.pathIndex(pathIndex)
+				.symbolCacheEntries(symbolCacheEntries)
+				.symbolCacheRefinement(symbolCacheRefinement)
+				.eventJournalDirectory(eventJournalDirectory != null ? eventJournalDirectory.toString() : null)
+				.eventJournalMaxBytes(eventJournalMaxBytes)
+				.eventJournalMaxAge(eventJournalMaxAge)
+				.promptSpoolDirectory(promptSpoolDirectory != null ? promptSpoolDirectory.toString() : null)
+				.promptSpoolFsync(promptSpoolFsync)
+				.asyncLogs(asyncLogs)
+				.logOverflow(logOverflow)
+				.http2PriorKnowledge(http2PriorKnowledge)
+				.transport(transportType)
+				.messageDedup(messageDedup)
+				.build();
+
+			return new OpenCodeClient(config, transport);
+		}
+
+	}
+
+	/**
+	 * Helper method to execute HTTP requests
+	 */
+	private <T> T executeRequest(Request request, Class<T> responseType) {
+		try (TransportResponse response = send(request)) {
+			String body = response.string();
+
+			if (!response.isSuccessful()) {
+				handleErrorResponse(response.code(), body);
+			}
+
+			if (responseType == Void.class || body == null || body.isEmpty()) {
+				return null;
+			}
+
+			return JsonUtils.fromJson(body, responseType);
+		}
+		catch (IOException e) {
+			throw networkError(e);
+		}
+	}
+
+	/**
+	 * Helper method to execute HTTP requests with TypeReference
+	 */
+	private <T> T executeRequest(Request request, TypeReference<T> typeRef) {
+		return executeRequest(request, typeRef, null);
+	}
+
+	/**
+	 * Execute a request whose response strings are taken from a pool, if not null
+	 */
+	private <T> T executeRequest(Request request, TypeReference<T> typeRef, StringPool pool) {
+		try (TransportResponse response = send(request)) {
+			String body = response.string();
+
+			if (!response.isSuccessful()) {
+				handleErrorResponse(response.code(), body);
+			}
+
+			if (body == null || body.isEmpty()) {
+				return null;
+			}
+
+			return pool != null ? JsonUtils.fromJson(body, typeRef, pool) : JsonUtils.fromJson(body, typeRef);
+		}
+		catch (IOException e) {
+			throw networkError(e);
+		}
+	}
+
+	/**
+	 * Send a request, hedging idempotent reads when enabled
+	 */
+	private TransportResponse send(Request request) throws IOException {
+		ApiPath path = request.tag(ApiPath.class);
+		if (hedger == null || path == null || !path.isIdempotentRead() || !"GET".equals(request.method())
+				|| operationKind(request) == OperationKind.STREAM) {
+			return newCall(request).execute();
+		}
+		String key = operationKind(request) + " " + request.url().pathSegments().get(0);
+		return hedger.execute(key, () -> newCall(request), () -> newCall(hedgeRequest(request)));
+	}
+
+	/**
+	 * Same read against another server when the data is not tied to a session's owner
+	 */
+	private Request hedgeRequest(Request request) {
+		if (serverPool.size() < 2 || request.url().encodedPath().startsWith("/session")) {
+			return request;
+		}
+		ServerEndpoint alternate = serverPool.alternateTo(request.url());
+		if (alternate == null) {
+			return request;
+		}
+		HttpUrl base = alternate.getUrl();
+		return request.newBuilder()
+			.url(request.url().newBuilder().scheme(base.scheme()).host(base.host()).port(base.port()).build())
+			.tag(ServerEndpoint.class, alternate)
+			.build();
+	}
+
+	/**
+	 * Create a call bounded by the request's timeout class and the active deadline
+	 */
+	private TransportCall newCall(Request request) {
+		return newCall(request, false);
+	}
+
+	private TransportCall newCall(Request request, boolean incrementalBody) {
+		long budget = config.timeoutFor(operationKind(request));
+		Deadline deadline = Deadline.current();
+		if (deadline != null) {
+			if (deadline.isExpired()) {
+				throw new OpenCodeException.DeadlineExceeded(
+						"Deadline exceeded before " + request.method() + " " + request.url().encodedPath());
+			}
+			budget = budget > 0 ? Math.min(budget, deadline.remainingMillis()) : deadline.remainingMillis();
+		}
+		TransportRequest transportRequest = toTransport(request, Math.max(budget, 0), incrementalBody);
+		log.debug("Request: {} {}", transportRequest.getMethod(), transportRequest.getUrl());
+		ServerEndpoint endpoint = request.tag(ServerEndpoint.class);
+		// Event streams stay open indefinitely and would hold a slot for good
+		Priority priority = scheduler == null || transportRequest.isStreaming() ? null
+				: Objects.requireNonNullElse(Priority.current(), Priority.NORMAL);
+		return new TrackedCall(transport.newCall(transportRequest),
+				endpoint != null ? endpoint : serverPool.forUrl(request.url()), priority);
+	}
+
+	/**
+	 * Hand a service request to the transport; its URL already carries the directory
+	 */
+	private TransportRequest toTransport(Request request, long budget, boolean incrementalBody) {
+		boolean streaming = operationKind(request) == OperationKind.STREAM;
+		Map<String, String> headers = streaming ? streamHeaders : jsonHeaders;
+		if (request.headers().size() > 0) {
+			headers = new LinkedHashMap<>(headers);
+			for (String name : request.headers().names()) {
+				headers.put(name, request.header(name));
+			}
+		}
+		TransportRequest.TransportRequestBuilder builder = TransportRequest.builder()
+			.method(request.method())
+			.url(request.url().toString())
+			.headers(headers)
+			.timeoutMillis(budget)
+			.streaming(streaming)
+			.incrementalBody(incrementalBody);
+		if (request.body() instanceof JsonBody json) {
+			builder.body(json.bytes);
+		}
+		else if (request.body() != null) {
+			Buffer buffer = new Buffer();
+			try {
+				request.body().writeTo(buffer);
+			}
+			catch (IOException e) {
+				throw new OpenCodeException("Failed to encode request body", e);
+			}
+			builder.body(buffer.readByteArray());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Call that counts towards its server's load and drains the server on failure; with a
+	 * priority, it first waits for a slot of the scheduler and holds it until the response
+	 * is closed
+	 */
+	private class TrackedCall implements TransportCall {
+
+		private final TransportCall call;
+
+		private final ServerEndpoint endpoint;
+
+		private final Priority priority;
+
+		TrackedCall(TransportCall call, ServerEndpoint endpoint, Priority priority) {
+			this.call = call;
+			this.endpoint = endpoint;
+			this.priority = priority;
+		}
+
+		@Override
+		public TransportResponse execute() throws IOException {
+			if (priority == null) {
+				return track();
+			}
+			PriorityScheduler.Permit permit = scheduler.acquire(priority);
+			try {
+				TransportResponse response = track();
+				return new TransportResponse(response.code(), response.body(), () -> {
+					response.close();
+					permit.release();
+				});
+			}
+			catch (IOException | RuntimeException e) {
+				permit.release();
+				throw e;
+			}
+		}
+
+		private TransportResponse track() throws IOException {
+			if (endpoint == null) {
+				return logResponse(call.execute());
+			}
+			endpoint.inFlightCounter().incrementAndGet();
+			try {
+				return logResponse(call.execute());
+			}
+			catch (IOException e) {
+				// Cancelled calls (e.g. a losing hedge) and timeouts say nothing about the server
+				if (!call.isCanceled() && ServerPool.isConnectFailure(e)) {
+					serverPool.markUnhealthy(endpoint);
+				}
+				throw e;
+			}
+			finally {
+				endpoint.inFlightCounter().decrementAndGet();
+			}
+		}
+
+		@Override
+		public void cancel() {
+			call.cancel();
+		}
 
-		private String apiKey;
+		@Override
+		public boolean isCanceled() {
+			return call.isCanceled();
+		}
 
-		private String workingDirectory;
+		private TransportResponse logResponse(TransportResponse response) {
+			log.debug("Response: {}", response.code());
+			return response;
+		}
 
-		private int timeout = 30000;
+	}
 
-		private int maxRetries = 3;
+	private static OperationKind operationKind(Request request) {
+		OperationKind kind = request.tag(OperationKind.class);
+		return kind != null ? kind : OperationKind.METADATA;
+	}
 
-		public Builder baseUrl(String baseUrl) {
-			this.baseUrl = baseUrl;
-			return this;
+	private static OpenCodeException networkError(IOException e) {
+		if (e instanceof InterruptedIOException) {
+			Deadline deadline = Deadline.current();
+			if (deadline != null && deadline.isExpired()) {
+				return new OpenCodeException.DeadlineExceeded("Deadline exceeded during request", e);
+			}
+			return new OpenCodeException.Timeout("Request timed out", e);
 		}
+		return new OpenCodeException.NetworkError("Network error during request", e);
+	}
 
-		public Builder apiKey(String apiKey) {
-			this.apiKey = apiKey;
-			return this;
-		}
+	private void handleErrorResponse(int code, String body) {
+		throw OpenCodeException.forStatus(code, body);
+	}
 
-		public Builder workingDirectory(String workingDirectory) {
-			this.workingDirectory = workingDirectory;
-			return this;
-		}
+	/**
+	 * Pool for decoding messages of a session, null unless message dedup is enabled
+	 */
+	private StringPool messagePool(String sessionId) {
+		return switch (config.getMessageDedup()) {
+			case OFF -> null;
+			case PER_DECODE -> new StringPool(MESSAGE_POOL_SLOTS);
+			case PER_SESSION -> {
+				synchronized (sessionPools) {
+					yield sessionPools.computeIfAbsent(sessionId, id -> new StringPool(MESSAGE_POOL_SLOTS));
+				}
+			}
+		};
+	}
 
-		public Builder timeout(int timeout) {
-			this.timeout = timeout;
-			return this;
+	/**
+	 * Run a prompt-like call through the adaptive limiter when enabled
+	 */
+	private <T> T limitPrompt(Supplier<T> call) {
+		if (promptLimiter == null) {
+			return call.get();
 		}
-
-		public Builder maxRetries(int maxRetries) {
-			this.maxRetries = maxRetries;
-			return this;
+		if (!promptLimitResolved) {
+			resolvePromptLimit();
 		}
+		return promptLimiter.execute(call);
+	}
 
-		public OpenCodeClient build() {
-			OpenCodeConfig config = OpenCodeConfig.builder()
-				.baseUrl(baseUrl)
-				.apiKey(apiKey)
-				.workingDirectory(workingDirectory)
-				.timeout(timeout)
-				.maxRetries(maxRetries)
-				.build();
+	/**
+	 * Seed the limiter from the server's maxConcurrentSessions, once
+	 */
+	private synchronized void resolvePromptLimit() {
+		if (promptLimitResolved) {
+			return;
+		}
+		try {
+			ConfigInfo info = configuration.getConfig();
+			if (info != null && info.getLimits() != null && info.getLimits().getMaxConcurrentSessions() != null) {
+				promptLimiter.setLimit(info.getLimits().getMaxConcurrentSessions());
+			}
+		}
+		catch (OpenCodeException e) {
+			log.debug("Could not read server limits, keeping initial concurrency limit: {}", e.getMessage());
+		}
+		promptLimitResolved = true;
+	}
 
-			return new OpenCodeClient(config);
+	/**
+	 * The server's working directory, which event paths are under; asked once, again
+	 * every ROOT_RETRY_NANOS while it fails, and null until it answers
+	 */
+	private synchronized Path serverRoot() {
+		if (serverRoot == null && (!serverRootAsked || System.nanoTime() - serverRootAskedAt > ROOT_RETRY_NANOS)) {
+			serverRootAsked = true;
+			serverRootAskedAt = System.nanoTime();
+			try {
+				String directory = configuration.getWorkingDirectory();
+				serverRoot = directory != null ? Path.of(directory) : null;
+			}
+			catch (OpenCodeException e) {
+				log.debug("Could not read the server's working directory: {}", e.getMessage());
+			}
 		}
+		return serverRoot;
+	}
 
+	private RequestBody createJsonBody(Object obj) {
+		return new JsonBody(JsonUtils.toJsonBytes(obj));
 	}
 
 	/**
-	 * Helper method to execute HTTP requests
+	 * Caller's sink, with its failures told apart from network errors
 	 */
-	private <T> T executeRequest(Request request, Class<T> responseType) {
-		try (Response response = httpClient.newCall(request).execute()) {
-			String body = response.body() != null ? response.body().string() : null;
+	private static final class SinkOutputStream extends OutputStream {
 
-			if (!response.isSuccessful()) {
-				handleErrorResponse(response, body);
-			}
+		private final OutputStream out;
 
-			if (responseType == Void.class || body == null || body.isEmpty()) {
-				return null;
+		SinkOutputStream(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) {
+			try {
+				out.write(b);
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
 			}
+		}
 
-			return JsonUtils.fromJson(body, responseType);
+		@Override
+		public void write(byte[] bytes, int offset, int length) {
+			try {
+				out.write(bytes, offset, length);
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
 		}
-		catch (IOException e) {
-			throw new OpenCodeException.NetworkError("Network error during request", e);
+
+		@Override
+		public void flush() {
+			try {
+				out.flush();
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
 		}
+
 	}
 
 	/**
-	 * Helper method to execute HTTP requests with TypeReference
+	 * JSON body kept as bytes so the transport gets it without another copy
 	 */
-	private <T> T executeRequest(Request request, TypeReference<T> typeRef) {
-		try (Response response = httpClient.newCall(request).execute()) {
-			String body = response.body() != null ? response.body().string() : null;
-
-			if (!response.isSuccessful()) {
-				handleErrorResponse(response, body);
-			}
+	private static final class JsonBody extends RequestBody {
 
-			if (body == null || body.isEmpty()) {
-				return null;
-			}
+		private final byte[] bytes;
 
-			return JsonUtils.fromJson(body, typeRef);
+		JsonBody(byte[] bytes) {
+			this.bytes = bytes;
 		}
-		catch (IOException e) {
-			throw new OpenCodeException.NetworkError("Network error during request", e);
+
+		@Override
+		public MediaType contentType() {
+			return JSON;
 		}
-	}
 
-	private void handleErrorResponse(Response response, String body) {
-		String message = body != null ? body : "HTTP " + response.code();
+		@Override
+		public long contentLength() {
+			return bytes.length;
+		}
 
-		switch (response.code()) {
-			case 400:
-				throw new OpenCodeException.BadRequest(message);
-			case 401:
-				throw new OpenCodeException.Unauthorized(message);
-			case 404:
-				throw new OpenCodeException.NotFound(message);
-			case 500:
-			case 502:
-			case 503:
-				throw new OpenCodeException.ServerError(message);
-			default:
-				throw new OpenCodeException(message, response.code(), null);
+		@Override
+		public void writeTo(BufferedSink sink) throws IOException {
+			sink.write(bytes);
 		}
-	}
 
-	private RequestBody createJsonBody(Object obj) {
-		String json = JsonUtils.toJson(obj);
-		return RequestBody.create(json, MediaType.parse("application/json"));
 	}
 
 	// Service implementations
@@ -304,32 +1326,52 @@ public class OpenCodeClient {
 
 		@Override
 		public Session createSession(SessionCreateRequest request) {
-			Request httpRequest = new Request.Builder().url(config.getBaseUrl() + "/session")
+			ServerEndpoint endpoint = serverPool.leastLoaded();
+			Request httpRequest = request(endpoint, ApiPath.SESSION)
 				.post(createJsonBody(request != null ? request : new SessionCreateRequest()))
 				.build();
 
-			return executeRequest(httpRequest, Session.class);
+			Session session = executeRequest(httpRequest, Session.class);
+			if (session != null) {
+				serverPool.bind(session.getId(), endpoint);
+			}
+			return session;
 		}
 
 		@Override
 		public List<Session> listSessions() {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/session").get().build();
-
-			return executeRequest(request, new TypeReference<List<Session>>() {
-			});
+			List<Session> all = new ArrayList<>();
+			for (ServerEndpoint endpoint : serverPool.getEndpoints()) {
+				if (serverPool.size() > 1 && !endpoint.isHealthy()) {
+					continue;
+				}
+				Request request = request(endpoint, ApiPath.SESSION).get().build();
+				List<Session> sessions = executeRequest(request, new TypeReference<List<Session>>() {
+				});
+				if (sessions != null) {
+					sessions.forEach(session -> serverPool.bind(session.getId(), endpoint));
+					all.addAll(sessions);
+				}
+			}
+			return all;
 		}
 
 		@Override
 		public Session getSession(String sessionId) {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/session/" + sessionId).get().build();
+			Request request = sessionRequest(ApiPath.SESSION_BY_ID, sessionId).get().build();
 
 			return executeRequest(request, Session.class);
 		}
 
+		@Override
+		public Flux<BulkResult<Session>> getSessions(Collection<String> sessionIds) {
+			return bulk.run(sessionIds, this::getSession);
+		}
+
 		@Override
 		public Session updateSession(String sessionId, String title) {
 			Map<String, String> body = Map.of("title", title);
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/session/" + sessionId)
+			Request request = sessionRequest(ApiPath.SESSION_BY_ID, sessionId)
 				.patch(createJsonBody(body))
 				.build();
 
@@ -338,43 +1380,81 @@ public class OpenCodeClient {
 
 		@Override
 		public void deleteSession(String sessionId) {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/session/" + sessionId).delete().build();
+			Request request = sessionRequest(ApiPath.SESSION_BY_ID, sessionId).delete().build();
 
 			executeRequest(request, Void.class);
+			serverPool.unbind(sessionId);
+			synchronized (sessionPools) {
+				sessionPools.remove(sessionId);
+			}
+		}
+
+		@Override
+		public Flux<BulkResult<Void>> deleteSessions(Collection<String> sessionIds) {
+			return bulk.run(sessionIds, sessionId -> {
+				deleteSession(sessionId);
+				return null;
+			});
 		}
 
 		@Override
 		public Message sendPrompt(String sessionId, PromptRequest promptRequest) {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/session/" + sessionId + "/message")
+			Request request = sessionRequest(ApiPath.SESSION_MESSAGES, sessionId)
 				.post(createJsonBody(promptRequest))
+				.tag(OperationKind.class, OperationKind.PROMPT)
 				.build();
 
-			return executeRequest(request, Message.class);
+			return limitPrompt(() -> executeRequest(request, MESSAGE, messagePool(sessionId)));
 		}
 
 		@Override
 		public CompletableFuture<Message> sendPromptAsync(String sessionId, PromptRequest request) {
-			return CompletableFuture.supplyAsync(() -> sendPrompt(sessionId, request));
+			return CompletableFuture
+				.supplyAsync(Deadline.propagate(Priority.propagate(() -> sendPrompt(sessionId, request))));
 		}
 
 		@Override
 		public List<Message> getMessages(String sessionId) {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/session/" + sessionId + "/message")
+			Request request = sessionRequest(ApiPath.SESSION_MESSAGES, sessionId)
 				.get()
 				.build();
 
-			return executeRequest(request, new TypeReference<List<Message>>() {
-			});
+			return executeRequest(request, MESSAGES, messagePool(sessionId));
+		}
+
+		@Override
+		public long writeMessagesTo(String sessionId, OutputStream out) {
+			Request request = sessionRequest(ApiPath.SESSION_MESSAGES, sessionId)
+				.get()
+				.build();
+
+			try (TransportResponse response = newCall(request, true).execute()) {
+				if (!response.isSuccessful()) {
+					handleErrorResponse(response.code(), response.string());
+				}
+				return JsonUtils.copyArrayAsLines(response.body(), new SinkOutputStream(out));
+			}
+			catch (UncheckedIOException e) {
+				throw new OpenCodeException("Failed to write messages of " + sessionId, e.getCause());
+			}
+			catch (IOException e) {
+				throw networkError(e);
+			}
+		}
+
+		@Override
+		public Flux<BulkResult<List<Message>>> getMessagesBulk(
+				Collection<String> sessionIds) {
+			return bulk.run(sessionIds, this::getMessages);
 		}
 
 		@Override
 		public Message getMessage(String sessionId, String messageId) {
-			Request request = new Request.Builder()
-				.url(config.getBaseUrl() + "/session/" + sessionId + "/message/" + messageId)
+			Request request = sessionRequest(ApiPath.SESSION_MESSAGE, sessionId, messageId)
 				.get()
 				.build();
 
-			return executeRequest(request, Message.class);
+			return executeRequest(request, MESSAGE, messagePool(sessionId));
 		}
 
 		@Override
@@ -387,17 +1467,18 @@ public class OpenCodeClient {
 				body.put("agent", "shell");
 			}
 
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/session/" + sessionId + "/command")
+			Request request = sessionRequest(ApiPath.SESSION_COMMAND, sessionId)
 				.post(createJsonBody(body))
+				.tag(OperationKind.class, OperationKind.PROMPT)
 				.build();
 
-			return executeRequest(request, Message.class);
+			return limitPrompt(() -> executeRequest(request, MESSAGE, messagePool(sessionId)));
 		}
 
 		@Override
 		public Session shareSession(String sessionId) {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/session/" + sessionId + "/share")
-				.post(RequestBody.create("{}", MediaType.parse("application/json")))
+			Request request = sessionRequest(ApiPath.SESSION_SHARE, sessionId)
+				.post(EMPTY_JSON)
 				.build();
 
 			return executeRequest(request, Session.class);
@@ -405,7 +1486,7 @@ public class OpenCodeClient {
 
 		@Override
 		public Session unshareSession(String sessionId) {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/session/" + sessionId + "/share")
+			Request request = sessionRequest(ApiPath.SESSION_SHARE, sessionId)
 				.delete()
 				.build();
 
@@ -416,8 +1497,9 @@ public class OpenCodeClient {
 		public void initializeSession(String sessionId, String providerId, String modelId) {
 			Map<String, String> body = Map.of("messageID", "init_" + System.currentTimeMillis(), "providerID",
 					providerId, "modelID", modelId);
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/session/" + sessionId + "/init")
+			Request request = sessionRequest(ApiPath.SESSION_INIT, sessionId)
 				.post(createJsonBody(body))
+				.tag(OperationKind.class, OperationKind.PROMPT)
 				.build();
 
 			executeRequest(request, Void.class);
@@ -425,8 +1507,8 @@ public class OpenCodeClient {
 
 		@Override
 		public void abortSession(String sessionId) {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/session/" + sessionId + "/abort")
-				.post(RequestBody.create("{}", MediaType.parse("application/json")))
+			Request request = sessionRequest(ApiPath.SESSION_ABORT, sessionId)
+				.post(EMPTY_JSON)
 				.build();
 
 			executeRequest(request, Void.class);
@@ -435,7 +1517,7 @@ public class OpenCodeClient {
 		@Override
 		public Session revertMessage(String sessionId, String messageId, String partId) {
 			Map<String, String> body = Map.of("messageID", messageId, "partID", partId != null ? partId : "");
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/session/" + sessionId + "/revert")
+			Request request = sessionRequest(ApiPath.SESSION_REVERT, sessionId)
 				.post(createJsonBody(body))
 				.build();
 
@@ -444,8 +1526,8 @@ public class OpenCodeClient {
 
 		@Override
 		public Session unrevertMessages(String sessionId) {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/session/" + sessionId + "/unrevert")
-				.post(RequestBody.create("{}", MediaType.parse("application/json")))
+			Request request = sessionRequest(ApiPath.SESSION_UNREVERT, sessionId)
+				.post(EMPTY_JSON)
 				.build();
 
 			return executeRequest(request, Session.class);
@@ -453,19 +1535,25 @@ public class OpenCodeClient {
 
 		@Override
 		public List<Session> getSessionChildren(String sessionId) {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/session/" + sessionId + "/children")
+			ServerEndpoint owner = serverPool.forSession(sessionId);
+			Request request = sessionRequest(ApiPath.SESSION_CHILDREN, sessionId)
 				.get()
 				.build();
 
-			return executeRequest(request, new TypeReference<List<Session>>() {
+			List<Session> children = executeRequest(request, new TypeReference<List<Session>>() {
 			});
+			if (children != null) {
+				children.forEach(child -> serverPool.bind(child.getId(), owner));
+			}
+			return children;
 		}
 
 		@Override
 		public SessionSummary summarizeSession(String sessionId, String providerId, String modelId) {
 			Map<String, String> body = Map.of("providerID", providerId, "modelID", modelId);
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/session/" + sessionId + "/summarize")
+			Request request = sessionRequest(ApiPath.SESSION_SUMMARIZE, sessionId)
 				.post(createJsonBody(body))
+				.tag(OperationKind.class, OperationKind.PROMPT)
 				.build();
 
 			return executeRequest(request, SessionSummary.class);
@@ -473,17 +1561,17 @@ public class OpenCodeClient {
 
 		@Override
 		public Message executeShellCommand(String sessionId, ShellRequest shellRequest) {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/session/" + sessionId + "/shell")
+			Request request = sessionRequest(ApiPath.SESSION_SHELL, sessionId)
 				.post(createJsonBody(shellRequest))
+				.tag(OperationKind.class, OperationKind.PROMPT)
 				.build();
 
-			return executeRequest(request, Message.class);
+			return executeRequest(request, MESSAGE, messagePool(sessionId));
 		}
 
 		@Override
 		public void respondToPermission(String sessionId, String permissionId, PermissionResponse response) {
-			Request request = new Request.Builder()
-				.url(config.getBaseUrl() + "/session/" + sessionId + "/permissions/" + permissionId)
+			Request request = sessionRequest(ApiPath.SESSION_PERMISSION, sessionId, permissionId)
 				.post(createJsonBody(response))
 				.build();
 
@@ -503,38 +1591,161 @@ public class OpenCodeClient {
 		// Implementation of FileService methods...
 		@Override
 		public FileContent readFile(String path) {
-			try {
-				String encodedPath = java.net.URLEncoder.encode(path, "UTF-8");
-				Request request = new Request.Builder().url(config.getBaseUrl() + "/file?path=" + encodedPath)
-					.get()
-					.build();
+			if (fileCache == null) {
+				return fetchFile(path);
+			}
+			if (!fileCache.hasRoot()) {
+				fileCache.setRoot(serverRoot());
+			}
+			eventFanOut.subscribe(fileCache.events);
+			FileContent cached = fileCache.get(path);
+			if (cached != null) {
+				return cached;
+			}
+			long stamp = fileCache.stamp();
+			FileContent content = fetchFile(path);
+			fileCache.put(path, content, stamp);
+			return content;
+		}
+
+		private FileContent fetchFile(String path) {
+			Request request = query(ApiPath.FILE, "path", path).get()
+				.tag(OperationKind.class, OperationKind.FILE)
+				.build();
+
+			return executeRequest(request, FileContent.class);
+		}
+
+		@Override
+		public FileContent readFileTo(String path, OutputStream out) {
+			Request request = query(ApiPath.FILE, "path", path).get()
+				.tag(OperationKind.class, OperationKind.FILE)
+				.build();
 
-				return executeRequest(request, FileContent.class);
+			try (TransportResponse response = newCall(request, true).execute()) {
+				if (!response.isSuccessful()) {
+					handleErrorResponse(response.code(), response.string());
+				}
+				return FileContentStreamer.copy(response.body(), new SinkOutputStream(out));
 			}
-			catch (java.io.UnsupportedEncodingException e) {
-				throw new OpenCodeException("Failed to encode file path", e);
+			catch (UncheckedIOException e) {
+				throw new OpenCodeException("Failed to write content of " + path, e.getCause());
+			}
+			catch (IOException e) {
+				throw networkError(e);
 			}
 		}
 
 		@Override
-		public List<FileNode> listFiles(String path) {
+		public FileContent readFileTo(String path, WritableByteChannel channel) {
+			return readFileTo(path, Channels.newOutputStream(channel));
+		}
+
+		@Override
+		public FileContent readFileTo(String path, Path target) {
+			// Download next to the target and move it into place once complete
+			Path partial = target.resolveSibling(target.getFileName() + ".part");
 			try {
-				String encodedPath = java.net.URLEncoder.encode(path, "UTF-8");
-				Request request = new Request.Builder().url(config.getBaseUrl() + "/file?path=" + encodedPath)
-					.get()
-					.build();
+				FileContent file;
+				try (OutputStream out = Files.newOutputStream(partial)) {
+					file = readFileTo(path, out);
+				}
+				Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+				return file;
+			}
+			catch (IOException e) {
+				throw new OpenCodeException("Failed to write " + target, e);
+			}
+			finally {
+				try {
+					Files.deleteIfExists(partial);
+				}
+				catch (IOException e) {
+					log.debug("Could not remove {}: {}", partial, e.getMessage());
+				}
+			}
+		}
 
-				return executeRequest(request, new TypeReference<List<FileNode>>() {
-				});
+		@Override
+		public Flux<BulkResult<FileContent>> readFiles(Collection<String> paths) {
+			return bulk.run(paths, this::readFile);
+		}
+
+		@Override
+		public Flux<BulkResult<FileContent>> readFiles(Collection<String> paths,
+				ReadFilesOptions options) {
+			int limit = options.getConcurrency() != null ? options.getConcurrency() : bulk.getConcurrency();
+			return Flux.defer(() -> {
+				AtomicLong remaining = new AtomicLong(
+						options.getMaxBytes() != null ? options.getMaxBytes() : Long.MAX_VALUE);
+				return bulk.run(paths, this::readFile, limit, options.isOrdered())
+					.takeWhile(result -> !result.isSuccess() || result.getValue() == null
+							|| remaining.addAndGet(-result.getValue().contentLength()) >= 0)
+					.takeUntil(result -> result.isSuccess() && options.getUntil() != null
+							&& options.getUntil().test(result.getValue()));
+			});
+		}
+
+		@Override
+		public List<FileNode> listFiles(String path) {
+			Request request = query(ApiPath.FILE, "path", path).get()
+				.tag(OperationKind.class, OperationKind.FILE)
+				.build();
+
+			return executeRequest(request, new TypeReference<List<FileNode>>() {
+			});
+		}
+
+		@Override
+		public FileTree walkTree(String root, int maxDepth, Predicate<FileNode> filter) {
+			if (maxDepth < 1) {
+				throw new IllegalArgumentException("Tree depth must be positive, got " + maxDepth);
 			}
-			catch (java.io.UnsupportedEncodingException e) {
-				throw new OpenCodeException("Failed to encode file path", e);
+			// Listings after the first run on bulk threads, so carry the caller's deadline
+			Deadline deadline = Deadline.current();
+			Function<String, List<FileNode>> list = deadline == null ? this::listFiles
+					: path -> deadline.call(() -> listFiles(path));
+			FileTree.Builder tree = FileTree.builder(root);
+			expand(tree, FileTree.ROOT, root, 1, maxDepth, filter, list).block();
+			return tree.build();
+		}
+
+		private Mono<Void> expand(FileTree.Builder tree, int node, String path, int depth,
+				int maxDepth, Predicate<FileNode> filter,
+				Function<String, List<FileNode>> list) {
+			return bulk.run(List.of(path), list).concatMap(result -> {
+				if (!result.isSuccess()) {
+					return Flux.error(result.getError());
+				}
+				List<FileNode> children = result.getValue()
+					.stream()
+					.filter(child -> child.getName() != null && (filter == null || filter.test(child)))
+					.sorted(Comparator.comparing(FileNode::getName))
+					.toList();
+				int first = tree.addChildren(node, children);
+				if (depth >= maxDepth) {
+					return Flux.empty();
+				}
+				return Flux.range(0, children.size())
+					.filter(i -> children.get(i).isDirectory())
+					.flatMap(i -> expand(tree, first + i, childPath(path, children.get(i)), depth + 1, maxDepth,
+							filter, list));
+			}).then();
+		}
+
+		private String childPath(String parent, FileNode child) {
+			if (child.getPath() != null) {
+				return child.getPath();
 			}
+			return parent.isEmpty() || parent.equals(".") ? child.getName() : parent + "/" + child.getName();
 		}
 
 		@Override
 		public List<FileNode> getFileStatus() {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/file/status").get().build();
+			Request request = request(ApiPath.FILE_STATUS)
+				.get()
+				.tag(OperationKind.class, OperationKind.FILE)
+				.build();
 
 			return executeRequest(request, new TypeReference<List<FileNode>>() {
 			});
@@ -542,16 +1753,90 @@ public class OpenCodeClient {
 
 		@Override
 		public List<SearchMatch> searchText(String pattern) {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/find?pattern=" + pattern).get().build();
+			Request request = query(ApiPath.FIND_TEXT, "pattern", pattern)
+				.get()
+				.tag(OperationKind.class, OperationKind.FILE)
+				.build();
 
 			return executeRequest(request, new TypeReference<List<SearchMatch>>() {
 			});
 		}
 
+		@Override
+		public Flux<SearchMatch> searchTextStream(String pattern, int limit) {
+			if (limit < 1) {
+				throw new IllegalArgumentException("Search limit must be positive, got " + limit);
+			}
+			return Flux.create(sink -> {
+				Request request = query(ApiPath.FIND_TEXT, "pattern", pattern).get()
+					.tag(OperationKind.class, OperationKind.FILE)
+					.build();
+
+				TransportCall call = newCall(request, true);
+				Thread reader = Thread.ofVirtual().name("opencode-search").start(() -> {
+					try (TransportResponse response = call.execute()) {
+						if (!response.isSuccessful()) {
+							sink.error(OpenCodeException.forStatus(response.code(), response.string()));
+							return;
+						}
+						readMatches(response, limit, sink);
+						// Closing the response here drops whatever the server still sends
+						sink.complete();
+					}
+					catch (IOException e) {
+						if (call.isCanceled()) {
+							sink.complete();
+						}
+						else {
+							sink.error(networkError(e));
+						}
+					}
+					catch (RuntimeException e) {
+						sink.error(e);
+					}
+				});
+
+				sink.onDispose(() -> {
+					call.cancel();
+					reader.interrupt();
+				});
+			});
+		}
+
+		/**
+		 * Parse the match array one element at a time, stopping at the limit
+		 */
+		private void readMatches(TransportResponse response, int limit,
+				FluxSink<SearchMatch> sink) throws IOException {
+			ObjectMapper mapper = JsonUtils.getMapper();
+			try (JsonParser parser = mapper.getFactory().createParser(response.body())) {
+				if (parser.nextToken() != JsonToken.START_ARRAY) {
+					throw new OpenCodeException("Expected an array of search matches");
+				}
+				int emitted = 0;
+				while (emitted < limit && !sink.isCancelled()
+						&& parser.nextToken() == JsonToken.START_OBJECT) {
+					sink.next(mapper.readValue(parser, SearchMatch.class));
+					emitted++;
+				}
+			}
+		}
+
 		@Override
 		public List<String> findFiles(String query) {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/find/file?query=" + query)
+			if (pathIndex != null) {
+				if (!pathIndex.hasRoot()) {
+					pathIndex.setRoot(serverRoot());
+				}
+				eventFanOut.subscribe(pathIndex.events);
+				List<String> local = pathIndex.search(query, PATH_INDEX_RESULTS);
+				if (local != null) {
+					return local;
+				}
+			}
+			Request request = query(ApiPath.FIND_FILE, "query", query)
 				.get()
+				.tag(OperationKind.class, OperationKind.FILE)
 				.build();
 
 			return executeRequest(request, new TypeReference<List<String>>() {
@@ -559,12 +1844,28 @@ public class OpenCodeClient {
 		}
 
 		@Override
-		public List<Object> findSymbols(String query) {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/find/symbol?query=" + query)
+		public List<Symbol> findSymbols(String query) {
+			if (symbolCache == null) {
+				return fetchSymbols(query);
+			}
+			eventFanOut.subscribe(symbolCache.events);
+			List<Symbol> cached = symbolCache.get(query);
+			if (cached != null) {
+				return cached;
+			}
+			long stamp = symbolCache.stamp();
+			List<Symbol> symbols = fetchSymbols(query);
+			symbolCache.put(query, symbols, stamp);
+			return symbols;
+		}
+
+		private List<Symbol> fetchSymbols(String query) {
+			Request request = query(ApiPath.FIND_SYMBOL, "query", query)
 				.get()
+				.tag(OperationKind.class, OperationKind.FILE)
 				.build();
 
-			return executeRequest(request, new TypeReference<List<Object>>() {
+			return executeRequest(request, new TypeReference<List<Symbol>>() {
 			});
 		}
 
@@ -581,21 +1882,21 @@ public class OpenCodeClient {
 		// Implementation of ConfigService methods...
 		@Override
 		public ConfigInfo getConfig() {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/config").get().build();
+			Request request = request(ApiPath.CONFIG).get().build();
 
 			return executeRequest(request, ConfigInfo.class);
 		}
 
 		@Override
 		public ProvidersResponse listProviders() {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/config/providers").get().build();
+			Request request = request(ApiPath.CONFIG_PROVIDERS).get().build();
 
 			return executeRequest(request, ProvidersResponse.class);
 		}
 
 		@Override
 		public String getWorkingDirectory() {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/path").get().build();
+			Request request = request(ApiPath.PATH).get().build();
 
 			Map<String, String> response = executeRequest(request, new TypeReference<Map<String, String>>() {
 			});
@@ -605,7 +1906,7 @@ public class OpenCodeClient {
 		@Override
 		public void setAuthentication(String providerId, String credentials) {
 			Map<String, String> body = Map.of("credentials", credentials);
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/auth/" + providerId)
+			Request request = request(ApiPath.AUTH, providerId)
 				.put(createJsonBody(body))
 				.build();
 
@@ -622,66 +1923,106 @@ public class OpenCodeClient {
 			this.client = client;
 		}
 
-		private EventSource eventSource;
+		private final List<TransportCall> streams = new CopyOnWriteArrayList<>();
 
 		@Override
-		public reactor.core.publisher.Flux<OpenCodeEvent> subscribeToEvents() {
-			return reactor.core.publisher.Flux.create(sink -> {
-				EventSourceListener listener = new EventSourceListener() {
-					@Override
-					public void onEvent(EventSource eventSource, String id, String type, String data) {
-						try {
-							OpenCodeEvent event = JsonUtils.fromJson(data, OpenCodeEvent.class);
-							sink.next(event);
-						}
-						catch (Exception e) {
-							sink.error(e);
-						}
-					}
-
-					@Override
-					public void onFailure(EventSource eventSource, Throwable t, Response response) {
-						sink.error(new OpenCodeException("SSE connection failed", t));
-					}
+		public Flux<OpenCodeEvent> subscribeToEvents() {
+			return rawEvents().map(data -> JsonUtils.fromJson(data, OpenCodeEvent.class));
+		}
 
-					@Override
-					public void onClosed(EventSource eventSource) {
-						sink.complete();
-					}
-				};
+		/**
+		 * Event data as sent by the server, before parsing
+		 */
+		Flux<String> rawEvents() {
+			List<ServerEndpoint> endpoints = serverPool.getEndpoints();
+			if (endpoints.size() == 1) {
+				return rawEvents(endpoints.get(0));
+			}
+			// One stream per server, merged
+			return Flux
+				.merge(endpoints.stream().map(this::rawEvents).collect(Collectors.toList()));
+		}
 
-				Request request = new Request.Builder().url(config.getBaseUrl() + "/event")
-					.header("Accept", "text/event-stream")
+		private Flux<String> rawEvents(ServerEndpoint endpoint) {
+			return Flux.create(sink -> {
+				Request request = request(endpoint, ApiPath.EVENT)
+					.tag(OperationKind.class, OperationKind.STREAM)
 					.build();
 
-				eventSource = createEventSource(request.url().toString(), listener);
+				TransportCall call = newCall(request);
+				streams.add(call);
+				Thread reader = Thread.ofVirtual().name("opencode-events").start(() -> {
+					try (TransportResponse response = call.execute()) {
+						if (!response.isSuccessful()) {
+							sink.error(new OpenCodeException("SSE connection failed", response.code(), null));
+							return;
+						}
+						readEvents(response, sink);
+						sink.complete();
+					}
+					catch (IOException e) {
+						if (call.isCanceled()) {
+							sink.complete();
+						}
+						else {
+							sink.error(new OpenCodeException("SSE connection failed", e));
+						}
+					}
+					finally {
+						streams.remove(call);
+					}
+				});
 
 				sink.onDispose(() -> {
-					if (eventSource != null) {
-						eventSource.cancel();
-					}
+					call.cancel();
+					reader.interrupt();
 				});
 			});
 		}
 
+		/**
+		 * Parse a text/event-stream body, emitting the data of each event
+		 */
+		private void readEvents(TransportResponse response, FluxSink<String> sink)
+				throws IOException {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+			StringBuilder data = new StringBuilder();
+			String line;
+			while ((line = reader.readLine()) != null && !sink.isCancelled()) {
+				if (line.isEmpty()) {
+					if (!data.isEmpty()) {
+						sink.next(data.toString());
+						data.setLength(0);
+					}
+				}
+				else if (line.startsWith("data:")) {
+					if (!data.isEmpty()) {
+						data.append('\n');
+					}
+					data.append(line, line.startsWith("data: ") ? 6 : 5, line.length());
+				}
+				// Event names, ids, retry hints and comments are not used
+			}
+		}
+
 		@Override
-		public void subscribeWithCallback(java.util.function.Consumer<OpenCodeEvent> onEvent,
-				java.util.function.Consumer<Throwable> onError, Runnable onComplete) {
+		public void subscribeWithCallback(Consumer<OpenCodeEvent> onEvent,
+				Consumer<Throwable> onError, Runnable onComplete) {
 			subscribeToEvents().subscribe(onEvent::accept, onError::accept, onComplete::run);
 		}
 
 		@Override
-		public reactor.core.publisher.Flux<OpenCodeEvent> subscribeToEvents(String eventTypeFilter) {
+		public Flux<OpenCodeEvent> subscribeToEvents(String eventTypeFilter) {
 			return subscribeToEvents()
 				.filter(event -> event.getType() != null && event.getType().contains(eventTypeFilter));
 		}
 
 		@Override
 		public void closeEventStream() {
-			if (eventSource != null) {
-				eventSource.cancel();
-				eventSource = null;
+			for (TransportCall stream : streams) {
+				stream.cancel();
 			}
+			streams.clear();
 		}
 
 	}
@@ -696,16 +2037,16 @@ public class OpenCodeClient {
 
 		@Override
 		public String getOpenApiDoc() {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/doc").get().build();
+			Request request = request(ApiPath.DOC).get().build();
 
-			try (Response response = httpClient.newCall(request).execute()) {
-				if (response.isSuccessful() && response.body() != null) {
-					return response.body().string();
+			try (TransportResponse response = send(request)) {
+				if (response.isSuccessful()) {
+					return response.string();
 				}
 				throw new OpenCodeException("Failed to get OpenAPI documentation", response.code(), null);
 			}
 			catch (IOException e) {
-				throw new OpenCodeException.NetworkError("Failed to get OpenAPI documentation", e);
+				throw networkError(e);
 			}
 		}
 
@@ -721,7 +2062,7 @@ public class OpenCodeClient {
 
 		@Override
 		public List<Command> listCommands() {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/command").get().build();
+			Request request = request(ApiPath.COMMANDS).get().build();
 
 			return executeRequest(request, new TypeReference<List<Command>>() {
 			});
@@ -729,14 +2070,14 @@ public class OpenCodeClient {
 
 		@Override
 		public Command getCommand(String name) {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/command/" + name).get().build();
+			Request request = request(ApiPath.COMMAND, name).get().build();
 
 			return executeRequest(request, Command.class);
 		}
 
 		@Override
 		public List<Agent> listAgents() {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/agent").get().build();
+			Request request = request(ApiPath.AGENTS).get().build();
 
 			return executeRequest(request, new TypeReference<List<Agent>>() {
 			});
@@ -744,7 +2085,7 @@ public class OpenCodeClient {
 
 		@Override
 		public Agent getAgent(String agentId) {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/agent/" + agentId).get().build();
+			Request request = request(ApiPath.AGENT, agentId).get().build();
 
 			return executeRequest(request, Agent.class);
 		}
@@ -761,7 +2102,7 @@ public class OpenCodeClient {
 
 		@Override
 		public Tool registerTool(ToolRegisterRequest request) {
-			Request httpRequest = new Request.Builder().url(config.getBaseUrl() + "/experimental/tool/register")
+			Request httpRequest = request(ApiPath.TOOL_REGISTER)
 				.post(createJsonBody(request))
 				.build();
 
@@ -770,7 +2111,7 @@ public class OpenCodeClient {
 
 		@Override
 		public List<String> listToolIds() {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/experimental/tool/ids").get().build();
+			Request request = request(ApiPath.TOOL_IDS).get().build();
 
 			return executeRequest(request, new TypeReference<List<String>>() {
 			});
@@ -778,17 +2119,13 @@ public class OpenCodeClient {
 
 		@Override
 		public List<Tool> listTools(String providerId, String modelId) {
-			String url = config.getBaseUrl() + "/experimental/tool";
 			// Only add query params if both are provided
-			if (providerId != null && modelId != null) {
-				url += "?provider=" + providerId + "&model=" + modelId;
-			}
-			else if (providerId != null || modelId != null) {
+			if ((providerId == null) != (modelId == null)) {
 				// If only one is provided, it's likely an error
 				throw new IllegalArgumentException("Both provider and model must be specified together or both null");
 			}
 
-			Request request = new Request.Builder().url(url).get().build();
+			Request request = query(ApiPath.TOOLS, "provider", providerId, "model", modelId).get().build();
 
 			return executeRequest(request, new TypeReference<List<Tool>>() {
 			});
@@ -796,7 +2133,7 @@ public class OpenCodeClient {
 
 		@Override
 		public Tool getTool(String toolId) {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/experimental/tool/" + toolId)
+			Request request = request(ApiPath.TOOL, toolId)
 				.get()
 				.build();
 
@@ -805,7 +2142,7 @@ public class OpenCodeClient {
 
 		@Override
 		public void unregisterTool(String toolId) {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/experimental/tool/" + toolId)
+			Request request = request(ApiPath.TOOL, toolId)
 				.delete()
 				.build();
 
@@ -825,7 +2162,7 @@ public class OpenCodeClient {
 		@Override
 		public void appendPrompt(String text) {
 			TuiRequest body = TuiRequest.builder().text(text).build();
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/tui/append-prompt")
+			Request request = request(ApiPath.TUI_APPEND_PROMPT)
 				.post(createJsonBody(body))
 				.build();
 
@@ -834,8 +2171,8 @@ public class OpenCodeClient {
 
 		@Override
 		public void submitPrompt() {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/tui/submit-prompt")
-				.post(RequestBody.create("{}", MediaType.parse("application/json")))
+			Request request = request(ApiPath.TUI_SUBMIT_PROMPT)
+				.post(EMPTY_JSON)
 				.build();
 
 			executeRequest(request, Void.class);
@@ -843,8 +2180,8 @@ public class OpenCodeClient {
 
 		@Override
 		public void clearPrompt() {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/tui/clear-prompt")
-				.post(RequestBody.create("{}", MediaType.parse("application/json")))
+			Request request = request(ApiPath.TUI_CLEAR_PROMPT)
+				.post(EMPTY_JSON)
 				.build();
 
 			executeRequest(request, Void.class);
@@ -852,8 +2189,8 @@ public class OpenCodeClient {
 
 		@Override
 		public void openHelp() {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/tui/open-help")
-				.post(RequestBody.create("{}", MediaType.parse("application/json")))
+			Request request = request(ApiPath.TUI_OPEN_HELP)
+				.post(EMPTY_JSON)
 				.build();
 
 			executeRequest(request, Void.class);
@@ -861,8 +2198,8 @@ public class OpenCodeClient {
 
 		@Override
 		public void openSessions() {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/tui/open-sessions")
-				.post(RequestBody.create("{}", MediaType.parse("application/json")))
+			Request request = request(ApiPath.TUI_OPEN_SESSIONS)
+				.post(EMPTY_JSON)
 				.build();
 
 			executeRequest(request, Void.class);
@@ -870,8 +2207,8 @@ public class OpenCodeClient {
 
 		@Override
 		public void openThemes() {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/tui/open-themes")
-				.post(RequestBody.create("{}", MediaType.parse("application/json")))
+			Request request = request(ApiPath.TUI_OPEN_THEMES)
+				.post(EMPTY_JSON)
 				.build();
 
 			executeRequest(request, Void.class);
@@ -879,8 +2216,8 @@ public class OpenCodeClient {
 
 		@Override
 		public void openModels() {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/tui/open-models")
-				.post(RequestBody.create("{}", MediaType.parse("application/json")))
+			Request request = request(ApiPath.TUI_OPEN_MODELS)
+				.post(EMPTY_JSON)
 				.build();
 
 			executeRequest(request, Void.class);
@@ -889,7 +2226,7 @@ public class OpenCodeClient {
 		@Override
 		public void executeCommand(String command) {
 			TuiRequest body = TuiRequest.builder().command(command).build();
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/tui/execute-command")
+			Request request = request(ApiPath.TUI_EXECUTE_COMMAND)
 				.post(createJsonBody(body))
 				.build();
 
@@ -899,7 +2236,7 @@ public class OpenCodeClient {
 		@Override
 		public void showToast(String message, String type, Integer duration) {
 			TuiRequest body = TuiRequest.builder().message(message).variant(type).duration(duration).build();
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/tui/show-toast")
+			Request request = request(ApiPath.TUI_SHOW_TOAST)
 				.post(createJsonBody(body))
 				.build();
 
@@ -908,7 +2245,7 @@ public class OpenCodeClient {
 
 		@Override
 		public Object getNextControlRequest() {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/tui/control/next").get().build();
+			Request request = request(ApiPath.TUI_CONTROL_NEXT).get().build();
 
 			return executeRequest(request, Object.class);
 		}
@@ -916,7 +2253,7 @@ public class OpenCodeClient {
 		@Override
 		public void submitControlResponse(Object response) {
 			TuiRequest body = TuiRequest.builder().response(response).build();
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/tui/control/response")
+			Request request = request(ApiPath.TUI_CONTROL_RESPONSE)
 				.post(createJsonBody(body))
 				.build();
 
@@ -935,7 +2272,16 @@ public class OpenCodeClient {
 
 		@Override
 		public void log(LogRequest request) {
-			Request httpRequest = new Request.Builder().url(config.getBaseUrl() + "/log")
+			if (logShipper != null) {
+				logShipper.offer(request);
+			}
+			else {
+				send(request);
+			}
+		}
+
+		void send(LogRequest request) {
+			Request httpRequest = request(ApiPath.LOG)
 				.post(createJsonBody(request))
 				.build();
 
@@ -994,7 +2340,7 @@ public class OpenCodeClient {
 
 		@Override
 		public List<Project> listProjects() {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/project").get().build();
+			Request request = request(ApiPath.PROJECTS).get().build();
 
 			return executeRequest(request, new TypeReference<List<Project>>() {
 			});
@@ -1002,7 +2348,7 @@ public class OpenCodeClient {
 
 		@Override
 		public Project getCurrentProject() {
-			Request request = new Request.Builder().url(config.getBaseUrl() + "/project/current").get().build();
+			Request request = request(ApiPath.PROJECT_CURRENT).get().build();
 
 			return executeRequest(request, Project.class);
 		}
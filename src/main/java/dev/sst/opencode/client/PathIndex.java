@@ -0,0 +1,664 @@
+package dev.sst.opencode.client;
+
+import dev.sst.opencode.models.FileNode;
+import dev.sst.opencode.models.FileTree;
+import dev.sst.opencode.models.OpenCodeEvent;
+import dev.sst.opencode.services.FileService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side index of workspace file paths for fuzzy file search
+ *
+ * The index is built from a walk of the workspace once the server's event stream is
+ * connected and kept current from file watcher events. Queries are answered from a
+ * trigram index for substring matches and a scan over per-path character masks for
+ * subsequence matches. Until the first walk finished, and whenever the event stream is
+ * down, the index reports itself unusable and callers ask the server instead.
+ *
+ * The server's own file search honours its ignore rules, e.g. .gitignore, so the index
+ * leaves out whatever the server's listings mark ignored, besides hidden entries and
+ * dependency trees. Files a watcher event reports outside the indexed paths are only
+ * added once a listing of their directory confirms they exist and are not ignored; the
+ * verdict for a new directory is remembered, so e.g. build output costs one listing per
+ * directory rather than one per file.
+ *
+ * Events name files by absolute path; until the workspace directory is known an event
+ * cannot be placed in the index and costs a walk.
+ */
+@Slf4j
+public class PathIndex {
+
+	/**
+	 * Minimum time between walks after one failed
+	 */
+	private static final long RETRY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+	private static final int MAX_DEPTH = 64;
+
+	private final FileService files;
+
+	/**
+	 * Directory event paths are relative to, null until known
+	 */
+	private volatile Path root;
+
+	private Paths paths;
+
+	private boolean live;
+
+	/**
+	 * Events seen while a walk is running, applied on top of its result
+	 */
+	private List<OpenCodeEvent> pending;
+
+	private boolean rebuildRequested;
+
+	private long lastFailure;
+
+	private long hits;
+
+	private long fallbacks;
+
+	/**
+	 * Follows the client's shared event stream
+	 */
+	final EventFanOut.Listener events = EventFanOut.listener(this::connected, (data, event) -> accept(event),
+			this::reset);
+
+	/**
+	 * Runs verifications one at a time, so a burst of events in a new directory sees the
+	 * verdict the first of them got
+	 */
+	private final ExecutorService verifier = Executors
+		.newSingleThreadExecutor(Thread.ofVirtual().name("opencode-path-index").factory());
+
+	PathIndex(FileService files, String workingDirectory) {
+		this.files = files;
+		this.root = workingDirectory != null ? Path.of(workingDirectory) : null;
+		this.lastFailure = System.nanoTime() - RETRY_NANOS;
+	}
+
+	/**
+	 * Entries the workspace walk skips: hidden entries, dependency trees and whatever the
+	 * server ignores
+	 */
+	static boolean indexed(FileNode node) {
+		return indexed(node.getName()) && !Boolean.TRUE.equals(node.getIgnored());
+	}
+
+	private static boolean indexed(String name) {
+		return !name.startsWith(".") && !name.equals("node_modules");
+	}
+
+	/**
+	 * Whether the directory event paths are relative to is known
+	 */
+	boolean hasRoot() {
+		return root != null;
+	}
+
+	/**
+	 * Place event paths relative to this directory from now on, unless known already
+	 */
+	synchronized void setRoot(Path root) {
+		if (this.root == null) {
+			this.root = root;
+		}
+	}
+
+	/**
+	 * Best matches for a query, best first, or null if the index cannot answer yet
+	 */
+	public List<String> search(String query, int limit) {
+		synchronized (this) {
+			if (paths == null || !live) {
+				fallbacks++;
+				if (live && pending == null && System.nanoTime() - lastFailure > RETRY_NANOS) {
+					rebuild();
+				}
+				return null;
+			}
+			hits++;
+			return paths.search(query.toLowerCase(Locale.ROOT).trim(), limit);
+		}
+	}
+
+	/**
+	 * Events missed while disconnected are unknown, start over from a walk
+	 */
+	private synchronized void connected() {
+		live = true;
+		rebuild();
+	}
+
+	void accept(OpenCodeEvent event) {
+		if (event == null) {
+			// Unreadable, so it may have been a file change
+			invalidate();
+			return;
+		}
+		String type = event.getType();
+		synchronized (this) {
+			if (!live || type == null || !type.equals("file.edited") && !type.startsWith("file.watcher.")) {
+				return;
+			}
+			if (pending != null) {
+				pending.add(event);
+				return;
+			}
+			apply(event);
+		}
+	}
+
+	private void apply(OpenCodeEvent event) {
+		if (paths == null) {
+			// A walk is due anyway
+			return;
+		}
+		Map<String, Object> properties = event.getProperties();
+		Object file = properties != null ? properties.get("file") : null;
+		String path = file instanceof String name ? relative(name) : null;
+		if (path == null) {
+			if (file instanceof String name && root != null && Path.of(name).isAbsolute()) {
+				// Outside the workspace
+				return;
+			}
+			invalidate();
+			return;
+		}
+		for (String segment : path.split("/")) {
+			if (!indexed(segment)) {
+				return;
+			}
+		}
+		if (paths.isIgnored(path)) {
+			return;
+		}
+		Object kind = event.getType().equals("file.edited") ? "change" : properties.get("event");
+		if ("unlink".equals(kind)) {
+			paths.remove(path);
+		}
+		else if (!"change".equals(kind) || !paths.contains(path)) {
+			// Added, renamed either way, or not indexed yet: whether the file exists and is
+			// ignored is up to the server
+			verify(path);
+		}
+	}
+
+	/**
+	 * Settle whether a file exists and is not ignored, listing each directory on its way
+	 * that the index does not know yet
+	 */
+	private void verify(String path) {
+		String[] segments = path.split("/");
+		if (verifier.isShutdown()) {
+			return;
+		}
+		verifier.execute(() -> {
+			try {
+				synchronized (this) {
+					if (paths == null || paths.isIgnored(path)) {
+						return;
+					}
+				}
+				String directory = "";
+				for (int i = 0; i < segments.length; i++) {
+					String current = directory.isEmpty() ? segments[i] : directory + "/" + segments[i];
+					boolean last = i == segments.length - 1;
+					synchronized (this) {
+						if (paths == null || pending != null) {
+							return;
+						}
+						if (!last && paths.isDirectory(current)) {
+							directory = current;
+							continue;
+						}
+					}
+					String name = segments[i];
+					FileNode node = files.listFiles(directory.isEmpty() ? "." : directory)
+						.stream()
+						.filter(child -> name.equals(child.getName()))
+						.findFirst()
+						.orElse(null);
+					synchronized (this) {
+						if (paths == null || pending != null) {
+							return;
+						}
+						if (node != null && !indexed(node)) {
+							paths.ignore(current);
+							paths.remove(path);
+							return;
+						}
+						if (last || node == null || !node.isDirectory()) {
+							if (last && node != null && node.isFile()) {
+								paths.add(path);
+							}
+							else {
+								paths.remove(path);
+							}
+							return;
+						}
+						paths.addDirectory(current);
+					}
+					directory = current;
+				}
+			}
+			catch (RuntimeException e) {
+				log.debug("Path index could not check {}: {}", path, e.getMessage());
+				invalidate();
+			}
+		});
+	}
+
+	/**
+	 * Path relative to the workspace, or null if it cannot be placed in it
+	 */
+	private String relative(String file) {
+		Path path = Path.of(file);
+		if (path.isAbsolute()) {
+			if (root == null || !path.startsWith(root)) {
+				return null;
+			}
+			path = root.relativize(path);
+		}
+		String relative = path.normalize().toString().replace('\\', '/');
+		return relative.isEmpty() ? null : relative;
+	}
+
+	private synchronized void invalidate() {
+		paths = null;
+		if (live) {
+			rebuild();
+		}
+	}
+
+	/**
+	 * Walk the workspace in the background, or once more after the walk running now
+	 */
+	private synchronized void rebuild() {
+		if (pending != null) {
+			rebuildRequested = true;
+			return;
+		}
+		pending = new ArrayList<>();
+		Thread.ofVirtual().name("opencode-path-index").start(this::build);
+	}
+
+	private void build() {
+		Paths fresh = null;
+		try {
+			// Listings run concurrently, and report the entries the server ignores
+			Set<String> ignored = ConcurrentHashMap.newKeySet();
+			FileTree tree = files.walkTree(".", MAX_DEPTH, node -> {
+				if (indexed(node)) {
+					return true;
+				}
+				String path = node.getPath() != null ? relative(node.getPath()) : null;
+				if (path != null) {
+					ignored.add(path);
+				}
+				return false;
+			});
+			fresh = Paths.of(tree, ignored);
+		}
+		catch (RuntimeException e) {
+			log.debug("Path index walk failed: {}", e.getMessage());
+		}
+		synchronized (this) {
+			List<OpenCodeEvent> seen = pending;
+			pending = null;
+			if (fresh == null) {
+				lastFailure = System.nanoTime();
+			}
+			else if (live) {
+				paths = fresh;
+				seen.forEach(this::apply);
+			}
+			if (rebuildRequested && live) {
+				rebuildRequested = false;
+				rebuild();
+			}
+		}
+	}
+
+	private synchronized void reset() {
+		live = false;
+		paths = null;
+		rebuildRequested = false;
+	}
+
+	synchronized void close() {
+		verifier.shutdownNow();
+		reset();
+	}
+
+	/**
+	 * Whether queries are answered locally right now
+	 */
+	public synchronized boolean isReady() {
+		return live && paths != null;
+	}
+
+	/**
+	 * Files in the index
+	 */
+	public synchronized int size() {
+		return paths != null ? paths.size : 0;
+	}
+
+	/**
+	 * Queries answered locally
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Queries left to the server because the index was not ready
+	 */
+	public synchronized long getFallbacks() {
+		return fallbacks;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "PathIndex[" + size() + " files, " + hits + " hits, " + fallbacks + " fallbacks"
+				+ (isReady() ? "" : ", not ready") + "]";
+	}
+
+	/**
+	 * The indexed paths, guarded by the enclosing index
+	 */
+	private static final class Paths {
+
+		private String[] paths = new String[256];
+
+		private String[] lowerCase = new String[256];
+
+		/**
+		 * Characters each path contains, to skip paths a query cannot match
+		 */
+		private long[] masks = new long[256];
+
+		private final BitSet removed = new BitSet();
+
+		private final Map<String, Integer> ids = new HashMap<>();
+
+		/**
+		 * Ids of the paths containing each trigram, ascending
+		 */
+		private final Map<Integer, IntList> trigrams = new HashMap<>();
+
+		private int count;
+
+		private int size;
+
+		/**
+		 * Directories the index knows to be walked, i.e. neither hidden nor ignored
+		 */
+		private final Set<String> directories = new HashSet<>();
+
+		/**
+		 * Files and directories the server ignores
+		 */
+		private final Set<String> ignored = new HashSet<>();
+
+		static Paths of(FileTree tree, Set<String> ignored) {
+			Paths paths = new Paths();
+			for (int node = FileTree.ROOT + 1; node <= tree.size(); node++) {
+				if (tree.isDirectory(node)) {
+					paths.directories.add(tree.path(node));
+				}
+				else {
+					paths.add(tree.path(node));
+				}
+			}
+			paths.ignored.addAll(ignored);
+			return paths;
+		}
+
+		boolean contains(String path) {
+			Integer id = ids.get(path);
+			return id != null && !removed.get(id);
+		}
+
+		boolean isDirectory(String path) {
+			return directories.contains(path);
+		}
+
+		void addDirectory(String path) {
+			directories.add(path);
+		}
+
+		void ignore(String path) {
+			ignored.add(path);
+		}
+
+		/**
+		 * Whether the path or one of its directories is ignored
+		 */
+		boolean isIgnored(String path) {
+			if (ignored.isEmpty()) {
+				return false;
+			}
+			for (int slash = path.indexOf('/'); slash > 0; slash = path.indexOf('/', slash + 1)) {
+				if (ignored.contains(path.substring(0, slash))) {
+					return true;
+				}
+			}
+			return ignored.contains(path);
+		}
+
+		void add(String path) {
+			Integer existing = ids.get(path);
+			if (existing != null) {
+				if (removed.get(existing)) {
+					removed.clear(existing);
+					size++;
+				}
+				return;
+			}
+			if (count == paths.length) {
+				paths = Arrays.copyOf(paths, count * 2);
+				lowerCase = Arrays.copyOf(lowerCase, count * 2);
+				masks = Arrays.copyOf(masks, count * 2);
+			}
+			int id = count++;
+			String lower = path.toLowerCase(Locale.ROOT);
+			paths[id] = path;
+			lowerCase[id] = lower;
+			masks[id] = mask(lower);
+			ids.put(path, id);
+			for (int i = 0; i + 3 <= lower.length(); i++) {
+				IntList postings = trigrams.computeIfAbsent(trigram(lower, i), key -> new IntList());
+				if (postings.size == 0 || postings.values[postings.size - 1] != id) {
+					postings.add(id);
+				}
+			}
+			size++;
+		}
+
+		void remove(String path) {
+			Integer id = ids.get(path);
+			if (id != null && !removed.get(id)) {
+				removed.set(id);
+				size--;
+			}
+		}
+
+		List<String> search(String query, int limit) {
+			if (query.isEmpty() || limit < 1) {
+				return List.of();
+			}
+			// Worst match first, so the queue keeps the best limit matches
+			PriorityQueue<Match> best = new PriorityQueue<>();
+			BitSet scored = new BitSet(count);
+			if (query.length() >= 3) {
+				for (int id : substringCandidates(query)) {
+					scored.set(id);
+					offer(best, id, query, limit);
+				}
+			}
+			if (best.size() < limit) {
+				long mask = mask(query);
+				for (int id = 0; id < count; id++) {
+					if ((masks[id] & mask) == mask && !scored.get(id)) {
+						offer(best, id, query, limit);
+					}
+				}
+			}
+			String[] results = new String[best.size()];
+			for (int i = results.length - 1; i >= 0; i--) {
+				results[i] = paths[best.poll().id];
+			}
+			return List.of(results);
+		}
+
+		private void offer(PriorityQueue<Match> best, int id, String query, int limit) {
+			if (removed.get(id)) {
+				return;
+			}
+			int score = score(lowerCase[id], query);
+			if (score < 0) {
+				return;
+			}
+			Match match = new Match(id, score, paths[id].length());
+			if (best.size() < limit) {
+				best.add(match);
+			}
+			else if (match.compareTo(best.peek()) > 0) {
+				best.poll();
+				best.add(match);
+			}
+		}
+
+		/**
+		 * Ids of the paths that contain every trigram of the query
+		 */
+		private int[] substringCandidates(String query) {
+			List<IntList> lists = new ArrayList<>();
+			for (int i = 0; i + 3 <= query.length(); i++) {
+				IntList postings = trigrams.get(trigram(query, i));
+				if (postings == null) {
+					return new int[0];
+				}
+				lists.add(postings);
+			}
+			lists.sort((a, b) -> Integer.compare(a.size, b.size));
+			IntList smallest = lists.get(0);
+			int[] candidates = new int[smallest.size];
+			int found = 0;
+			for (int i = 0; i < smallest.size; i++) {
+				int id = smallest.values[i];
+				boolean everywhere = true;
+				for (int j = 1; j < lists.size() && everywhere; j++) {
+					everywhere = Arrays.binarySearch(lists.get(j).values, 0, lists.get(j).size, id) >= 0;
+				}
+				if (everywhere) {
+					candidates[found++] = id;
+				}
+			}
+			return Arrays.copyOf(candidates, found);
+		}
+
+		/**
+		 * Higher is better: matches in the file name beat matches in directories, and
+		 * substrings beat scattered characters; -1 if the query does not match at all
+		 */
+		static int score(String path, String query) {
+			int nameStart = path.lastIndexOf('/') + 1;
+			int index = path.indexOf(query, nameStart);
+			if (index == nameStart) {
+				return path.length() - nameStart == query.length() ? 1000 : 900;
+			}
+			if (index > 0) {
+				return 800;
+			}
+			index = path.indexOf(query);
+			if (index >= 0) {
+				return index == 0 || path.charAt(index - 1) == '/' ? 700 : 600;
+			}
+			// Subsequence: reward runs and segment starts, penalize gaps
+			int score = 300;
+			int previous = -2;
+			int position = 0;
+			for (int i = 0; i < query.length(); i++) {
+				position = path.indexOf(query.charAt(i), position);
+				if (position < 0) {
+					return -1;
+				}
+				if (position == previous + 1) {
+					score += 5;
+				}
+				else if (previous >= 0) {
+					score -= Math.min(10, position - previous - 1);
+				}
+				if (position >= nameStart) {
+					score += 2;
+				}
+				previous = position++;
+			}
+			return Math.max(1, Math.min(score, 599));
+		}
+
+		private static int trigram(String text, int index) {
+			return (text.charAt(index) << 16 | text.charAt(index + 1)) * 31 + text.charAt(index + 2);
+		}
+
+		private static long mask(String text) {
+			long mask = 0;
+			for (int i = 0; i < text.length(); i++) {
+				mask |= 1L << (text.charAt(i) & 63);
+			}
+			return mask;
+		}
+
+	}
+
+	private record Match(int id, int score, int length) implements Comparable<Match> {
+
+		/**
+		 * Better matches compare greater: higher score, then shorter path
+		 */
+		@Override
+		public int compareTo(Match other) {
+			if (score != other.score) {
+				return Integer.compare(score, other.score);
+			}
+			return Integer.compare(other.length, length);
+		}
+
+	}
+
+	private static final class IntList {
+
+		private int[] values = new int[4];
+
+		private int size;
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+	}
+
+}
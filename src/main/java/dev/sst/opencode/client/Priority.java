@@ -0,0 +1,91 @@
+package dev.sst.opencode.client;
+
+import java.util.function.Supplier;
+
+/**
+ * Class of service for OpenCode calls sharing one client
+ *
+ * With priority scheduling enabled, calls wait for one of the client's call slots, and
+ * freed slots go to the waiting classes in proportion to their weights. Some slots are
+ * held back for interactive calls, so a batch job filling every other slot never makes
+ * an interactive call queue behind it. Calls take the priority active on the current
+ * thread, {@link #NORMAL} if none; bulk calls default to {@link #BACKGROUND}.
+ *
+ * Example usage: <pre>
+ * Priority.INTERACTIVE.call(() -&gt; client.getSessions().sendPrompt(sessionId, prompt));
+ * OpenCodeClient.View batch = client.withPriority(Priority.BACKGROUND);
+ * batch.getSessions().summarizeSession(sessionId, providerId, modelId);
+ * </pre>
+ */
+public enum Priority {
+
+	/**
+	 * A user is waiting on the result
+	 */
+	INTERACTIVE(8),
+
+	NORMAL(4),
+
+	/**
+	 * Throughput work such as exports, summaries and spooled prompts
+	 */
+	BACKGROUND(1);
+
+	private static final ThreadLocal<Priority> CURRENT = new ThreadLocal<>();
+
+	private final int weight;
+
+	Priority(int weight) {
+		this.weight = weight;
+	}
+
+	/**
+	 * Share of freed slots relative to the other classes when all are waiting
+	 */
+	public int getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Priority active on the current thread, or null
+	 */
+	public static Priority current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Run a call with this priority active; unlike deadlines, an inner priority replaces
+	 * the outer one
+	 */
+	public <T> T call(Supplier<T> call) {
+		Priority outer = CURRENT.get();
+		CURRENT.set(this);
+		try {
+			return call.get();
+		}
+		finally {
+			if (outer != null) {
+				CURRENT.set(outer);
+			}
+			else {
+				CURRENT.remove();
+			}
+		}
+	}
+
+	public void run(Runnable runnable) {
+		call(() -> {
+			runnable.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Wrap a call so it runs with the priority active right now, e.g. on another thread
+	 */
+	public static <T> Supplier<T> propagate(Supplier<T> call) {
+		Priority priority = current();
+		return priority == null ? call : () -> priority.call(call);
+	}
+
+}
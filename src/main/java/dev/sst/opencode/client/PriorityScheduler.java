@@ -0,0 +1,243 @@
+package dev.sst.opencode.client;
+
+import dev.sst.opencode.exceptions.OpenCodeException;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shares a client's call slots between priority classes
+ *
+ * Each class queues its callers in arrival order. When a slot frees up and several
+ * classes are waiting, it goes to one of them by smooth weighted round-robin, so over
+ * time each class gets slots in proportion to its {@link Priority#getWeight() weight}
+ * and none starves. Slots beyond capacity minus the reserve are only handed to
+ * {@link Priority#INTERACTIVE} calls: however much background work is queued, an
+ * interactive call waits at most for one of the reserved slots to free up.
+ *
+ * A slot is held until the response is closed, not just until the headers arrived, so
+ * large bodies count for as long as they occupy a connection. Waiters give up after the
+ * queue timeout or at the active {@link Deadline}, whichever is sooner.
+ */
+public class PriorityScheduler {
+
+	private static final Priority[] CLASSES = Priority.values();
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final int capacity;
+
+	private final int reserved;
+
+	private final long maxWaitNanos;
+
+	private final Map<Priority, ArrayDeque<Waiter>> queues = new EnumMap<>(Priority.class);
+
+	private final int[] inFlight = new int[CLASSES.length];
+
+	/**
+	 * Running weighted round-robin score per class
+	 */
+	private final int[] credit = new int[CLASSES.length];
+
+	private int total;
+
+	PriorityScheduler(int capacity, int reserved, long maxWaitMillis) {
+		if (capacity < 1 || reserved < 0 || reserved >= capacity) {
+			throw new IllegalArgumentException(
+					"Invalid priority slots: capacity=" + capacity + ", interactive reserve=" + reserved);
+		}
+		this.capacity = capacity;
+		this.reserved = reserved;
+		this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+		for (Priority priority : CLASSES) {
+			queues.put(priority, new ArrayDeque<>());
+		}
+	}
+
+	/**
+	 * Wait for a slot for a call of the given class
+	 */
+	Permit acquire(Priority priority) {
+		Deadline deadline = Deadline.current();
+		boolean deadlineBound = deadline != null && deadline.remainingNanos() < maxWaitNanos;
+		lock.lock();
+		Waiter waiter = new Waiter(lock.newCondition());
+		try {
+			queues.get(priority).add(waiter);
+			dispatch();
+			long remaining = deadlineBound ? deadline.remainingNanos() : maxWaitNanos;
+			while (!waiter.granted) {
+				if (remaining <= 0) {
+					queues.get(priority).remove(waiter);
+					if (deadlineBound) {
+						throw new OpenCodeException.DeadlineExceeded(
+								"Deadline exceeded waiting for a " + priority + " call slot");
+					}
+					throw new OpenCodeException.LimitExceeded(
+							"Timed out waiting for a " + priority + " call slot (" + total + " of " + capacity + " in use)");
+				}
+				remaining = waiter.ready.awaitNanos(remaining);
+			}
+			return new Permit(priority);
+		}
+		catch (InterruptedException e) {
+			if (waiter.granted) {
+				new Permit(priority).release();
+			}
+			else {
+				queues.get(priority).remove(waiter);
+			}
+			Thread.currentThread().interrupt();
+			throw new OpenCodeException("Interrupted while waiting for a call slot", e);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Hand free slots to waiting callers; called with the lock held
+	 */
+	private void dispatch() {
+		while (true) {
+			Priority next = null;
+			int weights = 0;
+			for (Priority priority : CLASSES) {
+				if (queues.get(priority).isEmpty() || !admits(priority)) {
+					continue;
+				}
+				int i = priority.ordinal();
+				credit[i] += priority.getWeight();
+				weights += priority.getWeight();
+				if (next == null || credit[i] > credit[next.ordinal()]) {
+					next = priority;
+				}
+			}
+			if (next == null) {
+				return;
+			}
+			credit[next.ordinal()] -= weights;
+			Waiter waiter = queues.get(next).poll();
+			waiter.granted = true;
+			inFlight[next.ordinal()]++;
+			total++;
+			waiter.ready.signal();
+		}
+	}
+
+	private boolean admits(Priority priority) {
+		return total < (priority == Priority.INTERACTIVE ? capacity : capacity - reserved);
+	}
+
+	private void release(Priority priority) {
+		lock.lock();
+		try {
+			inFlight[priority.ordinal()]--;
+			total--;
+			if (queues.get(priority).isEmpty()) {
+				// A class that stopped waiting must not bank credit for its next burst
+				credit[priority.ordinal()] = 0;
+			}
+			dispatch();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Slots only interactive calls may take
+	 */
+	public int getReserved() {
+		return reserved;
+	}
+
+	public int getInFlight(Priority priority) {
+		lock.lock();
+		try {
+			return inFlight[priority.ordinal()];
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	public int getWaiting(Priority priority) {
+		lock.lock();
+		try {
+			return queues.get(priority).size();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		lock.lock();
+		try {
+			StringBuilder sb = new StringBuilder("PriorityScheduler[").append(total)
+				.append('/')
+				.append(capacity)
+				.append(" in flight, ")
+				.append(reserved)
+				.append(" reserved");
+			for (Priority priority : CLASSES) {
+				sb.append(", ")
+					.append(priority)
+					.append('=')
+					.append(inFlight[priority.ordinal()])
+					.append('+')
+					.append(queues.get(priority).size());
+			}
+			return sb.append(']').toString();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private static final class Waiter {
+
+		private final Condition ready;
+
+		private boolean granted;
+
+		Waiter(Condition ready) {
+			this.ready = ready;
+		}
+
+	}
+
+	/**
+	 * A taken slot; releasing it more than once has no effect
+	 */
+	final class Permit {
+
+		private final Priority priority;
+
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		private Permit(Priority priority) {
+			this.priority = priority;
+		}
+
+		void release() {
+			if (released.compareAndSet(false, true)) {
+				PriorityScheduler.this.release(priority);
+			}
+		}
+
+	}
+
+}
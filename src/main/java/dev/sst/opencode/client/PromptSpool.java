@@ -0,0 +1,529 @@
+package dev.sst.opencode.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.sst.opencode.config.FsyncPolicy;
+import dev.sst.opencode.exceptions.OpenCodeException;
+import dev.sst.opencode.models.requests.PromptRequest;
+import dev.sst.opencode.services.SessionService;
+import dev.sst.opencode.utils.JsonUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Disk-backed queue of prompts, for pipelines that must not lose prompts while the
+ * server restarts
+ *
+ * A submission is appended to a log file and acknowledged at once; background workers
+ * send spooled prompts, a bounded number at a time and one at a time per session, in
+ * submission order. When the server cannot be reached, sending pauses until a probe
+ * succeeds, backing off between probes. Prompts the server rejects are dropped.
+ *
+ * Every prompt carries a message id, generated when the caller did not set one. A
+ * prompt that may have reached the server before, because it was recovered from the
+ * log or its last attempt failed, is only sent again if the server has no message with
+ * its id, so a crash at any point does not produce a second turn.
+ */
+@Slf4j
+public class PromptSpool {
+
+	private static final String FILE = "prompts.log";
+
+	private static final long MIN_BACKOFF = 500;
+
+	private static final long MAX_BACKOFF = 30_000;
+
+	/**
+	 * Records in the log before it is rewritten once empty
+	 */
+	private static final int COMPACT_RECORDS = 1024;
+
+	private static final char[] BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private static long lastMillis;
+
+	private static int counter;
+
+	private final SessionService sessions;
+
+	/**
+	 * Cheap call that succeeds once the server is back
+	 */
+	private final Runnable probe;
+
+	private final Path file;
+
+	private final FsyncPolicy fsync;
+
+	private final int concurrency;
+
+	private FileChannel channel;
+
+	private int records;
+
+	private boolean dirty;
+
+	/**
+	 * Prompts not yet delivered, in submission order
+	 */
+	private final LinkedHashMap<String, Entry> pending = new LinkedHashMap<>();
+
+	private final Set<String> busySessions = new HashSet<>();
+
+	private int inFlight;
+
+	/**
+	 * Until when sending is paused after the server could not be reached
+	 */
+	private long pausedUntil;
+
+	private long backoff = MIN_BACKOFF;
+
+	private long delivered;
+
+	private long duplicates;
+
+	private long failed;
+
+	private boolean closed;
+
+	private final Thread dispatcher;
+
+	private final ScheduledExecutorService syncer;
+
+	PromptSpool(SessionService sessions, Runnable probe, Path directory, FsyncPolicy fsync, long fsyncInterval,
+			int concurrency) {
+		this.sessions = sessions;
+		this.probe = probe;
+		this.file = directory.resolve(FILE);
+		this.fsync = fsync;
+		this.concurrency = Math.max(1, concurrency);
+		try {
+			Files.createDirectories(directory);
+			recover();
+		}
+		catch (IOException e) {
+			throw new OpenCodeException("Failed to open the prompt spool in " + directory, e);
+		}
+		if (fsync == FsyncPolicy.INTERVAL && fsyncInterval > 0) {
+			syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "opencode-prompt-spool-sync");
+				thread.setDaemon(true);
+				return thread;
+			});
+			syncer.scheduleWithFixedDelay(this::sync, fsyncInterval, fsyncInterval, TimeUnit.MILLISECONDS);
+		}
+		else {
+			syncer = null;
+		}
+		dispatcher = Thread.ofVirtual().name("opencode-prompt-spool").start(this::dispatch);
+	}
+
+	/**
+	 * Spool a prompt for delivery
+	 * @return the id of the message the prompt will create
+	 * @throws OpenCodeException if the prompt could not be written to the log
+	 */
+	public String submit(String sessionId, PromptRequest request) {
+		ObjectNode body = JsonUtils.getMapper().valueToTree(request);
+		String messageId = request.getMessageId() != null ? request.getMessageId() : newMessageId();
+		body.put("messageID", messageId);
+		ObjectNode record = JsonUtils.getMapper().createObjectNode();
+		record.put("op", "submit");
+		record.put("id", messageId);
+		record.put("session", sessionId);
+		record.set("request", body);
+		synchronized (this) {
+			if (closed) {
+				throw new IllegalStateException("Prompt spool is closed");
+			}
+			if (pending.containsKey(messageId)) {
+				return messageId;
+			}
+			try {
+				append(record, fsync == FsyncPolicy.ALWAYS);
+			}
+			catch (IOException e) {
+				throw new OpenCodeException("Failed to spool a prompt for " + sessionId, e);
+			}
+			pending.put(messageId, new Entry(messageId, sessionId, body, false));
+			notifyAll();
+		}
+		return messageId;
+	}
+
+	/**
+	 * Wait until every spooled prompt was delivered or dropped
+	 * @return false if the timeout passed first
+	 */
+	public synchronized boolean awaitDrained(Duration timeout) throws InterruptedException {
+		long deadline = System.nanoTime() + timeout.toNanos();
+		while (!pending.isEmpty()) {
+			long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			if (remaining <= 0) {
+				return false;
+			}
+			wait(remaining);
+		}
+		return true;
+	}
+
+	/**
+	 * Hand prompts to workers, at most one per session and concurrency overall
+	 */
+	private void dispatch() {
+		try {
+			while (true) {
+				Entry entry;
+				synchronized (this) {
+					entry = nextReady();
+					while (!closed && entry == null) {
+						long pause = pausedUntil - System.currentTimeMillis();
+						wait(pause > 0 ? pause : 0);
+						entry = nextReady();
+					}
+					if (closed) {
+						return;
+					}
+					busySessions.add(entry.sessionId);
+					inFlight++;
+				}
+				Entry started = entry;
+				Thread.ofVirtual().name("opencode-prompt-spool-send").start(() -> Priority.BACKGROUND.run(() -> deliver(started)));
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private Entry nextReady() {
+		if (inFlight >= concurrency || System.currentTimeMillis() < pausedUntil) {
+			return null;
+		}
+		for (Entry entry : pending.values()) {
+			if (!busySessions.contains(entry.sessionId)) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	private void deliver(Entry entry) {
+		boolean done = false;
+		try {
+			if (probing()) {
+				probe.run();
+			}
+			if (entry.verify && delivered(entry)) {
+				synchronized (this) {
+					duplicates++;
+				}
+			}
+			else {
+				entry.verify = true;
+				sessions.sendPrompt(entry.sessionId, entry.request());
+				synchronized (this) {
+					delivered++;
+				}
+			}
+			done = true;
+			resume();
+		}
+		catch (OpenCodeException e) {
+			if (retryable(e)) {
+				pause(e);
+			}
+			else {
+				log.warn("Dropping spooled prompt {} for {}: {}", entry.messageId, entry.sessionId, e.getMessage());
+				synchronized (this) {
+					failed++;
+				}
+				done = true;
+			}
+		}
+		catch (RuntimeException e) {
+			pause(e);
+		}
+		finally {
+			finish(entry, done);
+		}
+	}
+
+	/**
+	 * Whether the server already has the prompt's message
+	 */
+	private boolean delivered(Entry entry) {
+		try {
+			return sessions.getMessage(entry.sessionId, entry.messageId) != null;
+		}
+		catch (OpenCodeException.NotFound e) {
+			return false;
+		}
+	}
+
+	private synchronized void finish(Entry entry, boolean done) {
+		busySessions.remove(entry.sessionId);
+		inFlight--;
+		if (done && pending.remove(entry.messageId) != null && !closed) {
+			ObjectNode record = JsonUtils.getMapper().createObjectNode();
+			record.put("op", "done");
+			record.put("id", entry.messageId);
+			try {
+				append(record, false);
+				if (pending.isEmpty() && records >= COMPACT_RECORDS) {
+					compact();
+				}
+			}
+			catch (IOException e) {
+				// The prompt is checked against the server if it is recovered again
+				log.warn("Could not record a delivered prompt in {}: {}", file, e.getMessage());
+			}
+		}
+		notifyAll();
+	}
+
+	private synchronized boolean probing() {
+		return backoff > MIN_BACKOFF;
+	}
+
+	private synchronized void pause(Exception e) {
+		if (System.currentTimeMillis() >= pausedUntil) {
+			log.warn("OpenCode is unavailable, holding {} spooled prompts for {} ms: {}", pending.size(), backoff,
+					e.getMessage());
+			pausedUntil = System.currentTimeMillis() + backoff;
+			backoff = Math.min(backoff * 2, MAX_BACKOFF);
+		}
+	}
+
+	private synchronized void resume() {
+		backoff = MIN_BACKOFF;
+	}
+
+	private static boolean retryable(OpenCodeException e) {
+		return e instanceof OpenCodeException.NetworkError || e instanceof OpenCodeException.LimitExceeded
+				|| e.getStatusCode() >= 500 || e.getStatusCode() == 429 || e.getStatusCode() == 408;
+	}
+
+	/**
+	 * Load the prompts of the log that were not delivered and rewrite it with only those
+	 */
+	private void recover() throws IOException {
+		if (Files.exists(file)) {
+			try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					JsonNode record;
+					try {
+						record = JsonUtils.getMapper().readTree(line);
+					}
+					catch (IOException e) {
+						// A line cut short by a crash
+						continue;
+					}
+					String id = record.path("id").asText();
+					if (record.path("op").asText().equals("submit")) {
+						pending.put(id, new Entry(id, record.path("session").asText(), (ObjectNode) record.get("request"),
+								true));
+					}
+					else {
+						pending.remove(id);
+					}
+				}
+			}
+		}
+		compact();
+		if (!pending.isEmpty()) {
+			log.info("Recovered {} spooled prompts from {}", pending.size(), file);
+		}
+	}
+
+	private void compact() throws IOException {
+		Path rewritten = file.resolveSibling(FILE + ".tmp");
+		try (FileChannel out = FileChannel.open(rewritten, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (Entry entry : pending.values()) {
+				ObjectNode record = JsonUtils.getMapper().createObjectNode();
+				record.put("op", "submit");
+				record.put("id", entry.messageId);
+				record.put("session", entry.sessionId);
+				record.set("request", entry.body);
+				write(out, record);
+			}
+			out.force(true);
+		}
+		if (channel != null) {
+			channel.close();
+		}
+		try {
+			Files.move(rewritten, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (AtomicMoveNotSupportedException e) {
+			Files.move(rewritten, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+		channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		records = pending.size();
+		dirty = false;
+	}
+
+	private void append(ObjectNode record, boolean force) throws IOException {
+		write(channel, record);
+		records++;
+		if (force) {
+			channel.force(false);
+		}
+		else {
+			dirty = true;
+		}
+	}
+
+	private static void write(FileChannel out, ObjectNode record) throws IOException {
+		ByteBuffer line = ByteBuffer.wrap((JsonUtils.getMapper().writeValueAsString(record) + "\n")
+			.getBytes(StandardCharsets.UTF_8));
+		while (line.hasRemaining()) {
+			out.write(line);
+		}
+	}
+
+	private synchronized void sync() {
+		if (dirty && !closed) {
+			try {
+				channel.force(false);
+				dirty = false;
+			}
+			catch (IOException e) {
+				log.warn("Could not sync {}: {}", file, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * A new message id in the server's format, ordered by creation time
+	 */
+	static String newMessageId() {
+		long millis = System.currentTimeMillis();
+		int count;
+		synchronized (PromptSpool.class) {
+			if (millis != lastMillis) {
+				lastMillis = millis;
+				counter = 0;
+			}
+			count = ++counter;
+		}
+		long ordered = (millis * 0x1000 + count) & 0xFFFFFFFFFFFFL;
+		StringBuilder id = new StringBuilder("msg_").append(String.format("%012x", ordered));
+		for (int i = 0; i < 14; i++) {
+			id.append(BASE62[RANDOM.nextInt(BASE62.length)]);
+		}
+		return id.toString();
+	}
+
+	/**
+	 * Stop sending; prompts not yet delivered stay in the log for the next start
+	 */
+	void close() {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			notifyAll();
+			try {
+				if (fsync != FsyncPolicy.NEVER) {
+					channel.force(false);
+				}
+				channel.close();
+			}
+			catch (IOException e) {
+				log.warn("Could not close {}: {}", file, e.getMessage());
+			}
+		}
+		if (syncer != null) {
+			syncer.shutdownNow();
+		}
+		dispatcher.interrupt();
+	}
+
+	public synchronized int getPending() {
+		return pending.size();
+	}
+
+	/**
+	 * Prompts sent by this spool
+	 */
+	public synchronized long getDelivered() {
+		return delivered;
+	}
+
+	/**
+	 * Recovered or retried prompts not sent again because the server already had them
+	 */
+	public synchronized long getDuplicates() {
+		return duplicates;
+	}
+
+	/**
+	 * Prompts dropped because the server rejected them
+	 */
+	public synchronized long getFailed() {
+		return failed;
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	private static final class Entry {
+
+		final String messageId;
+
+		final String sessionId;
+
+		final ObjectNode body;
+
+		/**
+		 * Whether the prompt may already have reached the server
+		 */
+		volatile boolean verify;
+
+		Entry(String messageId, String sessionId, ObjectNode body, boolean verify) {
+			this.messageId = messageId;
+			this.sessionId = sessionId;
+			this.body = body;
+			this.verify = verify;
+		}
+
+		PromptRequest request() {
+			return JsonUtils.getMapper().convertValue(body, PromptRequest.class);
+		}
+
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "PromptSpool[" + file + ", " + pending.size() + " pending, " + delivered + " delivered, " + duplicates
+				+ " duplicates, " + failed + " failed" + (System.currentTimeMillis() < pausedUntil ? ", paused" : "")
+				+ "]";
+	}
+
+}
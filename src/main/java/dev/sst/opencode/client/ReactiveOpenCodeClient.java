@@ -0,0 +1,446 @@
+package dev.sst.opencode.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.sst.opencode.config.OpenCodeConfig;
+import dev.sst.opencode.config.OperationKind;
+import dev.sst.opencode.exceptions.OpenCodeException;
+import dev.sst.opencode.models.*;
+import dev.sst.opencode.models.requests.*;
+import dev.sst.opencode.services.*;
+import dev.sst.opencode.utils.JsonUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Non-blocking OpenCode client built on Spring's WebClient
+ *
+ * Every call returns a cold {@link Mono} or {@link Flux}: nothing is sent until
+ * subscription, cancelling the subscription aborts the HTTP exchange, and list
+ * responses are decoded element by element as downstream demand allows. Calls follow
+ * the same session affinity and timeout classes as {@link OpenCodeClient}; adaptive
+ * concurrency and hedging remain blocking-client features.
+ *
+ * Example usage: <pre>
+ * ReactiveOpenCodeClient client = new ReactiveOpenCodeClient(config);
+ *
+ * client.getSessions()
+ *     .createSession(null)
+ *     .flatMap(session -> client.getSessions().sendPrompt(session.getId(), prompt))
+ *     .subscribe(message -> ...);
+ * </pre>
+ */
+@Slf4j
+@Getter
+public class ReactiveOpenCodeClient {
+
+	private static final int MAX_IN_MEMORY_SIZE = 16 * 1024 * 1024;
+
+	private final OpenCodeConfig config;
+
+	private final WebClient webClient;
+
+	/**
+	 * Servers this client talks to, possibly shared with a blocking client
+	 */
+	private final ServerPool serverPool;
+
+	// Services
+	private final ReactiveSessionService sessions;
+
+	private final ReactiveFileService files;
+
+	private final ReactiveConfigService configuration;
+
+	private final ReactiveEventService events;
+
+	public ReactiveOpenCodeClient(OpenCodeConfig config) {
+		this(config, new ServerPool(config.effectiveEndpoints()), WebClient.builder());
+	}
+
+	/**
+	 * Create a reactive view of a blocking client, sharing its configuration and
+	 * session affinity
+	 * @param webClientBuilder e.g. Spring Boot's pre-configured builder
+	 */
+	public ReactiveOpenCodeClient(OpenCodeClient client, WebClient.Builder webClientBuilder) {
+		this(client.getConfig(), client.getServerPool(), webClientBuilder);
+	}
+
+	private ReactiveOpenCodeClient(OpenCodeConfig config, ServerPool serverPool, WebClient.Builder webClientBuilder) {
+		this.config = config;
+		this.serverPool = serverPool;
+
+		ObjectMapper mapper = JsonUtils.getMapper();
+		this.webClient = webClientBuilder.clone()
+			.defaultHeader("Accept", MediaType.APPLICATION_JSON_VALUE)
+			.defaultHeaders(headers -> {
+				// Add auth header if configured
+				if (config.getApiKey() != null) {
+					headers.setBearerAuth(config.getApiKey());
+				}
+			})
+			.codecs(codecs -> {
+				codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(mapper));
+				codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(mapper));
+				codecs.defaultCodecs().maxInMemorySize(MAX_IN_MEMORY_SIZE);
+			})
+			.build();
+
+		// Initialize services
+		this.sessions = new ReactiveSessionServiceImpl();
+		this.files = new ReactiveFileServiceImpl();
+		this.configuration = new ReactiveConfigServiceImpl();
+		this.events = new ReactiveEventServiceImpl();
+	}
+
+	/**
+	 * Where a call goes: the endpoint serving it and the full URI
+	 */
+	private record Target(ServerEndpoint endpoint, URI uri) {
+	}
+
+	/**
+	 * Build a URI on an endpoint, adding the working directory if configured
+	 */
+	private Target target(ServerEndpoint endpoint, String path, Map<String, ?> query) {
+		UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(endpoint.getBaseUrl()).path(path);
+		Map<String, Object> values = new HashMap<>(query);
+		if (config.getWorkingDirectory() != null) {
+			values.put("directory", config.getWorkingDirectory());
+		}
+		// Template variables so values are encoded strictly
+		for (String name : values.keySet()) {
+			builder.queryParam(name, "{" + name + "}");
+		}
+		return new Target(endpoint, builder.encode().buildAndExpand(values).toUri());
+	}
+
+	private Target target(ServerEndpoint endpoint, String path) {
+		return target(endpoint, path, Map.of());
+	}
+
+	private Target sessionTarget(String sessionId, String path) {
+		return target(serverPool.forSession(sessionId), "/session/" + sessionId + path);
+	}
+
+	/**
+	 * Prepare a request, mapping error statuses to OpenCode exceptions
+	 */
+	private WebClient.ResponseSpec retrieve(WebClient.RequestHeadersSpec<?> request) {
+		return request.retrieve()
+			.onStatus(HttpStatusCode::isError,
+					response -> response.bodyToMono(String.class)
+						.defaultIfEmpty("")
+						.map(body -> OpenCodeException.forStatus(response.statusCode().value(), body)));
+	}
+
+	/**
+	 * Bound a single-value call by its timeout class and count it towards its server's
+	 * load
+	 */
+	private <T> Mono<T> mono(OperationKind kind, Target target, Mono<T> call) {
+		long budget = config.timeoutFor(kind);
+		ServerEndpoint endpoint = target.endpoint();
+		return (budget > 0 ? call.timeout(Duration.ofMillis(budget)) : call)
+			.doOnSubscribe(subscription -> endpoint.inFlightCounter().incrementAndGet())
+			.doOnError(ServerPool::isConnectFailure, e -> serverPool.markUnhealthy(endpoint))
+			.doFinally(signal -> endpoint.inFlightCounter().decrementAndGet())
+			.onErrorMap(this::mapError);
+	}
+
+	/**
+	 * Bound a multi-value call by its timeout class, as a whole rather than per element
+	 */
+	private <T> Flux<T> flux(OperationKind kind, Target target, Flux<T> call) {
+		long budget = config.timeoutFor(kind);
+		ServerEndpoint endpoint = target.endpoint();
+		Flux<T> timed = budget > 0 ? Flux.defer(() -> {
+			Mono<Long> expiry = Mono.delay(Duration.ofMillis(budget)).cache();
+			return call.timeout(expiry, element -> expiry);
+		}) : call;
+		return timed.doOnSubscribe(subscription -> endpoint.inFlightCounter().incrementAndGet())
+			.doOnError(ServerPool::isConnectFailure, e -> serverPool.markUnhealthy(endpoint))
+			.doFinally(signal -> endpoint.inFlightCounter().decrementAndGet())
+			.onErrorMap(this::mapError);
+	}
+
+	private Throwable mapError(Throwable e) {
+		if (e instanceof TimeoutException) {
+			return new OpenCodeException.Timeout("Request timed out", e);
+		}
+		if (e instanceof WebClientRequestException) {
+			return new OpenCodeException.NetworkError("Network error during request", e);
+		}
+		return e;
+	}
+
+	private <T> Mono<T> get(OperationKind kind, Target target, Class<T> type) {
+		return mono(kind, target, Mono.defer(() -> retrieve(webClient.get().uri(target.uri())).bodyToMono(type)));
+	}
+
+	private <T> Flux<T> getAll(OperationKind kind, Target target, Class<T> type) {
+		return flux(kind, target, Flux.defer(() -> retrieve(webClient.get().uri(target.uri())).bodyToFlux(type)));
+	}
+
+	private <T> Mono<T> post(OperationKind kind, Target target, Object body, Class<T> type) {
+		return mono(kind, target, Mono.defer(() -> retrieve(webClient.post()
+			.uri(target.uri())
+			.contentType(MediaType.APPLICATION_JSON)
+			.bodyValue(body != null ? body : Map.of())).bodyToMono(type)));
+	}
+
+	// Service implementations
+	private class ReactiveSessionServiceImpl implements ReactiveSessionService {
+
+		@Override
+		public Mono<Session> createSession(SessionCreateRequest request) {
+			return Mono.defer(() -> {
+				ServerEndpoint endpoint = serverPool.leastLoaded();
+				return post(OperationKind.METADATA, target(endpoint, "/session"),
+						request != null ? request : new SessionCreateRequest(), Session.class)
+					.doOnNext(session -> serverPool.bind(session.getId(), endpoint));
+			});
+		}
+
+		@Override
+		public Flux<Session> listSessions() {
+			return Flux.defer(() -> Flux.fromIterable(serverPool.getEndpoints())
+				.filter(endpoint -> serverPool.size() == 1 || endpoint.isHealthy())
+				.concatMap(endpoint -> getAll(OperationKind.METADATA, target(endpoint, "/session"), Session.class)
+					.doOnNext(session -> serverPool.bind(session.getId(), endpoint))));
+		}
+
+		@Override
+		public Mono<Session> getSession(String sessionId) {
+			return get(OperationKind.METADATA, sessionTarget(sessionId, ""), Session.class);
+		}
+
+		@Override
+		public Mono<Session> updateSession(String sessionId, String title) {
+			Target target = sessionTarget(sessionId, "");
+			return mono(OperationKind.METADATA, target, Mono.defer(() -> retrieve(webClient.patch()
+				.uri(target.uri())
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(Map.of("title", title))).bodyToMono(Session.class)));
+		}
+
+		@Override
+		public Mono<Void> deleteSession(String sessionId) {
+			Target target = sessionTarget(sessionId, "");
+			return mono(OperationKind.METADATA, target,
+					Mono.defer(() -> retrieve(webClient.delete().uri(target.uri())).bodyToMono(Void.class)))
+				.doOnSuccess(ignored -> serverPool.unbind(sessionId));
+		}
+
+		@Override
+		public Mono<Message> sendPrompt(String sessionId, PromptRequest request) {
+			return post(OperationKind.PROMPT, sessionTarget(sessionId, "/message"), request, Message.class);
+		}
+
+		@Override
+		public Flux<Message> getMessages(String sessionId) {
+			return getAll(OperationKind.METADATA, sessionTarget(sessionId, "/message"), Message.class);
+		}
+
+		@Override
+		public Mono<Message> getMessage(String sessionId, String messageId) {
+			return get(OperationKind.METADATA, sessionTarget(sessionId, "/message/" + messageId), Message.class);
+		}
+
+		@Override
+		public Mono<Message> executeCommand(String sessionId, String command, String arguments) {
+			Map<String, Object> body = new HashMap<>();
+			body.put("command", command);
+			body.put("arguments", arguments != null ? arguments : "");
+			// Add agent field if command starts with slash (built-in command)
+			if (command != null && command.startsWith("/")) {
+				body.put("agent", "shell");
+			}
+			return post(OperationKind.PROMPT, sessionTarget(sessionId, "/command"), body, Message.class);
+		}
+
+		@Override
+		public Mono<Session> shareSession(String sessionId) {
+			return post(OperationKind.METADATA, sessionTarget(sessionId, "/share"), null, Session.class);
+		}
+
+		@Override
+		public Mono<Session> unshareSession(String sessionId) {
+			Target target = sessionTarget(sessionId, "/share");
+			return mono(OperationKind.METADATA, target,
+					Mono.defer(() -> retrieve(webClient.delete().uri(target.uri())).bodyToMono(Session.class)));
+		}
+
+		@Override
+		public Mono<Void> initializeSession(String sessionId, String providerId, String modelId) {
+			Map<String, String> body = Map.of("messageID", "init_" + System.currentTimeMillis(), "providerID",
+					providerId, "modelID", modelId);
+			return post(OperationKind.PROMPT, sessionTarget(sessionId, "/init"), body, Void.class);
+		}
+
+		@Override
+		public Mono<Void> abortSession(String sessionId) {
+			return post(OperationKind.METADATA, sessionTarget(sessionId, "/abort"), null, Void.class);
+		}
+
+		@Override
+		public Mono<Session> revertMessage(String sessionId, String messageId, String partId) {
+			Map<String, String> body = Map.of("messageID", messageId, "partID", partId != null ? partId : "");
+			return post(OperationKind.METADATA, sessionTarget(sessionId, "/revert"), body, Session.class);
+		}
+
+		@Override
+		public Mono<Session> unrevertMessages(String sessionId) {
+			return post(OperationKind.METADATA, sessionTarget(sessionId, "/unrevert"), null, Session.class);
+		}
+
+		@Override
+		public Flux<Session> getSessionChildren(String sessionId) {
+			return Flux.defer(() -> {
+				ServerEndpoint owner = serverPool.forSession(sessionId);
+				return getAll(OperationKind.METADATA, sessionTarget(sessionId, "/children"), Session.class)
+					.doOnNext(child -> serverPool.bind(child.getId(), owner));
+			});
+		}
+
+		@Override
+		public Mono<SessionSummary> summarizeSession(String sessionId, String providerId, String modelId) {
+			Map<String, String> body = Map.of("providerID", providerId, "modelID", modelId);
+			return post(OperationKind.PROMPT, sessionTarget(sessionId, "/summarize"), body, SessionSummary.class);
+		}
+
+		@Override
+		public Mono<Message> executeShellCommand(String sessionId, ShellRequest request) {
+			return post(OperationKind.PROMPT, sessionTarget(sessionId, "/shell"), request, Message.class);
+		}
+
+		@Override
+		public Mono<Void> respondToPermission(String sessionId, String permissionId, PermissionResponse response) {
+			return post(OperationKind.METADATA, sessionTarget(sessionId, "/permissions/" + permissionId), response,
+					Void.class);
+		}
+
+	}
+
+	private class ReactiveFileServiceImpl implements ReactiveFileService {
+
+		@Override
+		public Mono<FileContent> readFile(String path) {
+			return Mono.defer(() -> get(OperationKind.FILE, target(serverPool.leastLoaded(), "/file", Map.of("path", path)),
+					FileContent.class));
+		}
+
+		@Override
+		public Flux<FileNode> listFiles(String path) {
+			return Flux.defer(() -> getAll(OperationKind.FILE,
+					target(serverPool.leastLoaded(), "/file", Map.of("path", path)), FileNode.class));
+		}
+
+		@Override
+		public Flux<FileNode> getFileStatus() {
+			return Flux
+				.defer(() -> getAll(OperationKind.FILE, target(serverPool.leastLoaded(), "/file/status"), FileNode.class));
+		}
+
+		@Override
+		public Flux<SearchMatch> searchText(String pattern) {
+			return Flux.defer(() -> getAll(OperationKind.FILE,
+					target(serverPool.leastLoaded(), "/find", Map.of("pattern", pattern)), SearchMatch.class));
+		}
+
+		@Override
+		public Flux<String> findFiles(String query) {
+			return Flux.defer(() -> getAll(OperationKind.FILE,
+					target(serverPool.leastLoaded(), "/find/file", Map.of("query", query)), String.class));
+		}
+
+		@Override
+		public Flux<Symbol> findSymbols(String query) {
+			return Flux.defer(() -> getAll(OperationKind.FILE,
+					target(serverPool.leastLoaded(), "/find/symbol", Map.of("query", query)), Symbol.class));
+		}
+
+	}
+
+	private class ReactiveConfigServiceImpl implements ReactiveConfigService {
+
+		@Override
+		public Mono<ConfigInfo> getConfig() {
+			return Mono.defer(() -> get(OperationKind.METADATA, target(serverPool.leastLoaded(), "/config"),
+					ConfigInfo.class));
+		}
+
+		@Override
+		public Mono<ProvidersResponse> listProviders() {
+			return Mono.defer(() -> get(OperationKind.METADATA, target(serverPool.leastLoaded(), "/config/providers"),
+					ProvidersResponse.class));
+		}
+
+		@Override
+		public Mono<String> getWorkingDirectory() {
+			return Mono.defer(() -> get(OperationKind.METADATA, target(serverPool.leastLoaded(), "/path"), Map.class))
+				.mapNotNull(response -> (String) response.get("directory"));
+		}
+
+		@Override
+		public Mono<Void> setAuthentication(String providerId, String credentials) {
+			return Mono.defer(() -> {
+				Target target = target(serverPool.leastLoaded(), "/auth/" + providerId);
+				return mono(OperationKind.METADATA, target, Mono.defer(() -> retrieve(webClient.put()
+					.uri(target.uri())
+					.contentType(MediaType.APPLICATION_JSON)
+					.bodyValue(Map.of("credentials", credentials))).bodyToMono(Void.class)));
+			});
+		}
+
+	}
+
+	private class ReactiveEventServiceImpl implements ReactiveEventService {
+
+		private static final ParameterizedTypeReference<ServerSentEvent<String>> EVENT_TYPE = new ParameterizedTypeReference<>() {
+		};
+
+		@Override
+		public Flux<OpenCodeEvent> subscribeToEvents() {
+			List<ServerEndpoint> endpoints = serverPool.getEndpoints();
+			// One stream per server, merged
+			return Flux.merge(endpoints.stream().map(this::subscribeToEvents).toList());
+		}
+
+		private Flux<OpenCodeEvent> subscribeToEvents(ServerEndpoint endpoint) {
+			Target target = target(endpoint, "/event");
+			return Flux.defer(() -> retrieve(webClient.get().uri(target.uri()).accept(MediaType.TEXT_EVENT_STREAM))
+				.bodyToFlux(EVENT_TYPE))
+				.mapNotNull(ServerSentEvent::data)
+				.map(data -> JsonUtils.fromJson(data, OpenCodeEvent.class))
+				.onErrorMap(WebClientRequestException.class,
+						e -> new OpenCodeException("SSE connection failed", e));
+		}
+
+		@Override
+		public Flux<OpenCodeEvent> subscribeToEvents(String eventTypeFilter) {
+			return subscribeToEvents()
+				.filter(event -> event.getType() != null && event.getType().contains(eventTypeFilter));
+		}
+
+	}
+
+}
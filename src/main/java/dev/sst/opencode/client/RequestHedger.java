@@ -0,0 +1,258 @@
+package dev.sst.opencode.client;
+
+import dev.sst.opencode.transport.TransportCall;
+import dev.sst.opencode.transport.TransportResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hedging for idempotent reads
+ *
+ * A read that has not answered within the configured latency percentile of recent
+ * reads of the same kind gets a second attempt, and whichever answers first wins; the
+ * other call is cancelled. Hedges are paid for from a budget that grows by a fixed
+ * fraction of every request, which caps the extra load on the server.
+ */
+@Slf4j
+public class RequestHedger {
+
+	private static final int WINDOW = 512;
+
+	private static final int MIN_SAMPLES = 20;
+
+	private static final double MAX_TOKENS = 10;
+
+	private final double percentile;
+
+	private final double budgetRatio;
+
+	private final long minDelayNanos;
+
+	private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+	private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+			Thread.ofVirtual().name("opencode-hedge-", 0).factory());
+
+	private double tokens = MAX_TOKENS;
+
+	private long hedges;
+
+	public RequestHedger(double percentile, double budgetRatio, long minDelayMillis) {
+		this.percentile = percentile;
+		this.budgetRatio = budgetRatio;
+		this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+	}
+
+	/**
+	 * Execute a read, hedging it with a second call if the first one is slow
+	 * @param key groups reads with similar latency
+	 * @param primary creates the first call
+	 * @param hedge creates the second call, possibly against another server
+	 */
+	public TransportResponse execute(String key, Supplier<TransportCall> primary, Supplier<TransportCall> hedge)
+			throws IOException {
+		LatencyWindow window = latencies.computeIfAbsent(key, k -> new LatencyWindow());
+		earnTokens();
+		long delay = window.percentileNanos(percentile);
+		if (delay < 0) {
+			// Not enough history yet to know what slow means
+			return timed(primary.get(), window);
+		}
+
+		Race race = new Race();
+		race.start(primary.get(), window);
+		try {
+			return race.winner.get(Math.max(delay, minDelayNanos), TimeUnit.NANOSECONDS);
+		}
+		catch (TimeoutException e) {
+			if (spendToken()) {
+				log.debug("Hedging slow {} read after {} ms", key, TimeUnit.NANOSECONDS.toMillis(delay));
+				race.start(hedge.get(), window);
+			}
+			return race.await();
+		}
+		catch (InterruptedException e) {
+			race.cancelAll();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for response");
+		}
+		catch (ExecutionException e) {
+			throw unwrap(e);
+		}
+		finally {
+			race.cancelLosers();
+		}
+	}
+
+	/**
+	 * Number of hedges sent so far
+	 */
+	public synchronized long getHedgeCount() {
+		return hedges;
+	}
+
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	private TransportResponse timed(TransportCall call, LatencyWindow window) throws IOException {
+		long start = System.nanoTime();
+		TransportResponse response = call.execute();
+		window.record(System.nanoTime() - start);
+		return response;
+	}
+
+	private synchronized void earnTokens() {
+		tokens = Math.min(MAX_TOKENS, tokens + budgetRatio);
+	}
+
+	private synchronized boolean spendToken() {
+		if (tokens < 1) {
+			return false;
+		}
+		tokens -= 1;
+		hedges++;
+		return true;
+	}
+
+	private static IOException unwrap(ExecutionException e) {
+		Throwable cause = e.getCause();
+		if (cause instanceof IOException io) {
+			return io;
+		}
+		if (cause instanceof RuntimeException runtime) {
+			throw runtime;
+		}
+		return new IOException(cause);
+	}
+
+	/**
+	 * Attempts of one read racing each other
+	 */
+	private class Race {
+
+		private final CompletableFuture<TransportResponse> winner = new CompletableFuture<>();
+
+		private final TransportCall[] calls = new TransportCall[2];
+
+		private final AtomicInteger started = new AtomicInteger();
+
+		private final AtomicInteger failed = new AtomicInteger();
+
+		private final AtomicInteger winnerIndex = new AtomicInteger(-1);
+
+		void start(TransportCall call, LatencyWindow window) {
+			int index = started.getAndIncrement();
+			calls[index] = call;
+			executor.execute(() -> {
+				long start = System.nanoTime();
+				try {
+					TransportResponse response = call.execute();
+					window.record(System.nanoTime() - start);
+					if (response.code() >= 500 && failed.incrementAndGet() < started.get()) {
+						// Give the other attempt a chance
+						response.close();
+						return;
+					}
+					if (winnerIndex.compareAndSet(-1, index)) {
+						winner.complete(response);
+					}
+					else {
+						response.close();
+					}
+				}
+				catch (IOException e) {
+					if (failed.incrementAndGet() >= started.get()) {
+						winner.completeExceptionally(e);
+					}
+				}
+			});
+		}
+
+		TransportResponse await() throws IOException {
+			try {
+				return winner.get();
+			}
+			catch (InterruptedException e) {
+				cancelAll();
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for response");
+			}
+			catch (ExecutionException e) {
+				throw unwrap(e);
+			}
+		}
+
+		void cancelLosers() {
+			if (!winner.isDone()) {
+				return;
+			}
+			int won = winnerIndex.get();
+			for (int i = 0; i < calls.length; i++) {
+				if (calls[i] != null && i != won) {
+					calls[i].cancel();
+				}
+			}
+		}
+
+		void cancelAll() {
+			for (TransportCall call : calls) {
+				if (call != null) {
+					call.cancel();
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Recent latencies of one kind of read
+	 */
+	private static class LatencyWindow {
+
+		private final long[] samples = new long[WINDOW];
+
+		private int count;
+
+		private int next;
+
+		private long cachedPercentile = -1;
+
+		private int sinceRecompute;
+
+		synchronized void record(long nanos) {
+			samples[next] = nanos;
+			next = (next + 1) % WINDOW;
+			count = Math.min(count + 1, WINDOW);
+			sinceRecompute++;
+		}
+
+		synchronized long percentileNanos(double percentile) {
+			if (count < MIN_SAMPLES) {
+				return -1;
+			}
+			if (cachedPercentile < 0 || sinceRecompute >= 32) {
+				long[] sorted = Arrays.copyOf(samples, count);
+				Arrays.sort(sorted);
+				cachedPercentile = sorted[Math.min(count - 1, (int) Math.ceil(percentile * count) - 1)];
+				sinceRecompute = 0;
+			}
+			return cachedPercentile;
+		}
+
+	}
+
+}
@@ -0,0 +1,99 @@
+package dev.sst.opencode.client;
+
+import okhttp3.HttpUrl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One OpenCode server in a {@link ServerPool}
+ */
+public class ServerEndpoint {
+
+	private final String baseUrl;
+
+	private final HttpUrl url;
+
+	private final String hostKey;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicInteger sessions = new AtomicInteger();
+
+	private volatile boolean healthy = true;
+
+	private volatile boolean draining;
+
+	ServerEndpoint(String baseUrl) {
+		this.baseUrl = stripTrailingSlash(baseUrl);
+		this.url = HttpUrl.get(this.baseUrl);
+		this.hostKey = hostKey(url.host(), url.port());
+	}
+
+	public String getBaseUrl() {
+		return baseUrl;
+	}
+
+	/**
+	 * Parsed base URL
+	 */
+	HttpUrl getUrl() {
+		return url;
+	}
+
+	/**
+	 * Healthy endpoints that are not draining accept new sessions
+	 */
+	public boolean isAvailable() {
+		return healthy && !draining;
+	}
+
+	public boolean isHealthy() {
+		return healthy;
+	}
+
+	public boolean isDraining() {
+		return draining;
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	public int getSessionCount() {
+		return sessions.get();
+	}
+
+	void setHealthy(boolean healthy) {
+		this.healthy = healthy;
+	}
+
+	void setDraining(boolean draining) {
+		this.draining = draining;
+	}
+
+	AtomicInteger inFlightCounter() {
+		return inFlight;
+	}
+
+	AtomicInteger sessionCounter() {
+		return sessions;
+	}
+
+	String getHostKey() {
+		return hostKey;
+	}
+
+	static String hostKey(String host, int port) {
+		return host + ":" + port;
+	}
+
+	private static String stripTrailingSlash(String url) {
+		return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+	}
+
+	@Override
+	public String toString() {
+		return baseUrl + (healthy ? "" : " (unhealthy)") + (draining ? " (draining)" : "");
+	}
+
+}
@@ -0,0 +1,329 @@
+package dev.sst.opencode.client;
+
+import dev.sst.opencode.transport.OpenCodeTransport;
+import dev.sst.opencode.transport.TransportRequest;
+import dev.sst.opencode.transport.TransportResponse;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.HttpUrl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Pool of OpenCode servers with session affinity
+ *
+ * New sessions go to the least-loaded available endpoint. Every later call for a
+ * session is routed to the endpoint that created it through a session-to-endpoint
+ * map; sessions the pool has not seen (created by another client, or before a
+ * restart) fall back to a consistent-hash ring over all registered endpoints.
+ * Endpoints failing their health check are drained: they keep serving the sessions
+ * they own but receive no new ones until they recover.
+ */
+@Slf4j
+public final class ServerPool {
+
+	private static final int VIRTUAL_NODES = 64;
+
+	private final List<ServerEndpoint> endpoints = new CopyOnWriteArrayList<>();
+
+	private final Map<String, ServerEndpoint> byHost = new ConcurrentHashMap<>();
+
+	private final Map<String, ServerEndpoint> sessionOwners = new ConcurrentHashMap<>();
+
+	private volatile SortedMap<Long, ServerEndpoint> ring = new TreeMap<>();
+
+	/**
+	 * Told of every endpoint removed, to drop what they keep for it
+	 */
+	private final List<Consumer<ServerEndpoint>> deregistrationListeners = new CopyOnWriteArrayList<>();
+
+	private ScheduledExecutorService healthChecker;
+
+	/**
+	 * How to probe endpoints once the pool has several, null until health checks are
+	 * started
+	 */
+	private OpenCodeTransport healthTransport;
+
+	private Map<String, String> healthHeaders;
+
+	private long healthInterval;
+
+	public ServerPool(Collection<String> baseUrls) {
+		for (String baseUrl : baseUrls) {
+			register(baseUrl);
+		}
+	}
+
+	/**
+	 * Add a server to the pool, returning the existing endpoint if already registered
+	 */
+	public synchronized ServerEndpoint register(String baseUrl) {
+		ServerEndpoint endpoint = new ServerEndpoint(baseUrl);
+		ServerEndpoint existing = byHost.get(endpoint.getHostKey());
+		if (existing != null) {
+			existing.setDraining(false);
+			return existing;
+		}
+		endpoints.add(endpoint);
+		byHost.put(endpoint.getHostKey(), endpoint);
+		rebuildRing();
+		log.debug("Registered OpenCode endpoint {}", endpoint.getBaseUrl());
+		startHealthChecker();
+		return endpoint;
+	}
+
+	/**
+	 * Remove a server from the pool, forgetting the sessions it owned
+	 */
+	public synchronized void deregister(String baseUrl) {
+		ServerEndpoint endpoint = byHost.remove(new ServerEndpoint(baseUrl).getHostKey());
+		if (endpoint == null) {
+			return;
+		}
+		endpoints.remove(endpoint);
+		sessionOwners.values().removeIf(owner -> owner == endpoint);
+		rebuildRing();
+		log.debug("Deregistered OpenCode endpoint {}", endpoint.getBaseUrl());
+		deregistrationListeners.forEach(listener -> listener.accept(endpoint));
+	}
+
+	void onDeregister(Consumer<ServerEndpoint> listener) {
+		deregistrationListeners.add(listener);
+	}
+
+	/**
+	 * Stop placing new sessions on a server while letting its sessions finish
+	 */
+	public void drain(String baseUrl) {
+		ServerEndpoint endpoint = byHost.get(new ServerEndpoint(baseUrl).getHostKey());
+		if (endpoint != null) {
+			endpoint.setDraining(true);
+		}
+	}
+
+	public List<ServerEndpoint> getEndpoints() {
+		return List.copyOf(endpoints);
+	}
+
+	public int size() {
+		return endpoints.size();
+	}
+
+	/**
+	 * Pick the endpoint for a new session or any call not bound to a session
+	 */
+	public ServerEndpoint leastLoaded() {
+		List<ServerEndpoint> candidates = new ArrayList<>();
+		for (ServerEndpoint endpoint : endpoints) {
+			if (endpoint.isAvailable()) {
+				candidates.add(endpoint);
+			}
+		}
+		if (candidates.isEmpty()) {
+			// Nothing is known to be healthy; try everything rather than fail locally
+			candidates.addAll(endpoints);
+		}
+		return candidates.stream()
+			.min(Comparator.comparingInt(ServerEndpoint::getInFlight)
+				.thenComparingInt(ServerEndpoint::getSessionCount))
+			.orElseThrow(() -> new IllegalStateException("No OpenCode endpoints registered"));
+	}
+
+	/**
+	 * Another available endpoint than the one serving a URL, or null if there is none
+	 */
+	public ServerEndpoint alternateTo(HttpUrl url) {
+		ServerEndpoint current = forUrl(url);
+		return endpoints.stream()
+			.filter(endpoint -> endpoint != current && endpoint.isAvailable())
+			.min(Comparator.comparingInt(ServerEndpoint::getInFlight))
+			.orElse(null);
+	}
+
+	/**
+	 * Endpoint owning a session
+	 */
+	public ServerEndpoint forSession(String sessionId) {
+		ServerEndpoint owner = sessionOwners.get(sessionId);
+		if (owner != null) {
+			return owner;
+		}
+		SortedMap<Long, ServerEndpoint> current = ring;
+		if (current.isEmpty()) {
+			throw new IllegalStateException("No OpenCode endpoints registered");
+		}
+		SortedMap<Long, ServerEndpoint> tail = current.tailMap(hash(sessionId));
+		return tail.isEmpty() ? current.get(current.firstKey()) : tail.get(tail.firstKey());
+	}
+
+	/**
+	 * Record that a session lives on the given endpoint
+	 */
+	public void bind(String sessionId, ServerEndpoint endpoint) {
+		if (sessionId == null || endpoint == null) {
+			return;
+		}
+		ServerEndpoint previous = sessionOwners.put(sessionId, endpoint);
+		if (previous != endpoint) {
+			endpoint.sessionCounter().incrementAndGet();
+			if (previous != null) {
+				previous.sessionCounter().decrementAndGet();
+			}
+		}
+	}
+
+	public void unbind(String sessionId) {
+		ServerEndpoint previous = sessionOwners.remove(sessionId);
+		if (previous != null) {
+			previous.sessionCounter().decrementAndGet();
+		}
+	}
+
+	/**
+	 * Endpoint serving a request URL, used to track in-flight load
+	 */
+	ServerEndpoint forUrl(HttpUrl url) {
+		return byHost.get(ServerEndpoint.hostKey(url.host(), url.port()));
+	}
+
+	/**
+	 * Probe every endpoint periodically while the pool has more than one, and drain the
+	 * ones that stop answering
+	 * @param headers sent with every probe, e.g. authorization
+	 */
+	public synchronized void startHealthChecks(OpenCodeTransport transport, Map<String, String> headers,
+			long intervalMillis) {
+		healthTransport = transport;
+		healthHeaders = headers;
+		healthInterval = intervalMillis;
+		startHealthChecker();
+	}
+
+	/**
+	 * Start probing once health checks are configured and a second endpoint makes them
+	 * worthwhile
+	 */
+	private void startHealthChecker() {
+		if (healthChecker != null || healthTransport == null || healthInterval <= 0 || endpoints.size() < 2) {
+			return;
+		}
+		OpenCodeTransport transport = healthTransport;
+		Map<String, String> headers = healthHeaders;
+		long intervalMillis = healthInterval;
+		healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "opencode-health-check");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long probeTimeout = Math.min(intervalMillis, 5000);
+		healthChecker.scheduleWithFixedDelay(() -> checkAll(transport, headers, probeTimeout), intervalMillis,
+				intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void stopHealthChecks() {
+		healthTransport = null;
+		if (healthChecker != null) {
+			healthChecker.shutdownNow();
+			healthChecker = null;
+		}
+	}
+
+	void checkAll(OpenCodeTransport transport, Map<String, String> headers, long timeoutMillis) {
+		for (ServerEndpoint endpoint : endpoints) {
+			boolean healthy;
+			TransportRequest request = TransportRequest.builder()
+				.method("GET")
+				.url(endpoint.getBaseUrl() + "/config")
+				.headers(headers)
+				.timeoutMillis(timeoutMillis)
+				.build();
+			try (TransportResponse response = transport.newCall(request).execute()) {
+				healthy = response.isSuccessful();
+			}
+			catch (IOException e) {
+				healthy = false;
+			}
+			if (healthy != endpoint.isHealthy()) {
+				log.warn("OpenCode endpoint {} is now {}", endpoint.getBaseUrl(), healthy ? "healthy" : "unhealthy");
+			}
+			endpoint.setHealthy(healthy);
+		}
+	}
+
+	/**
+	 * Mark an endpoint unhealthy after a connection failure, pending the next probe
+	 */
+	void markUnhealthy(ServerEndpoint endpoint) {
+		if (endpoint.isHealthy() && endpoints.size() > 1) {
+			log.warn("OpenCode endpoint {} failed, draining until the next health check", endpoint.getBaseUrl());
+			endpoint.setHealthy(false);
+		}
+	}
+
+	/**
+	 * Whether a call failed because the server could not be reached at all, as opposed to
+	 * e.g. a slow reply running into a timeout or deadline, which says nothing about health
+	 */
+	static boolean isConnectFailure(Throwable failure) {
+		for (Throwable t = failure; t != null; t = t.getCause()) {
+			if (t instanceof InterruptedIOException) {
+				return false;
+			}
+			if (t instanceof ConnectException || t instanceof UnknownHostException
+					|| t instanceof NoRouteToHostException) {
+				return true;
+			}
+			if (t instanceof SocketException && t.getMessage() != null
+					&& t.getMessage().contains("Connection reset")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void rebuildRing() {
+		SortedMap<Long, ServerEndpoint> newRing = new TreeMap<>();
+		for (ServerEndpoint endpoint : endpoints) {
+			for (int i = 0; i < VIRTUAL_NODES; i++) {
+				newRing.put(hash(endpoint.getHostKey() + "#" + i), endpoint);
+			}
+		}
+		ring = newRing;
+	}
+
+	private static long hash(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+			long h = 0;
+			for (int i = 0; i < 8; i++) {
+				h = (h << 8) | (digest[i] & 0xff);
+			}
+			return h;
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("MD5 not available", e);
+		}
+	}
+
+}
@@ -0,0 +1,213 @@
+package dev.sst.opencode.client;
+
+import dev.sst.opencode.exceptions.OpenCodeException;
+import dev.sst.opencode.models.BulkResult;
+import dev.sst.opencode.services.SessionService;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archives session transcripts as compressed newline-delimited JSON files
+ *
+ * Messages are copied from the response body through the compressor into a file
+ * channel as they arrive, so memory use does not grow with the size of a session. Each
+ * session goes to its own file, written next to its final name and moved into place
+ * once complete and synced. Exports of many sessions run on the client's bulk
+ * executor, a bounded number at a time.
+ */
+@Slf4j
+public class SessionExporter {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	public enum Compression {
+
+		GZIP(".ndjson.gz"),
+
+		/**
+		 * Needs com.github.luben:zstd-jni on the classpath
+		 */
+		ZSTD(".ndjson.zst");
+
+		private final String extension;
+
+		Compression(String extension) {
+			this.extension = extension;
+		}
+
+		public String getExtension() {
+			return extension;
+		}
+
+		public boolean isAvailable() {
+			return this != ZSTD || Zstd.CONSTRUCTOR != null;
+		}
+
+	}
+
+	private final SessionService sessions;
+
+	private final BulkExecutor bulk;
+
+	private final Path directory;
+
+	private final Compression compression;
+
+	SessionExporter(SessionService sessions, BulkExecutor bulk, Path directory, Compression compression) {
+		if (!compression.isAvailable()) {
+			throw new IllegalStateException("zstd-jni is not on the classpath, use " + Compression.GZIP);
+		}
+		this.sessions = sessions;
+		this.bulk = bulk;
+		this.directory = directory;
+		this.compression = compression;
+	}
+
+	/**
+	 * Zstandard when available, gzip otherwise
+	 */
+	public static Compression defaultCompression() {
+		return Compression.ZSTD.isAvailable() ? Compression.ZSTD : Compression.GZIP;
+	}
+
+	/**
+	 * Export one session
+	 * @return the file written
+	 */
+	public Path export(String sessionId) {
+		Path target = directory.resolve(sessionId.replaceAll("[^A-Za-z0-9._-]", "_") + compression.getExtension());
+		Path partial = target.resolveSibling(target.getFileName() + ".part");
+		try {
+			Files.createDirectories(directory);
+			try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				try (OutputStream out = compress(new KeepOpen(Channels.newOutputStream(channel)))) {
+					sessions.writeMessagesTo(sessionId, out);
+				}
+				channel.force(true);
+			}
+			move(partial, target);
+			return target;
+		}
+		catch (IOException e) {
+			throw new OpenCodeException("Failed to export session " + sessionId + " to " + target, e);
+		}
+		finally {
+			try {
+				Files.deleteIfExists(partial);
+			}
+			catch (IOException e) {
+				log.debug("Could not remove {}: {}", partial, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Export many sessions at the client's bulk concurrency, emitting each file as it is
+	 * complete; a failed session is reported and leaves no file behind
+	 */
+	public Flux<BulkResult<Path>> exportAll(Collection<String> sessionIds) {
+		return bulk.run(sessionIds, this::export);
+	}
+
+	/**
+	 * Export many sessions, at most concurrency at a time
+	 */
+	public Flux<BulkResult<Path>> exportAll(Collection<String> sessionIds, int concurrency) {
+		return bulk.run(sessionIds, this::export, concurrency, false);
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	public Compression getCompression() {
+		return compression;
+	}
+
+	private OutputStream compress(OutputStream out) throws IOException {
+		if (compression == Compression.GZIP) {
+			return new GZIPOutputStream(out, BUFFER_SIZE);
+		}
+		try {
+			return Zstd.CONSTRUCTOR.newInstance(out);
+		}
+		catch (InvocationTargetException e) {
+			throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+		}
+		catch (ReflectiveOperationException e) {
+			throw new IOException("Could not create a zstd stream", e);
+		}
+	}
+
+	private static void move(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Lets the compressor finish without closing the channel, which is synced after
+	 */
+	private static final class KeepOpen extends FilterOutputStream {
+
+		KeepOpen(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			out.write(bytes, offset, length);
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+
+	}
+
+	/**
+	 * Looked up once, so zstd-jni stays an optional dependency
+	 */
+	private static final class Zstd {
+
+		static final Constructor<? extends OutputStream> CONSTRUCTOR = lookup();
+
+		private static Constructor<? extends OutputStream> lookup() {
+			try {
+				return Class.forName("com.github.luben.zstd.ZstdOutputStream")
+					.asSubclass(OutputStream.class)
+					.getConstructor(OutputStream.class);
+			}
+			catch (ReflectiveOperationException | LinkageError e) {
+				return null;
+			}
+		}
+
+	}
+
+	@Override
+	public String toString() {
+		return "SessionExporter[" + directory + ", " + compression + "]";
+	}
+
+}
@@ -0,0 +1,210 @@
+package dev.sst.opencode.client;
+
+import dev.sst.opencode.models.OpenCodeEvent;
+import dev.sst.opencode.models.Symbol;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Client-side cache of symbol searches
+ *
+ * If refinement is enabled, a query that extends a cached one is also answered by
+ * filtering the cached symbols, so typing "Contr" after "Con" needs no round trip. This
+ * assumes the server matches names case-insensitively by subsequence, as the filter
+ * does: then every symbol matching the longer query matches its prefix too, and the
+ * filter keeps exactly those. The server hands symbol queries to language servers, which
+ * may match differently, e.g. by prefix or by camel case humps, and a refined result
+ * would then hold symbols the server would not return or lack ones it would; hence
+ * refinement is off unless the caller knows its language servers match this way. Servers
+ * also cut long results off, so only results shorter than the longest one seen, which
+ * cannot have been cut, are refined.
+ *
+ * Any file change can add or remove symbols matching any query, so file events drop
+ * every entry, and nothing is served while the event stream is down.
+ */
+public class SymbolCache {
+
+	private final int maxEntries;
+
+	/**
+	 * Whether to answer longer queries by filtering cached ones
+	 */
+	private final boolean refine;
+
+	private final LinkedHashMap<String, List<Symbol>> entries;
+
+	/**
+	 * Bumped by every invalidation, so searches that raced one are not stored
+	 */
+	private long generation;
+
+	/**
+	 * Longest result the server returned, a lower bound of its result limit
+	 */
+	private int largestResult;
+
+	private boolean live;
+
+	private long hits;
+
+	private long refinements;
+
+	private long misses;
+
+	/**
+	 * Follows the client's shared event stream
+	 */
+	final EventFanOut.Listener events = EventFanOut.listener(this::connected, (data, event) -> accept(event),
+			this::reset);
+
+	SymbolCache(int maxEntries, boolean refine) {
+		this.maxEntries = maxEntries;
+		this.refine = refine;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, List<Symbol>> eldest) {
+				return size() > SymbolCache.this.maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Symbols for a query from the cache, refined from the longest cached prefix if
+	 * enabled and needed, or null
+	 */
+	synchronized List<Symbol> get(String query) {
+		if (!live) {
+			misses++;
+			return null;
+		}
+		List<Symbol> symbols = entries.get(query);
+		if (symbols != null) {
+			hits++;
+			return symbols;
+		}
+		for (int length = query.length() - 1; refine && length >= 0; length--) {
+			List<Symbol> broader = entries.get(query.substring(0, length));
+			if (broader != null && (broader.isEmpty() || broader.size() < largestResult)) {
+				refinements++;
+				symbols = refine(broader, query);
+				entries.put(query, symbols);
+				return symbols;
+			}
+		}
+		misses++;
+		return null;
+	}
+
+	/**
+	 * Token to pass to {@link #put} for a search starting now
+	 */
+	synchronized long stamp() {
+		return generation;
+	}
+
+	/**
+	 * Store a search result unless the stream is down or a file changed since its stamp
+	 */
+	synchronized void put(String query, List<Symbol> symbols, long stamp) {
+		if (symbols == null) {
+			return;
+		}
+		largestResult = Math.max(largestResult, symbols.size());
+		if (live && stamp == generation) {
+			entries.put(query, List.copyOf(symbols));
+		}
+	}
+
+	private synchronized void connected() {
+		live = true;
+	}
+
+	void accept(OpenCodeEvent event) {
+		if (event == null) {
+			// Unreadable, so it may have been a file change
+			invalidateAll();
+			return;
+		}
+		String type = event.getType();
+		if (type != null && (type.equals("file.edited") || type.startsWith("file.watcher."))) {
+			invalidateAll();
+		}
+	}
+
+	public synchronized void invalidateAll() {
+		generation++;
+		entries.clear();
+	}
+
+	private synchronized void reset() {
+		live = false;
+		invalidateAll();
+	}
+
+	synchronized void close() {
+		reset();
+	}
+
+	static List<Symbol> refine(List<Symbol> symbols, String query) {
+		String needle = query.toLowerCase(Locale.ROOT);
+		List<Symbol> refined = new ArrayList<>();
+		for (Symbol symbol : symbols) {
+			if (symbol.getName() != null && matches(symbol.getName().toLowerCase(Locale.ROOT), needle)) {
+				refined.add(symbol);
+			}
+		}
+		return List.copyOf(refined);
+	}
+
+	private static boolean matches(String name, String needle) {
+		int position = 0;
+		for (int i = 0; i < needle.length(); i++) {
+			position = name.indexOf(needle.charAt(i), position);
+			if (position < 0) {
+				return false;
+			}
+			position++;
+		}
+		return true;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Queries answered from an entry for the same query
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Queries answered by filtering the entry of a prefix
+	 */
+	public synchronized long getRefinements() {
+		return refinements;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Whether the invalidating event stream is connected, i.e. searches can be served
+	 */
+	public synchronized boolean isLive() {
+		return live;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "SymbolCache[" + entries.size() + "/" + maxEntries + " queries, " + hits + " hits, " + refinements
+				+ " refinements, " + misses + " misses" + (live ? "" : ", offline") + "]";
+	}
+
+}
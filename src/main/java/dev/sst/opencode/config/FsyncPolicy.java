@@ -0,0 +1,23 @@
+package dev.sst.opencode.config;
+
+/**
+ * When writes to a client-side spool file are forced to disk
+ */
+public enum FsyncPolicy {
+
+	/**
+	 * Before a write is acknowledged; nothing acknowledged is lost to a power failure
+	 */
+	ALWAYS,
+
+	/**
+	 * Periodically; a power failure loses at most one interval of writes
+	 */
+	INTERVAL,
+
+	/**
+	 * When the operating system flushes; survives the process dying, not the machine
+	 */
+	NEVER
+
+}
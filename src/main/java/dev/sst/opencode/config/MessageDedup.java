@@ -0,0 +1,24 @@
+package dev.sst.opencode.config;
+
+/**
+ * How decoded messages share repeated strings such as session and message ids
+ */
+public enum MessageDedup {
+
+	/**
+	 * Every decoded string is its own copy
+	 */
+	OFF,
+
+	/**
+	 * Strings are shared within one response, e.g. all parts of one message list
+	 */
+	PER_DECODE,
+
+	/**
+	 * Strings are shared across the responses for a session, for callers holding the
+	 * messages of several calls at once
+	 */
+	PER_SESSION
+
+}
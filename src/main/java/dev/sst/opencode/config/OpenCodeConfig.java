@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 /**
  * Configuration for OpenCode client
  */
@@ -21,15 +23,269 @@ public class OpenCodeConfig {
 
 	private String workingDirectory;
 
+	/**
+	 * Default timeout in milliseconds, used for any timeout class left unset
+	 */
 	@Builder.Default
 	private int timeout = 30000;
 
+	/**
+	 * Connect timeout in milliseconds
+	 */
+	private Integer connectTimeout;
+
+	/**
+	 * Total call timeout in milliseconds for metadata lookups
+	 */
+	private Integer metadataTimeout;
+
+	/**
+	 * Total call timeout in milliseconds for file reads and searches
+	 */
+	private Integer fileTimeout;
+
+	/**
+	 * Total call timeout in milliseconds for prompts and commands
+	 */
+	private Integer promptTimeout;
+
 	@Builder.Default
 	private int maxRetries = 3;
 
 	@Builder.Default
 	private boolean sslVerification = true;
 
+	/**
+	 * Speak HTTP/2 over cleartext without an upgrade (h2c with prior knowledge), so
+	 * concurrent calls and the event stream share multiplexed connections. Only for
+	 * http:// servers that support it, such as opencode serve.
+	 */
+	@Builder.Default
+	private boolean http2PriorKnowledge = false;
+
+	/**
+	 * HTTP stack service calls run on
+	 */
+	@Builder.Default
+	private TransportType transport = TransportType.OKHTTP;
+
+	/**
+	 * Share repeated strings between decoded messages to keep large sessions small in
+	 * memory
+	 */
+	@Builder.Default
+	private MessageDedup messageDedup = MessageDedup.OFF;
+
+	/**
+	 * Send a second attempt for idempotent reads slower than hedgePercentile
+	 */
+	@Builder.Default
+	private boolean hedging = false;
+
+	/**
+	 * Latency percentile of recent reads after which a read is hedged
+	 */
+	@Builder.Default
+	private double hedgePercentile = 0.95;
+
+	/**
+	 * Hedges allowed as a fraction of all reads
+	 */
+	@Builder.Default
+	private double hedgeBudget = 0.1;
+
+	/**
+	 * Minimum delay in milliseconds before hedging a read
+	 */
+	@Builder.Default
+	private long hedgeMinDelay = 10;
+
+	/**
+	 * Base URLs of several OpenCode servers; when set, takes precedence over baseUrl
+	 */
+	private List<String> endpoints;
+
+	/**
+	 * Interval in milliseconds between endpoint health checks when using several servers
+	 */
+	@Builder.Default
+	private long healthCheckInterval = 10000;
+
+	/**
+	 * Limit in-flight prompts and commands adaptively from observed latency
+	 */
+	@Builder.Default
+	private boolean adaptiveConcurrency = false;
+
+	/**
+	 * Starting prompt concurrency limit when the server does not report
+	 * maxConcurrentSessions
+	 */
+	@Builder.Default
+	private int initialConcurrencyLimit = 8;
+
+	@Builder.Default
+	private int maxConcurrencyLimit = 64;
+
+	/**
+	 * Maximum time in milliseconds a prompt waits for a concurrency slot
+	 */
+	@Builder.Default
+	private long concurrencyQueueTimeout = 60000;
+
+	/**
+	 * Calls in flight across all bulk operations of a client
+	 */
+	@Builder.Default
+	private int bulkConcurrency = 8;
+
+	/**
+	 * Calls in flight at once across all priority classes; 0 leaves calls unscheduled
+	 */
+	@Builder.Default
+	private int maxConcurrentCalls = 0;
+
+	/**
+	 * Of the concurrent calls, how many only interactive calls may take
+	 */
+	@Builder.Default
+	private int interactiveReservedCalls = 2;
+
+	/**
+	 * Content bytes of file reads to cache client-side, invalidated by the server's file
+	 * events; 0 disables the cache
+	 */
+	@Builder.Default
+	private long fileCacheMaxBytes = 0;
+
+	/**
+	 * Answer file searches from a client-side index of workspace paths, built by walking
+	 * the workspace and kept current by the server's file events. The index leaves out
+	 * what the server's listings mark ignored, as its own search does; results are ranked
+	 * locally
+	 */
+	@Builder.Default
+	private boolean pathIndex = false;
+
+	/**
+	 * Symbol searches to cache client-side, invalidated by the server's file events; 0
+	 * disables the cache
+	 */
+	@Builder.Default
+	private int symbolCacheEntries = 0;
+
+	/**
+	 * Answer a query that extends a cached one by filtering the cached symbols; only
+	 * correct if the server's language servers match names case-insensitively by
+	 * subsequence
+	 */
+	@Builder.Default
+	private boolean symbolCacheRefinement = false;
+
+	/**
+	 * Directory to journal every server event in, for replay after a restart; null
+	 * disables the journal
+	 */
+	private String eventJournalDirectory;
+
+	/**
+	 * Size of each memory-mapped journal segment file
+	 */
+	@Builder.Default
+	private long eventJournalSegmentBytes = 64L * 1024 * 1024;
+
+	/**
+	 * Bytes of events to keep before dropping the oldest segments; 0 means no limit
+	 */
+	@Builder.Default
+	private long eventJournalMaxBytes = 1024L * 1024 * 1024;
+
+	/**
+	 * Milliseconds to keep events before dropping the oldest segments; 0 means no limit
+	 */
+	@Builder.Default
+	private long eventJournalMaxAge = 7L * 24 * 60 * 60 * 1000;
+
+	/**
+	 * Directory of the log behind the prompt spool; null disables the spool
+	 */
+	private String promptSpoolDirectory;
+
+	/**
+	 * When prompt spool submissions are forced to disk
+	 */
+	@Builder.Default
+	private FsyncPolicy promptSpoolFsync = FsyncPolicy.INTERVAL;
+
+	/**
+	 * Milliseconds between syncs of the prompt spool with the interval policy
+	 */
+	@Builder.Default
+	private long promptSpoolFsyncInterval = 1000;
+
+	/**
+	 * Spooled prompts sent at a time, at most one per session
+	 */
+	@Builder.Default
+	private int promptSpoolConcurrency = 4;
+
+	/**
+	 * Ship log service entries in the background in batches instead of one blocking call
+	 * per entry
+	 */
+	@Builder.Default
+	private boolean asyncLogs = false;
+
+	/**
+	 * Log entries buffered for shipping
+	 */
+	@Builder.Default
+	private int logBufferSize = 8192;
+
+	/**
+	 * Log entries shipped per batch
+	 */
+	@Builder.Default
+	private int logBatchSize = 256;
+
+	/**
+	 * Milliseconds a log entry waits for its batch to fill before it is shipped
+	 */
+	@Builder.Default
+	private long logFlushInterval = 1000;
+
+	/**
+	 * What a log call does when the buffer is full
+	 */
+	@Builder.Default
+	private OverflowPolicy logOverflow = OverflowPolicy.DROP_NEWEST;
+
+	/**
+	 * Total call timeout in milliseconds for an operation kind; 0 means no limit
+	 */
+	public long timeoutFor(OperationKind kind) {
+		if (kind == OperationKind.STREAM) {
+			return 0;
+		}
+		Integer value = switch (kind) {
+			case FILE -> fileTimeout;
+			case PROMPT -> promptTimeout;
+			default -> metadataTimeout;
+		};
+		return value != null ? value : timeout;
+	}
+
+	public int effectiveConnectTimeout() {
+		return connectTimeout != null ? connectTimeout : timeout;
+	}
+
+	/**
+	 * Servers to talk to: the endpoints if any, otherwise the base URL
+	 */
+	public List<String> effectiveEndpoints() {
+		return endpoints != null && !endpoints.isEmpty() ? endpoints : List.of(baseUrl);
+	}
+
 	/**
 	 * Create config from environment variables
 	 */
@@ -0,0 +1,28 @@
+package dev.sst.opencode.config;
+
+/**
+ * Kinds of OpenCode calls, each with its own timeout class
+ */
+public enum OperationKind {
+
+	/**
+	 * Configuration, session and other metadata lookups
+	 */
+	METADATA,
+
+	/**
+	 * File reads, listings and searches
+	 */
+	FILE,
+
+	/**
+	 * Prompts, commands and other calls that wait for a model
+	 */
+	PROMPT,
+
+	/**
+	 * Long-lived event streams
+	 */
+	STREAM
+
+}
@@ -0,0 +1,23 @@
+package dev.sst.opencode.config;
+
+/**
+ * What a full client-side buffer does with one more entry
+ */
+public enum OverflowPolicy {
+
+	/**
+	 * Discard the new entry; the caller never waits
+	 */
+	DROP_NEWEST,
+
+	/**
+	 * Discard the oldest buffered entry to make room; the caller never waits
+	 */
+	DROP_OLDEST,
+
+	/**
+	 * Wait for room, slowing the caller down to the rate entries are shipped
+	 */
+	BLOCK
+
+}
@@ -0,0 +1,18 @@
+package dev.sst.opencode.config;
+
+/**
+ * HTTP stacks the client can run on
+ */
+public enum TransportType {
+
+	/**
+	 * OkHttp, with its own dispatcher and connection pool
+	 */
+	OKHTTP,
+
+	/**
+	 * The JDK's java.net.http client, running its work on virtual threads
+	 */
+	JDK
+
+}
@@ -37,6 +37,28 @@ public class OpenCodeException extends RuntimeException {
 		return errorCode;
 	}
 
+	/**
+	 * Exception for an unsuccessful HTTP response
+	 */
+	public static OpenCodeException forStatus(int statusCode, String body) {
+		String message = body != null && !body.isEmpty() ? body : "HTTP " + statusCode;
+
+		switch (statusCode) {
+			case 400:
+				return new BadRequest(message);
+			case 401:
+				return new Unauthorized(message);
+			case 404:
+				return new NotFound(message);
+			case 500:
+			case 502:
+			case 503:
+				return new ServerError(message);
+			default:
+				return new OpenCodeException(message, statusCode, null);
+		}
+	}
+
 	// Specific exception types
 
 	public static class NotFound extends OpenCodeException {
@@ -77,6 +99,42 @@ public class OpenCodeException extends RuntimeException {
 			super(message, 0, "NETWORK_ERROR", cause);
 		}
 
+		protected NetworkError(String message, String errorCode, Throwable cause) {
+			super(message, 0, errorCode, cause);
+		}
+
+	}
+
+	public static class Timeout extends NetworkError {
+
+		public Timeout(String message, Throwable cause) {
+			super(message, "TIMEOUT", cause);
+		}
+
+		protected Timeout(String message, String errorCode, Throwable cause) {
+			super(message, errorCode, cause);
+		}
+
+	}
+
+	public static class DeadlineExceeded extends Timeout {
+
+		public DeadlineExceeded(String message) {
+			super(message, "DEADLINE_EXCEEDED", null);
+		}
+
+		public DeadlineExceeded(String message, Throwable cause) {
+			super(message, "DEADLINE_EXCEEDED", cause);
+		}
+
+	}
+
+	public static class LimitExceeded extends OpenCodeException {
+
+		public LimitExceeded(String message) {
+			super(message, 0, "LIMIT_EXCEEDED");
+		}
+
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,166 @@
+package dev.sst.opencode.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import dev.sst.opencode.client.LogShipper;
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.config.OpenCodeConfig;
+import dev.sst.opencode.config.OverflowPolicy;
+import dev.sst.opencode.models.requests.LogRequest;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Logback appender writing application logs to the OpenCode server log
+ *
+ * Events are handed to the client's log shipper, so logging costs the calling thread a
+ * buffer insert rather than a round trip. Configured with a base URL, the appender runs
+ * a client of its own: <pre>
+ * &lt;appender name="OPENCODE" class="dev.sst.opencode.logging.OpenCodeAppender"&gt;
+ *   &lt;baseUrl&gt;http://localhost:4096&lt;/baseUrl&gt;
+ *   &lt;service&gt;billing&lt;/service&gt;
+ *   &lt;overflow&gt;DROP_OLDEST&lt;/overflow&gt;
+ * &lt;/appender&gt;
+ * </pre> or it uses a client set with {@link #setClient}, which must be built with async
+ * logs. Events logged by the shipper itself, e.g. about a failed call, are not shipped.
+ */
+public class OpenCodeAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+	private OpenCodeClient client;
+
+	private boolean ownsClient;
+
+	private LogShipper shipper;
+
+	private String baseUrl;
+
+	private String apiKey;
+
+	private String service;
+
+	private int bufferSize = 8192;
+
+	private int batchSize = 256;
+
+	private long flushInterval = 1000;
+
+	private OverflowPolicy overflow = OverflowPolicy.DROP_NEWEST;
+
+	@Override
+	public void start() {
+		if (client == null) {
+			if (baseUrl == null) {
+				addError("Set either a baseUrl or a client for appender " + getName());
+				return;
+			}
+			client = new OpenCodeClient(OpenCodeConfig.builder()
+				.baseUrl(baseUrl)
+				.apiKey(apiKey)
+				.asyncLogs(true)
+				.logBufferSize(bufferSize)
+				.logBatchSize(batchSize)
+				.logFlushInterval(flushInterval)
+				.logOverflow(overflow)
+				.build());
+			ownsClient = true;
+		}
+		shipper = client.getLogShipper();
+		if (shipper == null) {
+			addError("Client of appender " + getName() + " was not built with async logs");
+			return;
+		}
+		super.start();
+	}
+
+	@Override
+	public void stop() {
+		super.stop();
+		if (ownsClient && client != null) {
+			client.close();
+			client = null;
+		}
+	}
+
+	@Override
+	protected void append(ILoggingEvent event) {
+		if (LogShipper.isShipperThread() || event.getLoggerName().startsWith("okhttp3.")) {
+			return;
+		}
+		shipper.offer(toLogRequest(event));
+	}
+
+	LogRequest toLogRequest(ILoggingEvent event) {
+		String message = event.getFormattedMessage();
+		IThrowableProxy thrown = event.getThrowableProxy();
+		if (thrown != null) {
+			message = message + "\n" + ThrowableProxyUtil.asString(thrown);
+		}
+		Map<String, Object> metadata = new LinkedHashMap<>();
+		metadata.put("logger", event.getLoggerName());
+		metadata.put("thread", event.getThreadName());
+		if (!event.getMDCPropertyMap().isEmpty()) {
+			metadata.put("mdc", event.getMDCPropertyMap());
+		}
+		return LogRequest.builder()
+			.level(level(event.getLevel()))
+			.message(message)
+			.service(service != null ? service : event.getLoggerName())
+			.metadata(metadata)
+			.timestamp(event.getTimeStamp())
+			.build();
+	}
+
+	private static String level(Level level) {
+		return switch (level.toInt()) {
+			case Level.ERROR_INT -> "error";
+			case Level.WARN_INT -> "warn";
+			case Level.INFO_INT -> "info";
+			default -> "debug";
+		};
+	}
+
+	/**
+	 * Ship through an existing client instead of one of the appender's own
+	 */
+	public void setClient(OpenCodeClient client) {
+		this.client = client;
+		this.ownsClient = false;
+	}
+
+	public void setBaseUrl(String baseUrl) {
+		this.baseUrl = baseUrl;
+	}
+
+	public void setApiKey(String apiKey) {
+		this.apiKey = apiKey;
+	}
+
+	/**
+	 * Service name the entries are logged under; the logger name if unset
+	 */
+	public void setService(String service) {
+		this.service = service;
+	}
+
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	public void setOverflow(String overflow) {
+		this.overflow = OverflowPolicy.valueOf(overflow.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+	}
+
+}
@@ -0,0 +1,44 @@
+package dev.sst.opencode.models;
+
+import dev.sst.opencode.exceptions.OpenCodeException;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Outcome of one item of a bulk call: its value, or the error it failed with
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class BulkResult<T> {
+
+	/**
+	 * Id the call was made for, e.g. the session id
+	 */
+	private final String id;
+
+	/**
+	 * Result of the call, null on failure or for calls without a result
+	 */
+	private final T value;
+
+	/**
+	 * Why the call failed, null on success
+	 */
+	private final OpenCodeException error;
+
+	public static <T> BulkResult<T> success(String id, T value) {
+		return new BulkResult<>(id, value, null);
+	}
+
+	public static <T> BulkResult<T> failure(String id, OpenCodeException error) {
+		return new BulkResult<>(id, null, error);
+	}
+
+	public boolean isSuccess() {
+		return error == null;
+	}
+
+}
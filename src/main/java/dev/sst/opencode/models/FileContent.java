@@ -7,6 +7,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.nio.charset.StandardCharsets;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -34,4 +36,14 @@ public class FileContent {
 	@Schema(description = "File size in bytes")
 	private Long size;
 
+	/**
+	 * Size in bytes: the reported size, else the UTF-8 length of the content
+	 */
+	public long contentLength() {
+		if (size != null) {
+			return size;
+		}
+		return content != null ? content.getBytes(StandardCharsets.UTF_8).length : 0;
+	}
+
 }
\ No newline at end of file
@@ -34,6 +34,10 @@ public class FileNode {
 	@Schema(description = "Last modified timestamp")
 	private Long modified;
 
+	@JsonProperty("ignored")
+	@Schema(description = "Whether the server's ignore rules, e.g. .gitignore, exclude the node")
+	private Boolean ignored;
+
 	@JsonProperty("isDirectory")
 	public boolean isDirectory() {
 		return "directory".equals(type);
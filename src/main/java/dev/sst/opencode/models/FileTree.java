@@ -0,0 +1,320 @@
+package dev.sst.opencode.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only index of a directory tree, answering size and listing queries without
+ * calling the server
+ *
+ * Entries are stored column-wise rather than as one object each: a name, a parent and
+ * a contiguous range of children per entry, with sizes and modification times in
+ * primitive arrays. Names repeated across directories share one string. Children are
+ * kept sorted by name, so a lookup is a binary search per path segment.
+ *
+ * Paths passed to queries are relative to the root, with / separators; the root itself
+ * may be given too. Node paths handed out are the root joined with the relative path.
+ */
+public final class FileTree {
+
+	/**
+	 * Index of the root entry
+	 */
+	public static final int ROOT = 0;
+
+	private final String root;
+
+	private final int count;
+
+	private final String[] names;
+
+	private final int[] parents;
+
+	private final int[] firstChildren;
+
+	private final int[] childCounts;
+
+	private final long[] sizes;
+
+	private final long[] modified;
+
+	private final BitSet directories;
+
+	/**
+	 * Bytes of all files at or below each entry
+	 */
+	private final long[] totalSizes;
+
+	/**
+	 * Entries below each entry, not counting itself
+	 */
+	private final int[] descendants;
+
+	private FileTree(Builder builder) {
+		this.root = builder.root;
+		this.count = builder.count;
+		this.names = Arrays.copyOf(builder.names, count);
+		this.parents = Arrays.copyOf(builder.parents, count);
+		this.firstChildren = Arrays.copyOf(builder.firstChildren, count);
+		this.childCounts = Arrays.copyOf(builder.childCounts, count);
+		this.sizes = Arrays.copyOf(builder.sizes, count);
+		this.modified = Arrays.copyOf(builder.modified, count);
+		this.directories = (BitSet) builder.directories.clone();
+		this.totalSizes = new long[count];
+		this.descendants = new int[count];
+		// Children always come after their parent, so one backwards pass sums every subtree
+		for (int i = count - 1; i >= 0; i--) {
+			if (!directories.get(i)) {
+				totalSizes[i] += sizes[i];
+			}
+			if (i != ROOT) {
+				totalSizes[parents[i]] += totalSizes[i];
+				descendants[parents[i]] += descendants[i] + 1;
+			}
+		}
+	}
+
+	public static Builder builder(String root) {
+		return new Builder(root);
+	}
+
+	public String getRoot() {
+		return root;
+	}
+
+	/**
+	 * Number of entries below the root
+	 */
+	public int size() {
+		return count - 1;
+	}
+
+	public boolean contains(String path) {
+		return find(path) >= 0;
+	}
+
+	public boolean isDirectory(String path) {
+		int node = find(path);
+		return node >= 0 && directories.get(node);
+	}
+
+	public boolean isDirectory(int index) {
+		return directories.get(index);
+	}
+
+	/**
+	 * Bytes of the file, or of all files below the directory, -1 if not in the index
+	 */
+	public long subtreeSize(String path) {
+		int node = find(path);
+		return node >= 0 ? totalSizes[node] : -1;
+	}
+
+	/**
+	 * Entries below the directory, -1 if not in the index
+	 */
+	public int subtreeCount(String path) {
+		int node = find(path);
+		return node >= 0 ? descendants[node] : -1;
+	}
+
+	/**
+	 * Last modified timestamp as reported by the server, 0 if unknown, -1 if not in the
+	 * index
+	 */
+	public long lastModified(String path) {
+		int node = find(path);
+		return node >= 0 ? modified[node] : -1;
+	}
+
+	/**
+	 * Entries of a directory sorted by name, empty for files, unexpanded directories and
+	 * paths not in the index
+	 */
+	public List<FileNode> list(String path) {
+		int node = find(path);
+		if (node < 0) {
+			return List.of();
+		}
+		List<FileNode> nodes = new ArrayList<>(childCounts[node]);
+		for (int child = firstChildren[node]; child < firstChildren[node] + childCounts[node]; child++) {
+			nodes.add(node(child));
+		}
+		return nodes;
+	}
+
+	/**
+	 * Index of the entry at a path, or -1
+	 */
+	public int find(String path) {
+		String relative = path;
+		if (relative.equals(root)) {
+			return ROOT;
+		}
+		if (!root.isEmpty() && relative.startsWith(root) && relative.charAt(root.length()) == '/') {
+			relative = relative.substring(root.length() + 1);
+		}
+		int node = ROOT;
+		int start = 0;
+		while (start <= relative.length()) {
+			int end = relative.indexOf('/', start);
+			if (end < 0) {
+				end = relative.length();
+			}
+			if (end > start && !(end - start == 1 && relative.charAt(start) == '.')) {
+				node = child(node, relative.substring(start, end));
+				if (node < 0) {
+					return -1;
+				}
+			}
+			start = end + 1;
+		}
+		return node;
+	}
+
+	/**
+	 * Entry at an index, materialized on demand
+	 */
+	public FileNode node(int index) {
+		return FileNode.builder()
+			.name(names[index])
+			.path(path(index))
+			.type(directories.get(index) ? "directory" : "file")
+			.size(directories.get(index) ? null : sizes[index])
+			.modified(modified[index] != 0 ? modified[index] : null)
+			.build();
+	}
+
+	/**
+	 * Full path of the entry at an index
+	 */
+	public String path(int index) {
+		if (index == ROOT) {
+			return root;
+		}
+		int depth = 0;
+		for (int i = index; i != ROOT; i = parents[i]) {
+			depth++;
+		}
+		String[] segments = new String[depth];
+		for (int i = index; i != ROOT; i = parents[i]) {
+			segments[--depth] = names[i];
+		}
+		String relative = String.join("/", segments);
+		return root.isEmpty() || root.equals(".") ? relative : root + "/" + relative;
+	}
+
+	private int child(int parent, String name) {
+		int low = firstChildren[parent];
+		int high = low + childCounts[parent] - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int comparison = names[middle].compareTo(name);
+			if (comparison < 0) {
+				low = middle + 1;
+			}
+			else if (comparison > 0) {
+				high = middle - 1;
+			}
+			else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public String toString() {
+		return "FileTree[" + root + ", " + size() + " entries, " + totalSizes[ROOT] + " bytes]";
+	}
+
+	/**
+	 * Collects directory listings as they arrive, from any number of threads
+	 */
+	public static final class Builder {
+
+		private final String root;
+
+		/**
+		 * Interning pool for names, dropped with the builder
+		 */
+		private final Map<String, String> segments = new HashMap<>();
+
+		private int count;
+
+		private String[] names = new String[64];
+
+		private int[] parents = new int[64];
+
+		private int[] firstChildren = new int[64];
+
+		private int[] childCounts = new int[64];
+
+		private long[] sizes = new long[64];
+
+		private long[] modified = new long[64];
+
+		private final BitSet directories = new BitSet();
+
+		private Builder(String root) {
+			this.root = root;
+			add(ROOT, root, true, 0, 0);
+		}
+
+		/**
+		 * Record the listing of a directory, sorted by name
+		 * @return index of the first child, the others follow in order
+		 */
+		public synchronized int addChildren(int parent, List<FileNode> children) {
+			if (parent < 0 || parent >= count || !directories.get(parent)) {
+				throw new IllegalArgumentException("Not a directory in this tree: " + parent);
+			}
+			if (childCounts[parent] > 0) {
+				throw new IllegalStateException("Directory already listed: " + parent);
+			}
+			int first = count;
+			String previous = null;
+			for (FileNode child : children) {
+				if (previous != null && previous.compareTo(child.getName()) >= 0) {
+					throw new IllegalArgumentException("Children must be sorted by name and unique, got "
+							+ child.getName() + " after " + previous);
+				}
+				previous = child.getName();
+				add(parent, child.getName(), child.isDirectory(), child.getSize() != null ? child.getSize() : 0,
+						child.getModified() != null ? child.getModified() : 0);
+			}
+			firstChildren[parent] = first;
+			childCounts[parent] = children.size();
+			return first;
+		}
+
+		public synchronized FileTree build() {
+			return new FileTree(this);
+		}
+
+		private void add(int parent, String name, boolean directory, long size, long lastModified) {
+			if (count == names.length) {
+				int capacity = count * 2;
+				names = Arrays.copyOf(names, capacity);
+				parents = Arrays.copyOf(parents, capacity);
+				firstChildren = Arrays.copyOf(firstChildren, capacity);
+				childCounts = Arrays.copyOf(childCounts, capacity);
+				sizes = Arrays.copyOf(sizes, capacity);
+				modified = Arrays.copyOf(modified, capacity);
+			}
+			names[count] = segments.computeIfAbsent(name, key -> key);
+			parents[count] = parent;
+			firstChildren[count] = count + 1;
+			sizes[count] = size;
+			modified[count] = lastModified;
+			directories.set(count, directory);
+			count++;
+		}
+
+	}
+
+}
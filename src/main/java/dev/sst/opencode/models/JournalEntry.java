@@ -0,0 +1,41 @@
+package dev.sst.opencode.models;
+
+import dev.sst.opencode.utils.JsonUtils;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * One server event as recorded by the event journal
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class JournalEntry {
+
+	/**
+	 * Position in the journal, increasing by one per event; pass the last one processed
+	 * back to replay as the checkpoint
+	 */
+	private final long offset;
+
+	/**
+	 * When the event was received, in epoch milliseconds
+	 */
+	private final long timestamp;
+
+	/**
+	 * Session the event belongs to, null for events outside any session
+	 */
+	private final String sessionId;
+
+	/**
+	 * The event's data exactly as the server sent it
+	 */
+	private final String payload;
+
+	public OpenCodeEvent toEvent() {
+		return JsonUtils.fromJson(payload, OpenCodeEvent.class);
+	}
+
+}
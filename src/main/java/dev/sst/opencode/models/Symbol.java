@@ -0,0 +1,79 @@
+package dev.sst.opencode.models;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Workspace symbol reported by a language server")
+public class Symbol {
+
+	@JsonProperty("name")
+	@Schema(description = "Symbol name")
+	private String name;
+
+	@JsonProperty("kind")
+	@Schema(description = "LSP symbol kind, e.g. 5 for a class, 6 for a method, 12 for a function")
+	private Integer kind;
+
+	@JsonProperty("containerName")
+	@Schema(description = "Name of the enclosing symbol")
+	private String containerName;
+
+	@JsonProperty("location")
+	@Schema(description = "Where the symbol is defined")
+	private Location location;
+
+	@Data
+	@Builder
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class Location {
+
+		@JsonProperty("uri")
+		@Schema(description = "Document URI, e.g. file:///project/src/App.java")
+		private String uri;
+
+		@JsonProperty("range")
+		@Schema(description = "Range of the definition")
+		private Range range;
+
+	}
+
+	@Data
+	@Builder
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class Range {
+
+		@JsonProperty("start")
+		private Position start;
+
+		@JsonProperty("end")
+		private Position end;
+
+	}
+
+	@Data
+	@Builder
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class Position {
+
+		@JsonProperty("line")
+		@Schema(description = "Zero-based line")
+		private Integer line;
+
+		@JsonProperty("character")
+		@Schema(description = "Zero-based character offset in the line")
+		private Integer character;
+
+	}
+
+}
@@ -0,0 +1,43 @@
+package dev.sst.opencode.models.requests;
+
+import dev.sst.opencode.models.FileContent;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.function.Predicate;
+
+/**
+ * How a batch of file reads is run and when it stops
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadFilesOptions {
+
+	/**
+	 * Emit results in the order the paths were given instead of as they arrive
+	 */
+	@Builder.Default
+	private boolean ordered = false;
+
+	/**
+	 * Reads in flight for this batch, capped by the client's bulk concurrency; null for
+	 * the cap itself
+	 */
+	private Integer concurrency;
+
+	/**
+	 * Total file bytes the batch may return; the first file that would go over it ends
+	 * the batch, null for no budget
+	 */
+	private Long maxBytes;
+
+	/**
+	 * Ends the batch after the first file it matches, null to read everything
+	 */
+	private Predicate<FileContent> until;
+
+}
@@ -0,0 +1,31 @@
+package dev.sst.opencode.server;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method as a tool for {@link ToolHost.Builder#tools(Object)}
+ *
+ * The method takes a record of arguments, optionally followed by a
+ * {@link ToolHost.Call}, and returns the tool's output: a {@link ToolHost.Result}, a
+ * string, or any other value, which is sent as JSON.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface HostedTool {
+
+	/**
+	 * Tool id, the method name if empty
+	 */
+	String id() default "";
+
+	String description();
+
+	/**
+	 * Invocations running at once; 0 for the host's default
+	 */
+	int maxConcurrency() default 0;
+
+}
@@ -0,0 +1,427 @@
+package dev.sst.opencode.server;
+
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.client.ServerPool;
+import dev.sst.opencode.exceptions.OpenCodeException;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a pool of local {@code opencode serve} processes
+ *
+ * Each instance gets its own port and is only considered live once an HTTP probe
+ * succeeds. Live instances are registered with every attached {@link ServerPool};
+ * crashed instances are deregistered and restarted with exponential backoff.
+ *
+ * Example usage: <pre>
+ * ServerProcessManager manager = ServerProcessManager.builder()
+ *     .instances(Runtime.getRuntime().availableProcessors())
+ *     .workingDirectory(new File("/path/to/project"))
+ *     .build();
+ * manager.start();
+ *
+ * OpenCodeClient client = OpenCodeClient.builder().endpoints(manager.getEndpoints()).build();
+ * manager.attach(client);
+ * </pre>
+ */
+@Slf4j
+public class ServerProcessManager implements AutoCloseable {
+
+	/**
+	 * Placeholder in the command line replaced with each instance's port
+	 */
+	public static final String PORT_PLACEHOLDER = "{port}";
+
+	private final List<String> command;
+
+	private final String hostname;
+
+	private final int instances;
+
+	private final int basePort;
+
+	private final File workingDirectory;
+
+	private final String readinessPath;
+
+	private final long startupTimeout;
+
+	private final long initialBackoff;
+
+	private final long maxBackoff;
+
+	private final boolean inheritIO;
+
+	private final OkHttpClient probeClient;
+
+	private final List<Instance> running = new CopyOnWriteArrayList<>();
+
+	private final List<ServerPool> pools = new CopyOnWriteArrayList<>();
+
+	private final ScheduledExecutorService scheduler;
+
+	private volatile boolean stopped;
+
+	private ServerProcessManager(Builder builder) {
+		this.command = List.copyOf(builder.command != null ? builder.command
+				: List.of(builder.executable, "serve", "--port", PORT_PLACEHOLDER, "--hostname", builder.hostname));
+		this.hostname = builder.hostname;
+		this.instances = builder.instances;
+		this.basePort = builder.basePort;
+		this.workingDirectory = builder.workingDirectory;
+		this.readinessPath = builder.readinessPath;
+		this.startupTimeout = builder.startupTimeout;
+		this.initialBackoff = builder.initialBackoff;
+		this.maxBackoff = builder.maxBackoff;
+		this.inheritIO = builder.inheritIO;
+		this.probeClient = new OkHttpClient.Builder().callTimeout(1, TimeUnit.SECONDS).build();
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "opencode-process-manager");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Launch all instances and wait until each one answers its readiness probe
+	 */
+	public synchronized void start() {
+		if (scheduler.isShutdown()) {
+			throw new IllegalStateException("ServerProcessManager is closed");
+		}
+		if (!running.isEmpty()) {
+			return;
+		}
+		stopped = false;
+		for (int i = 0; i < instances; i++) {
+			int port = basePort > 0 ? basePort + i : freePort();
+			Instance instance = new Instance(port);
+			running.add(instance);
+			launch(instance);
+		}
+		for (Instance instance : running) {
+			if (!awaitReady(instance)) {
+				close();
+				throw new OpenCodeException("OpenCode server on port " + instance.port + " did not become ready within "
+						+ startupTimeout + " ms");
+			}
+			markLive(instance);
+		}
+	}
+
+	/**
+	 * Register live endpoints with a client's server pool, now and after every restart
+	 */
+	public void attach(OpenCodeClient client) {
+		attach(client.getServerPool());
+	}
+
+	public void attach(ServerPool pool) {
+		pools.add(pool);
+		for (Instance instance : running) {
+			if (instance.live) {
+				pool.register(instance.baseUrl());
+			}
+		}
+	}
+
+	/**
+	 * Base URLs of the instances that are currently live
+	 */
+	public List<String> getEndpoints() {
+		List<String> endpoints = new ArrayList<>();
+		for (Instance instance : running) {
+			if (instance.live) {
+				endpoints.add(instance.baseUrl());
+			}
+		}
+		return endpoints;
+	}
+
+	/**
+	 * Stop all instances; a closed manager cannot be started again
+	 */
+	@Override
+	public synchronized void close() {
+		stopped = true;
+		for (Instance instance : running) {
+			markDead(instance);
+			if (instance.process != null) {
+				instance.process.destroy();
+			}
+		}
+		for (Instance instance : running) {
+			if (instance.process != null) {
+				try {
+					if (!instance.process.waitFor(5, TimeUnit.SECONDS)) {
+						instance.process.destroyForcibly();
+					}
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					instance.process.destroyForcibly();
+				}
+			}
+		}
+		running.clear();
+		scheduler.shutdownNow();
+		probeClient.dispatcher().executorService().shutdown();
+		probeClient.connectionPool().evictAll();
+	}
+
+	private void launch(Instance instance) {
+		List<String> args = new ArrayList<>(command.size());
+		for (String arg : command) {
+			args.add(arg.replace(PORT_PLACEHOLDER, String.valueOf(instance.port)));
+		}
+		ProcessBuilder pb = new ProcessBuilder(args);
+		if (workingDirectory != null) {
+			pb.directory(workingDirectory);
+		}
+		if (inheritIO) {
+			pb.inheritIO();
+		}
+		else {
+			pb.redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD);
+		}
+		try {
+			log.info("Starting OpenCode server on port {}: {}", instance.port, String.join(" ", args));
+			Process process = pb.start();
+			instance.process = process;
+			process.onExit().thenAccept(exited -> onExit(instance, exited));
+		}
+		catch (IOException e) {
+			throw new OpenCodeException("Failed to start OpenCode server: " + e.getMessage(), e);
+		}
+	}
+
+	private void onExit(Instance instance, Process exited) {
+		if (stopped || instance.process != exited) {
+			return;
+		}
+		markDead(instance);
+		long delay = Math.min(maxBackoff, initialBackoff << Math.min(instance.restarts.getAndIncrement(), 20));
+		log.warn("OpenCode server on port {} exited with code {}, restarting in {} ms", instance.port,
+				exited.exitValue(), delay);
+		scheduler.schedule(() -> restart(instance), delay, TimeUnit.MILLISECONDS);
+	}
+
+	private void restart(Instance instance) {
+		if (stopped) {
+			return;
+		}
+		try {
+			launch(instance);
+			if (awaitReady(instance)) {
+				instance.restarts.set(0);
+				markLive(instance);
+			}
+			else {
+				log.warn("Restarted OpenCode server on port {} did not become ready", instance.port);
+				instance.process.destroyForcibly();
+			}
+		}
+		catch (OpenCodeException e) {
+			log.error("Failed to restart OpenCode server on port {}", instance.port, e);
+			long delay = Math.min(maxBackoff, initialBackoff << Math.min(instance.restarts.getAndIncrement(), 20));
+			scheduler.schedule(() -> restart(instance), delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private boolean awaitReady(Instance instance) {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(startupTimeout);
+		long pause = 50;
+		while (System.nanoTime() < deadline && !stopped) {
+			if (!instance.process.isAlive()) {
+				return false;
+			}
+			Request request = new Request.Builder().url(instance.baseUrl() + readinessPath).get().build();
+			try (Response response = probeClient.newCall(request).execute()) {
+				if (response.isSuccessful()) {
+					return true;
+				}
+			}
+			catch (IOException e) {
+				// Not listening yet
+			}
+			try {
+				Thread.sleep(pause);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+			pause = Math.min(pause * 2, 500);
+		}
+		return false;
+	}
+
+	private void markLive(Instance instance) {
+		instance.live = true;
+		for (ServerPool pool : pools) {
+			pool.register(instance.baseUrl());
+		}
+		log.info("OpenCode server ready at {}", instance.baseUrl());
+	}
+
+	private void markDead(Instance instance) {
+		if (!instance.live) {
+			return;
+		}
+		instance.live = false;
+		for (ServerPool pool : pools) {
+			pool.deregister(instance.baseUrl());
+		}
+	}
+
+	private static int freePort() {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			socket.setReuseAddress(true);
+			return socket.getLocalPort();
+		}
+		catch (IOException e) {
+			throw new OpenCodeException("Failed to allocate a port for an OpenCode server", e);
+		}
+	}
+
+	private class Instance {
+
+		private final int port;
+
+		private volatile Process process;
+
+		private volatile boolean live;
+
+		/**
+		 * Restarts since it was last ready, counted on exit and reset by the scheduler
+		 */
+		private final AtomicInteger restarts = new AtomicInteger();
+
+		Instance(int port) {
+			this.port = port;
+		}
+
+		String baseUrl() {
+			return "http://" + hostname + ":" + port;
+		}
+
+	}
+
+	// ==================== Builder ====================
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public static class Builder {
+
+		private String executable = "opencode";
+
+		private List<String> command;
+
+		private String hostname = "127.0.0.1";
+
+		private int instances = Runtime.getRuntime().availableProcessors();
+
+		private int basePort;
+
+		private File workingDirectory;
+
+		private String readinessPath = "/config";
+
+		private long startupTimeout = 30000;
+
+		private long initialBackoff = 1000;
+
+		private long maxBackoff = 60000;
+
+		private boolean inheritIO;
+
+		/**
+		 * Path of the opencode binary
+		 */
+		public Builder executable(String executable) {
+			this.executable = executable;
+			return this;
+		}
+
+		/**
+		 * Full command line, overriding the executable; {@code {port}} is replaced with
+		 * each instance's port
+		 */
+		public Builder command(List<String> command) {
+			this.command = command;
+			return this;
+		}
+
+		public Builder hostname(String hostname) {
+			this.hostname = hostname;
+			return this;
+		}
+
+		public Builder instances(int instances) {
+			this.instances = instances;
+			return this;
+		}
+
+		/**
+		 * First port; instances use consecutive ports. 0 picks free ports.
+		 */
+		public Builder basePort(int basePort) {
+			this.basePort = basePort;
+			return this;
+		}
+
+		public Builder workingDirectory(File workingDirectory) {
+			this.workingDirectory = workingDirectory;
+			return this;
+		}
+
+		public Builder readinessPath(String readinessPath) {
+			this.readinessPath = readinessPath;
+			return this;
+		}
+
+		public Builder startupTimeout(long startupTimeout) {
+			this.startupTimeout = startupTimeout;
+			return this;
+		}
+
+		public Builder initialBackoff(long initialBackoff) {
+			this.initialBackoff = initialBackoff;
+			return this;
+		}
+
+		public Builder maxBackoff(long maxBackoff) {
+			this.maxBackoff = maxBackoff;
+			return this;
+		}
+
+		public Builder inheritIO(boolean inheritIO) {
+			this.inheritIO = inheritIO;
+			return this;
+		}
+
+		public ServerProcessManager build() {
+			if (instances < 1) {
+				throw new IllegalArgumentException("instances must be at least 1");
+			}
+			return new ServerProcessManager(this);
+		}
+
+	}
+
+}
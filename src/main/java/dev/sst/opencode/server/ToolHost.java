@@ -0,0 +1,495 @@
+package dev.sst.opencode.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.exceptions.OpenCodeException;
+import dev.sst.opencode.models.requests.ToolRegisterRequest;
+import dev.sst.opencode.utils.JsonUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Serves Java functions as OpenCode HTTP callback tools
+ *
+ * The host runs an embedded HTTP server handling each invocation on its own virtual
+ * thread, so a slow tool never holds up another. Every tool's parameters are derived
+ * from a record, see {@link ToolSchema}, and the tools are registered with the server
+ * on start and unregistered on close. Each tool runs at most its concurrency limit of
+ * invocations at once; more wait for up to the queue timeout and are then refused with
+ * 429. Callback URLs carry a random path prefix, so only the server the tools were
+ * registered with can find them.
+ *
+ * Example usage: <pre>
+ * record Lookup(@ToolParam("Ticket key, e.g. OPS-12") String key) {}
+ *
+ * ToolHost host = ToolHost.builder(client)
+ *     .tool("ticket", "Look up a ticket", Lookup.class, (args, call) -&gt; tickets.find(args.key()))
+ *     .tools(new DeployTools())
+ *     .build();
+ * host.start();
+ * </pre>
+ */
+@Slf4j
+public class ToolHost implements AutoCloseable {
+
+	private static final Pattern TOOL_ID = Pattern.compile("[A-Za-z0-9_-]+");
+
+	private final OpenCodeClient client;
+
+	private final String bindAddress;
+
+	private final int port;
+
+	private final String advertisedHost;
+
+	private final long queueTimeout;
+
+	private final Map<String, HostedFunction> tools;
+
+	/**
+	 * Unguessable first path segment of every callback URL
+	 */
+	private final String prefix;
+
+	private final ObjectMapper mapper = JsonUtils.getMapper();
+
+	private HttpServer server;
+
+	private ExecutorService executor;
+
+	private final List<String> registered = new ArrayList<>();
+
+	private ToolHost(Builder builder) {
+		this.client = builder.client;
+		this.bindAddress = builder.bindAddress;
+		this.port = builder.port;
+		this.advertisedHost = builder.advertisedHost != null ? builder.advertisedHost : builder.bindAddress;
+		this.queueTimeout = builder.queueTimeout;
+		this.tools = Map.copyOf(builder.tools);
+		byte[] random = new byte[16];
+		new SecureRandom().nextBytes(random);
+		this.prefix = HexFormat.of().formatHex(random);
+	}
+
+	/**
+	 * Start serving and register the tools with the client's server
+	 */
+	public synchronized void start() {
+		if (server != null) {
+			return;
+		}
+		try {
+			server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+		}
+		catch (IOException e) {
+			throw new OpenCodeException("Could not start tool host on " + bindAddress + ":" + port, e);
+		}
+		executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("opencode-tool-", 0).factory());
+		server.setExecutor(executor);
+		server.createContext("/" + prefix + "/", this::handle);
+		server.start();
+		log.debug("Tool host listening on {} for {}", getBaseUrl(), tools.keySet());
+		if (client != null) {
+			try {
+				for (HostedFunction tool : tools.values()) {
+					client.getTools()
+						.registerTool(ToolRegisterRequest.builder()
+							.id(tool.id)
+							.name(tool.id)
+							.description(tool.description)
+							.callbackUrl(callbackUrl(tool.id))
+							.parameters(tool.parameters)
+							.build());
+					registered.add(tool.id);
+				}
+			}
+			catch (RuntimeException e) {
+				close();
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Unregister the tools and stop serving; invocations in flight are cut off
+	 */
+	@Override
+	public synchronized void close() {
+		for (String id : registered) {
+			try {
+				client.getTools().unregisterTool(id);
+			}
+			catch (OpenCodeException e) {
+				log.debug("Could not unregister tool {}: {}", id, e.getMessage());
+			}
+		}
+		registered.clear();
+		if (server != null) {
+			server.stop(0);
+			executor.shutdownNow();
+			server = null;
+		}
+	}
+
+	/**
+	 * URL prefix the tools are served under
+	 */
+	public String getBaseUrl() {
+		return "http://" + advertisedHost + ":" + server.getAddress().getPort() + "/" + prefix + "/";
+	}
+
+	public String callbackUrl(String toolId) {
+		return getBaseUrl() + toolId;
+	}
+
+	public Set<String> getToolIds() {
+		return tools.keySet();
+	}
+
+	/**
+	 * Invocation counts and latency of a tool, or null if it is not hosted here
+	 */
+	public Stats getStats(String toolId) {
+		HostedFunction tool = tools.get(toolId);
+		return tool != null ? tool.stats() : null;
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			String id = exchange.getRequestURI().getPath().substring(prefix.length() + 2);
+			HostedFunction tool = tools.get(id);
+			if (tool == null) {
+				respond(exchange, 404, Map.of("error", "Unknown tool " + id));
+				return;
+			}
+			if (!"POST".equals(exchange.getRequestMethod())) {
+				respond(exchange, 405, Map.of("error", "Tools are invoked with POST"));
+				return;
+			}
+			JsonNode body;
+			try (InputStream in = exchange.getRequestBody()) {
+				body = mapper.readTree(in);
+			}
+			catch (IOException e) {
+				respond(exchange, 400, Map.of("error", "Malformed request: " + e.getMessage()));
+				return;
+			}
+			invoke(exchange, tool, body);
+		}
+	}
+
+	private void invoke(HttpExchange exchange, HostedFunction tool, JsonNode body) throws IOException {
+		// The arguments come wrapped with the calling session, or on their own
+		JsonNode args = body != null && body.has("args") ? body.get("args") : body;
+		Call call = new Call(text(body, "sessionID"), text(body, "messageID"), text(body, "callID"),
+				text(body, "agent"));
+		Record arguments;
+		try {
+			arguments = mapper.treeToValue(args, tool.argumentType);
+		}
+		catch (IOException | IllegalArgumentException e) {
+			respond(exchange, 400, Map.of("error", "Invalid arguments for " + tool.id + ": " + e.getMessage()));
+			return;
+		}
+		boolean acquired;
+		try {
+			acquired = tool.permits.tryAcquire(queueTimeout, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		if (!acquired) {
+			tool.rejected.increment();
+			respond(exchange, 429, Map.of("error", "Tool " + tool.id + " is at its concurrency limit"));
+			return;
+		}
+		tool.inFlight.incrementAndGet();
+		long start = System.nanoTime();
+		Result result;
+		try {
+			result = toResult(tool.id, tool.function.invoke(arguments, call));
+		}
+		catch (Exception e) {
+			tool.record(System.nanoTime() - start, false);
+			log.debug("Tool {} failed", tool.id, e);
+			respond(exchange, 500, Map.of("error", tool.id + " failed: " + e));
+			return;
+		}
+		finally {
+			tool.inFlight.decrementAndGet();
+			tool.permits.release();
+		}
+		tool.record(System.nanoTime() - start, true);
+		respond(exchange, 200, result);
+	}
+
+	private static String text(JsonNode body, String field) {
+		return body != null && body.hasNonNull(field) ? body.get(field).asText() : null;
+	}
+
+	private static Result toResult(String id, Object value) {
+		if (value instanceof Result result) {
+			return result;
+		}
+		String output = value == null ? "" : value instanceof String text ? text : JsonUtils.toJson(value);
+		return new Result(id, output, Map.of());
+	}
+
+	private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+		byte[] bytes = mapper.writeValueAsBytes(body);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	public static Builder builder(OpenCodeClient client) {
+		return new Builder(client);
+	}
+
+	/**
+	 * Body of a tool
+	 */
+	@FunctionalInterface
+	public interface ToolFunction<A extends Record> {
+
+		/**
+		 * @return the tool's output: a {@link Result}, text, or a value sent as JSON
+		 */
+		Object invoke(A args, Call call) throws Exception;
+
+	}
+
+	/**
+	 * Context of an invocation as sent by the server; any field may be null
+	 */
+	public record Call(String sessionId, String messageId, String callId, String agent) {
+	}
+
+	/**
+	 * Tool output shown to the model, with a title and metadata for the UI
+	 */
+	public record Result(String title, String output, Map<String, Object> metadata) {
+	}
+
+	/**
+	 * Snapshot of a tool's invocations; latencies cover successful and failed runs
+	 */
+	public record Stats(long invocations, long failures, long rejected, int inFlight, double meanMillis,
+			double maxMillis) {
+	}
+
+	private static final class HostedFunction {
+
+		private final String id;
+
+		private final String description;
+
+		private final Class<? extends Record> argumentType;
+
+		private final Map<String, Object> parameters;
+
+		private final ToolFunction<Record> function;
+
+		private final Semaphore permits;
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		private final LongAdder invocations = new LongAdder();
+
+		private final LongAdder failures = new LongAdder();
+
+		private final LongAdder rejected = new LongAdder();
+
+		private final LongAdder totalNanos = new LongAdder();
+
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		@SuppressWarnings("unchecked")
+		HostedFunction(String id, String description, Class<? extends Record> argumentType, int maxConcurrency,
+				ToolFunction<? extends Record> function) {
+			if (!TOOL_ID.matcher(id).matches()) {
+				throw new IllegalArgumentException("Tool ids may only hold letters, digits, '_' and '-', got " + id);
+			}
+			if (maxConcurrency < 1) {
+				throw new IllegalArgumentException("Tool concurrency must be positive, got " + maxConcurrency);
+			}
+			this.id = id;
+			this.description = description;
+			this.argumentType = argumentType;
+			this.parameters = ToolSchema.of(argumentType);
+			this.function = (ToolFunction<Record>) function;
+			this.permits = new Semaphore(maxConcurrency, true);
+		}
+
+		void record(long nanos, boolean success) {
+			invocations.increment();
+			if (!success) {
+				failures.increment();
+			}
+			totalNanos.add(nanos);
+			maxNanos.accumulateAndGet(nanos, Math::max);
+		}
+
+		Stats stats() {
+			long count = invocations.sum();
+			return new Stats(count, failures.sum(), rejected.sum(), inFlight.get(),
+					count > 0 ? totalNanos.sum() / 1e6 / count : 0, maxNanos.get() / 1e6);
+		}
+
+	}
+
+	public static class Builder {
+
+		private final OpenCodeClient client;
+
+		private String bindAddress = "127.0.0.1";
+
+		private int port;
+
+		private String advertisedHost;
+
+		private int maxConcurrency = 16;
+
+		private long queueTimeout = 30000;
+
+		private final Map<String, HostedFunction> tools = new LinkedHashMap<>();
+
+		private final List<Runnable> pending = new ArrayList<>();
+
+		private Builder(OpenCodeClient client) {
+			this.client = client;
+		}
+
+		/**
+		 * Address to listen on, loopback by default
+		 */
+		public Builder bindAddress(String bindAddress) {
+			this.bindAddress = bindAddress;
+			return this;
+		}
+
+		/**
+		 * Port to listen on; 0 picks a free one
+		 */
+		public Builder port(int port) {
+			this.port = port;
+			return this;
+		}
+
+		/**
+		 * Host name the server reaches this host under, the bind address if unset
+		 */
+		public Builder advertisedHost(String advertisedHost) {
+			this.advertisedHost = advertisedHost;
+			return this;
+		}
+
+		/**
+		 * Default limit on invocations of one tool running at once
+		 */
+		public Builder maxConcurrency(int maxConcurrency) {
+			this.maxConcurrency = maxConcurrency;
+			return this;
+		}
+
+		/**
+		 * How long in milliseconds an invocation waits for its tool's limit
+		 */
+		public Builder queueTimeout(long queueTimeout) {
+			this.queueTimeout = queueTimeout;
+			return this;
+		}
+
+		public <A extends Record> Builder tool(String id, String description, Class<A> argumentType,
+				ToolFunction<A> function) {
+			// Resolved at build time, after the default concurrency is known
+			pending.add(() -> add(new HostedFunction(id, description, argumentType, maxConcurrency, function)));
+			return this;
+		}
+
+		public <A extends Record> Builder tool(String id, String description, Class<A> argumentType,
+				int maxConcurrency, ToolFunction<A> function) {
+			pending.add(() -> add(new HostedFunction(id, description, argumentType, maxConcurrency, function)));
+			return this;
+		}
+
+		/**
+		 * Host every {@link HostedTool} method of an object
+		 */
+		public Builder tools(Object target) {
+			for (Method method : target.getClass().getMethods()) {
+				HostedTool annotation = method.getAnnotation(HostedTool.class);
+				if (annotation == null) {
+					continue;
+				}
+				Class<? extends Record> argumentType = argumentType(method);
+				String id = annotation.id().isEmpty() ? method.getName() : annotation.id();
+				method.trySetAccessible();
+				boolean withCall = method.getParameterCount() == 2;
+				ToolFunction<Record> function = (args, call) -> {
+					try {
+						return withCall ? method.invoke(target, args, call) : method.invoke(target, args);
+					}
+					catch (InvocationTargetException e) {
+						throw e.getCause() instanceof Exception cause ? cause : e;
+					}
+				};
+				pending.add(() -> add(new HostedFunction(id, annotation.description(), argumentType,
+						annotation.maxConcurrency() > 0 ? annotation.maxConcurrency() : maxConcurrency, function)));
+			}
+			return this;
+		}
+
+		@SuppressWarnings("unchecked")
+		private static Class<? extends Record> argumentType(Method method) {
+			Class<?>[] types = method.getParameterTypes();
+			if (types.length == 0 || types.length > 2 || !types[0].isRecord()
+					|| (types.length == 2 && types[1] != Call.class)) {
+				throw new IllegalArgumentException("Tool method " + method.getName()
+						+ " must take an argument record, optionally followed by a ToolHost.Call");
+			}
+			return (Class<? extends Record>) types[0];
+		}
+
+		private void add(HostedFunction tool) {
+			if (tools.putIfAbsent(tool.id, tool) != null) {
+				throw new IllegalArgumentException("Duplicate tool id " + tool.id);
+			}
+		}
+
+		public ToolHost build() {
+			tools.clear();
+			pending.forEach(Runnable::run);
+			return new ToolHost(this);
+		}
+
+	}
+
+}
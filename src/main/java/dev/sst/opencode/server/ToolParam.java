@@ -0,0 +1,25 @@
+package dev.sst.opencode.server;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Describes a component of a tool's argument record in the derived JSON schema
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.RECORD_COMPONENT)
+public @interface ToolParam {
+
+	/**
+	 * Description the model reads to fill in the parameter
+	 */
+	String value() default "";
+
+	/**
+	 * Whether the model must pass the parameter; optional ones arrive as null
+	 */
+	boolean required() default true;
+
+}
@@ -0,0 +1,128 @@
+package dev.sst.opencode.server;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JSON schema of a tool's arguments, derived from a record
+ *
+ * Each component becomes a property, typed after its Java type: numbers, booleans,
+ * strings, enums as string choices, collections and arrays as arrays, maps as objects
+ * and nested records as nested schemas. Components are required unless marked
+ * {@code @ToolParam(required = false)}, which also carries their descriptions.
+ */
+public final class ToolSchema {
+
+	private ToolSchema() {
+	}
+
+	public static Map<String, Object> of(Class<? extends Record> type) {
+		return object(type, new HashSet<>());
+	}
+
+	private static Map<String, Object> object(Class<?> type, Set<Class<?>> visiting) {
+		if (!visiting.add(type)) {
+			throw new IllegalArgumentException("Recursive tool argument type " + type.getName());
+		}
+		Map<String, Object> properties = new LinkedHashMap<>();
+		List<String> required = new ArrayList<>();
+		for (RecordComponent component : type.getRecordComponents()) {
+			Map<String, Object> property = schema(component.getGenericType(), visiting);
+			ToolParam param = component.getAnnotation(ToolParam.class);
+			if (param != null && !param.value().isEmpty()) {
+				property.put("description", param.value());
+			}
+			if (param == null || param.required()) {
+				required.add(component.getName());
+			}
+			properties.put(component.getName(), property);
+		}
+		visiting.remove(type);
+		Map<String, Object> schema = new LinkedHashMap<>();
+		schema.put("type", "object");
+		schema.put("properties", properties);
+		if (!required.isEmpty()) {
+			schema.put("required", required);
+		}
+		schema.put("additionalProperties", false);
+		return schema;
+	}
+
+	private static Map<String, Object> schema(Type type, Set<Class<?>> visiting) {
+		Map<String, Object> schema = new LinkedHashMap<>();
+		if (type instanceof ParameterizedType parameterized) {
+			Class<?> raw = (Class<?>) parameterized.getRawType();
+			Type[] arguments = parameterized.getActualTypeArguments();
+			if (Collection.class.isAssignableFrom(raw)) {
+				schema.put("type", "array");
+				schema.put("items", schema(arguments[0], visiting));
+				return schema;
+			}
+			if (Map.class.isAssignableFrom(raw)) {
+				schema.put("type", "object");
+				schema.put("additionalProperties", schema(arguments[1], visiting));
+				return schema;
+			}
+			return schema(raw, visiting);
+		}
+		if (type instanceof GenericArrayType array) {
+			schema.put("type", "array");
+			schema.put("items", schema(array.getGenericComponentType(), visiting));
+			return schema;
+		}
+		if (!(type instanceof Class<?> cls)) {
+			// Type variables and wildcards say nothing about the value
+			return schema;
+		}
+		if (cls == String.class || cls == char.class || cls == Character.class) {
+			schema.put("type", "string");
+		}
+		else if (cls == boolean.class || cls == Boolean.class) {
+			schema.put("type", "boolean");
+		}
+		else if (cls == int.class || cls == long.class || cls == short.class || cls == byte.class
+				|| cls == Integer.class || cls == Long.class || cls == Short.class || cls == Byte.class
+				|| cls == BigInteger.class) {
+			schema.put("type", "integer");
+		}
+		else if (cls == double.class || cls == float.class || cls == Double.class || cls == Float.class
+				|| cls == BigDecimal.class) {
+			schema.put("type", "number");
+		}
+		else if (cls.isEnum()) {
+			schema.put("type", "string");
+			schema.put("enum", Arrays.stream(cls.getEnumConstants()).map(value -> ((Enum<?>) value).name()).toList());
+		}
+		else if (cls.isArray()) {
+			schema.put("type", "array");
+			schema.put("items", schema(cls.getComponentType(), visiting));
+		}
+		else if (Collection.class.isAssignableFrom(cls)) {
+			schema.put("type", "array");
+		}
+		else if (Map.class.isAssignableFrom(cls)) {
+			schema.put("type", "object");
+		}
+		else if (cls.isRecord()) {
+			return object(cls, visiting);
+		}
+		else {
+			throw new IllegalArgumentException("Unsupported tool argument type " + cls.getName()
+					+ "; use primitives, strings, enums, collections, maps or records");
+		}
+		return schema;
+	}
+
+}
@@ -1,10 +1,20 @@
 package dev.sst.opencode.services;
 
+import dev.sst.opencode.models.BulkResult;
 import dev.sst.opencode.models.FileContent;
 import dev.sst.opencode.models.FileNode;
+import dev.sst.opencode.models.FileTree;
 import dev.sst.opencode.models.SearchMatch;
+import dev.sst.opencode.models.Symbol;
+import dev.sst.opencode.models.requests.ReadFilesOptions;
+import reactor.core.publisher.Flux;
 
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * Service interface for file operations
@@ -16,11 +26,49 @@ public interface FileService {
 	 */
 	FileContent readFile(String path);
 
+	/**
+	 * Stream a file's content to an output stream without holding it in memory,
+	 * base64-decoding it if the server sends it encoded
+	 * @return the file's other fields, with size set to the bytes written
+	 */
+	FileContent readFileTo(String path, OutputStream out);
+
+	/**
+	 * Stream a file's content to a channel without holding it in memory
+	 */
+	FileContent readFileTo(String path, WritableByteChannel channel);
+
+	/**
+	 * Stream a file's content to a local file, replacing it
+	 */
+	FileContent readFileTo(String path, Path target);
+
+	/**
+	 * Read many files, a bounded number at a time, emitting each as it arrives
+	 */
+	Flux<BulkResult<FileContent>> readFiles(Collection<String> paths);
+
+	/**
+	 * Read many files in order or as they arrive, stopping at a byte budget or a
+	 * condition; reads still pending when the batch ends are cancelled
+	 */
+	Flux<BulkResult<FileContent>> readFiles(Collection<String> paths,
+			ReadFilesOptions options);
+
 	/**
 	 * List files in a directory
 	 */
 	List<FileNode> listFiles(String path);
 
+	/**
+	 * List a directory tree into a compact local index, expanding directories
+	 * concurrently within the client's bulk concurrency
+	 * @param maxDepth levels to expand, 1 lists the root only
+	 * @param filter entries to keep, excluded directories are not expanded; null keeps
+	 * everything
+	 */
+	FileTree walkTree(String root, int maxDepth, Predicate<FileNode> filter);
+
 	/**
 	 * Get file status (git-like)
 	 */
@@ -31,14 +79,25 @@ public interface FileService {
 	 */
 	List<SearchMatch> searchText(String pattern);
 
+	/**
+	 * Search for text in files, emitting matches as they are parsed from the response;
+	 * the connection is closed once limit matches were read or the subscriber cancels,
+	 * so the rest of the results is never downloaded
+	 */
+	Flux<SearchMatch> searchTextStream(String pattern, int limit);
+
 	/**
 	 * Find files by name
+	 *
+	 * With the client's path index enabled and ready, results come from the index: like
+	 * the server's own search they leave out hidden and ignored files, but they are
+	 * ranked by the index, so the order may differ from the server's
 	 */
 	List<String> findFiles(String query);
 
 	/**
 	 * Find workspace symbols
 	 */
-	List<Object> findSymbols(String query);
+	List<Symbol> findSymbols(String query);
 
 }
\ No newline at end of file
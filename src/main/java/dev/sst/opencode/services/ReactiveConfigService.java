@@ -0,0 +1,32 @@
+package dev.sst.opencode.services;
+
+import dev.sst.opencode.models.ConfigInfo;
+import dev.sst.opencode.models.ProvidersResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking service interface for configuration operations
+ */
+public interface ReactiveConfigService {
+
+	/**
+	 * Get configuration info
+	 */
+	Mono<ConfigInfo> getConfig();
+
+	/**
+	 * List available providers
+	 */
+	Mono<ProvidersResponse> listProviders();
+
+	/**
+	 * Get current working directory path
+	 */
+	Mono<String> getWorkingDirectory();
+
+	/**
+	 * Set authentication credentials
+	 */
+	Mono<Void> setAuthentication(String providerId, String credentials);
+
+}
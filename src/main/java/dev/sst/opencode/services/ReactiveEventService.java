@@ -0,0 +1,21 @@
+package dev.sst.opencode.services;
+
+import dev.sst.opencode.models.OpenCodeEvent;
+import reactor.core.publisher.Flux;
+
+/**
+ * Non-blocking service interface for the server event stream
+ */
+public interface ReactiveEventService {
+
+	/**
+	 * Subscribe to server events; cancelling the subscription closes the stream
+	 */
+	Flux<OpenCodeEvent> subscribeToEvents();
+
+	/**
+	 * Subscribe to events whose type contains the given filter
+	 */
+	Flux<OpenCodeEvent> subscribeToEvents(String eventTypeFilter);
+
+}
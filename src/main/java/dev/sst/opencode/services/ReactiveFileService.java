@@ -0,0 +1,45 @@
+package dev.sst.opencode.services;
+
+import dev.sst.opencode.models.FileContent;
+import dev.sst.opencode.models.FileNode;
+import dev.sst.opencode.models.SearchMatch;
+import dev.sst.opencode.models.Symbol;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking service interface for file operations
+ */
+public interface ReactiveFileService {
+
+	/**
+	 * Read a file
+	 */
+	Mono<FileContent> readFile(String path);
+
+	/**
+	 * List files in a directory
+	 */
+	Flux<FileNode> listFiles(String path);
+
+	/**
+	 * Get file status (git-like)
+	 */
+	Flux<FileNode> getFileStatus();
+
+	/**
+	 * Search for text in files
+	 */
+	Flux<SearchMatch> searchText(String pattern);
+
+	/**
+	 * Find files by name
+	 */
+	Flux<String> findFiles(String query);
+
+	/**
+	 * Find workspace symbols
+	 */
+	Flux<Symbol> findSymbols(String query);
+
+}
@@ -0,0 +1,108 @@
+package dev.sst.opencode.services;
+
+import dev.sst.opencode.models.*;
+import dev.sst.opencode.models.requests.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking service interface for session operations
+ */
+public interface ReactiveSessionService {
+
+	/**
+	 * Create a new session
+	 */
+	Mono<Session> createSession(SessionCreateRequest request);
+
+	/**
+	 * List all sessions
+	 */
+	Flux<Session> listSessions();
+
+	/**
+	 * Get a specific session
+	 */
+	Mono<Session> getSession(String sessionId);
+
+	/**
+	 * Update a session
+	 */
+	Mono<Session> updateSession(String sessionId, String title);
+
+	/**
+	 * Delete a session
+	 */
+	Mono<Void> deleteSession(String sessionId);
+
+	/**
+	 * Send a prompt to a session
+	 */
+	Mono<Message> sendPrompt(String sessionId, PromptRequest request);
+
+	/**
+	 * Get all messages for a session, decoded one by one as they arrive
+	 */
+	Flux<Message> getMessages(String sessionId);
+
+	/**
+	 * Get a specific message
+	 */
+	Mono<Message> getMessage(String sessionId, String messageId);
+
+	/**
+	 * Execute a command in a session
+	 */
+	Mono<Message> executeCommand(String sessionId, String command, String arguments);
+
+	/**
+	 * Share a session
+	 */
+	Mono<Session> shareSession(String sessionId);
+
+	/**
+	 * Unshare a session
+	 */
+	Mono<Session> unshareSession(String sessionId);
+
+	/**
+	 * Initialize a session (create AGENTS.md)
+	 */
+	Mono<Void> initializeSession(String sessionId, String providerId, String modelId);
+
+	/**
+	 * Abort a running session
+	 */
+	Mono<Void> abortSession(String sessionId);
+
+	/**
+	 * Revert to a previous message
+	 */
+	Mono<Session> revertMessage(String sessionId, String messageId, String partId);
+
+	/**
+	 * Restore reverted messages
+	 */
+	Mono<Session> unrevertMessages(String sessionId);
+
+	/**
+	 * Get session's children
+	 */
+	Flux<Session> getSessionChildren(String sessionId);
+
+	/**
+	 * Generate session summary
+	 */
+	Mono<SessionSummary> summarizeSession(String sessionId, String providerId, String modelId);
+
+	/**
+	 * Execute shell command in session
+	 */
+	Mono<Message> executeShellCommand(String sessionId, ShellRequest request);
+
+	/**
+	 * Respond to permission request
+	 */
+	Mono<Void> respondToPermission(String sessionId, String permissionId, PermissionResponse response);
+
+}
@@ -2,7 +2,10 @@ package dev.sst.opencode.services;
 
 import dev.sst.opencode.models.*;
 import dev.sst.opencode.models.requests.*;
+import reactor.core.publisher.Flux;
 
+import java.io.OutputStream;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
@@ -26,6 +29,12 @@ public interface SessionService {
 	 */
 	Session getSession(String sessionId);
 
+	/**
+	 * Get many sessions, a bounded number at a time; results and per-session errors are
+	 * emitted as each call completes
+	 */
+	Flux<BulkResult<Session>> getSessions(Collection<String> sessionIds);
+
 	/**
 	 * Update a session
 	 */
@@ -36,6 +45,11 @@ public interface SessionService {
 	 */
 	void deleteSession(String sessionId);
 
+	/**
+	 * Delete many sessions, a bounded number at a time, emitting the outcome of each
+	 */
+	Flux<BulkResult<Void>> deleteSessions(Collection<String> sessionIds);
+
 	/**
 	 * Send a prompt to a session
 	 */
@@ -51,6 +65,19 @@ public interface SessionService {
 	 */
 	List<Message> getMessages(String sessionId);
 
+	/**
+	 * Write the messages of a session to a stream as newline-delimited JSON, one
+	 * message per line, copied from the response without building the message list
+	 * @return number of messages written
+	 */
+	long writeMessagesTo(String sessionId, OutputStream out);
+
+	/**
+	 * Get the messages of many sessions, a bounded number at a time, emitting each
+	 * session's messages as they arrive
+	 */
+	Flux<BulkResult<List<Message>>> getMessagesBulk(Collection<String> sessionIds);
+
 	/**
 	 * Get a specific message
 	 */
@@ -1,8 +1,10 @@
 package dev.sst.opencode.spring;
 
 import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.client.ReactiveOpenCodeClient;
 import dev.sst.opencode.config.OpenCodeConfig;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -11,6 +13,7 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
 
 /**
  * Spring Boot Auto Configuration for OpenCode SDK
@@ -48,10 +51,46 @@ public class OpenCodeAutoConfiguration {
 	public OpenCodeConfig openCodeConfig() {
 		return OpenCodeConfig.builder()
 			.baseUrl(properties.getBaseUrl())
+			.endpoints(properties.getEndpoints())
 			.apiKey(properties.getApiKey())
 			.workingDirectory(properties.getWorkingDirectory())
 			.timeout(properties.getTimeout())
+			.connectTimeout(properties.getTimeouts().getConnect())
+			.metadataTimeout(properties.getTimeouts().getMetadata())
+			.fileTimeout(properties.getTimeouts().getFile())
+			.promptTimeout(properties.getTimeouts().getPrompt())
 			.maxRetries(properties.getMaxRetries())
+			.http2PriorKnowledge(properties.isHttp2PriorKnowledge())
+			.transport(properties.getTransport())
+			.messageDedup(properties.getMessageDedup())
+			.adaptiveConcurrency(properties.getConcurrency().isAdaptive())
+			.initialConcurrencyLimit(properties.getConcurrency().getInitialLimit())
+			.maxConcurrencyLimit(properties.getConcurrency().getMaxLimit())
+			.concurrencyQueueTimeout(properties.getConcurrency().getQueueTimeout())
+			.bulkConcurrency(properties.getConcurrency().getBulk())
+			.maxConcurrentCalls(properties.getConcurrency().getCalls())
+			.interactiveReservedCalls(properties.getConcurrency().getInteractiveReserved())
+			.fileCacheMaxBytes(properties.getFileCache().getMaxBytes())
+			.pathIndex(properties.getPathIndex().isEnabled())
+			.symbolCacheEntries(properties.getSymbolCache().getEntries())
+			.symbolCacheRefinement(properties.getSymbolCache().isRefine())
+			.eventJournalDirectory(properties.getEventJournal().getDirectory())
+			.eventJournalSegmentBytes(properties.getEventJournal().getSegmentBytes())
+			.eventJournalMaxBytes(properties.getEventJournal().getMaxBytes())
+			.eventJournalMaxAge(properties.getEventJournal().getMaxAge())
+			.promptSpoolDirectory(properties.getPromptSpool().getDirectory())
+			.promptSpoolFsync(properties.getPromptSpool().getFsync())
+			.promptSpoolFsyncInterval(properties.getPromptSpool().getFsyncInterval())
+			.promptSpoolConcurrency(properties.getPromptSpool().getConcurrency())
+			.asyncLogs(properties.getLogs().isAsync())
+			.logBufferSize(properties.getLogs().getBufferSize())
+			.logBatchSize(properties.getLogs().getBatchSize())
+			.logFlushInterval(properties.getLogs().getFlushInterval())
+			.logOverflow(properties.getLogs().getOverflow())
+			.hedging(properties.getHedging().isEnabled())
+			.hedgePercentile(properties.getHedging().getPercentile())
+			.hedgeBudget(properties.getHedging().getBudget())
+			.hedgeMinDelay(properties.getHedging().getMinDelay())
 			.build();
 	}
 
@@ -84,6 +123,24 @@ public class OpenCodeAutoConfiguration {
 		return new RestTemplate();
 	}
 
+	/**
+	 * Non-blocking client for WebFlux applications, sharing the blocking client's
+	 * servers and session affinity
+	 */
+	@Configuration
+	@ConditionalOnClass(name = "org.springframework.web.reactive.function.client.WebClient")
+	public static class ReactiveOpenCodeConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public ReactiveOpenCodeClient reactiveOpenCodeClient(OpenCodeClient client,
+				ObjectProvider<WebClient.Builder> webClientBuilder) {
+			log.info("Creating ReactiveOpenCodeClient bean");
+			return new ReactiveOpenCodeClient(client, webClientBuilder.getIfAvailable(WebClient::builder));
+		}
+
+	}
+
 	/**
 	 * Health indicator for OpenCode connection
 	 */
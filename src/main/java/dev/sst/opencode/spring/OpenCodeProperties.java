@@ -1,11 +1,16 @@
 package dev.sst.opencode.spring;
 
+import dev.sst.opencode.config.FsyncPolicy;
+import dev.sst.opencode.config.MessageDedup;
+import dev.sst.opencode.config.OverflowPolicy;
+import dev.sst.opencode.config.TransportType;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
+import java.util.List;
 
 /**
  * Spring Boot configuration properties for OpenCode
@@ -17,10 +22,40 @@ import jakarta.validation.constraints.Positive;
  *   api-key: your-api-key-here
  *   working-directory: /home/user/project
  *   timeout: 30000
+ *   timeouts:
+ *     metadata: 1000
+ *     prompt: 600000
  *   max-retries: 3
+ *   transport: jdk
+ *   message-dedup: per-session
  *   event-stream:
  *     enabled: true
  *     reconnect-delay: 5000
+ *   file-cache:
+ *     max-bytes: 67108864
+ *   path-index:
+ *     enabled: true
+ *   symbol-cache:
+ *     entries: 256
+ *   event-journal:
+ *     directory: /var/lib/myapp/opencode-events
+ *     max-bytes: 1073741824
+ *     max-age: 604800000
+ *   prompt-spool:
+ *     directory: /var/lib/myapp/opencode-prompts
+ *     fsync: always
+ *     concurrency: 8
+ *   logs:
+ *     async: true
+ *     batch-size: 256
+ *     flush-interval: 1000
+ *     overflow: drop-oldest
+ *   concurrency:
+ *     adaptive: true
+ *     initial-limit: 8
+ *     bulk: 16
+ *     calls: 32
+ *     interactive-reserved: 4
  * </pre>
  */
 @Data
@@ -39,6 +74,11 @@ public class OpenCodeProperties {
 	@NotBlank
 	private String baseUrl = "http://localhost:8080";
 
+	/**
+	 * Base URLs of several OpenCode servers to balance sessions across (optional)
+	 */
+	private List<String> endpoints;
+
 	/**
 	 * API key for authentication (optional)
 	 */
@@ -55,17 +95,77 @@ public class OpenCodeProperties {
 	@Positive
 	private int timeout = 30000;
 
+	/**
+	 * Per-operation timeouts; unset values fall back to timeout
+	 */
+	private TimeoutProperties timeouts = new TimeoutProperties();
+
 	/**
 	 * Maximum number of retries for failed requests
 	 */
 	@Positive
 	private int maxRetries = 3;
 
+	/**
+	 * Use HTTP/2 cleartext with prior knowledge to multiplex calls over few connections
+	 */
+	private boolean http2PriorKnowledge = false;
+
+	/**
+	 * HTTP stack to run on: okhttp or jdk
+	 */
+	private TransportType transport = TransportType.OKHTTP;
+
+	/**
+	 * Share repeated strings between decoded messages: off, per-decode or per-session
+	 */
+	private MessageDedup messageDedup = MessageDedup.OFF;
+
 	/**
 	 * Event stream configuration
 	 */
 	private EventStreamProperties eventStream = new EventStreamProperties();
 
+	/**
+	 * Adaptive prompt and bulk call concurrency configuration
+	 */
+	private ConcurrencyProperties concurrency = new ConcurrencyProperties();
+
+	/**
+	 * Hedging of idempotent reads
+	 */
+	private HedgingProperties hedging = new HedgingProperties();
+
+	/**
+	 * Client-side cache of file reads
+	 */
+	private FileCacheProperties fileCache = new FileCacheProperties();
+
+	/**
+	 * Client-side index of workspace paths for file searches
+	 */
+	private PathIndexProperties pathIndex = new PathIndexProperties();
+
+	/**
+	 * Client-side cache of symbol searches
+	 */
+	private SymbolCacheProperties symbolCache = new SymbolCacheProperties();
+
+	/**
+	 * Durable journal of server events
+	 */
+	private EventJournalProperties eventJournal = new EventJournalProperties();
+
+	/**
+	 * Disk-backed queue of prompts
+	 */
+	private PromptSpoolProperties promptSpool = new PromptSpoolProperties();
+
+	/**
+	 * Shipping of log service entries
+	 */
+	private LogsProperties logs = new LogsProperties();
+
 	@Data
 	public static class EventStreamProperties {
 
@@ -88,4 +188,221 @@ public class OpenCodeProperties {
 
 	}
 
-}
\ No newline at end of file
+	@Data
+	public static class TimeoutProperties {
+
+		/**
+		 * Connect timeout in milliseconds
+		 */
+		private Integer connect;
+
+		/**
+		 * Total call timeout in milliseconds for metadata lookups
+		 */
+		private Integer metadata;
+
+		/**
+		 * Total call timeout in milliseconds for file reads and searches
+		 */
+		private Integer file;
+
+		/**
+		 * Total call timeout in milliseconds for prompts and commands
+		 */
+		private Integer prompt;
+
+	}
+
+	@Data
+	public static class HedgingProperties {
+
+		/**
+		 * Send a second attempt for slow idempotent reads
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Latency percentile of recent reads after which a read is hedged
+		 */
+		private double percentile = 0.95;
+
+		/**
+		 * Hedges allowed as a fraction of all reads
+		 */
+		private double budget = 0.1;
+
+		/**
+		 * Minimum delay in milliseconds before hedging
+		 */
+		private long minDelay = 10;
+
+	}
+
+	@Data
+	public static class FileCacheProperties {
+
+		/**
+		 * Content bytes to cache, invalidated by file events; 0 disables the cache
+		 */
+		private long maxBytes = 0;
+
+	}
+
+	@Data
+	public static class PathIndexProperties {
+
+		/**
+		 * Answer file searches locally, falling back to the server while the index builds
+		 */
+		private boolean enabled = false;
+
+	}
+
+	@Data
+	public static class SymbolCacheProperties {
+
+		/**
+		 * Searches to cache, invalidated by file events; 0 disables the cache
+		 */
+		private int entries = 0;
+
+		/**
+		 * Filter cached searches for longer queries instead of asking the server; only
+		 * correct if its language servers match names case-insensitively by subsequence
+		 */
+		private boolean refine = false;
+
+	}
+
+	@Data
+	public static class EventJournalProperties {
+
+		/**
+		 * Directory to record events in for replay after a restart; unset disables the
+		 * journal
+		 */
+		private String directory;
+
+		/**
+		 * Size of each memory-mapped segment file
+		 */
+		@Positive
+		private long segmentBytes = 64L * 1024 * 1024;
+
+		/**
+		 * Bytes of events to keep; 0 means no limit
+		 */
+		private long maxBytes = 1024L * 1024 * 1024;
+
+		/**
+		 * Milliseconds to keep events; 0 means no limit
+		 */
+		private long maxAge = 7L * 24 * 60 * 60 * 1000;
+
+	}
+
+	@Data
+	public static class PromptSpoolProperties {
+
+		/**
+		 * Directory of the spool's log; unset disables the spool
+		 */
+		private String directory;
+
+		/**
+		 * When submissions are forced to disk: always, interval or never
+		 */
+		private FsyncPolicy fsync = FsyncPolicy.INTERVAL;
+
+		/**
+		 * Milliseconds between syncs with the interval policy
+		 */
+		@Positive
+		private long fsyncInterval = 1000;
+
+		/**
+		 * Spooled prompts sent at a time
+		 */
+		@Positive
+		private int concurrency = 4;
+
+	}
+
+	@Data
+	public static class LogsProperties {
+
+		/**
+		 * Ship entries from a buffer in the background instead of on the caller's thread
+		 */
+		private boolean async = false;
+
+		/**
+		 * Entries buffered for shipping
+		 */
+		@Positive
+		private int bufferSize = 8192;
+
+		/**
+		 * Entries shipped per batch
+		 */
+		@Positive
+		private int batchSize = 256;
+
+		/**
+		 * Milliseconds an entry waits for its batch to fill
+		 */
+		private long flushInterval = 1000;
+
+		/**
+		 * What a log call does when the buffer is full: drop-newest, drop-oldest or block
+		 */
+		private OverflowPolicy overflow = OverflowPolicy.DROP_NEWEST;
+
+	}
+
+	@Data
+	public static class ConcurrencyProperties {
+
+		/**
+		 * Limit in-flight prompts adaptively from observed latency
+		 */
+		private boolean adaptive = false;
+
+		/**
+		 * Starting limit when the server does not report maxConcurrentSessions
+		 */
+		@Positive
+		private int initialLimit = 8;
+
+		/**
+		 * Upper bound for the adaptive limit
+		 */
+		@Positive
+		private int maxLimit = 64;
+
+		/**
+		 * Maximum time in milliseconds a prompt waits for a free slot
+		 */
+		@Positive
+		private long queueTimeout = 60000;
+
+		/**
+		 * Calls in flight across all bulk operations
+		 */
+		@Positive
+		private int bulk = 8;
+
+		/**
+		 * Calls in flight at once, shared between priority classes; 0 disables
+		 * scheduling
+		 */
+		private int calls = 0;
+
+		/**
+		 * Of those calls, how many are held back for interactive calls
+		 */
+		private int interactiveReserved = 2;
+
+	}
+
+}
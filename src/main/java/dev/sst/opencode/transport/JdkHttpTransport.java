@@ -0,0 +1,270 @@
+package dev.sst.opencode.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link OpenCodeTransport} on the JDK's {@link HttpClient}
+ *
+ * Exchanges run asynchronously on the client's selector thread and a virtual-thread
+ * executor, so a caller blocked in {@link TransportCall#execute()} only parks its own
+ * (virtual) thread. Regular bodies are collected by {@code ofByteArray} before the
+ * call returns; event streams and other incremental bodies are handed over as an
+ * {@code InputStream}, closed when the rest of the call's budget runs out. The JDK
+ * client has no prior-knowledge h2c: with {@code http2} it upgrades cleartext
+ * connections to HTTP/2 instead.
+ */
+public class JdkHttpTransport implements OpenCodeTransport {
+
+	private final ExecutorService executor = Executors
+		.newThreadPerTaskExecutor(Thread.ofVirtual().name("opencode-http-", 0).factory());
+
+	private final HttpClient httpClient;
+
+	public JdkHttpTransport(long connectTimeoutMillis, boolean http2) {
+		this.httpClient = HttpClient.newBuilder()
+			.connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+			.version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+			.executor(executor)
+			.build();
+	}
+
+	@Override
+	public TransportCall newCall(TransportRequest request) {
+		HttpRequest.Builder builder = HttpRequest.newBuilder(request.getUri())
+			.method(request.getMethod(), request.getBody() != null
+					? HttpRequest.BodyPublishers.ofByteArray(request.getBody()) : HttpRequest.BodyPublishers.noBody());
+		request.getHeaders().forEach(builder::header);
+		if (request.getTimeoutMillis() > 0) {
+			builder.timeout(Duration.ofMillis(request.getTimeoutMillis()));
+		}
+		return new JdkCall(builder.build(), request);
+	}
+
+	@Override
+	public void close() {
+		httpClient.shutdownNow();
+		executor.shutdownNow();
+	}
+
+	private class JdkCall implements TransportCall {
+
+		private final HttpRequest httpRequest;
+
+		private final TransportRequest request;
+
+		/**
+		 * The exchange as returned by sendAsync, which cancelling aborts
+		 */
+		private volatile CompletableFuture<? extends HttpResponse<?>> exchange;
+
+		/**
+		 * Body handed to the caller of an incremental call
+		 */
+		private volatile InputStream body;
+
+		private volatile boolean canceled;
+
+		JdkCall(HttpRequest httpRequest, TransportRequest request) {
+			this.httpRequest = httpRequest;
+			this.request = request;
+		}
+
+		@Override
+		public TransportResponse execute() throws IOException {
+			if (canceled) {
+				throw new IOException("Canceled");
+			}
+			long start = System.nanoTime();
+			if (!request.isStreaming() && !request.isIncrementalBody()) {
+				HttpResponse<byte[]> response = await(
+						httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray()));
+				return new TransportResponse(response.statusCode(), new ByteArrayInputStream(response.body()), null);
+			}
+			HttpResponse<InputStream> response = await(
+					httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofInputStream()));
+			InputStream stream = response.body();
+			if (request.getTimeoutMillis() > 0) {
+				// The headers took part of the budget, the rest is the body's
+				long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+				stream = BudgetedBody.of(stream, request.getTimeoutMillis() - elapsed);
+			}
+			body = stream;
+			if (canceled) {
+				closeQuietly(stream);
+				throw new IOException("Canceled");
+			}
+			return new TransportResponse(response.statusCode(), stream, null);
+		}
+
+		/**
+		 * Wait for the response headers, and for a buffered body its content, within the
+		 * call's budget
+		 */
+		private <T> HttpResponse<T> await(CompletableFuture<HttpResponse<T>> sent) throws IOException {
+			exchange = sent;
+			if (canceled) {
+				abandon(sent);
+			}
+			try {
+				return request.getTimeoutMillis() > 0 ? sent.get(request.getTimeoutMillis(), TimeUnit.MILLISECONDS)
+						: sent.get();
+			}
+			catch (TimeoutException e) {
+				abandon(sent);
+				throw new InterruptedIOException("timeout");
+			}
+			catch (InterruptedException e) {
+				abandon(sent);
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for response");
+			}
+			catch (CancellationException e) {
+				throw new IOException("Canceled", e);
+			}
+			catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof HttpTimeoutException) {
+					InterruptedIOException timeout = new InterruptedIOException("timeout");
+					timeout.initCause(cause);
+					throw timeout;
+				}
+				if (cause instanceof IOException io) {
+					throw io;
+				}
+				throw new IOException(cause);
+			}
+		}
+
+		@Override
+		public void cancel() {
+			canceled = true;
+			CompletableFuture<? extends HttpResponse<?>> current = exchange;
+			if (current != null) {
+				abandon(current);
+			}
+			InputStream stream = body;
+			if (stream != null) {
+				// Already streaming: closing the body aborts the exchange
+				closeQuietly(stream);
+			}
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return canceled;
+		}
+
+	}
+
+	/**
+	 * Abort an exchange nobody waits for anymore
+	 */
+	private static void abandon(CompletableFuture<? extends HttpResponse<?>> exchange) {
+		exchange.cancel(true);
+		// Headers that raced the cancel bring a body nobody will read or close
+		exchange.thenAccept(response -> {
+			if (response.body() instanceof InputStream stream) {
+				closeQuietly(stream);
+			}
+		});
+	}
+
+	private static void closeQuietly(InputStream stream) {
+		try {
+			stream.close();
+		}
+		catch (IOException e) {
+			// Already closed or failed
+		}
+	}
+
+	/**
+	 * Incremental body that is closed once the rest of the call's budget runs out, so a
+	 * stalled read fails with a timeout like on OkHttp rather than blocking
+	 */
+	private static final class BudgetedBody extends FilterInputStream {
+
+		private volatile CompletableFuture<Void> expiry;
+
+		private volatile boolean expired;
+
+		private BudgetedBody(InputStream in) {
+			super(in);
+		}
+
+		static BudgetedBody of(InputStream in, long remainingMillis) {
+			BudgetedBody body = new BudgetedBody(in);
+			body.expiry = CompletableFuture.runAsync(body::expire,
+					CompletableFuture.delayedExecutor(Math.max(0, remainingMillis), TimeUnit.MILLISECONDS));
+			return body;
+		}
+
+		@Override
+		public int read() throws IOException {
+			try {
+				return checked(super.read());
+			}
+			catch (IOException e) {
+				throw timedOut(e);
+			}
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			try {
+				return checked(super.read(b, off, len));
+			}
+			catch (IOException e) {
+				throw timedOut(e);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			expiry.cancel(false);
+			super.close();
+		}
+
+		private void expire() {
+			expired = true;
+			closeQuietly(in);
+		}
+
+		/**
+		 * A body closed by the budget must not look like one that ended
+		 */
+		private int checked(int read) throws IOException {
+			if (read < 0 && expired) {
+				throw new InterruptedIOException("timeout");
+			}
+			return read;
+		}
+
+		private IOException timedOut(IOException e) {
+			if (!expired || e instanceof InterruptedIOException) {
+				return e;
+			}
+			InterruptedIOException timeout = new InterruptedIOException("timeout");
+			timeout.initCause(e);
+			return timeout;
+		}
+
+	}
+
+}
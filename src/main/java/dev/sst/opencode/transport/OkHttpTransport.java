@@ -0,0 +1,104 @@
+package dev.sst.opencode.transport;
+
+import okhttp3.Call;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OpenCodeTransport} on OkHttp
+ */
+public class OkHttpTransport implements OpenCodeTransport {
+
+	private static final MediaType JSON = MediaType.get("application/json");
+
+	private static final Set<String> BODY_METHODS = Set.of("POST", "PUT", "PATCH");
+
+	private final OkHttpClient httpClient;
+
+	/**
+	 * @param httpClient shared client; its connection pool and dispatcher are released on
+	 * {@link #close()}
+	 */
+	public OkHttpTransport(OkHttpClient httpClient) {
+		this.httpClient = httpClient.newBuilder().addInterceptor(chain -> {
+			// Read timeouts follow the call: none for streams, the call budget otherwise
+			TransportRequest request = chain.request().tag(TransportRequest.class);
+			if (request == null) {
+				return chain.proceed(chain.request());
+			}
+			if (request.isStreaming()) {
+				return chain.withReadTimeout(0, TimeUnit.MILLISECONDS).proceed(chain.request());
+			}
+			if (request.getTimeoutMillis() > 0) {
+				return chain.withReadTimeout((int) request.getTimeoutMillis(), TimeUnit.MILLISECONDS)
+					.withWriteTimeout((int) request.getTimeoutMillis(), TimeUnit.MILLISECONDS)
+					.proceed(chain.request());
+			}
+			return chain.proceed(chain.request());
+		}).build();
+	}
+
+	@Override
+	public TransportCall newCall(TransportRequest request) {
+		RequestBody body = null;
+		if (request.getBody() != null) {
+			body = RequestBody.create(request.getBody(), JSON);
+		}
+		else if (BODY_METHODS.contains(request.getMethod())) {
+			body = RequestBody.create(new byte[0], JSON);
+		}
+		Request okRequest = new Request.Builder().url(request.getUrl())
+			.headers(Headers.of(request.getHeaders()))
+			.method(request.getMethod(), body)
+			.tag(TransportRequest.class, request)
+			.build();
+		Call call = httpClient.newCall(okRequest);
+		if (request.getTimeoutMillis() > 0) {
+			call.timeout().timeout(request.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+		}
+		return new OkHttpCall(call);
+	}
+
+	@Override
+	public void close() {
+		httpClient.dispatcher().executorService().shutdown();
+		httpClient.connectionPool().evictAll();
+	}
+
+	private static class OkHttpCall implements TransportCall {
+
+		private final Call call;
+
+		OkHttpCall(Call call) {
+			this.call = call;
+		}
+
+		@Override
+		public TransportResponse execute() throws IOException {
+			Response response = call.execute();
+			InputStream body = response.body() != null ? response.body().byteStream() : InputStream.nullInputStream();
+			return new TransportResponse(response.code(), body, response::close);
+		}
+
+		@Override
+		public void cancel() {
+			call.cancel();
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return call.isCanceled();
+		}
+
+	}
+
+}
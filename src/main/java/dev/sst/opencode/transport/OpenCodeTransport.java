@@ -0,0 +1,25 @@
+package dev.sst.opencode.transport;
+
+/**
+ * HTTP layer under every OpenCode service call
+ *
+ * The client prepares each call (URL, headers, directory, timeout budget) and hands a
+ * {@link TransportRequest} to the transport, which only moves bytes. Implementations
+ * must be thread-safe, and must report timeouts as
+ * {@link java.io.InterruptedIOException} and other failures as
+ * {@link java.io.IOException}.
+ */
+public interface OpenCodeTransport extends AutoCloseable {
+
+	/**
+	 * Prepare a call; nothing is sent until it is executed
+	 */
+	TransportCall newCall(TransportRequest request);
+
+	/**
+	 * Release connections and threads
+	 */
+	@Override
+	void close();
+
+}
@@ -0,0 +1,23 @@
+package dev.sst.opencode.transport;
+
+import java.io.IOException;
+
+/**
+ * One prepared HTTP exchange
+ */
+public interface TransportCall {
+
+	/**
+	 * Send the request and wait for the response headers; the caller must close the
+	 * response
+	 */
+	TransportResponse execute() throws IOException;
+
+	/**
+	 * Abort the exchange, from any thread, failing a pending execute or body read
+	 */
+	void cancel();
+
+	boolean isCanceled();
+
+}
@@ -0,0 +1,54 @@
+package dev.sst.opencode.transport;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * HTTP request as handed to an {@link OpenCodeTransport}
+ */
+@Getter
+@Builder
+public class TransportRequest {
+
+	private final String method;
+
+	/**
+	 * Absolute, already encoded URL
+	 */
+	private final String url;
+
+	/**
+	 * Request headers, used as given rather than copied
+	 */
+	@Builder.Default
+	private final Map<String, String> headers = Map.of();
+
+	/**
+	 * Request body, null for none
+	 */
+	private final byte[] body;
+
+	/**
+	 * Whole-call budget in milliseconds, 0 for none
+	 */
+	private final long timeoutMillis;
+
+	/**
+	 * Long-lived response body (an event stream) that must not hit read timeouts
+	 */
+	private final boolean streaming;
+
+	/**
+	 * Response body is read incrementally instead of buffered, e.g. a large file copied
+	 * to disk; event streams always are
+	 */
+	private final boolean incrementalBody;
+
+	public URI getUri() {
+		return URI.create(url);
+	}
+
+}
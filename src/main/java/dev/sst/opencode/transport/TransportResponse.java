@@ -0,0 +1,61 @@
+package dev.sst.opencode.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HTTP response from an {@link OpenCodeTransport}; closing it releases the connection
+ */
+public class TransportResponse implements AutoCloseable {
+
+	private final int code;
+
+	private final InputStream body;
+
+	private final Runnable onClose;
+
+	public TransportResponse(int code, InputStream body, Runnable onClose) {
+		this.code = code;
+		this.body = body;
+		this.onClose = onClose;
+	}
+
+	public int code() {
+		return code;
+	}
+
+	public boolean isSuccessful() {
+		return code >= 200 && code < 300;
+	}
+
+	/**
+	 * Response body as a stream, read incrementally for event streams
+	 */
+	public InputStream body() {
+		return body;
+	}
+
+	/**
+	 * Whole response body as UTF-8 text
+	 */
+	public String string() throws IOException {
+		return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void close() {
+		try {
+			body.close();
+		}
+		catch (IOException e) {
+			// Nothing left to release on a broken stream
+		}
+		finally {
+			if (onClose != null) {
+				onClose.run();
+			}
+		}
+	}
+
+}
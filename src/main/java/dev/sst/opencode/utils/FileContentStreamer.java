@@ -0,0 +1,331 @@
+package dev.sst.opencode.utils;
+
+import dev.sst.opencode.models.FileContent;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+
+/**
+ * Copies the content of a file read response to a sink without holding the file in
+ * memory
+ *
+ * The JSON response is scanned as a stream and the content string is unescaped straight
+ * into the sink, through a base64 decoder when the encoding field says so. Jackson
+ * cannot do this: it always materializes a string value in full. If the encoding only
+ * follows the content, the raw content is spooled to a temporary file and decoded from
+ * there.
+ */
+public final class FileContentStreamer {
+
+	private FileContentStreamer() {
+	}
+
+	/**
+	 * Copy the content field of a FileContent JSON document to a sink
+	 * @return the other fields, with size set to the number of bytes written
+	 */
+	public static FileContent copy(InputStream json, OutputStream sink) throws IOException {
+		Scanner in = new Scanner(json);
+		FileContent file = new FileContent();
+		Path spool = null;
+		long written = 0;
+		try {
+			in.expect('{');
+			if (in.peek() != '}') {
+				do {
+					String name = in.readString();
+					in.expect(':');
+					switch (name) {
+						case "content" -> {
+							if (in.peek() != '"') {
+								in.skipValue();
+							}
+							else if (file.getEncoding() != null) {
+								InputStream content = in.stringStream();
+								written = transfer(decode(content, file.getEncoding()), sink);
+								// The decoder stops at padding, before the closing quote
+								content.transferTo(OutputStream.nullOutputStream());
+							}
+							else {
+								spool = Files.createTempFile("opencode-content-", ".tmp");
+								try (OutputStream out = Files.newOutputStream(spool)) {
+									in.stringStream().transferTo(out);
+								}
+							}
+						}
+						case "path" -> file.setPath(in.readStringOrNull());
+						case "mime" -> file.setMime(in.readStringOrNull());
+						case "encoding" -> file.setEncoding(in.readStringOrNull());
+						default -> in.skipValue();
+					}
+				}
+				while (in.consumeIf(','));
+			}
+			in.expect('}');
+			if (spool != null) {
+				try (InputStream raw = Files.newInputStream(spool)) {
+					written = transfer(decode(raw, file.getEncoding()), sink);
+				}
+			}
+		}
+		finally {
+			if (spool != null) {
+				Files.deleteIfExists(spool);
+			}
+		}
+		file.setSize(written);
+		return file;
+	}
+
+	private static InputStream decode(InputStream content, String encoding) {
+		return "base64".equalsIgnoreCase(encoding) ? Base64.getMimeDecoder().wrap(content) : content;
+	}
+
+	private static long transfer(InputStream in, OutputStream sink) throws IOException {
+		long count = in.transferTo(sink);
+		sink.flush();
+		return count;
+	}
+
+	/**
+	 * Just enough of a pull JSON reader for a flat object, over its own buffer
+	 */
+	private static final class Scanner {
+
+		private final InputStream in;
+
+		private final byte[] buffer = new byte[8192];
+
+		private int position;
+
+		private int limit;
+
+		Scanner(InputStream in) {
+			this.in = in;
+		}
+
+		private int read() throws IOException {
+			if (position == limit) {
+				limit = in.read(buffer, 0, buffer.length);
+				position = 0;
+				if (limit <= 0) {
+					limit = 0;
+					return -1;
+				}
+			}
+			return buffer[position++] & 0xff;
+		}
+
+		private int readOrFail() throws IOException {
+			int c = read();
+			if (c < 0) {
+				throw new EOFException("Unexpected end of file content response");
+			}
+			return c;
+		}
+
+		/**
+		 * Next non-whitespace character without consuming it
+		 */
+		int peek() throws IOException {
+			while (true) {
+				int c = read();
+				if (c < 0) {
+					return c;
+				}
+				if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+					position--;
+					return c;
+				}
+			}
+		}
+
+		void expect(char expected) throws IOException {
+			int c = peek();
+			if (c != expected) {
+				throw new IOException("Malformed file content response: expected '" + expected + "' but got "
+						+ (c < 0 ? "end of input" : "'" + (char) c + "'"));
+			}
+			position++;
+		}
+
+		boolean consumeIf(char expected) throws IOException {
+			if (peek() == expected) {
+				position++;
+				return true;
+			}
+			return false;
+		}
+
+		String readString() throws IOException {
+			expect('"');
+			return new String(new StringStream(this).readAllBytes(), StandardCharsets.UTF_8);
+		}
+
+		String readStringOrNull() throws IOException {
+			if (peek() == '"') {
+				return readString();
+			}
+			skipValue();
+			return null;
+		}
+
+		/**
+		 * Unescaped UTF-8 bytes of the string value that starts here
+		 */
+		InputStream stringStream() throws IOException {
+			expect('"');
+			return new StringStream(this);
+		}
+
+		void skipValue() throws IOException {
+			int c = peek();
+			if (c == '"') {
+				stringStream().transferTo(OutputStream.nullOutputStream());
+				return;
+			}
+			if (c == '{' || c == '[') {
+				int depth = 0;
+				do {
+					c = readOrFail();
+					if (c == '"') {
+						position--;
+						stringStream().transferTo(OutputStream.nullOutputStream());
+					}
+					else if (c == '{' || c == '[') {
+						depth++;
+					}
+					else if (c == '}' || c == ']') {
+						depth--;
+					}
+				}
+				while (depth > 0);
+				return;
+			}
+			// Number, true, false or null
+			while ((c = read()) >= 0) {
+				if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+					position--;
+					return;
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Reads a JSON string up to its closing quote, resolving escapes to UTF-8
+	 */
+	private static final class StringStream extends InputStream {
+
+		private final Scanner scanner;
+
+		/**
+		 * Bytes of an escaped code point not handed out yet
+		 */
+		private final byte[] pending = new byte[4];
+
+		private int pendingPosition;
+
+		private int pendingLimit;
+
+		private boolean done;
+
+		StringStream(Scanner scanner) {
+			this.scanner = scanner;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (pendingPosition < pendingLimit) {
+				return pending[pendingPosition++] & 0xff;
+			}
+			if (done) {
+				return -1;
+			}
+			int c = scanner.readOrFail();
+			if (c == '"') {
+				done = true;
+				return -1;
+			}
+			if (c != '\\') {
+				return c;
+			}
+			c = scanner.readOrFail();
+			return switch (c) {
+				case 'b' -> '\b';
+				case 'f' -> '\f';
+				case 'n' -> '\n';
+				case 'r' -> '\r';
+				case 't' -> '\t';
+				case 'u' -> unicode();
+				default -> c;
+			};
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			if (length == 0) {
+				return 0;
+			}
+			int count = 0;
+			Scanner s = scanner;
+			while (count < length) {
+				// Copy plain runs straight out of the scanner's buffer
+				if (pendingPosition == pendingLimit && !done && s.position < s.limit) {
+					byte b = s.buffer[s.position];
+					if (b != '"' && b != '\\') {
+						bytes[offset + count++] = b;
+						s.position++;
+						continue;
+					}
+				}
+				int c = read();
+				if (c < 0) {
+					break;
+				}
+				bytes[offset + count++] = (byte) c;
+				if (s.position == s.limit && pendingPosition == pendingLimit) {
+					// Hand back what we have rather than block for more
+					break;
+				}
+			}
+			return count == 0 ? -1 : count;
+		}
+
+		private int unicode() throws IOException {
+			int codePoint = hex();
+			if (Character.isHighSurrogate((char) codePoint)) {
+				if (scanner.readOrFail() != '\\' || scanner.readOrFail() != 'u') {
+					throw new IOException("Malformed file content response: unpaired surrogate");
+				}
+				codePoint = Character.toCodePoint((char) codePoint, (char) hex());
+			}
+			byte[] utf8 = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8);
+			System.arraycopy(utf8, 0, pending, 0, utf8.length);
+			pendingPosition = 1;
+			pendingLimit = utf8.length;
+			return pending[0] & 0xff;
+		}
+
+		private int hex() throws IOException {
+			int value = 0;
+			for (int i = 0; i < 4; i++) {
+				int digit = Character.digit(scanner.readOrFail(), 16);
+				if (digit < 0) {
+					throw new IOException("Malformed file content response: bad \\u escape");
+				}
+				value = value * 16 + digit;
+			}
+			return value;
+		}
+
+	}
+
+}
@@ -1,12 +1,21 @@
 package dev.sst.opencode.utils;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * JSON serialization/deserialization utilities
@@ -15,6 +24,12 @@ public class JsonUtils {
 
 	private static final ObjectMapper MAPPER = createMapper();
 
+	/**
+	 * Mapper whose string values go through the {@link StringPool} passed with a read
+	 */
+	private static final ObjectMapper POOLING_MAPPER = createMapper()
+		.registerModule(new SimpleModule("string-pool").addDeserializer(String.class, new PooledStringDeserializer()));
+
 	private static ObjectMapper createMapper() {
 		ObjectMapper mapper = new ObjectMapper();
 		mapper.registerModule(new JavaTimeModule());
@@ -32,6 +47,18 @@ public class JsonUtils {
 		}
 	}
 
+	/**
+	 * Serialize straight to UTF-8 bytes, skipping the intermediate String
+	 */
+	public static byte[] toJsonBytes(Object obj) {
+		try {
+			return MAPPER.writeValueAsBytes(obj);
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Failed to serialize object to JSON", e);
+		}
+	}
+
 	public static <T> T fromJson(String json, Class<T> clazz) {
 		try {
 			return MAPPER.readValue(json, clazz);
@@ -50,8 +77,61 @@ public class JsonUtils {
 		}
 	}
 
+	/**
+	 * Deserialize with every short string value taken from a pool, so decoded objects
+	 * share repeated ids and names
+	 */
+	public static <T> T fromJson(String json, TypeReference<T> typeRef, StringPool pool) {
+		try {
+			return POOLING_MAPPER.readerFor(typeRef).withAttribute(StringPool.class, pool).readValue(json);
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Failed to deserialize JSON", e);
+		}
+	}
+
 	public static ObjectMapper getMapper() {
 		return MAPPER;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Copy the elements of a JSON array as newline-delimited JSON, token by token, so
+	 * neither the array nor an element is held in memory as a whole
+	 * @return number of elements copied
+	 */
+	public static long copyArrayAsLines(InputStream json, OutputStream out) throws IOException {
+		JsonFactory factory = MAPPER.getFactory();
+		try (JsonParser parser = factory.createParser(json);
+				JsonGenerator generator = factory.createGenerator(out)
+					.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+					.setRootValueSeparator(null)) {
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new IOException("Expected a JSON array but got " + parser.currentToken());
+			}
+			long count = 0;
+			while (parser.nextToken() != JsonToken.END_ARRAY) {
+				if (parser.currentToken() == null) {
+					throw new IOException("Unexpected end of JSON array after " + count + " elements");
+				}
+				generator.copyCurrentStructure(parser);
+				generator.writeRaw('\n');
+				count++;
+			}
+			return count;
+		}
+	}
+
+	private static final class PooledStringDeserializer extends StringDeserializer {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+			String value = super.deserialize(p, ctxt);
+			StringPool pool = (StringPool) ctxt.getAttribute(StringPool.class);
+			return pool != null ? pool.intern(value) : value;
+		}
+
+	}
+
+}
@@ -0,0 +1,65 @@
+package dev.sst.opencode.utils;
+
+/**
+ * Bounded pool collapsing equal strings into one instance
+ *
+ * Decoded messages repeat the same short strings over and over: every part carries its
+ * session and message id, and tool names, statuses and mime types come from a small
+ * set. Passed to {@link JsonUtils#fromJson(String, com.fasterxml.jackson.core.type.TypeReference, StringPool)},
+ * the pool makes all of them share one copy.
+ *
+ * The pool is a direct-mapped table: a string whose slot holds an equal one is replaced
+ * by it, otherwise it takes the slot. Memory stays fixed however many strings pass
+ * through, at the price of the occasional missed duplicate on a collision. Long strings
+ * are passed through, as they are rarely repeated and costly to compare. Unlike
+ * {@link String#intern()}, the pool is garbage once its scope, e.g. a session, is done.
+ * Safe for concurrent use: strings are immutable, so a racing lookup at worst misses.
+ */
+public final class StringPool {
+
+	/**
+	 * Longest string that is pooled
+	 */
+	public static final int MAX_LENGTH = 96;
+
+	private final String[] table;
+
+	private final int mask;
+
+	/**
+	 * @param capacity slots, rounded up to a power of two
+	 */
+	public StringPool(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Pool capacity must be positive, got " + capacity);
+		}
+		int size = Integer.highestOneBit(Math.min(capacity, 1 << 30));
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.table = new String[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * The pooled string equal to the given one, which is pooled if there is none
+	 */
+	public String intern(String value) {
+		if (value == null || value.length() > MAX_LENGTH) {
+			return value;
+		}
+		int hash = value.hashCode();
+		int slot = (hash ^ (hash >>> 16)) & mask;
+		String pooled = table[slot];
+		if (pooled != null && pooled.equals(value)) {
+			return pooled;
+		}
+		table[slot] = value;
+		return value;
+	}
+
+	public int capacity() {
+		return table.length;
+	}
+
+}
@@ -0,0 +1,192 @@
+package dev.sst.opencode;
+
+import dev.sst.opencode.client.AdaptiveConcurrencyLimiter;
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.exceptions.OpenCodeException;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+	@Test
+	public void testWaitIsBounded() throws Exception {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 50);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			executor.submit(() -> limiter.execute(() -> {
+				started.countDown();
+				try {
+					release.await();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return null;
+			}));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+
+			assertThrows(OpenCodeException.LimitExceeded.class, () -> limiter.execute(() -> "second"));
+			assertEquals(1, limiter.getInFlight());
+		}
+		finally {
+			release.countDown();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testLimitShrinksOnServerErrors() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(16, 1, 64, 1000);
+
+		assertThrows(OpenCodeException.ServerError.class, () -> limiter.execute(() -> {
+			throw new OpenCodeException.ServerError("overloaded");
+		}));
+		assertEquals(8, limiter.getLimit());
+
+		// Client errors say nothing about server load
+		assertThrows(OpenCodeException.NotFound.class, () -> limiter.execute(() -> {
+			throw new OpenCodeException.NotFound("missing");
+		}));
+		assertEquals(8, limiter.getLimit());
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	public void testExpiredDeadlineDoesNotShrinkLimit() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(16, 1, 64, 1000);
+
+		// One impatient caller must not cut concurrency for everyone else
+		for (int i = 0; i < 3; i++) {
+			assertThrows(OpenCodeException.DeadlineExceeded.class, () -> limiter.execute(() -> {
+				throw new OpenCodeException.DeadlineExceeded("deadline");
+			}));
+		}
+		assertEquals(16, limiter.getLimit());
+		assertEquals(0, limiter.getInFlight());
+
+		assertThrows(OpenCodeException.Timeout.class, () -> limiter.execute(() -> {
+			throw new OpenCodeException.Timeout("read timed out", null);
+		}));
+		assertEquals(8, limiter.getLimit());
+	}
+
+	@Test
+	public void testLimitGrowsWhileLatencyIsStable() throws Exception {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 8, 5000);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			// Four callers keep the limit in use, each call taking the same time
+			List<Future<?>> callers = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				callers.add(executor.submit(() -> {
+					for (int call = 0; call < 25; call++) {
+						limiter.execute(() -> sleep(20));
+					}
+				}));
+			}
+			for (Future<?> caller : callers) {
+				caller.get(30, TimeUnit.SECONDS);
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertTrue(limiter.getLimit() >= 4, "limit " + limiter.getLimit());
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	public void testLimitShrinksWhenLatencyRises() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(16, 1, 64, 5000);
+		for (int i = 0; i < 20; i++) {
+			limiter.execute(() -> sleep(20));
+		}
+		// Barely used, but not slow either: no reason to move
+		assertEquals(16, limiter.getLimit());
+
+		// The server starts queueing work
+		for (int i = 0; i < 5; i++) {
+			limiter.execute(() -> sleep(200));
+		}
+		assertTrue(limiter.getLimit() < 14, "limit " + limiter.getLimit());
+	}
+
+	@Test
+	public void testLimitStartsFromServerMaxConcurrentSessions() throws Exception {
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger peak = new AtomicInteger();
+		MockWebServer server = new MockWebServer();
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				if (request.getPath().startsWith("/config")) {
+					return new MockResponse().setBody("{\"limits\":{\"maxConcurrentSessions\":2}}");
+				}
+				peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+				sleep(200);
+				running.decrementAndGet();
+				return new MockResponse()
+					.setBody("{\"info\":{\"id\":\"msg_1\",\"sessionID\":\"ses_1\",\"role\":\"assistant\"},\"parts\":[]}");
+			}
+		});
+		server.start();
+		// The configured starting limit of 8 would let all six prompts through at once
+		OpenCodeClient client = OpenCodeClient.builder()
+			.baseUrl(server.url("/").toString())
+			.adaptiveConcurrency(true)
+			.build();
+		ExecutorService executor = Executors.newFixedThreadPool(6);
+		try {
+			List<Future<?>> prompts = new ArrayList<>();
+			for (int i = 0; i < 6; i++) {
+				prompts.add(executor.submit(() -> client.getSessions().sendPrompt("ses_1", null)));
+			}
+			for (Future<?> prompt : prompts) {
+				prompt.get(30, TimeUnit.SECONDS);
+			}
+			assertEquals(2, peak.get());
+		}
+		finally {
+			executor.shutdown();
+			client.close();
+			server.shutdown();
+		}
+	}
+
+	@Test
+	public void testSetLimitIsClamped() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 2, 10, 1000);
+
+		limiter.setLimit(100);
+		assertEquals(10, limiter.getLimit());
+		limiter.setLimit(0);
+		assertEquals(2, limiter.getLimit());
+	}
+
+	private static Object sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return null;
+	}
+
+}
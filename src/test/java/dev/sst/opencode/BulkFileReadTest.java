@@ -0,0 +1,93 @@
+package dev.sst.opencode;
+
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.models.BulkResult;
+import dev.sst.opencode.models.FileContent;
+import dev.sst.opencode.models.requests.ReadFilesOptions;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkFileReadTest {
+
+	private static final List<String> PATHS = IntStream.range(0, 20).mapToObj(i -> "src/f" + i + ".txt").toList();
+
+	private MockWebServer server;
+
+	private OpenCodeClient client;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+				String path = request.getRequestUrl().queryParameter("path");
+				// The first file is the slowest, so arrival order differs from request order
+				Thread.sleep(path.equals("src/f0.txt") ? 300 : 30);
+				return new MockResponse().setBody("{\"path\":\"" + path + "\",\"content\":\"0123456789\"}");
+			}
+		});
+		server.start();
+		client = OpenCodeClient.builder().baseUrl(server.url("/").toString()).bulkConcurrency(4).build();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		client.close();
+		server.shutdown();
+	}
+
+	private List<String> read(ReadFilesOptions options) {
+		return client.getFiles()
+			.readFiles(PATHS, options)
+			.map(BulkResult::getValue)
+			.map(FileContent::getPath)
+			.collectList()
+			.block(Duration.ofSeconds(10));
+	}
+
+	@Test
+	public void testCompletionAndRequestOrder() {
+		List<String> arrived = client.getFiles()
+			.readFiles(PATHS)
+			.map(result -> result.getValue().getPath())
+			.collectList()
+			.block(Duration.ofSeconds(10));
+		assertEquals(20, arrived.size());
+		assertNotEquals("src/f0.txt", arrived.get(0));
+
+		assertEquals(PATHS, read(ReadFilesOptions.builder().ordered(true).build()));
+	}
+
+	@Test
+	public void testByteBudget() {
+		List<String> read = read(ReadFilesOptions.builder().ordered(true).maxBytes(35L).build());
+
+		assertEquals(PATHS.subList(0, 3), read);
+	}
+
+	@Test
+	public void testStopConditionCancelsRemainingReads() throws Exception {
+		List<String> read = read(ReadFilesOptions.builder()
+			.concurrency(2)
+			.until(file -> file.getPath().equals("src/f3.txt"))
+			.build());
+
+		assertEquals("src/f3.txt", read.get(read.size() - 1));
+		Thread.sleep(200);
+		assertTrue(server.getRequestCount() < PATHS.size(),
+				"remaining reads should not be sent, saw " + server.getRequestCount());
+	}
+
+}
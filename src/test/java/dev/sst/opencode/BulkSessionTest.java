@@ -0,0 +1,125 @@
+package dev.sst.opencode;
+
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.exceptions.OpenCodeException;
+import dev.sst.opencode.models.BulkResult;
+import dev.sst.opencode.models.Message;
+import dev.sst.opencode.models.Session;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkSessionTest {
+
+	private MockWebServer server;
+
+	private OpenCodeClient client;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+				maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(20);
+					String id = request.getRequestUrl().pathSegments().get(1);
+					if (id.endsWith("7")) {
+						return new MockResponse().setResponseCode(404).setBody("{\"error\":\"missing\"}");
+					}
+					if (request.getPath().contains("/message")) {
+						return new MockResponse()
+							.setBody("[{\"info\":{\"id\":\"msg_" + id + "\",\"role\":\"user\"},\"parts\":[]}]");
+					}
+					return new MockResponse()
+						.setBody("DELETE".equals(request.getMethod()) ? "" : "{\"id\":\"" + id + "\"}");
+				}
+				finally {
+					inFlight.decrementAndGet();
+				}
+			}
+		});
+		server.start();
+		client = OpenCodeClient.builder().baseUrl(server.url("/").toString()).bulkConcurrency(4).build();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		client.close();
+		server.shutdown();
+	}
+
+	private static List<String> ids(int count) {
+		return IntStream.range(0, count).mapToObj(i -> "ses_" + i).toList();
+	}
+
+	@Test
+	public void testGetSessionsReportsEachItem() {
+		List<BulkResult<Session>> results = client.getSessions()
+			.getSessions(ids(20))
+			.collectList()
+			.block(Duration.ofSeconds(10));
+
+		Map<String, BulkResult<Session>> byId = results.stream()
+			.collect(Collectors.toMap(BulkResult::getId, Function.identity()));
+		assertEquals(20, byId.size());
+		assertEquals("ses_3", byId.get("ses_3").getValue().getId());
+		assertFalse(byId.get("ses_7").isSuccess());
+		assertInstanceOf(OpenCodeException.NotFound.class, byId.get("ses_17").getError());
+		assertEquals(18, results.stream().filter(BulkResult::isSuccess).count());
+		assertTrue(maxInFlight.get() <= 4, "at most 4 calls in flight, saw " + maxInFlight.get());
+		assertTrue(maxInFlight.get() > 1, "calls should overlap");
+	}
+
+	@Test
+	public void testConcurrentJobsShareTheLimit() {
+		List<BulkResult<List<Message>>> messages = client.getSessions()
+			.getMessagesBulk(ids(12))
+			.mergeWith(client.getSessions().getMessagesBulk(ids(12)))
+			.collectList()
+			.block(Duration.ofSeconds(10));
+
+		assertEquals(24, messages.size());
+		assertEquals("msg_ses_4", messages.stream()
+			.filter(result -> result.getId().equals("ses_4"))
+			.findFirst()
+			.orElseThrow()
+			.getValue()
+			.get(0)
+			.getInfo()
+			.getId());
+		assertTrue(maxInFlight.get() <= 4, "both jobs together stay within 4, saw " + maxInFlight.get());
+	}
+
+	@Test
+	public void testDeleteSessions() {
+		List<BulkResult<Void>> results = client.getSessions()
+			.deleteSessions(ids(8))
+			.collectList()
+			.block(Duration.ofSeconds(10));
+
+		assertEquals(8, results.size());
+		assertEquals(List.of("ses_7"),
+				results.stream().filter(result -> !result.isSuccess()).map(BulkResult::getId).toList());
+	}
+
+}
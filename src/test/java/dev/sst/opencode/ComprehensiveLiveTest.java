@@ -256,7 +256,7 @@ public class ComprehensiveLiveTest {
 		});
 
 		testEndpoint("GET /find/symbol", "Find symbols", () -> {
-			List<Object> symbols = client.getFiles().findSymbols("test");
+			List<Symbol> symbols = client.getFiles().findSymbols("test");
 			return "Success - Symbols: " + (symbols != null ? symbols.size() : 0);
 		});
 
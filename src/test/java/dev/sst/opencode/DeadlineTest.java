@@ -0,0 +1,79 @@
+package dev.sst.opencode;
+
+import dev.sst.opencode.client.Deadline;
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.exceptions.OpenCodeException;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeadlineTest {
+
+	private MockWebServer server;
+
+	private OpenCodeClient client;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+		client = OpenCodeClient.builder()
+			.baseUrl(server.url("/").toString())
+			.timeout(10000)
+			.metadataTimeout(200)
+			.build();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		client.close();
+		server.shutdown();
+	}
+
+	@Test
+	public void testMetadataTimeoutClass() {
+		server.enqueue(new MockResponse().setBody("{\"id\":\"ses_1\"}").setHeadersDelay(2, TimeUnit.SECONDS));
+
+		assertThrows(OpenCodeException.Timeout.class, () -> client.getSessions().getSession("ses_1"));
+	}
+
+	@Test
+	public void testDeadlineCapsEachStep() {
+		server.enqueue(new MockResponse().setBody("[]").setHeadersDelay(100, TimeUnit.MILLISECONDS));
+		server.enqueue(new MockResponse().setBody("{}").setHeadersDelay(5, TimeUnit.SECONDS));
+
+		long start = System.nanoTime();
+		assertThrows(OpenCodeException.DeadlineExceeded.class, () -> Deadline.after(Duration.ofMillis(500)).run(() -> {
+			client.getSessions().getMessages("ses_1");
+			client.getSessions().sendPrompt("ses_1", null);
+		}));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 3000);
+	}
+
+	@Test
+	public void testExpiredDeadlineSkipsTheCall() {
+		Deadline expired = Deadline.after(Duration.ZERO);
+
+		assertThrows(OpenCodeException.DeadlineExceeded.class,
+				() -> expired.run(() -> client.getSessions().getSession("ses_1")));
+		assertEquals(0, server.getRequestCount());
+	}
+
+	@Test
+	public void testNestedDeadlineNeverExtendsOuter() {
+		Deadline outer = Deadline.after(Duration.ofMillis(100));
+
+		long remaining = outer.call(() -> Deadline.after(Duration.ofHours(1)).call(() -> Deadline.current()))
+			.remainingMillis();
+		assertTrue(remaining <= 100);
+		assertNull(Deadline.current());
+	}
+
+}
@@ -0,0 +1,212 @@
+package dev.sst.opencode;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.sst.opencode.client.EventJournal;
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.config.OpenCodeConfig;
+import dev.sst.opencode.models.JournalEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventJournalTest {
+
+	@TempDir
+	Path dir;
+
+	private HttpServer server;
+
+	private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+	private final AtomicInteger streams = new AtomicInteger();
+
+	private OpenCodeClient client;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		server.createContext("/event", this::streamEvents);
+		server.start();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		if (client != null) {
+			client.close();
+		}
+		server.stop(0);
+	}
+
+	private OpenCodeClient connect(long segmentBytes, long maxBytes, long maxAge) {
+		return new OpenCodeClient(OpenCodeConfig.builder()
+			.baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+			.eventJournalDirectory(dir.toString())
+			.eventJournalSegmentBytes(segmentBytes)
+			.eventJournalMaxBytes(maxBytes)
+			.eventJournalMaxAge(maxAge)
+			.build());
+	}
+
+	private static String messageUpdated(String sessionId, int n) {
+		return "{\"type\":\"message.updated\",\"properties\":{\"info\":{\"id\":\"msg_" + n + "\",\"sessionID\":\""
+				+ sessionId + "\",\"role\":\"assistant\"}}}";
+	}
+
+	@Test
+	public void testReplayAfterRestart() throws Exception {
+		client = OpenCodeClient.builder()
+			.baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+			.eventJournal(dir)
+			.build();
+		events.add("{\"type\":\"server.connected\",\"properties\":{}}");
+		events.add(messageUpdated("ses_a", 1));
+		events.add("{\"type\":\"session.updated\",\"properties\":{\"info\":{\"id\":\"ses_b\",\"title\":\"Ünïcode\"}}}");
+		events.add("{\"type\":\"message.part.updated\",\"properties\":{\"part\":{\"id\":\"prt_1\",\"sessionID\":\"ses_a\"}}}");
+		events.add(messageUpdated("ses_a", 2));
+		EventJournal journal = client.getEventJournal();
+		await(() -> journal.getLastOffset() == 5);
+		assertEquals(Set.of("ses_a", "ses_b"), journal.getSessionIds());
+		client.close();
+		await(() -> streams.get() == 0);
+
+		client = connect(64 * 1024, 0, 0);
+		EventJournal reopened = client.getEventJournal();
+		assertEquals(5, reopened.getLastOffset());
+		assertEquals(5, reopened.getLastOffset("ses_a"));
+
+		List<JournalEntry> all = reopened.replay(0).collectList().block(Duration.ofSeconds(5));
+		assertEquals(List.of(1L, 2L, 3L, 4L, 5L), all.stream().map(JournalEntry::getOffset).toList());
+		assertEquals("server.connected", all.get(0).toEvent().getType());
+		assertNull(all.get(0).getSessionId());
+		assertEquals("ses_b", all.get(2).getSessionId());
+		assertTrue(all.get(2).getPayload().contains("Ünïcode"));
+
+		// A consumer that had handled offset 2 catches up on its session
+		List<JournalEntry> missed = reopened.replay("ses_a", 2).collectList().block(Duration.ofSeconds(5));
+		assertEquals(List.of(4L, 5L), missed.stream().map(JournalEntry::getOffset).toList());
+		assertEquals("message.part.updated", missed.get(0).toEvent().getType());
+
+		events.add(messageUpdated("ses_a", 3));
+		await(() -> reopened.getLastOffset() == 6);
+		assertEquals(6, reopened.replay("ses_a", 5).blockLast(Duration.ofSeconds(5)).getOffset());
+	}
+
+	@Test
+	public void testRecordCutShortIsDropped() throws Exception {
+		client = connect(64 * 1024, 0, 0);
+		for (int i = 0; i < 3; i++) {
+			events.add(messageUpdated("ses_a", i));
+		}
+		await(() -> client.getEventJournal().getLastOffset() == 3);
+		client.close();
+		await(() -> streams.get() == 0);
+
+		// Damage the last record as if the process died while writing it
+		Path segment;
+		try (var files = Files.list(dir)) {
+			segment = files.findFirst().orElseThrow();
+		}
+		byte[] bytes = Files.readAllBytes(segment);
+		String content = new String(bytes, StandardCharsets.ISO_8859_1);
+		bytes[content.indexOf("msg_2")] = 'X';
+		Files.write(segment, bytes);
+
+		client = connect(64 * 1024, 0, 0);
+		EventJournal journal = client.getEventJournal();
+		assertEquals(2, journal.getLastOffset());
+		events.add(messageUpdated("ses_a", 9));
+		await(() -> journal.getLastOffset() == 3);
+		assertTrue(journal.replay(2).blockLast(Duration.ofSeconds(5)).getPayload().contains("msg_9"));
+	}
+
+	@Test
+	public void testOldSegmentsAreDropped() throws Exception {
+		client = connect(4096, 16 * 1024, 0);
+		EventJournal journal = client.getEventJournal();
+		for (int i = 0; i < 400; i++) {
+			events.add(messageUpdated(i % 2 == 0 ? "ses_even" : "ses_odd", i));
+		}
+		await(() -> journal.getLastOffset() == 400);
+
+		assertTrue(journal.getFirstOffset() > 1);
+		assertTrue(journal.getBytes() <= 16 * 1024 + 4096);
+		try (var files = Files.list(dir)) {
+			assertEquals(journal.getSegmentCount(), files.count());
+		}
+		List<JournalEntry> retained = journal.replay(0).collectList().block(Duration.ofSeconds(5));
+		assertEquals(journal.getFirstOffset(), retained.get(0).getOffset());
+		assertEquals(400 - journal.getFirstOffset() + 1, retained.size());
+		List<JournalEntry> odd = journal.replay("ses_odd", 0).collectList().block(Duration.ofSeconds(5));
+		assertTrue(odd.get(0).getOffset() >= journal.getFirstOffset());
+		assertEquals(400, odd.get(odd.size() - 1).getOffset());
+	}
+
+	@Test
+	public void testSegmentsExpireByAge() throws Exception {
+		client = connect(4096, 0, 200);
+		EventJournal journal = client.getEventJournal();
+		for (int i = 0; i < 100; i++) {
+			events.add(messageUpdated("ses_a", i));
+		}
+		await(() -> journal.getLastOffset() == 100);
+		assertTrue(journal.getSegmentCount() > 2);
+
+		Thread.sleep(300);
+		for (int i = 100; i < 200; i++) {
+			events.add(messageUpdated("ses_a", i));
+		}
+		await(() -> journal.getLastOffset() == 200);
+		// Only the segment that was being written may still hold events of the first batch
+		assertTrue(journal.getFirstOffset() > 50);
+	}
+
+	private void streamEvents(HttpExchange exchange) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+		exchange.sendResponseHeaders(200, 0);
+		streams.incrementAndGet();
+		try (OutputStream body = exchange.getResponseBody()) {
+			while (true) {
+				String event = events.poll(100, TimeUnit.MILLISECONDS);
+				// Comments find out about closed streams before they take an event
+				body.write((event != null ? "data: " + event + "\n\n" : ":\n").getBytes(StandardCharsets.UTF_8));
+				body.flush();
+			}
+		}
+		catch (InterruptedException | IOException e) {
+			// Client went away
+		}
+		finally {
+			streams.decrementAndGet();
+		}
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "condition not met in time");
+			Thread.sleep(10);
+		}
+	}
+
+}
@@ -0,0 +1,200 @@
+package dev.sst.opencode;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.sst.opencode.client.FileContentCache;
+import dev.sst.opencode.client.OpenCodeClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileContentCacheTest {
+
+	private HttpServer server;
+
+	private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+	private final AtomicInteger fileReads = new AtomicInteger();
+
+	/**
+	 * Directory the stand-in reports, null to have it not know /path
+	 */
+	private volatile String serverDirectory = "/ws";
+
+	private OpenCodeClient client;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		server.createContext("/file", exchange -> {
+			fileReads.incrementAndGet();
+			String path = exchange.getRequestURI().getQuery().replaceAll(".*path=([^&]*).*", "$1");
+			respond(exchange, "{\"path\":\"" + path + "\",\"content\":\"0123456789\"}");
+		});
+		server.createContext("/path", exchange -> {
+			if (serverDirectory == null) {
+				exchange.sendResponseHeaders(404, -1);
+				exchange.close();
+				return;
+			}
+			respond(exchange, "{\"directory\":\"" + serverDirectory + "\"}");
+		});
+		server.createContext("/event", this::streamEvents);
+		server.start();
+		events.add("{\"type\":\"server.connected\",\"properties\":{}}");
+	}
+
+	@AfterEach
+	public void tearDown() {
+		client.close();
+		server.stop(0);
+	}
+
+	private OpenCodeClient client(long maxBytes) {
+		return client(maxBytes, "/work");
+	}
+
+	private OpenCodeClient client(long maxBytes, String workingDirectory) {
+		client = OpenCodeClient.builder()
+			.baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+			.workingDirectory(workingDirectory)
+			.fileCache(maxBytes)
+			.build();
+		return client;
+	}
+
+	@Test
+	public void testRepeatedReadsAreServedLocally() throws Exception {
+		FileContentCache cache = client(1024).getFileCache();
+		client.getFiles().readFile("warmup.txt");
+		await(cache::isLive);
+
+		client.getFiles().readFile("a.txt");
+		assertEquals("0123456789", client.getFiles().readFile("a.txt").getContent());
+		assertEquals(2, fileReads.get());
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	public void testFileEventsInvalidatePrecisely() throws Exception {
+		FileContentCache cache = client(1024).getFileCache();
+		client.getFiles().readFile("a.txt");
+		await(cache::isLive);
+		client.getFiles().readFile("a.txt");
+		client.getFiles().readFile("src/b.txt");
+		assertEquals(2, cache.size());
+
+		events.add("{\"type\":\"file.edited\",\"properties\":{\"file\":\"/work/src/b.txt\"}}");
+		await(() -> cache.size() == 1);
+
+		int reads = fileReads.get();
+		client.getFiles().readFile("a.txt");
+		client.getFiles().readFile("src/b.txt");
+		assertEquals(reads + 1, fileReads.get());
+	}
+
+	@Test
+	public void testEventsInvalidateRelativeReadsWithoutWorkingDirectory() throws Exception {
+		FileContentCache cache = client(1024, null).getFileCache();
+		client.getFiles().readFile("warmup.txt");
+		await(cache::isLive);
+		client.getFiles().readFile("src/A.java");
+		client.getFiles().readFile("src/A.java");
+		assertEquals(1, cache.getHits());
+		int cached = cache.size();
+
+		// Events carry absolute paths under the server's directory
+		events.add("{\"type\":\"file.edited\",\"properties\":{\"file\":\"/ws/src/A.java\"}}");
+		await(() -> cache.size() == cached - 1);
+		int reads = fileReads.get();
+		client.getFiles().readFile("src/A.java");
+		assertEquals(reads + 1, fileReads.get());
+	}
+
+	@Test
+	public void testRelativeReadsAreNotCachedWhileDirectoryIsUnknown() throws Exception {
+		serverDirectory = null;
+		FileContentCache cache = client(1024, null).getFileCache();
+		client.getFiles().readFile("warmup.txt");
+		await(cache::isLive);
+
+		client.getFiles().readFile("src/A.java");
+		client.getFiles().readFile("src/A.java");
+		client.getFiles().readFile("/ws/b.txt");
+		client.getFiles().readFile("/ws/b.txt");
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.size());
+
+		// A path that cannot be placed could be any cached file
+		events.add("{\"type\":\"file.edited\",\"properties\":{\"file\":\"b.txt\"}}");
+		await(() -> cache.size() == 0);
+	}
+
+	@Test
+	public void testByteBudgetEvictsLeastRecentlyUsed() throws Exception {
+		FileContentCache cache = client(25).getFileCache();
+		client.getFiles().readFile("warmup.txt");
+		await(cache::isLive);
+
+		client.getFiles().readFile("a.txt");
+		client.getFiles().readFile("b.txt");
+		client.getFiles().readFile("a.txt");
+		client.getFiles().readFile("c.txt");
+
+		assertEquals(2, cache.size());
+		assertEquals(20, cache.getBytes());
+		int reads = fileReads.get();
+		client.getFiles().readFile("a.txt");
+		assertEquals(reads, fileReads.get());
+		client.getFiles().readFile("b.txt");
+		assertEquals(reads + 1, fileReads.get());
+	}
+
+	private void streamEvents(HttpExchange exchange) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+		exchange.sendResponseHeaders(200, 0);
+		try (OutputStream body = exchange.getResponseBody()) {
+			while (true) {
+				String event = events.poll(100, TimeUnit.MILLISECONDS);
+				if (event != null) {
+					body.write(("data: " + event + "\n\n").getBytes(StandardCharsets.UTF_8));
+					body.flush();
+				}
+			}
+		}
+		catch (InterruptedException | IOException e) {
+			// Client went away
+		}
+	}
+
+	private static void respond(HttpExchange exchange, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "condition not met in time");
+			Thread.sleep(10);
+		}
+	}
+
+}
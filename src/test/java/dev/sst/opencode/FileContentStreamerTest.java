@@ -0,0 +1,107 @@
+package dev.sst.opencode;
+
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.config.TransportType;
+import dev.sst.opencode.exceptions.OpenCodeException;
+import dev.sst.opencode.models.FileContent;
+import dev.sst.opencode.utils.FileContentStreamer;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileContentStreamerTest {
+
+	@TempDir
+	Path dir;
+
+	private static byte[] copy(String json) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		// One byte per read, so escapes and code points straddle buffer refills
+		InputStream trickle = new FilterInputStream(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))) {
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return super.read(b, off, Math.min(len, 1));
+			}
+		};
+		FileContent file = FileContentStreamer.copy(trickle, out);
+		assertEquals(out.size(), file.getSize());
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testTextContentIsUnescaped() throws IOException {
+		String json = "{\"path\":\"a.txt\",\"extra\":{\"nested\":[1,\"}\",true]},\"size\":99,"
+				+ "\"content\":\"line\\n\\\"quoted\\\" caf\\u00e9 ü \\ud83d\\ude00 \\\\ end\",\"mime\":null}";
+
+		assertEquals("line\n\"quoted\" café ü 😀 \\ end", new String(copy(json), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testBase64BeforeAndAfterContent() throws IOException {
+		byte[] binary = new byte[70_000];
+		new Random(1).nextBytes(binary);
+		String encoded = Base64.getEncoder().encodeToString(binary);
+
+		assertArrayEquals(binary, copy("{\"encoding\":\"base64\",\"content\":\"" + encoded + "\"}"));
+		assertArrayEquals(binary, copy("{\"content\":\"" + encoded + "\",\"encoding\":\"base64\"}"));
+	}
+
+	@Test
+	public void testMalformedResponse() {
+		assertThrows(IOException.class, () -> copy("{\"content\":\"unterminated"));
+		assertThrows(IOException.class, () -> copy("[]"));
+	}
+
+	@ParameterizedTest
+	@EnumSource(TransportType.class)
+	public void testReadFileToPath(TransportType transport) throws Exception {
+		byte[] binary = new byte[4 * 1024 * 1024];
+		new Random(2).nextBytes(binary);
+		try (MockWebServer server = new MockWebServer()) {
+			server.enqueue(new MockResponse().setBody(new Buffer().writeUtf8("{\"path\":\"big.bin\",\"encoding\":\"base64\",")
+				.writeUtf8("\"content\":\"" + Base64.getEncoder().encodeToString(binary) + "\"}")));
+			server.enqueue(new MockResponse().setResponseCode(404).setBody("{\"error\":\"missing\"}"));
+			server.start();
+			OpenCodeClient client = OpenCodeClient.builder()
+				.baseUrl(server.url("/").toString())
+				.transport(transport)
+				.build();
+			try {
+				Path target = dir.resolve("big.bin");
+				FileContent file = client.getFiles().readFileTo("big.bin", target);
+
+				assertEquals("big.bin", file.getPath());
+				assertEquals(binary.length, file.getSize());
+				assertTrue(Arrays.equals(binary, Files.readAllBytes(target)));
+				assertEquals("/file?path=big.bin", server.takeRequest().getPath());
+
+				assertThrows(OpenCodeException.NotFound.class,
+						() -> client.getFiles().readFileTo("gone.bin", dir.resolve("gone.bin")));
+				assertFalse(Files.exists(dir.resolve("gone.bin")));
+				assertFalse(Files.exists(dir.resolve("gone.bin.part")));
+			}
+			finally {
+				client.close();
+			}
+		}
+	}
+
+}
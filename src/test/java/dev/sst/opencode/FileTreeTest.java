@@ -0,0 +1,112 @@
+package dev.sst.opencode;
+
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.exceptions.OpenCodeException;
+import dev.sst.opencode.models.FileNode;
+import dev.sst.opencode.models.FileTree;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileTreeTest {
+
+	/**
+	 * Listings by directory, deliberately unsorted
+	 */
+	private static final Map<String, String> LISTINGS = Map.of("proj",
+			"[" + dir("src") + "," + file("README.md", 100) + "," + dir("node_modules") + "]", "proj/src",
+			"[" + file("b.java", 20) + "," + file("a.java", 10) + "," + dir("main") + "]", "proj/src/main",
+			"[" + dir("java") + "," + file("app.yml", 5) + "]", "proj/src/main/java", "[" + file("Deep.java", 1000) + "]",
+			"proj/node_modules", "[" + file("huge.js", 1_000_000) + "]");
+
+	private MockWebServer server;
+
+	private OpenCodeClient client;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+				maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(20);
+					String listing = LISTINGS.get(request.getRequestUrl().queryParameter("path"));
+					return listing != null ? new MockResponse().setBody(listing)
+							: new MockResponse().setResponseCode(404).setBody("{\"error\":\"no such directory\"}");
+				}
+				finally {
+					inFlight.decrementAndGet();
+				}
+			}
+		});
+		server.start();
+		client = OpenCodeClient.builder().baseUrl(server.url("/").toString()).bulkConcurrency(2).build();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		client.close();
+		server.shutdown();
+	}
+
+	private static String dir(String name) {
+		return "{\"name\":\"" + name + "\",\"type\":\"directory\"}";
+	}
+
+	private static String file(String name, long size) {
+		return "{\"name\":\"" + name + "\",\"type\":\"file\",\"size\":" + size + ",\"modified\":1700000000000}";
+	}
+
+	@Test
+	public void testWalkAnswersQueriesLocally() {
+		FileTree tree = client.getFiles().walkTree("proj", 10, node -> !node.getName().equals("node_modules"));
+		int requests = server.getRequestCount();
+
+		assertEquals(4, requests);
+		assertEquals(8, tree.size());
+		assertEquals(1135, tree.subtreeSize("proj"));
+		assertEquals(1035, tree.subtreeSize("src"));
+		assertEquals(1035, tree.subtreeSize("proj/src"));
+		assertEquals(6, tree.subtreeCount("src"));
+		assertEquals(-1, tree.subtreeSize("node_modules"));
+		assertTrue(tree.isDirectory("src/main/java"));
+		assertEquals(1700000000000L, tree.lastModified("src/main/java/Deep.java"));
+		assertEquals(List.of("a.java", "b.java", "main"), tree.list("src").stream().map(FileNode::getName).toList());
+		assertEquals("proj/src/main/java/Deep.java", tree.list("./src/main/java").get(0).getPath());
+		assertEquals(requests, server.getRequestCount());
+		assertTrue(maxInFlight.get() <= 2, "at most 2 listings at a time, saw " + maxInFlight.get());
+	}
+
+	@Test
+	public void testDepthLimit() {
+		FileTree tree = client.getFiles().walkTree("proj", 2, null);
+
+		assertEquals(3, server.getRequestCount());
+		assertTrue(tree.contains("node_modules/huge.js"));
+		assertTrue(tree.contains("src/main"));
+		assertTrue(tree.list("src/main").isEmpty());
+		assertFalse(tree.contains("src/main/java"));
+	}
+
+	@Test
+	public void testListingFailureFailsTheWalk() {
+		assertThrows(OpenCodeException.NotFound.class, () -> client.getFiles().walkTree("missing", 3, null));
+	}
+
+}
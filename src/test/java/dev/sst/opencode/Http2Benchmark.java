@@ -0,0 +1,104 @@
+package dev.sst.opencode;
+
+import dev.sst.opencode.client.OpenCodeClient;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares HTTP/1.1 with HTTP/2 prior knowledge (h2c) against the local stand-in
+ * server: connections opened and per-request latency under concurrent load. Run
+ * with: mvn exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass="dev.sst.opencode.Http2Benchmark" [-Dexec.args="concurrency
+ * requestsPerWorker latencyMillis"]
+ */
+public class Http2Benchmark {
+
+	public static void main(String[] args) throws Exception {
+		int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+		int requestsPerWorker = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		long latency = args.length > 2 ? Long.parseLong(args[2]) : 5;
+
+		System.out.println("========================================");
+		System.out.println("OpenCode Java SDK - HTTP/1.1 vs h2c");
+		System.out.println("Workers: " + concurrency + ", requests per worker: " + requestsPerWorker
+				+ ", server latency: " + latency + " ms");
+		System.out.println("========================================\n");
+
+		// Warm up class loading and JIT once before measuring either protocol
+		run(false, 8, 20, 0);
+		run(true, 8, 20, 0);
+
+		print("HTTP/1.1", run(false, concurrency, requestsPerWorker, latency));
+		print("h2c", run(true, concurrency, requestsPerWorker, latency));
+	}
+
+	private record Result(int connections, long[] latencies, long elapsedNanos) {
+	}
+
+	private static Result run(boolean http2, int concurrency, int requestsPerWorker, long latency) throws Exception {
+		List<Protocol> protocols = http2 ? List.of(Protocol.H2_PRIOR_KNOWLEDGE)
+				: List.of(Protocol.HTTP_1_1);
+		MockWebServer server = StandInMockServer.start(protocols, latency);
+		OpenCodeClient client = OpenCodeClient.builder()
+			.baseUrl(server.url("").toString().replaceAll("/$", ""))
+			.http2PriorKnowledge(http2)
+			.timeout(30000)
+			.build();
+
+		long[] latencies = new long[concurrency * requestsPerWorker];
+		long start = System.nanoTime();
+		try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int w = 0; w < concurrency; w++) {
+				int worker = w;
+				futures.add(workers.submit(() -> {
+					for (int i = 0; i < requestsPerWorker; i++) {
+						long t = System.nanoTime();
+						client.getSessions().getSession("ses_" + worker);
+						latencies[worker * requestsPerWorker + i] = System.nanoTime() - t;
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+
+		// A request with sequence number 0 is the first one on its connection
+		int connections = 0;
+		for (int i = 0; i < latencies.length; i++) {
+			RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+			if (request != null && request.getSequenceNumber() == 0) {
+				connections++;
+			}
+		}
+		client.close();
+		server.shutdown();
+		return new Result(connections, latencies, elapsed);
+	}
+
+	private static void print(String label, Result result) {
+		long[] sorted = result.latencies().clone();
+		Arrays.sort(sorted);
+		double seconds = result.elapsedNanos() / 1e9;
+		System.out.printf("%-8s connections=%-4d throughput=%8.0f req/s  p50=%6.2f ms  p99=%6.2f ms  max=%6.2f ms%n",
+				label, result.connections(), sorted.length / seconds, millis(sorted, 0.50), millis(sorted, 0.99),
+				sorted[sorted.length - 1] / 1e6);
+	}
+
+	private static double millis(long[] sorted, double percentile) {
+		return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+	}
+
+}
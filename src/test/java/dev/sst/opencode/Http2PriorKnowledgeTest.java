@@ -0,0 +1,55 @@
+package dev.sst.opencode;
+
+import dev.sst.opencode.client.OpenCodeClient;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Http2PriorKnowledgeTest {
+
+	@Test
+	public void testConcurrentCallsShareOneConnection() throws Exception {
+		MockWebServer server = StandInMockServer.start(List.of(Protocol.H2_PRIOR_KNOWLEDGE), 50);
+		OpenCodeClient client = OpenCodeClient.builder()
+			.baseUrl(server.url("/").toString())
+			.http2PriorKnowledge(true)
+			.build();
+		try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<String>> futures = new ArrayList<>();
+			for (int i = 0; i < 16; i++) {
+				String id = "ses_" + i;
+				futures.add(workers.submit(() -> client.getSessions().getSession(id).getId()));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				assertEquals("ses_" + i, futures.get(i).get());
+			}
+		}
+
+		int connections = 0;
+		for (int i = 0; i < 16; i++) {
+			if (server.takeRequest(1, TimeUnit.SECONDS).getSequenceNumber() == 0) {
+				connections++;
+			}
+		}
+		assertEquals(1, connections);
+
+		client.close();
+		server.shutdown();
+	}
+
+	@Test
+	public void testRejectsHttpsEndpoints() {
+		assertThrows(IllegalArgumentException.class,
+				() -> OpenCodeClient.builder().baseUrl("https://localhost:4096").http2PriorKnowledge(true).build());
+	}
+
+}
@@ -243,7 +243,7 @@ public class LiveServerTest {
 
 		// Test GET /find/symbol
 		testEndpoint("GET /find/symbol", () -> {
-			List<Object> symbols = client.getFiles().findSymbols("test");
+			List<Symbol> symbols = client.getFiles().findSymbols("test");
 			return "Symbols: " + (symbols != null ? symbols.size() : 0);
 		});
 
@@ -0,0 +1,192 @@
+package dev.sst.opencode;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.sst.opencode.client.LogShipper;
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.config.OpenCodeConfig;
+import dev.sst.opencode.config.OverflowPolicy;
+import dev.sst.opencode.logging.OpenCodeAppender;
+import dev.sst.opencode.models.requests.LogRequest;
+import dev.sst.opencode.utils.JsonUtils;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogShipperTest {
+
+	private MockWebServer server;
+
+	private final List<JsonNode> received = new CopyOnWriteArrayList<>();
+
+	private volatile long responseDelay;
+
+	private OpenCodeClient client;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+				Thread.sleep(responseDelay);
+				received.add(JsonUtils.fromJson(request.getBody().readUtf8(), JsonNode.class));
+				return new MockResponse().setBody("true");
+			}
+		});
+		server.start();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		if (client != null) {
+			client.close();
+		}
+		server.shutdown();
+	}
+
+	private OpenCodeClient connect(int bufferSize, int batchSize, long flushInterval, OverflowPolicy overflow) {
+		return new OpenCodeClient(OpenCodeConfig.builder()
+			.baseUrl(server.url("/").toString())
+			.asyncLogs(true)
+			.logBufferSize(bufferSize)
+			.logBatchSize(batchSize)
+			.logFlushInterval(flushInterval)
+			.logOverflow(overflow)
+			.build());
+	}
+
+	private List<String> messages() {
+		return received.stream().map(entry -> entry.get("message").asText()).toList();
+	}
+
+	@Test
+	public void testBatchesShipOnSizeAndInterval() throws Exception {
+		client = connect(1024, 10, 300, OverflowPolicy.DROP_NEWEST);
+		LogShipper shipper = client.getLogShipper();
+
+		for (int i = 0; i < 25; i++) {
+			client.getLogs().info("entry " + i, "pipeline");
+		}
+		// Two full batches go out at once, the rest once the interval passed
+		await(() -> shipper.getShipped() == 20);
+		assertEquals(20, received.size());
+		await(() -> shipper.getShipped() == 25);
+
+		assertEquals(IntStream.range(0, 25).mapToObj(i -> "entry " + i).toList(), messages());
+		assertEquals("info", received.get(0).get("level").asText());
+		assertEquals("pipeline", received.get(0).get("service").asText());
+	}
+
+	@Test
+	public void testFlushDoesNotWaitForTheInterval() throws Exception {
+		client = connect(1024, 100, 60_000, OverflowPolicy.DROP_NEWEST);
+		client.getLogs().warn("now", "pipeline");
+
+		assertTrue(client.getLogShipper().flush(Duration.ofSeconds(5)));
+		assertEquals(List.of("now"), messages());
+	}
+
+	@Test
+	public void testFullBufferDropsWithoutBlocking() throws Exception {
+		responseDelay = 100;
+		client = connect(4, 2, 10, OverflowPolicy.DROP_NEWEST);
+		LogShipper shipper = client.getLogShipper();
+
+		long start = System.nanoTime();
+		for (int i = 0; i < 50; i++) {
+			client.getLogs().debug("entry " + i, "pipeline");
+		}
+		assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(responseDelay));
+		assertTrue(shipper.getDropped() >= 40);
+		assertTrue(shipper.flush(Duration.ofSeconds(5)));
+		assertEquals(50, shipper.getShipped() + shipper.getDropped());
+		assertEquals("entry 0", messages().get(0));
+	}
+
+	@Test
+	public void testShipperSurvivesUnexpectedFailures() throws Exception {
+		client = connect(2, 1, 10, OverflowPolicy.BLOCK);
+		LogShipper shipper = client.getLogShipper();
+
+		// Fails the sender with a plain RuntimeException rather than an OpenCodeException
+		client.getLogs()
+			.log(LogRequest.builder().level("error").message("unserializable").metadata(Map.of("value", new Object())).build());
+		for (int i = 0; i < 10; i++) {
+			client.getLogs().info("entry " + i, "pipeline");
+		}
+
+		assertTrue(shipper.flush(Duration.ofSeconds(5)));
+		assertEquals(1, shipper.getFailed());
+		assertEquals(10, shipper.getShipped());
+		assertEquals("entry 9", messages().get(messages().size() - 1));
+	}
+
+	@Test
+	public void testDropOldestKeepsTheLatest() throws Exception {
+		responseDelay = 100;
+		client = connect(4, 2, 10, OverflowPolicy.DROP_OLDEST);
+		LogShipper shipper = client.getLogShipper();
+
+		for (int i = 0; i < 50; i++) {
+			client.getLogs().debug("entry " + i, "pipeline");
+		}
+		assertTrue(shipper.flush(Duration.ofSeconds(5)));
+		assertEquals(50, shipper.getShipped() + shipper.getDropped());
+		assertEquals("entry 49", messages().get(messages().size() - 1));
+	}
+
+	@Test
+	public void testAppenderShipsApplicationLogs() throws Exception {
+		client = connect(1024, 100, 60_000, OverflowPolicy.BLOCK);
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		OpenCodeAppender appender = new OpenCodeAppender();
+		appender.setContext(context);
+		appender.setClient(client);
+		appender.setService("billing");
+		appender.start();
+		Logger logger = context.getLogger("com.example.Invoices");
+		logger.setLevel(Level.DEBUG);
+		logger.addAppender(appender);
+
+		logger.error("Invoice {} failed", 42, new IllegalStateException("no total"));
+		logger.debug("details");
+		assertTrue(client.getLogShipper().flush(Duration.ofSeconds(5)));
+
+		assertEquals(2, received.size());
+		JsonNode error = received.get(0);
+		assertEquals("error", error.get("level").asText());
+		assertEquals("billing", error.get("service").asText());
+		assertTrue(error.get("message").asText().startsWith("Invoice 42 failed\njava.lang.IllegalStateException: no total"));
+		assertEquals("com.example.Invoices", error.get("metadata").get("logger").asText());
+		assertEquals("debug", received.get(1).get("level").asText());
+		logger.detachAppender(appender);
+		appender.stop();
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "condition not met in time");
+			Thread.sleep(5);
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+package dev.sst.opencode;
+
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.config.MessageDedup;
+import dev.sst.opencode.models.Message;
+import dev.sst.opencode.utils.StringPool;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageDedupTest {
+
+	private static final String MESSAGES = """
+			[{"info":{"id":"msg_1","sessionID":"ses_1","role":"assistant","status":"completed"},
+			  "parts":[
+			    {"id":"prt_1","sessionID":"ses_1","messageID":"msg_1","type":"tool","callID":"call_1","tool":"read",
+			     "state":{"status":"completed","output":"done"}},
+			    {"id":"prt_2","sessionID":"ses_1","messageID":"msg_1","type":"tool","callID":"call_2","tool":"read",
+			     "state":{"status":"completed","output":"done"}}]},
+			 {"info":{"id":"msg_2","sessionID":"ses_1","role":"assistant","status":"completed"},
+			  "parts":[
+			    {"id":"prt_3","sessionID":"ses_1","messageID":"msg_2","type":"text","text":"ok"}]}]
+			""";
+
+	private MockWebServer server;
+
+	private OpenCodeClient client;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				return new MockResponse().setHeader("Content-Type", "application/json").setBody(MESSAGES);
+			}
+		});
+		server.start();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		if (client != null) {
+			client.close();
+		}
+		server.shutdown();
+	}
+
+	private void connect(MessageDedup dedup) {
+		client = OpenCodeClient.builder().baseUrl(server.url("/").toString()).messageDedup(dedup).build();
+	}
+
+	private static Message.ToolPart toolPart(List<Message> messages, int part) {
+		return (Message.ToolPart) messages.get(0).getParts().get(part);
+	}
+
+	@Test
+	public void testPerDecodeSharesStringsWithinResponse() {
+		connect(MessageDedup.PER_DECODE);
+		List<Message> messages = client.getSessions().getMessages("ses_1");
+		Message.ToolPart first = toolPart(messages, 0);
+		Message.ToolPart second = toolPart(messages, 1);
+		Message.TextPart text = (Message.TextPart) messages.get(1).getParts().get(0);
+
+		assertSame(first.getSessionId(), second.getSessionId());
+		assertSame(first.getSessionId(), text.getSessionId());
+		assertSame(first.getSessionId(), messages.get(1).getInfo().getSessionId());
+		assertSame(first.getMessageId(), second.getMessageId());
+		assertSame(first.getTool(), second.getTool());
+		assertEquals("msg_2", text.getMessageId());
+
+		// A new decode starts from an empty pool
+		List<Message> again = client.getSessions().getMessages("ses_1");
+		assertEquals(first.getSessionId(), toolPart(again, 0).getSessionId());
+		assertNotSame(first.getSessionId(), toolPart(again, 0).getSessionId());
+	}
+
+	@Test
+	public void testPerSessionSharesStringsAcrossResponses() {
+		connect(MessageDedup.PER_SESSION);
+		Message.ToolPart first = toolPart(client.getSessions().getMessages("ses_1"), 0);
+		Message.ToolPart later = toolPart(client.getSessions().getMessages("ses_1"), 1);
+
+		assertSame(first.getSessionId(), later.getSessionId());
+		assertSame(first.getMessageId(), later.getMessageId());
+		assertSame(first.getTool(), later.getTool());
+	}
+
+	@Test
+	public void testOffKeepsEveryString() {
+		connect(MessageDedup.OFF);
+		List<Message> messages = client.getSessions().getMessages("ses_1");
+
+		assertEquals(toolPart(messages, 0).getSessionId(), toolPart(messages, 1).getSessionId());
+		assertNotSame(toolPart(messages, 0).getSessionId(), toolPart(messages, 1).getSessionId());
+	}
+
+	@Test
+	public void testPoolIsBounded() {
+		StringPool pool = new StringPool(5);
+		assertEquals(8, pool.capacity());
+
+		String id = new String("ses_1");
+		assertSame(id, pool.intern(id));
+		assertSame(id, pool.intern(new String("ses_1")));
+		for (int i = 0; i < 10_000; i++) {
+			assertEquals("prt_" + i, pool.intern("prt_" + i));
+		}
+		assertEquals(8, pool.capacity());
+
+		String path = "x".repeat(StringPool.MAX_LENGTH + 1);
+		assertSame(path, pool.intern(path));
+		assertNotSame(path, pool.intern(new String(path)));
+		assertNull(pool.intern(null));
+	}
+
+}
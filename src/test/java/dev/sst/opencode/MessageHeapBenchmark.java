@@ -0,0 +1,105 @@
+package dev.sst.opencode;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import dev.sst.opencode.models.Message;
+import dev.sst.opencode.utils.JsonUtils;
+import dev.sst.opencode.utils.StringPool;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Measures the heap retained by a decoded session history with and without string
+ * dedup, on a fixture of messages whose parts repeat session and message ids, tool
+ * names and statuses the way a long agent session does. Run with: mvn exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass="dev.sst.opencode.MessageHeapBenchmark"
+ * [-Dexec.args="parts"]
+ */
+public class MessageHeapBenchmark {
+
+	private static final int PARTS_PER_MESSAGE = 100;
+
+	private static final String[] TOOLS = { "read", "edit", "bash", "grep", "glob", "write" };
+
+	private static final String[] STATUSES = { "completed", "error", "running" };
+
+	private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+	public static void main(String[] args) {
+		int parts = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		String json = fixture(parts);
+		TypeReference<List<Message>> type = new TypeReference<>() {
+		};
+
+		System.out.println("========================================");
+		System.out.println("OpenCode Java SDK - decoded message heap");
+		System.out.println("Parts: " + parts + ", fixture: " + json.length() / 1024 + " KiB");
+		System.out.println("========================================\n");
+
+		// Warm up both paths so class loading does not count against either
+		JsonUtils.fromJson(json, type);
+		JsonUtils.fromJson(json, type, new StringPool(8192));
+
+		long plain = retained(() -> JsonUtils.fromJson(json, type));
+		long pooled = retained(() -> JsonUtils.fromJson(json, type, new StringPool(8192)));
+		System.out.printf("%-10s %10d KiB  %6.1f bytes/part%n", "plain", plain / 1024, (double) plain / parts);
+		System.out.printf("%-10s %10d KiB  %6.1f bytes/part%n", "pooled", pooled / 1024, (double) pooled / parts);
+		System.out.printf("%nReduction: %.1f%%%n", 100.0 * (plain - pooled) / plain);
+	}
+
+	/**
+	 * Heap still in use after a collection while the decoded value is reachable
+	 */
+	private static long retained(Supplier<Object> decode) {
+		long before = settledHeap();
+		Object value = decode.get();
+		long after = settledHeap();
+		if (value == null) {
+			throw new IllegalStateException("Nothing decoded");
+		}
+		return after - before;
+	}
+
+	private static long settledHeap() {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return MEMORY.getHeapMemoryUsage().getUsed();
+	}
+
+	private static String fixture(int parts) {
+		StringBuilder json = new StringBuilder(parts * 256).append('[');
+		String session = "ses_8f3a2c1d9e7b6a5f4c3d2e1f";
+		int messages = (parts + PARTS_PER_MESSAGE - 1) / PARTS_PER_MESSAGE;
+		for (int m = 0; m < messages; m++) {
+			String message = "msg_%024x".formatted(m);
+			if (m > 0) {
+				json.append(',');
+			}
+			json.append("{\"info\":{\"id\":\"")
+				.append(message)
+				.append("\",\"sessionID\":\"")
+				.append(session)
+				.append("\",\"role\":\"assistant\",\"status\":\"completed\"},\"parts\":[");
+			for (int p = 0; p < PARTS_PER_MESSAGE && m * PARTS_PER_MESSAGE + p < parts; p++) {
+				int n = m * PARTS_PER_MESSAGE + p;
+				if (p > 0) {
+					json.append(',');
+				}
+				json.append("{\"id\":\"prt_%024x\",\"sessionID\":\"%s\",\"messageID\":\"%s\",".formatted(n, session, message));
+				if (n % 4 == 0) {
+					json.append("\"type\":\"text\",\"text\":\"Step ").append(n).append("\"}");
+				}
+				else {
+					json.append("\"type\":\"tool\",\"callID\":\"call_%d\",\"tool\":\"%s\",\"state\":{\"status\":\"%s\"}}"
+						.formatted(n, TOOLS[n % TOOLS.length], STATUSES[n % STATUSES.length]));
+				}
+			}
+			json.append("]}");
+		}
+		return json.append(']').toString();
+	}
+
+}
@@ -0,0 +1,217 @@
+package dev.sst.opencode;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.client.PathIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PathIndexTest {
+
+	private HttpServer server;
+
+	private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+	private final Map<String, String> listings = new ConcurrentHashMap<>(Map.of(".",
+			"[" + dir("src") + "," + dir("docs") + "," + dir(".git") + "," + file("README.md") + "]", "src",
+			"[" + dir("main") + "," + file("Main.java") + "]", "src/main",
+			"[" + file("MainController.java") + "," + file("util.java") + "]", "docs", "[" + file("domain.md") + "]"));
+
+	private final AtomicInteger serverSearches = new AtomicInteger();
+
+	private final Map<String, AtomicInteger> listingRequests = new ConcurrentHashMap<>();
+
+	private OpenCodeClient client;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		server.createContext("/file", exchange -> {
+			String path = URLDecoder.decode(exchange.getRequestURI().getRawQuery().replaceAll(".*path=([^&]*).*", "$1"),
+					StandardCharsets.UTF_8);
+			listingRequests.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+			respond(exchange, listings.getOrDefault(path, "[]"));
+		});
+		server.createContext("/find/file", exchange -> {
+			serverSearches.incrementAndGet();
+			respond(exchange, "[\"from/server.txt\"]");
+		});
+		server.createContext("/path", exchange -> respond(exchange, "{\"directory\":\"/work\"}"));
+		server.createContext("/event", this::streamEvents);
+		server.start();
+		client = OpenCodeClient.builder()
+			.baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+			.workingDirectory("/work")
+			.pathIndex(true)
+			.build();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		client.close();
+		server.stop(0);
+	}
+
+	private static String dir(String name) {
+		return "{\"name\":\"" + name + "\",\"type\":\"directory\"}";
+	}
+
+	private static String file(String name) {
+		return "{\"name\":\"" + name + "\",\"type\":\"file\",\"size\":1}";
+	}
+
+	private static String ignored(String node, String path) {
+		return node.replace("}", ",\"path\":\"" + path + "\",\"ignored\":true}");
+	}
+
+	private int listed(String path) {
+		AtomicInteger count = listingRequests.get(path);
+		return count != null ? count.get() : 0;
+	}
+
+	private PathIndex readyIndex() throws Exception {
+		// The index is not built yet, so the first search goes to the server
+		assertEquals(List.of("from/server.txt"), client.getFiles().findFiles("main"));
+		events.add("{\"type\":\"server.connected\",\"properties\":{}}");
+		PathIndex index = client.getPathIndex();
+		await(index::isReady);
+		return index;
+	}
+
+	@Test
+	public void testRankedLocalResults() throws Exception {
+		PathIndex index = readyIndex();
+
+		assertEquals(5, index.size());
+		// File name prefix, then inside a file name, then a directory name
+		assertEquals(List.of("src/Main.java", "src/main/MainController.java", "docs/domain.md", "src/main/util.java"),
+				client.getFiles().findFiles("main"));
+		assertEquals(List.of("src/main/MainController.java"), client.getFiles().findFiles("mctrl"));
+		assertEquals(List.of(), client.getFiles().findFiles("nothing-like-this"));
+		assertEquals(1, serverSearches.get());
+		assertEquals(3, index.getHits());
+	}
+
+	@Test
+	public void testWatcherEventsKeepTheIndexCurrent() throws Exception {
+		PathIndex index = readyIndex();
+
+		// Added files are confirmed by a listing, which also says whether they are ignored
+		listings.put("src", "[" + dir("main") + "," + file("Main.java") + "," + file("Fresh.java") + "]");
+		events.add("{\"type\":\"file.watcher.updated\",\"properties\":{\"file\":\"/work/src/Fresh.java\",\"event\":\"add\"}}");
+		events.add("{\"type\":\"file.watcher.updated\",\"properties\":{\"file\":\"/work/docs/domain.md\",\"event\":\"unlink\"}}");
+		events.add("{\"type\":\"file.watcher.updated\",\"properties\":{\"file\":\"/work/.git/index\",\"event\":\"add\"}}");
+		await(() -> index.size() == 5 && client.getFiles().findFiles("fresh").size() == 1);
+		assertEquals(List.of(), client.getFiles().findFiles("domain"));
+		assertEquals(List.of(), client.getFiles().findFiles("index"));
+
+		// A rename is settled by listing the directory
+		listings.put("docs", "[" + file("renamed.md") + "]");
+		events.add("{\"type\":\"file.watcher.updated\",\"properties\":{\"file\":\"/work/docs/renamed.md\",\"event\":\"rename\"}}");
+		await(() -> client.getFiles().findFiles("renamed").equals(List.of("docs/renamed.md")));
+		assertEquals(1, serverSearches.get());
+	}
+
+	@Test
+	public void testIgnoredFilesAreLeftOutLikeOnTheServer() throws Exception {
+		listings.put(".", "[" + dir("src") + "," + dir("docs") + "," + ignored(dir("target"), "target") + ","
+				+ ignored(file("debug.log"), "debug.log") + "," + file("README.md") + "]");
+		listings.put("target", "[" + file("main.jar") + "]");
+		PathIndex index = readyIndex();
+
+		assertEquals(5, index.size());
+		assertEquals(0, listed("target"));
+		assertEquals(List.of(), client.getFiles().findFiles("debug"));
+
+		// Build output under an ignored directory is dropped without asking the server
+		events.add("{\"type\":\"file.watcher.updated\",\"properties\":{\"file\":\"/work/target/App.class\",\"event\":\"add\"}}");
+
+		// A new directory is looked up once, then known to be ignored
+		listings.put(".", listings.get(".").replace("]", "," + ignored(dir("dist"), "dist") + "]"));
+		events.add("{\"type\":\"file.watcher.updated\",\"properties\":{\"file\":\"/work/dist/app.js\",\"event\":\"add\"}}");
+		events.add("{\"type\":\"file.watcher.updated\",\"properties\":{\"file\":\"/work/dist/app.css\",\"event\":\"add\"}}");
+		listings.put("docs", "[" + file("domain.md") + "," + file("notes.md") + "]");
+		events.add("{\"type\":\"file.watcher.updated\",\"properties\":{\"file\":\"/work/docs/notes.md\",\"event\":\"add\"}}");
+		await(() -> index.size() == 6);
+
+		assertEquals(List.of("docs/notes.md"), client.getFiles().findFiles("notes"));
+		assertEquals(List.of(), client.getFiles().findFiles("app"));
+		assertEquals(2, listed("."));
+		assertEquals(0, listed("target"));
+		assertEquals(0, listed("dist"));
+	}
+
+	@Test
+	public void testEventsArePlacedWithoutWorkingDirectory() throws Exception {
+		client.close();
+		client = OpenCodeClient.builder()
+			.baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+			.pathIndex(true)
+			.build();
+		PathIndex index = readyIndex();
+		assertEquals(1, listed("."));
+
+		// Placed under the server's directory, events update the index without a walk
+		events.add("{\"type\":\"file.edited\",\"properties\":{\"file\":\"/work/src/Main.java\"}}");
+		events.add("{\"type\":\"file.watcher.updated\",\"properties\":{\"file\":\"/elsewhere/x.txt\",\"event\":\"add\"}}");
+		events.add("{\"type\":\"file.watcher.updated\",\"properties\":{\"file\":\"/work/docs/domain.md\",\"event\":\"unlink\"}}");
+		await(() -> index.size() == 4);
+		assertEquals(List.of(), client.getFiles().findFiles("domain"));
+		assertEquals(1, listed("."));
+		assertEquals(1, serverSearches.get());
+	}
+
+	private void streamEvents(HttpExchange exchange) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+		exchange.sendResponseHeaders(200, 0);
+		try (OutputStream body = exchange.getResponseBody()) {
+			while (true) {
+				String event = events.poll(100, TimeUnit.MILLISECONDS);
+				if (event != null) {
+					body.write(("data: " + event + "\n\n").getBytes(StandardCharsets.UTF_8));
+					body.flush();
+				}
+			}
+		}
+		catch (InterruptedException | IOException e) {
+			// Client went away
+		}
+	}
+
+	private static void respond(HttpExchange exchange, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "condition not met in time");
+			Thread.sleep(10);
+		}
+	}
+
+}
@@ -0,0 +1,156 @@
+package dev.sst.opencode;
+
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.client.Priority;
+import dev.sst.opencode.client.PriorityScheduler;
+import dev.sst.opencode.config.OpenCodeConfig;
+import dev.sst.opencode.exceptions.OpenCodeException;
+import dev.sst.opencode.models.BulkResult;
+import dev.sst.opencode.models.Session;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PriorityTest {
+
+	private MockWebServer server;
+
+	private OpenCodeClient client;
+
+	/**
+	 * Sessions requested, in the order the server saw them
+	 */
+	private final List<String> served = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Holds requests for sessions starting with "slow" until counted down
+	 */
+	private final CountDownLatch slow = new CountDownLatch(1);
+
+	private final ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+				String id = request.getRequestUrl().pathSegments().get(1);
+				served.add(id);
+				if (id.startsWith("slow")) {
+					slow.await(10, TimeUnit.SECONDS);
+				}
+				return new MockResponse().setBody("{\"id\":\"" + id + "\"}");
+			}
+		});
+		server.start();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		slow.countDown();
+		callers.shutdownNow();
+		client.close();
+		server.shutdown();
+	}
+
+	private void connect(int calls, int reserved, long queueTimeout) {
+		client = new OpenCodeClient(OpenCodeConfig.builder()
+			.baseUrl(server.url("/").toString())
+			.maxConcurrentCalls(calls)
+			.interactiveReservedCalls(reserved)
+			.concurrencyQueueTimeout(queueTimeout)
+			.build());
+	}
+
+	@Test
+	public void testInteractiveCallsUseTheReserve() throws Exception {
+		connect(3, 1, 10_000);
+		PriorityScheduler scheduler = client.getScheduler();
+		OpenCodeClient.View batch = client.withPriority(Priority.BACKGROUND);
+		for (int i = 0; i < 5; i++) {
+			String id = "slow" + i;
+			callers.submit(() -> batch.getSessions().getSession(id));
+		}
+		await(() -> scheduler.getInFlight(Priority.BACKGROUND) == 2 && scheduler.getWaiting(Priority.BACKGROUND) == 3);
+
+		// Background work fills every unreserved slot, yet a chat call goes straight through
+		Session session = Priority.INTERACTIVE.call(() -> client.getSessions().getSession("chat"));
+		assertEquals("chat", session.getId());
+		assertEquals(0, scheduler.getInFlight(Priority.INTERACTIVE));
+		assertEquals(3, scheduler.getWaiting(Priority.BACKGROUND));
+
+		slow.countDown();
+		await(() -> served.size() == 6 && scheduler.getInFlight(Priority.BACKGROUND) == 0);
+	}
+
+	@Test
+	public void testFreedSlotsFollowTheWeights() throws Exception {
+		connect(1, 0, 10_000);
+		PriorityScheduler scheduler = client.getScheduler();
+		callers.submit(() -> client.getSessions().getSession("slow"));
+		await(() -> scheduler.getInFlight(Priority.NORMAL) == 1);
+		for (int i = 0; i < 4; i++) {
+			String id = "bg" + i;
+			callers.submit(() -> Priority.BACKGROUND.call(() -> client.getSessions().getSession(id)));
+			await(() -> scheduler.getWaiting(Priority.BACKGROUND) == Integer.parseInt(id.substring(2)) + 1);
+		}
+		for (int i = 0; i < 4; i++) {
+			String id = "ui" + i;
+			callers.submit(() -> client.withPriority(Priority.INTERACTIVE).getSessions().getSession(id));
+			await(() -> scheduler.getWaiting(Priority.INTERACTIVE) == Integer.parseInt(id.substring(2)) + 1);
+		}
+
+		slow.countDown();
+		await(() -> served.size() == 9);
+		// Background calls queued first, but interactive ones get 8 of every 9 slots
+		assertEquals(List.of("slow", "ui0", "ui1", "ui2", "ui3", "bg0", "bg1", "bg2", "bg3"), served);
+	}
+
+	@Test
+	public void testBulkCallsRunInTheBackground() throws Exception {
+		connect(2, 1, 10_000);
+		PriorityScheduler scheduler = client.getScheduler();
+		var results = client.getSessions().getSessions(List.of("slow0", "slow1", "slow2")).collectList().toFuture();
+		await(() -> scheduler.getInFlight(Priority.BACKGROUND) == 1 && scheduler.getWaiting(Priority.BACKGROUND) == 2);
+
+		assertEquals("chat", Priority.INTERACTIVE.call(() -> client.getSessions().getSession("chat")).getId());
+		slow.countDown();
+		assertEquals(3, results.get(10, TimeUnit.SECONDS).stream().filter(BulkResult::isSuccess).count());
+	}
+
+	@Test
+	public void testQueuedCallGivesUp() throws Exception {
+		connect(2, 1, 200);
+		PriorityScheduler scheduler = client.getScheduler();
+		callers.submit(() -> client.getSessions().getSession("slow"));
+		await(() -> scheduler.getInFlight(Priority.NORMAL) == 1);
+
+		assertThrows(OpenCodeException.LimitExceeded.class, () -> client.getSessions().getSession("other"));
+		assertEquals(0, scheduler.getWaiting(Priority.NORMAL));
+		assertEquals(List.of("slow"), served);
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "condition not met in time");
+			Thread.sleep(5);
+		}
+	}
+
+}
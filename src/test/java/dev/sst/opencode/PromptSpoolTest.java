@@ -0,0 +1,174 @@
+package dev.sst.opencode;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.client.PromptSpool;
+import dev.sst.opencode.config.FsyncPolicy;
+import dev.sst.opencode.config.OpenCodeConfig;
+import dev.sst.opencode.models.requests.PromptRequest;
+import dev.sst.opencode.utils.JsonUtils;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PromptSpoolTest {
+
+	@TempDir
+	Path dir;
+
+	private MockWebServer server;
+
+	private volatile boolean available;
+
+	/**
+	 * Messages the server created, by id
+	 */
+	private final Map<String, String> stored = new ConcurrentHashMap<>();
+
+	private final AtomicInteger concurrent = new AtomicInteger();
+
+	private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+	private OpenCodeClient client;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+				if (!available) {
+					return new MockResponse().setResponseCode(503);
+				}
+				List<String> segments = request.getRequestUrl().pathSegments();
+				if (segments.get(0).equals("config")) {
+					return new MockResponse().setBody("{}");
+				}
+				String sessionId = segments.get(1);
+				if (request.getMethod().equals("GET")) {
+					return stored.containsKey(segments.get(3)) ? message(segments.get(3), sessionId, "user")
+							: new MockResponse().setResponseCode(404);
+				}
+				if (sessionId.equals("ses_gone")) {
+					return new MockResponse().setResponseCode(400).setBody("{\"error\":\"no such session\"}");
+				}
+				JsonNode body = JsonUtils.fromJson(request.getBody().readUtf8(), JsonNode.class);
+				maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+				Thread.sleep(20);
+				concurrent.decrementAndGet();
+				String previous = stored.putIfAbsent(body.get("messageID").asText(), sessionId);
+				assertNull(previous, "prompt sent twice");
+				return message("msg_reply", sessionId, "assistant");
+			}
+		});
+		server.start();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		if (client != null) {
+			client.close();
+		}
+		server.shutdown();
+	}
+
+	private static MockResponse message(String id, String sessionId, String role) {
+		return new MockResponse().setBody("{\"info\":{\"id\":\"" + id + "\",\"sessionID\":\"" + sessionId
+				+ "\",\"role\":\"" + role + "\"},\"parts\":[]}");
+	}
+
+	private OpenCodeClient connect() {
+		return new OpenCodeClient(OpenCodeConfig.builder()
+			.baseUrl(server.url("/").toString())
+			.maxRetries(0)
+			.promptSpoolDirectory(dir.toString())
+			.promptSpoolFsync(FsyncPolicy.ALWAYS)
+			.promptSpoolConcurrency(2)
+			.build());
+	}
+
+	@Test
+	public void testPromptsWaitOutAnOutage() throws Exception {
+		client = connect();
+		PromptSpool spool = client.getPromptSpool();
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			ids.add(spool.submit("ses_" + (i % 3), PromptRequest.ofText("prompt " + i, "anthropic", "claude")));
+		}
+		String own = spool.submit("ses_0",
+				PromptRequest.builder().messageId("msg_caller_chosen").parts(List.of()).build());
+		assertEquals("msg_caller_chosen", own);
+		assertTrue(ids.stream().allMatch(id -> id.startsWith("msg_")));
+		assertEquals(6, Set.copyOf(ids).size());
+
+		Thread.sleep(300);
+		assertEquals(7, spool.getPending());
+		available = true;
+
+		assertTrue(spool.awaitDrained(Duration.ofSeconds(10)));
+		assertEquals(7, stored.size());
+		assertTrue(stored.keySet().containsAll(ids));
+		assertEquals(7, spool.getDelivered());
+		assertTrue(maxConcurrent.get() <= 2);
+	}
+
+	@Test
+	public void testRecoveredPromptsAreNotSentTwice() throws Exception {
+		client = connect();
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			ids.add(client.getPromptSpool().submit("ses_a", PromptRequest.ofText("prompt " + i, "anthropic", "claude")));
+		}
+		// The first attempt was turned away
+		assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+		client.close();
+		assertEquals(3, Files.readAllLines(dir.resolve("prompts.log")).size());
+
+		// The first prompt reached the server, but the process died before recording it
+		stored.put(ids.get(0), "ses_a");
+		available = true;
+		client = connect();
+		PromptSpool spool = client.getPromptSpool();
+
+		assertTrue(spool.awaitDrained(Duration.ofSeconds(10)));
+		assertEquals(1, spool.getDuplicates());
+		assertEquals(2, spool.getDelivered());
+		assertEquals(Set.copyOf(ids), stored.keySet());
+	}
+
+	@Test
+	public void testRejectedPromptsAreDropped() throws Exception {
+		available = true;
+		client = connect();
+		PromptSpool spool = client.getPromptSpool();
+		spool.submit("ses_gone", PromptRequest.ofText("lost", "anthropic", "claude"));
+		spool.submit("ses_a", PromptRequest.ofText("kept", "anthropic", "claude"));
+
+		assertTrue(spool.awaitDrained(Duration.ofSeconds(10)));
+		assertEquals(1, spool.getFailed());
+		assertEquals(1, spool.getDelivered());
+		client.close();
+
+		client = connect();
+		assertEquals(0, client.getPromptSpool().getPending());
+	}
+
+}
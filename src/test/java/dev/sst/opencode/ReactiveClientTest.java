@@ -0,0 +1,112 @@
+package dev.sst.opencode;
+
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.client.ReactiveOpenCodeClient;
+import dev.sst.opencode.exceptions.OpenCodeException;
+import dev.sst.opencode.models.Message;
+import dev.sst.opencode.models.OpenCodeEvent;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReactiveClientTest {
+
+	private MockWebServer server;
+
+	private OpenCodeClient client;
+
+	private ReactiveOpenCodeClient reactive;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+		client = OpenCodeClient.builder()
+			.baseUrl(server.url("/").toString())
+			.workingDirectory("/work dir")
+			.metadataTimeout(1500)
+			.build();
+		reactive = new ReactiveOpenCodeClient(client, WebClient.builder());
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		client.close();
+		server.shutdown();
+	}
+
+	@Test
+	public void testSessionRoundTrip() throws Exception {
+		server.enqueue(new MockResponse().setBody("{\"id\":\"ses_1\"}").setHeader("Content-Type", "application/json"));
+		server.enqueue(new MockResponse()
+			.setBody("[{\"info\":{\"id\":\"msg_1\",\"role\":\"user\"},\"parts\":[]},"
+					+ "{\"info\":{\"id\":\"msg_2\",\"role\":\"assistant\"},\"parts\":[]}]")
+			.setHeader("Content-Type", "application/json"));
+
+		List<Message> messages = reactive.getSessions()
+			.createSession(null)
+			.flatMapMany(session -> reactive.getSessions().getMessages(session.getId()))
+			.collectList()
+			.block(Duration.ofSeconds(5));
+
+		assertEquals(2, messages.size());
+		assertEquals("msg_2", messages.get(1).getInfo().getId());
+		RecordedRequest create = server.takeRequest();
+		assertEquals("POST", create.getMethod());
+		assertEquals("/session?directory=%2Fwork%20dir", create.getPath());
+		assertEquals("/session/ses_1/message?directory=%2Fwork%20dir", server.takeRequest().getPath());
+		// The blocking client sees the session the reactive one created
+		assertEquals(1, client.getServerPool().getEndpoints().get(0).getSessionCount());
+	}
+
+	@Test
+	public void testErrorsAndTimeouts() {
+		server.enqueue(new MockResponse().setResponseCode(404).setBody("{\"error\":\"missing\"}"));
+		server.enqueue(new MockResponse().setBody("{}").setHeadersDelay(4, TimeUnit.SECONDS));
+
+		assertThrows(OpenCodeException.NotFound.class,
+				() -> reactive.getSessions().getSession("ses_1").block(Duration.ofSeconds(5)));
+		assertThrows(OpenCodeException.Timeout.class,
+				() -> reactive.getSessions().getSession("ses_1").block(Duration.ofSeconds(5)));
+	}
+
+	@Test
+	public void testCancellationAbortsTheExchange() throws Exception {
+		server.enqueue(new MockResponse().setBody("{}").setHeadersDelay(2, TimeUnit.SECONDS));
+
+		Disposable pending = reactive.getSessions().sendPrompt("ses_1", null).subscribe();
+		server.takeRequest(5, TimeUnit.SECONDS);
+		assertEquals(1, client.getServerPool().getEndpoints().get(0).getInFlight());
+
+		pending.dispose();
+		assertEquals(0, client.getServerPool().getEndpoints().get(0).getInFlight());
+	}
+
+	@Test
+	public void testEventStream() {
+		server.enqueue(new MockResponse().setHeader("Content-Type", "text/event-stream")
+			.setBody("data: {\"type\":\"session.updated\"}\n\ndata: {\"type\":\"message.updated\"}\n\n")
+			.setSocketPolicy(SocketPolicy.KEEP_OPEN));
+
+		List<OpenCodeEvent> events = reactive.getEvents()
+			.subscribeToEvents("message")
+			.take(1)
+			.collectList()
+			.block(Duration.ofSeconds(5));
+
+		assertEquals("message.updated", events.get(0).getType());
+	}
+
+}
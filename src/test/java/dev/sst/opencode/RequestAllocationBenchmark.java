@@ -0,0 +1,94 @@
+package dev.sst.opencode;
+
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.transport.OpenCodeTransport;
+import dev.sst.opencode.transport.TransportCall;
+import dev.sst.opencode.transport.TransportRequest;
+import dev.sst.opencode.transport.TransportResponse;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the client-side cost of building and dispatching requests: bytes allocated
+ * and time per call, on a transport that answers immediately without any I/O. Run
+ * with: mvn exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass="dev.sst.opencode.RequestAllocationBenchmark" [-Dexec.args="iterations"]
+ */
+public class RequestAllocationBenchmark {
+
+	private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+		.getThreadMXBean();
+
+	public static void main(String[] args) {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+		OpenCodeClient client = OpenCodeClient.builder()
+			.baseUrl("http://localhost:4096")
+			.workingDirectory("/home/user/project")
+			.transport(new NoopTransport())
+			.build();
+
+		System.out.println("========================================");
+		System.out.println("OpenCode Java SDK - request building cost");
+		System.out.println("Iterations: " + iterations);
+		System.out.println("========================================\n");
+
+		measure("getSession", iterations, () -> client.getSessions().getSession("ses_123"));
+		measure("getMessages", iterations, () -> client.getSessions().getMessages("ses_123"));
+		measure("abortSession", iterations, () -> client.getSessions().abortSession("ses_123"));
+		measure("updateSession", iterations, () -> client.getSessions().updateSession("ses_123", "Title"));
+		measure("readFile", iterations, () -> client.getFiles().readFile("src/main/App.java"));
+		measure("getConfig", iterations, () -> client.getConfiguration().getConfig());
+
+		client.close();
+	}
+
+	private static void measure(String label, int iterations, Runnable call) {
+		// Warm up so the JIT has settled and escape analysis applies
+		for (int i = 0; i < iterations; i++) {
+			call.run();
+		}
+		long thread = Thread.currentThread().threadId();
+		long bytes = THREADS.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			call.run();
+		}
+		long elapsed = System.nanoTime() - start;
+		bytes = THREADS.getThreadAllocatedBytes(thread) - bytes;
+		System.out.printf("%-14s %8d bytes/call  %8.0f ns/call%n", label, bytes / iterations,
+				(double) elapsed / iterations);
+	}
+
+	/**
+	 * Answers every call with an empty 200 response
+	 */
+	private static class NoopTransport implements OpenCodeTransport {
+
+		@Override
+		public TransportCall newCall(TransportRequest request) {
+			return new TransportCall() {
+				@Override
+				public TransportResponse execute() {
+					return new TransportResponse(200, InputStream.nullInputStream(), null);
+				}
+
+				@Override
+				public void cancel() {
+				}
+
+				@Override
+				public boolean isCanceled() {
+					return false;
+				}
+			};
+		}
+
+		@Override
+		public void close() {
+		}
+
+	}
+
+}
@@ -0,0 +1,85 @@
+package dev.sst.opencode;
+
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.models.Session;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestHedgingTest {
+
+	private MockWebServer server;
+
+	private OpenCodeClient client;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+		client = OpenCodeClient.builder().baseUrl(server.url("/").toString()).hedging(true).build();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		client.close();
+		server.shutdown();
+	}
+
+	@Test
+	public void testSlowReadIsHedged() {
+		for (int i = 0; i < 30; i++) {
+			server.enqueue(new MockResponse().setBody("{\"id\":\"ses_1\"}"));
+			client.getSessions().getSession("ses_1");
+		}
+		assertEquals(0, client.getHedger().getHedgeCount());
+
+		server.enqueue(new MockResponse().setBody("{\"id\":\"slow\"}").setHeadersDelay(3, TimeUnit.SECONDS));
+		server.enqueue(new MockResponse().setBody("{\"id\":\"fast\"}"));
+
+		long start = System.nanoTime();
+		Session session = client.getSessions().getSession("ses_1");
+
+		assertEquals("fast", session.getId());
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+		assertEquals(1, client.getHedger().getHedgeCount());
+	}
+
+	@Test
+	public void testWritesAreNeverHedged() {
+		for (int i = 0; i < 30; i++) {
+			server.enqueue(new MockResponse().setBody("{\"id\":\"ses_1\"}"));
+			client.getSessions().getSession("ses_1");
+		}
+		server.enqueue(new MockResponse().setBody("{\"id\":\"ses_2\"}").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+		client.getSessions().createSession(null);
+
+		assertEquals(0, client.getHedger().getHedgeCount());
+		assertEquals(31, server.getRequestCount());
+	}
+
+	@Test
+	public void testConsumingReadsAreNeverHedged() {
+		for (int i = 0; i < 30; i++) {
+			server.enqueue(new MockResponse().setBody("{}"));
+			client.getTui().getNextControlRequest();
+		}
+		server.enqueue(new MockResponse().setBody("{\"path\":\"/tui/open-help\"}")
+			.setHeadersDelay(300, TimeUnit.MILLISECONDS));
+		server.enqueue(new MockResponse().setBody("{\"path\":\"/tui/open-models\"}"));
+
+		// A second poll would take the next control request off the server and drop it
+		Object next = client.getTui().getNextControlRequest();
+
+		assertTrue(next.toString().contains("open-help"));
+		assertEquals(0, client.getHedger().getHedgeCount());
+		assertEquals(31, server.getRequestCount());
+	}
+
+}
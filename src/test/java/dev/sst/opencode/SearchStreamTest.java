@@ -0,0 +1,103 @@
+package dev.sst.opencode;
+
+import com.sun.net.httpserver.HttpServer;
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.config.TransportType;
+import dev.sst.opencode.exceptions.OpenCodeException;
+import dev.sst.opencode.models.SearchMatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchStreamTest {
+
+	private static final int TOTAL = 200_000;
+
+	private HttpServer server;
+
+	/**
+	 * Matches the server managed to write before the client went away
+	 */
+	private final CompletableFuture<Integer> written = new CompletableFuture<>();
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		// Platform threads: the server spins while the socket is full and must not take
+		// the carrier the client reads on
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/find", exchange -> {
+			if (exchange.getRequestURI().getQuery().contains("pattern=fail")) {
+				byte[] error = "{\"error\":\"bad pattern\"}".getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(400, error.length);
+				exchange.getResponseBody().write(error);
+				exchange.close();
+				return;
+			}
+			exchange.sendResponseHeaders(200, 0);
+			int count = 0;
+			try (OutputStream body = new BufferedOutputStream(exchange.getResponseBody(), 8192)) {
+				body.write('[');
+				body.flush();
+				for (; count < TOTAL; count++) {
+					body.write(((count > 0 ? "," : "") + "{\"path\":\"src/File" + count + ".java\",\"matches\":"
+							+ "[{\"line\":" + count + ",\"column\":1,\"text\":\"TODO: something to do here\"}]}")
+						.getBytes(StandardCharsets.UTF_8));
+				}
+				body.write(']');
+			}
+			catch (IOException e) {
+				// Client closed the connection
+			}
+			written.complete(count);
+		});
+		server.start();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	@ParameterizedTest
+	@EnumSource(TransportType.class)
+	public void testLimitClosesTheConnection(TransportType transport) throws Exception {
+		OpenCodeClient client = OpenCodeClient.builder()
+			.baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+			.transport(transport)
+			.build();
+		try {
+			List<SearchMatch> matches = client.getFiles()
+				.searchTextStream("TODO", 50)
+				.collectList()
+				.block(Duration.ofSeconds(10));
+
+			assertEquals(50, matches.size());
+			assertEquals("src/File49.java", matches.get(49).getPath());
+			assertEquals(49, matches.get(49).getMatches().get(0).getLine());
+			int sent = written.get(10, TimeUnit.SECONDS);
+			assertTrue(sent < TOTAL, "server should stop early, sent all " + sent);
+
+			assertThrows(OpenCodeException.BadRequest.class,
+					() -> client.getFiles().searchTextStream("fail", 10).blockFirst(Duration.ofSeconds(10)));
+		}
+		finally {
+			client.close();
+		}
+	}
+
+}
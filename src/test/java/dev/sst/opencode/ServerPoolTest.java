@@ -0,0 +1,151 @@
+package dev.sst.opencode;
+
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.client.ServerEndpoint;
+import dev.sst.opencode.client.ServerPool;
+import dev.sst.opencode.config.OpenCodeConfig;
+import dev.sst.opencode.config.TransportType;
+import dev.sst.opencode.exceptions.OpenCodeException;
+import dev.sst.opencode.models.Session;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServerPoolTest {
+
+	private MockWebServer first;
+
+	private MockWebServer second;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		first = new MockWebServer();
+		second = new MockWebServer();
+		first.start();
+		second.start();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		first.shutdown();
+		second.shutdown();
+	}
+
+	@Test
+	public void testSessionCallsStickToOwningServer() throws Exception {
+		OpenCodeClient client = OpenCodeClient.builder()
+			.endpoints(List.of(url(first), url(second)))
+			.build();
+		try {
+			first.enqueue(json("{\"id\":\"ses_1\"}"));
+			Session created = client.getSessions().createSession(null);
+			assertEquals("ses_1", created.getId());
+
+			// Second server now has fewer sessions, but ses_1 must stay on the first
+			first.enqueue(json("{\"id\":\"ses_1\",\"title\":\"t\"}"));
+			Session fetched = client.getSessions().getSession("ses_1");
+			assertEquals("t", fetched.getTitle());
+
+			RecordedRequest create = first.takeRequest(1, TimeUnit.SECONDS);
+			RecordedRequest get = first.takeRequest(1, TimeUnit.SECONDS);
+			assertEquals("POST", create.getMethod());
+			assertEquals("/session/ses_1", get.getPath());
+			assertEquals(0, second.getRequestCount());
+
+			// The next session goes to the less loaded server
+			second.enqueue(json("{\"id\":\"ses_2\"}"));
+			client.getSessions().createSession(null);
+			assertEquals(1, second.getRequestCount());
+		}
+		finally {
+			client.close();
+		}
+	}
+
+	@Test
+	public void testOnlyConnectFailuresDrainServer() throws Exception {
+		OpenCodeClient client = OpenCodeClient.builder()
+			.endpoints(List.of(url(first), url(second)))
+			.metadataTimeout(200)
+			// Times out without cancelling the call, unlike OkHttp's call timeout
+			.transport(TransportType.JDK)
+			.build();
+		try {
+			first.enqueue(json("{\"id\":\"ses_1\"}"));
+			client.getSessions().createSession(null);
+			second.enqueue(json("{\"id\":\"ses_2\"}"));
+			client.getSessions().createSession(null);
+			ServerEndpoint slow = client.getServerPool().forSession("ses_1");
+			ServerEndpoint down = client.getServerPool().forSession("ses_2");
+
+			// A slow reply is the call's problem, not the server's
+			first.enqueue(json("{\"id\":\"ses_1\"}").setHeadersDelay(2, TimeUnit.SECONDS));
+			assertThrows(OpenCodeException.Timeout.class, () -> client.getSessions().getSession("ses_1"));
+			assertTrue(slow.isHealthy());
+
+			second.shutdown();
+			assertThrows(OpenCodeException.NetworkError.class, () -> client.getSessions().getSession("ses_2"));
+			assertFalse(down.isHealthy());
+			assertTrue(slow.isHealthy());
+		}
+		finally {
+			client.close();
+		}
+	}
+
+	@Test
+	public void testServersAddedLaterAreHealthChecked() throws Exception {
+		OpenCodeClient client = new OpenCodeClient(
+				OpenCodeConfig.builder().baseUrl(url(first)).healthCheckInterval(100).build());
+		try {
+			second.enqueue(json("{}"));
+			client.getServerPool().register(url(second));
+
+			RecordedRequest probe = second.takeRequest(2, TimeUnit.SECONDS);
+			assertNotNull(probe);
+			assertEquals("/config", probe.getPath());
+		}
+		finally {
+			client.close();
+		}
+	}
+
+	@Test
+	public void testUnknownSessionsUseConsistentHashing() {
+		ServerPool pool = new ServerPool(List.of("http://a:1", "http://b:2", "http://c:3"));
+
+		ServerEndpoint owner = pool.forSession("ses_unknown");
+		assertSame(owner, pool.forSession("ses_unknown"));
+
+		pool.bind("ses_unknown", pool.getEndpoints().get(0));
+		assertSame(pool.getEndpoints().get(0), pool.forSession("ses_unknown"));
+		assertEquals(1, pool.getEndpoints().get(0).getSessionCount());
+	}
+
+	@Test
+	public void testDrainedEndpointGetsNoNewSessions() {
+		ServerPool pool = new ServerPool(List.of("http://a:1", "http://b:2"));
+
+		pool.drain("http://a:1");
+		for (int i = 0; i < 5; i++) {
+			assertEquals("http://b:2", pool.leastLoaded().getBaseUrl());
+		}
+	}
+
+	private static String url(MockWebServer server) {
+		return server.url("/").toString();
+	}
+
+	private static MockResponse json(String body) {
+		return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+	}
+
+}
@@ -0,0 +1,79 @@
+package dev.sst.opencode;
+
+import dev.sst.opencode.client.ServerPool;
+import dev.sst.opencode.server.ServerProcessManager;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServerProcessManagerTest {
+
+	private static ServerProcessManager.Builder standIn() throws Exception {
+		String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+		// The stand-in only needs the JDK and its own class
+		String classes = Paths.get(StandInServer.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+			.toString();
+		return ServerProcessManager.builder()
+			.command(List.of(java, "-cp", classes, StandInServer.class.getName(),
+					ServerProcessManager.PORT_PLACEHOLDER))
+			.startupTimeout(20000)
+			.initialBackoff(100);
+	}
+
+	@Test
+	public void testStartsInstancesOnDistinctPorts() throws Exception {
+		try (ServerProcessManager manager = standIn().instances(2).build()) {
+			manager.start();
+
+			List<String> endpoints = manager.getEndpoints();
+			assertEquals(2, endpoints.size());
+			assertNotEquals(endpoints.get(0), endpoints.get(1));
+
+			ServerPool pool = new ServerPool(List.of());
+			manager.attach(pool);
+			assertEquals(2, pool.size());
+		}
+	}
+
+	@Test
+	public void testRestartsCrashedInstance() throws Exception {
+		try (ServerProcessManager manager = standIn().instances(1).build()) {
+			manager.start();
+			ServerPool pool = new ServerPool(List.of());
+			manager.attach(pool);
+			String endpoint = manager.getEndpoints().get(0);
+
+			OkHttpClient http = new OkHttpClient();
+			try (Response response = http.newCall(new Request.Builder().url(endpoint + "/exit").build()).execute()) {
+				assertTrue(response.isSuccessful());
+			}
+			catch (IOException e) {
+				// The process may exit before the response is flushed
+			}
+
+			long deadline = System.currentTimeMillis() + 20000;
+			boolean restarted = false;
+			boolean sawDown = false;
+			while (System.currentTimeMillis() < deadline) {
+				if (pool.size() == 0) {
+					sawDown = true;
+				}
+				if (sawDown && pool.size() == 1) {
+					restarted = true;
+					break;
+				}
+				Thread.sleep(20);
+			}
+			assertTrue(restarted, "Crashed instance was not restarted");
+			assertEquals(List.of(endpoint), manager.getEndpoints());
+		}
+	}
+
+}
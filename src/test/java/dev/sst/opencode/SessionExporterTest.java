@@ -0,0 +1,157 @@
+package dev.sst.opencode;
+
+import com.github.luben.zstd.ZstdInputStream;
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.client.SessionExporter;
+import dev.sst.opencode.exceptions.OpenCodeException;
+import dev.sst.opencode.models.BulkResult;
+import dev.sst.opencode.models.Message;
+import dev.sst.opencode.utils.JsonUtils;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class SessionExporterTest {
+
+	@TempDir
+	Path dir;
+
+	private MockWebServer server;
+
+	private OpenCodeClient client;
+
+	private static String messages(String sessionId, int count) {
+		return IntStream.range(0, count)
+			.mapToObj(i -> "{\"info\":{\"id\":\"msg_" + i + "\",\"sessionID\":\"" + sessionId
+					+ "\",\"role\":\"assistant\"},\n  \"parts\":[{\"type\":\"text\",\"text\":\"line\\nbreak " + i + "\"}]}")
+			.collect(Collectors.joining(",", "[", "]"));
+	}
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		Map<String, String> bodies = Map.of("ses_a", messages("ses_a", 3), "ses_b", messages("ses_b", 500), "ses_empty",
+				"[]");
+		server = new MockWebServer();
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				String sessionId = request.getRequestUrl().pathSegments().get(1);
+				String body = bodies.get(sessionId);
+				return body != null ? new MockResponse().setBody(body)
+						: new MockResponse().setResponseCode(404).setBody("{\"error\":\"no such session\"}");
+			}
+		});
+		server.start();
+		client = OpenCodeClient.builder().baseUrl(server.url("/").toString()).build();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		client.close();
+		server.shutdown();
+	}
+
+	private static List<String> gunzipLines(Path file) throws IOException {
+		return lines(new GZIPInputStream(Files.newInputStream(file)));
+	}
+
+	private static List<String> unzstdLines(Path file) throws IOException {
+		return lines(new ZstdInputStream(Files.newInputStream(file)));
+	}
+
+	private static List<String> lines(InputStream in) throws IOException {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+			return reader.lines().toList();
+		}
+	}
+
+	@Test
+	public void testWriteMessagesAsLines() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		assertEquals(3, client.getSessions().writeMessagesTo("ses_a", out));
+		List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+		assertEquals(3, lines.size());
+		Message message = JsonUtils.fromJson(lines.get(2), Message.class);
+		assertEquals("msg_2", message.getInfo().getId());
+		assertEquals(0, client.getSessions().writeMessagesTo("ses_empty", out));
+	}
+
+	@Test
+	public void testExportAllToGzip() throws Exception {
+		SessionExporter exporter = client.sessionExporter(dir.resolve("archive"), SessionExporter.Compression.GZIP);
+
+		List<BulkResult<Path>> results = exporter.exportAll(List.of("ses_a", "ses_b", "ses_missing"), 2)
+			.collectList()
+			.block(Duration.ofSeconds(10));
+
+		assertEquals(3, results.size());
+		Map<String, BulkResult<Path>> byId = results.stream()
+			.collect(Collectors.toMap(BulkResult::getId, result -> result));
+		assertEquals(dir.resolve("archive/ses_b.ndjson.gz"), byId.get("ses_b").getValue());
+		List<String> lines = gunzipLines(byId.get("ses_b").getValue());
+		assertEquals(500, lines.size());
+		Message last = JsonUtils.fromJson(lines.get(499), Message.class);
+		assertEquals("line\nbreak 499", ((Message.TextPart) last.getParts().get(0)).getText());
+		assertEquals(3, gunzipLines(byId.get("ses_a").getValue()).size());
+
+		assertInstanceOf(OpenCodeException.NotFound.class, byId.get("ses_missing").getError());
+		try (var files = Files.list(dir.resolve("archive"))) {
+			assertEquals(List.of("ses_a.ndjson.gz", "ses_b.ndjson.gz"),
+					files.map(file -> file.getFileName().toString()).sorted().toList());
+		}
+	}
+
+	@Test
+	public void testExportAllToZstd() throws Exception {
+		assumeTrue(SessionExporter.Compression.ZSTD.isAvailable());
+		SessionExporter exporter = client.sessionExporter(dir.resolve("archive"));
+		assertEquals(SessionExporter.Compression.ZSTD, exporter.getCompression());
+
+		List<BulkResult<Path>> results = exporter.exportAll(List.of("ses_a", "ses_b"), 2)
+			.collectList()
+			.block(Duration.ofSeconds(10));
+
+		Map<String, BulkResult<Path>> byId = results.stream()
+			.collect(Collectors.toMap(BulkResult::getId, result -> result));
+		assertEquals(dir.resolve("archive/ses_b.ndjson.zst"), byId.get("ses_b").getValue());
+		List<String> lines = unzstdLines(byId.get("ses_b").getValue());
+		assertEquals(500, lines.size());
+		Message last = JsonUtils.fromJson(lines.get(499), Message.class);
+		assertEquals("line\nbreak 499", ((Message.TextPart) last.getParts().get(0)).getText());
+		assertEquals(3, unzstdLines(byId.get("ses_a").getValue()).size());
+	}
+
+	@Test
+	public void testZstdNeedsTheLibrary() {
+		assumeFalse(SessionExporter.Compression.ZSTD.isAvailable());
+		assertEquals(SessionExporter.Compression.GZIP, client.sessionExporter(dir).getCompression());
+		assertThrows(IllegalStateException.class,
+				() -> client.sessionExporter(dir, SessionExporter.Compression.ZSTD));
+	}
+
+}
@@ -0,0 +1,36 @@
+package dev.sst.opencode;
+
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link StandInServer} routes served by MockWebServer, which can also speak h2c
+ */
+public class StandInMockServer {
+
+	public static MockWebServer start(List<Protocol> protocols, long latencyMillis) throws IOException {
+		MockWebServer server = new MockWebServer();
+		server.setProtocols(protocols);
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				StandInServer.Reply reply = StandInServer.route(request.getMethod(), request.getRequestUrl().uri(),
+						latencyMillis);
+				return new MockResponse().setResponseCode(reply.status())
+					.setHeader("Content-Type", "application/json")
+					.setBody(reply.body())
+					.setHeadersDelay(reply.latencyMillis(), TimeUnit.MILLISECONDS);
+			}
+		});
+		server.start();
+		return server;
+	}
+
+}
@@ -0,0 +1,99 @@
+package dev.sst.opencode;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal stand-in for {@code opencode serve}, used by tests and benchmarks
+ *
+ * Run as a process with: java dev.sst.opencode.StandInServer &lt;port&gt; [latencyMillis].
+ * Depends on the JDK only, so it can run with just the test classes on the classpath.
+ */
+public class StandInServer {
+
+	private static final AtomicInteger SESSION_IDS = new AtomicInteger();
+
+	public static void main(String[] args) throws IOException {
+		int port = Integer.parseInt(args[0]);
+		long latency = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		start(port, latency);
+	}
+
+	/**
+	 * Start a stand-in server in this JVM; port 0 picks a free port
+	 */
+	public static HttpServer start(int port, long latencyMillis) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/", exchange -> {
+			if (exchange.getRequestURI().getPath().equals("/exit")) {
+				respond(exchange, new Reply(200, "{}", 0));
+				System.exit(1);
+			}
+			respond(exchange, route(exchange.getRequestMethod(), exchange.getRequestURI(), latencyMillis));
+		});
+		server.start();
+		return server;
+	}
+
+	record Reply(int status, String body, long latencyMillis) {
+	}
+
+	static Reply route(String method, URI uri, long latencyMillis) {
+		String path = uri.getPath();
+		if (path.equals("/config")) {
+			return new Reply(200, "{\"version\":\"stand-in\"}", 0);
+		}
+		if (path.equals("/config/providers")) {
+			return new Reply(200, "{\"providers\":[]}", latencyMillis);
+		}
+		if (path.equals("/file")) {
+			return new Reply(200, "{\"path\":\"" + uri.getQuery() + "\",\"content\":\"hello\"}", latencyMillis);
+		}
+		if (path.equals("/session") && method.equals("POST")) {
+			return new Reply(200, "{\"id\":\"ses_" + SESSION_IDS.incrementAndGet() + "\"}", 0);
+		}
+		if (path.equals("/session")) {
+			return new Reply(200, "[]", 0);
+		}
+		if (path.endsWith("/message") && method.equals("POST")) {
+			return new Reply(200, "{\"info\":{\"role\":\"assistant\",\"id\":\"msg_1\"},\"parts\":[]}",
+					latencyMillis);
+		}
+		if (path.endsWith("/message")) {
+			return new Reply(200, "[]", latencyMillis);
+		}
+		if (path.startsWith("/session/")) {
+			String id = path.substring(path.lastIndexOf('/') + 1);
+			return new Reply(200, "{\"id\":\"" + id + "\"}", latencyMillis);
+		}
+		return new Reply(404, "{\"error\":\"not found\"}", 0);
+	}
+
+	private static void respond(HttpExchange exchange, Reply reply) throws IOException {
+		exchange.getRequestBody().readAllBytes();
+		if (reply.latencyMillis > 0) {
+			try {
+				Thread.sleep(reply.latencyMillis);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		byte[] bytes = reply.body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(reply.status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+}
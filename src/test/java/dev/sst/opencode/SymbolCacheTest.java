@@ -0,0 +1,228 @@
+package dev.sst.opencode;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.client.SymbolCache;
+import dev.sst.opencode.models.Symbol;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SymbolCacheTest {
+
+	private static final List<String> SYMBOLS = List.of("Controller", "ContentType", "Config", "connect", "Cursor",
+			"UserController", "Parser");
+
+	/**
+	 * Like language servers, the stand-in returns at most this many symbols
+	 */
+	private static final int SERVER_LIMIT = 4;
+
+	private HttpServer server;
+
+	private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+	private final AtomicInteger searches = new AtomicInteger();
+
+	private final AtomicInteger streams = new AtomicInteger();
+
+	private OpenCodeClient client;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		server.createContext("/find/symbol", exchange -> {
+			searches.incrementAndGet();
+			String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery().replaceAll(".*query=([^&]*).*", "$1"),
+					StandardCharsets.UTF_8);
+			respond(exchange, SYMBOLS.stream()
+				.filter(name -> subsequence(name.toLowerCase(Locale.ROOT), query.toLowerCase(Locale.ROOT)))
+				.limit(SERVER_LIMIT)
+				.map(name -> "{\"name\":\"" + name + "\",\"kind\":5,\"location\":{\"uri\":\"file:///work/" + name
+						+ ".java\",\"range\":{\"start\":{\"line\":3,\"character\":13},\"end\":{\"line\":3,\"character\":"
+						+ (13 + name.length()) + "}}}}")
+				.collect(Collectors.joining(",", "[", "]")));
+		});
+		server.createContext("/event", this::streamEvents);
+		server.start();
+		events.add("{\"type\":\"server.connected\",\"properties\":{}}");
+		client = OpenCodeClient.builder()
+			.baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+			.symbolCache(64)
+			.symbolCacheRefinement(true)
+			.build();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		client.close();
+		server.stop(0);
+	}
+
+	private List<String> names(String query) {
+		return client.getFiles().findSymbols(query).stream().map(Symbol::getName).toList();
+	}
+
+	private SymbolCache liveCache() throws InterruptedException {
+		SymbolCache cache = client.getSymbolCache();
+		client.getFiles().findSymbols("warmup");
+		await(cache::isLive);
+		return cache;
+	}
+
+	@Test
+	public void testTypedSymbols() {
+		Symbol symbol = client.getFiles().findSymbols("parser").get(0);
+
+		assertEquals("Parser", symbol.getName());
+		assertEquals(5, symbol.getKind());
+		assertEquals("file:///work/Parser.java", symbol.getLocation().getUri());
+		assertEquals(19, symbol.getLocation().getRange().getEnd().getCharacter());
+	}
+
+	@Test
+	public void testLongerQueriesAreRefinedLocally() throws Exception {
+		SymbolCache cache = liveCache();
+		// Teach the cache the server's limit
+		names("c");
+		int before = searches.get();
+
+		assertEquals(List.of("Controller", "UserController"), names("contr"));
+		assertEquals(before + 1, searches.get());
+		assertEquals(List.of("Controller", "UserController"), names("control"));
+		assertEquals(List.of(), names("controlz"));
+		assertEquals(List.of(), names("controlzz"));
+		assertEquals(List.of("Controller", "UserController"), names("control"));
+		assertEquals(before + 1, searches.get());
+		assertEquals(3, cache.getRefinements());
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	public void testRefinementIsOptIn() throws Exception {
+		client.close();
+		client = OpenCodeClient.builder()
+			.baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+			.symbolCache(64)
+			.build();
+		SymbolCache cache = liveCache();
+		names("c");
+		int before = searches.get();
+
+		assertEquals(List.of("Controller", "UserController"), names("contr"));
+		assertEquals(List.of("Controller", "UserController"), names("contr"));
+		assertEquals(before + 1, searches.get());
+		assertEquals(0, cache.getRefinements());
+	}
+
+	@Test
+	public void testCutOffResultsAreNotRefined() throws Exception {
+		liveCache();
+		names("c");
+		int before = searches.get();
+
+		// "con" matched four symbols, the server's limit, so it may have been cut off
+		assertEquals(SERVER_LIMIT, names("con").size());
+		assertEquals(List.of("ContentType", "connect"), names("conn"));
+		assertEquals(before + 2, searches.get());
+	}
+
+	@Test
+	public void testFileEventsInvalidate() throws Exception {
+		SymbolCache cache = liveCache();
+		names("parser");
+		names("parser");
+		int before = searches.get();
+		assertEquals(1, cache.getHits());
+
+		events.add("{\"type\":\"file.edited\",\"properties\":{\"file\":\"/work/Parser.java\"}}");
+		await(() -> cache.size() == 0);
+		names("parser");
+		assertEquals(before + 1, searches.get());
+	}
+
+	@Test
+	public void testSharesTheEventStreamWithTheJournal(@TempDir Path directory) throws Exception {
+		client.close();
+		client = OpenCodeClient.builder()
+			.baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+			.symbolCache(64)
+			.eventJournal(directory)
+			.build();
+		SymbolCache cache = liveCache();
+		names("parser");
+		names("parser");
+		assertEquals(1, cache.getHits());
+
+		events.add("{\"type\":\"file.edited\",\"properties\":{\"file\":\"/work/Parser.java\"}}");
+		await(() -> cache.size() == 0 && client.getEventJournal().getLastOffset() == 2);
+		assertEquals(1, streams.get());
+	}
+
+	private static boolean subsequence(String name, String query) {
+		int position = 0;
+		for (char c : query.toCharArray()) {
+			position = name.indexOf(c, position) + 1;
+			if (position == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void streamEvents(HttpExchange exchange) throws IOException {
+		streams.incrementAndGet();
+		exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+		exchange.sendResponseHeaders(200, 0);
+		try (OutputStream body = exchange.getResponseBody()) {
+			while (true) {
+				String event = events.poll(100, TimeUnit.MILLISECONDS);
+				if (event != null) {
+					body.write(("data: " + event + "\n\n").getBytes(StandardCharsets.UTF_8));
+					body.flush();
+				}
+			}
+		}
+		catch (InterruptedException | IOException e) {
+			// Client went away
+		}
+	}
+
+	private static void respond(HttpExchange exchange, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "condition not met in time");
+			Thread.sleep(10);
+		}
+	}
+
+}
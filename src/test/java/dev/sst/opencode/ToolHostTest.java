@@ -0,0 +1,197 @@
+package dev.sst.opencode;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.server.HostedTool;
+import dev.sst.opencode.server.ToolHost;
+import dev.sst.opencode.server.ToolParam;
+import dev.sst.opencode.utils.JsonUtils;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ToolHostTest {
+
+	public enum Unit {
+
+		CELSIUS, FAHRENHEIT
+
+	}
+
+	public record Forecast(@ToolParam("City name") String city, @ToolParam(value = "Days ahead", required = false) int days,
+			Unit unit, List<String> fields) {
+	}
+
+	public record Ticket(String key) {
+	}
+
+	public static class TicketTools {
+
+		@HostedTool(description = "Look up a ticket")
+		public Map<String, String> ticket(Ticket args, ToolHost.Call call) {
+			return Map.of("key", args.key(), "session", call.sessionId());
+		}
+
+	}
+
+	private MockWebServer server;
+
+	private OpenCodeClient client;
+
+	private ToolHost host;
+
+	/**
+	 * Register and unregister calls the server received
+	 */
+	private final List<RecordedRequest> toolCalls = new CopyOnWriteArrayList<>();
+
+	private final HttpClient http = HttpClient.newHttpClient();
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				toolCalls.add(request);
+				return new MockResponse().setBody("POST".equals(request.getMethod()) ? "{\"id\":\"x\"}" : "true");
+			}
+		});
+		server.start();
+		client = OpenCodeClient.builder().baseUrl(server.url("/").toString()).build();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		if (host != null) {
+			host.close();
+		}
+		client.close();
+		server.shutdown();
+	}
+
+	private HttpResponse<String> invoke(String tool, String body) throws Exception {
+		return http.send(HttpRequest.newBuilder(URI.create(host.callbackUrl(tool)))
+			.POST(HttpRequest.BodyPublishers.ofString(body))
+			.build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+	@Test
+	public void testToolsAreRegisteredWithDerivedSchema() throws Exception {
+		host = ToolHost.builder(client)
+			.tool("forecast", "Weather forecast", Forecast.class, (args, call) -> args.city() + " in " + args.days())
+			.tools(new TicketTools())
+			.build();
+		host.start();
+
+		assertEquals(2, toolCalls.size());
+		JsonNode forecast = JsonUtils.fromJson(toolCalls.stream()
+			.map(request -> request.getBody().readUtf8())
+			.filter(body -> body.contains("forecast"))
+			.findFirst()
+			.orElseThrow(), JsonNode.class);
+		assertEquals(host.callbackUrl("forecast"), forecast.get("callbackUrl").asText());
+		JsonNode parameters = forecast.get("parameters");
+		assertEquals("string", parameters.at("/properties/city/type").asText());
+		assertEquals("City name", parameters.at("/properties/city/description").asText());
+		assertEquals("integer", parameters.at("/properties/days/type").asText());
+		assertEquals("FAHRENHEIT", parameters.at("/properties/unit/enum/1").asText());
+		assertEquals("string", parameters.at("/properties/fields/items/type").asText());
+		assertEquals(List.of("city", "unit", "fields"),
+				JsonUtils.getMapper().convertValue(parameters.get("required"), List.class));
+
+		host.close();
+		assertEquals(4, toolCalls.size());
+		assertTrue(toolCalls.stream().filter(request -> "DELETE".equals(request.getMethod())).count() == 2);
+		host = null;
+	}
+
+	@Test
+	public void testInvocations() throws Exception {
+		host = ToolHost.builder(null)
+			.tool("forecast", "Weather forecast", Forecast.class,
+					(args, call) -> new ToolHost.Result("Forecast", args.city() + " " + args.unit(), Map.of("days", args.days())))
+			.tools(new TicketTools())
+			.build();
+		host.start();
+
+		HttpResponse<String> forecast = invoke("forecast",
+				"{\"args\":{\"city\":\"Oslo\",\"unit\":\"CELSIUS\"},\"sessionID\":\"ses_1\"}");
+		assertEquals(200, forecast.statusCode());
+		JsonNode result = JsonUtils.fromJson(forecast.body(), JsonNode.class);
+		assertEquals("Forecast", result.get("title").asText());
+		assertEquals("Oslo CELSIUS", result.get("output").asText());
+		assertEquals(0, result.at("/metadata/days").asInt());
+
+		JsonNode ticket = JsonUtils.fromJson(invoke("ticket", "{\"args\":{\"key\":\"OPS-1\"},\"sessionID\":\"ses_1\"}").body(),
+				JsonNode.class);
+		assertEquals("ticket", ticket.get("title").asText());
+		assertEquals(Map.of("key", "OPS-1", "session", "ses_1"),
+				JsonUtils.fromJson(ticket.get("output").asText(), Map.class));
+
+		assertEquals(400, invoke("forecast", "{\"args\":{\"unit\":\"KELVIN\"}}").statusCode());
+		assertEquals(404, invoke("missing", "{}").statusCode());
+		assertEquals(1, host.getStats("forecast").invocations());
+		assertEquals(1, host.getStats("ticket").invocations());
+	}
+
+	@Test
+	public void testConcurrencyLimitPerTool() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		host = ToolHost.builder(null)
+			.queueTimeout(200)
+			.tool("slow", "Slow tool", Ticket.class, 1, (args, call) -> {
+				release.await(5, TimeUnit.SECONDS);
+				return args.key();
+			})
+			.tool("fast", "Fast tool", Ticket.class, (args, call) -> args.key())
+			.build();
+		host.start();
+
+		CompletableFuture<HttpResponse<String>> first = CompletableFuture.supplyAsync(() -> {
+			try {
+				return invoke("slow", "{\"args\":{\"key\":\"a\"}}");
+			}
+			catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		});
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (host.getStats("slow").inFlight() == 0) {
+			assertTrue(System.nanoTime() < deadline);
+			Thread.sleep(5);
+		}
+
+		// The slow tool is at its limit, other tools are not held up
+		assertEquals(429, invoke("slow", "{\"args\":{\"key\":\"b\"}}").statusCode());
+		assertEquals("c", JsonUtils.fromJson(invoke("fast", "{\"args\":{\"key\":\"c\"}}").body(), JsonNode.class)
+			.get("output")
+			.asText());
+		release.countDown();
+		assertEquals(200, first.get(5, TimeUnit.SECONDS).statusCode());
+
+		ToolHost.Stats stats = host.getStats("slow");
+		assertEquals(1, stats.invocations());
+		assertEquals(1, stats.rejected());
+		assertEquals(0, stats.inFlight());
+		assertTrue(stats.maxMillis() > 0);
+	}
+
+}
@@ -0,0 +1,106 @@
+package dev.sst.opencode;
+
+import com.sun.net.httpserver.HttpServer;
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.config.TransportType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares the OkHttp and java.net.http transports against the local stand-in server:
+ * throughput, per-request latency and the platform threads each stack keeps, with
+ * callers on virtual threads. Run with: mvn exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass="dev.sst.opencode.TransportBenchmark" [-Dexec.args="concurrency
+ * requestsPerWorker latencyMillis"]
+ */
+public class TransportBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+		int requestsPerWorker = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		long latency = args.length > 2 ? Long.parseLong(args[2]) : 5;
+
+		System.out.println("========================================");
+		System.out.println("OpenCode Java SDK - OkHttp vs java.net.http");
+		System.out.println("Workers: " + concurrency + ", requests per worker: " + requestsPerWorker
+				+ ", server latency: " + latency + " ms");
+		System.out.println("========================================\n");
+
+		HttpServer server = StandInServer.start(0, latency);
+		String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+		try {
+			// Warm up class loading and JIT once before measuring either transport
+			for (TransportType transport : TransportType.values()) {
+				run(baseUrl, transport, 8, 50);
+			}
+			for (TransportType transport : TransportType.values()) {
+				run(baseUrl, transport, concurrency, requestsPerWorker).print(transport.name());
+			}
+		}
+		finally {
+			server.stop(0);
+		}
+	}
+
+	private record Result(long[] latencies, long elapsedNanos, int clientThreads) {
+
+		void print(String label) {
+			long[] sorted = latencies.clone();
+			Arrays.sort(sorted);
+			System.out.printf("%-7s throughput=%8.0f req/s  p50=%6.2f ms  p99=%6.2f ms  client platform threads=%d%n",
+					label, sorted.length / (elapsedNanos / 1e9), millis(sorted, 0.50), millis(sorted, 0.99),
+					clientThreads);
+		}
+
+	}
+
+	private static Result run(String baseUrl, TransportType transport, int concurrency, int requestsPerWorker)
+			throws Exception {
+		OpenCodeClient client = OpenCodeClient.builder().baseUrl(baseUrl).transport(transport).timeout(30000).build();
+		long[] latencies = new long[concurrency * requestsPerWorker];
+		long start = System.nanoTime();
+		try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int w = 0; w < concurrency; w++) {
+				int worker = w;
+				futures.add(workers.submit(() -> {
+					for (int i = 0; i < requestsPerWorker; i++) {
+						long t = System.nanoTime();
+						client.getSessions().getSession("ses_" + worker);
+						latencies[worker * requestsPerWorker + i] = System.nanoTime() - t;
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		int clientThreads = clientThreads();
+		client.close();
+		return new Result(latencies, elapsed, clientThreads);
+	}
+
+	/**
+	 * Platform threads started by either HTTP stack, leaving out the stand-in's own
+	 */
+	private static int clientThreads() {
+		return (int) Thread.getAllStackTraces()
+			.keySet()
+			.stream()
+			.filter(thread -> !thread.isVirtual())
+			.filter(thread -> thread.getName().startsWith("OkHttp") || thread.getName().startsWith("HttpClient"))
+			.count();
+	}
+
+	private static double millis(long[] sorted, double percentile) {
+		return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+	}
+
+}
@@ -0,0 +1,115 @@
+package dev.sst.opencode;
+
+import dev.sst.opencode.client.OpenCodeClient;
+import dev.sst.opencode.config.TransportType;
+import dev.sst.opencode.exceptions.OpenCodeException;
+import dev.sst.opencode.models.OpenCodeEvent;
+import dev.sst.opencode.models.Session;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransportTest {
+
+	private MockWebServer server;
+
+	private OpenCodeClient client;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		client.close();
+		server.shutdown();
+	}
+
+	private OpenCodeClient client(TransportType transport) {
+		client = OpenCodeClient.builder()
+			.baseUrl(server.url("/").toString())
+			.apiKey("secret")
+			.workingDirectory("/work dir")
+			.metadataTimeout(300)
+			.transport(transport)
+			.build();
+		return client;
+	}
+
+	@ParameterizedTest
+	@EnumSource(TransportType.class)
+	public void testRoundTrip(TransportType transport) throws Exception {
+		server.enqueue(new MockResponse().setBody("{\"id\":\"ses_1\",\"title\":\"Test\"}"));
+
+		Session session = client(transport).getSessions().updateSession("ses_1", "Test");
+
+		assertEquals("Test", session.getTitle());
+		RecordedRequest request = server.takeRequest();
+		assertEquals("PATCH", request.getMethod());
+		assertEquals("/session/ses_1?directory=%2Fwork%20dir", request.getPath());
+		assertEquals("Bearer secret", request.getHeader("Authorization"));
+		assertEquals("{\"title\":\"Test\"}", request.getBody().readUtf8());
+	}
+
+	@ParameterizedTest
+	@EnumSource(TransportType.class)
+	public void testErrorsAndTimeouts(TransportType transport) {
+		server.enqueue(new MockResponse().setResponseCode(404).setBody("{\"error\":\"missing\"}"));
+		server.enqueue(new MockResponse().setBody("{}").setHeadersDelay(2, TimeUnit.SECONDS));
+		OpenCodeClient client = client(transport);
+
+		assertThrows(OpenCodeException.NotFound.class, () -> client.getSessions().getSession("ses_1"));
+		assertThrows(OpenCodeException.Timeout.class, () -> client.getSessions().getSession("ses_1"));
+	}
+
+	@ParameterizedTest
+	@EnumSource(TransportType.class)
+	public void testEventStream(TransportType transport) {
+		server.enqueue(new MockResponse().setHeader("Content-Type", "text/event-stream")
+			.setBody("data: {\"type\":\"session.updated\"}\n\n: comment\ndata: {\"type\":\n"
+					+ "data: \"message.updated\"}\n\n")
+			.setSocketPolicy(SocketPolicy.KEEP_OPEN));
+
+		List<OpenCodeEvent> events = client(transport).getEvents()
+			.subscribeToEvents()
+			.take(2)
+			.collectList()
+			.block(Duration.ofSeconds(5));
+
+		assertEquals(List.of("session.updated", "message.updated"),
+				events.stream().map(OpenCodeEvent::getType).toList());
+	}
+
+	@ParameterizedTest
+	@EnumSource(TransportType.class)
+	public void testBudgetCoversIncrementalBodies(TransportType transport) {
+		// Headers right away, then a body that would take ten seconds
+		server.enqueue(new MockResponse().setBody("{\"path\":\"big.txt\",\"content\":\"" + "x".repeat(100) + "\"}")
+			.throttleBody(10, 1, TimeUnit.SECONDS));
+		client = OpenCodeClient.builder()
+			.baseUrl(server.url("/").toString())
+			.fileTimeout(500)
+			.transport(transport)
+			.build();
+
+		long start = System.nanoTime();
+		assertThrows(OpenCodeException.Timeout.class,
+				() -> client.getFiles().readFileTo("big.txt", new ByteArrayOutputStream()));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 3000);
+	}
+
+}